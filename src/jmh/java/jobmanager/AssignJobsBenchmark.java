@@ -0,0 +1,45 @@
+package jobmanager;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures one call to assignJobs that moves three jobs, followed by the removeRobot/addRobot pair that hands them
+ * back, on managers whose lower half of jobs is already assigned to another robot. The score should not depend on n.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AssignJobsBenchmark {
+
+    @Param({"1000", "100000", "10000000"})
+    public int n;
+
+    private JobManager jm;
+    private Robot worker;
+    private int jobId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        jm = new JobManager(n, JobManager.CheckLevel.OFF);
+        Robot holder = new Robot(1);
+        worker = new Robot(2);
+        jm.addRobot(holder);
+        jm.addRobot(worker);
+        jm.assignJobs(holder, n / 2);
+        jobId = n / 2 + 3;
+    }
+
+    @Benchmark
+    public boolean assignThreeJobs() {
+        boolean assigned = jm.assignJobs(worker, jobId);
+        jm.removeRobot(worker);
+        jm.addRobot(worker);
+        return assigned;
+    }
+}
@@ -0,0 +1,134 @@
+package jobmanager;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures every JobManager operation on managers of n jobs and the given number of robots. In each manager the lowest
+ * three quarters of the jobs are split into contiguous, equally sized blocks, one per robot, and the highest quarter is
+ * unassigned. Mutating benchmarks undo their own changes, so every invocation sees the same state.
+ *
+ * Run with the gc profiler (configured in build.gradle) to see allocation per operation.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class JobManagerBenchmark {
+
+    private static final int PROBES = 1024;
+
+    @Param({"1000", "100000", "10000000"})
+    public int n;
+
+    @Param({"1", "100", "10000"})
+    public int robots;
+
+    private JobManager jm;
+    private JobManager copy;
+    private Robot loaded;
+    private int loadedLastJob;
+    private Robot spare;
+    private final int[] jobProbes = new int[PROBES];
+    private final Robot[] robotProbes = new Robot[PROBES];
+    private int probe;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        jm = build();
+        copy = build();
+        loaded = new Robot(robots);
+        loadedLastJob = jm.getHighestPriorityJob(loaded, n);
+        spare = new Robot(robots + 1);
+        Random random = new Random(221);
+        for (int i = 0; i < PROBES; i++) {
+            jobProbes[i] = 1 + random.nextInt(n);
+            robotProbes[i] = new Robot(1 + random.nextInt(robots));
+        }
+    }
+
+    private JobManager build() {
+        JobManager manager = new JobManager(n, JobManager.CheckLevel.OFF);
+        int assigned = n / 4 * 3;
+        for (int i = 1; i <= robots; i++) {
+            manager.addRobot(new Robot(i));
+            manager.assignJobs(new Robot(i), (int) ((long) assigned * i / robots));
+        }
+        return manager;
+    }
+
+    private int nextProbe() {
+        probe = (probe + 1) & (PROBES - 1);
+        return probe;
+    }
+
+    @Benchmark
+    public JobManager constructor() {
+        return new JobManager(n, JobManager.CheckLevel.OFF);
+    }
+
+    @Benchmark
+    public boolean addRobot() {
+        boolean added = jm.addRobot(spare);
+        jm.removeRobot(spare);
+        return added;
+    }
+
+    @Benchmark
+    public boolean removeRobot() {
+        boolean removed = jm.removeRobot(loaded);
+        jm.addRobot(loaded);
+        jm.assignJobs(loaded, loadedLastJob);
+        return removed;
+    }
+
+    @Benchmark
+    public boolean assignJobs() {
+        jm.addRobot(spare);
+        boolean assigned = jm.assignJobs(spare, n);
+        jm.removeRobot(spare);
+        return assigned;
+    }
+
+    @Benchmark
+    public Robot getRobot() {
+        return jm.getRobot(jobProbes[nextProbe()]);
+    }
+
+    @Benchmark
+    public boolean moveJobs() {
+        jm.addRobot(spare);
+        boolean moved = jm.moveJobs(loaded, spare);
+        jm.moveJobs(spare, loaded);
+        jm.removeRobot(spare);
+        return moved;
+    }
+
+    @Benchmark
+    public int getHighestPriorityJob() {
+        int i = nextProbe();
+        return jm.getHighestPriorityJob(robotProbes[i], jobProbes[i]);
+    }
+
+    @Benchmark
+    public boolean equalsCopy() {
+        return jm.equals(copy);
+    }
+
+    @Benchmark
+    public int hashCodeOf() {
+        return jm.hashCode();
+    }
+
+    @Benchmark
+    public void checkRep() {
+        jm.setCheckLevel(JobManager.CheckLevel.FULL);
+        jm.checkRep();
+        jm.setCheckLevel(JobManager.CheckLevel.OFF);
+    }
+}
@@ -0,0 +1,423 @@
+package jobmanager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This class represents a thread-safe JobManager. It has the same contract as JobManager, and any number of threads
+ * may call its methods concurrently.
+ *
+ * Robots are spread over a fixed number of lock stripes by Robot.hashCode(), so operations on robots in different
+ * stripes run in parallel. Operations that touch one robot (addRobot, getHighestPriorityJob) take only that robot's
+ * stripe. Operations that also touch the shared pool of unassigned jobs (assignJobs, removeRobot) take the robot's
+ * stripe and then the pool lock, and moveJobs takes the stripes of both robots in increasing stripe order. Locks are
+ * always acquired in the order (stripes in increasing index, then the pool lock), so no two operations can deadlock.
+ * equals locks two managers in the order in which they were created, so two equals calls on the same pair of managers
+ * lock them in the same order.
+ * hasRobot, isAssigned and getRobot take no locks at all.
+ *
+ * @see JobManager
+ */
+
+public class ConcurrentJobManager {
+
+    private static final int STRIPES = 64;
+
+    private static final AtomicLong CREATED = new AtomicLong();
+    // number of ConcurrentJobManagers created so far
+
+    public final int n;
+    // number of jobs in this; also, the id of highest priority job in this
+
+    private final Map<Robot, IntSortedSet> robotToJobs = new ConcurrentHashMap<>();
+    // maps: Robot --> ordered set of jobs assigned to Robot; the set of a robot is only read or written while
+    // holding the stripe lock of that robot
+
+    private final JobSet unassignedJobs = new JobSet();
+    // set of unassigned jobs; only read or written while holding poolLock
+
+    private final AtomicIntegerArray jobOwner;
+    // maps: job id --> id of the robot that the job is assigned to, or 0 if the job is unassigned; only written while
+    // holding the stripe lock of the robot that gains or loses the job (and poolLock if the job enters or leaves
+    // unassignedJobs)
+
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+    private final ReentrantLock poolLock = new ReentrantLock();
+
+    private final long sequence = CREATED.getAndIncrement();
+    // distinct number of this among all ConcurrentJobManagers; equals locks the manager with the lower number first
+
+    /**
+     * How does our data representation (robotToJobs, unassignedJobs, jobOwner, n) represent a JobManager?
+     *
+     * (1) This manages a job with id = Z iff Z is an Integer in [1,...,this.n].
+     * (2) A robot is managed by this iff it is a key in this.robotToJobs.
+     * (3) A job Z is assigned to robot R iff Z is in this.robotToJobs.get(R) iff this.jobOwner[Z] = R.id.
+     * (4) A job Z is unassigned iff Z is in this.unassignedJobs iff this.jobOwner[Z] = 0.
+     * (5) The sets this.unassignedJobs and this.robotToJobs.get(R), for every robot R in this, partition [1,...,this.n].
+     *
+     * (3)-(5) hold whenever no lock of this is held.
+     */
+
+    /**
+     * Creates a new ConcurrentJobManager to manage n jobs with job IDs [1,...,n].
+     *
+     * @param n
+     * @throws IllegalArgumentException if n < 1
+     */
+    public ConcurrentJobManager(int n) {
+        if (n < 1) {throw new IllegalArgumentException("n must be at least 1");}
+        this.n = n;
+        this.jobOwner = new AtomicIntegerArray(n + 1);
+        this.unassignedJobs.addRange(1, n);
+        for (int i = 0; i < STRIPES; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Checks if this ConcurrentJobManager has the specified Robot
+     *
+     * @param robot
+     * @return true if robot is now in this, and false otherwise
+     */
+    public boolean hasRobot(Robot robot) {
+        if (robot == null || robot.isNull()) { return false; }
+        return this.robotToJobs.containsKey(robot);
+    }
+
+    /**
+     * Adds the specified Robot to this ConcurrentJobManager
+     *
+     * @param robot
+     * @return true if this formerly did not have robot but now does, and false otherwise
+     */
+    public boolean addRobot(Robot robot) {
+        if (robot == null || robot.isNull()) { return false; }
+        ReentrantLock stripe = stripeOf(robot);
+        stripe.lock();
+        try {
+            return this.robotToJobs.putIfAbsent(robot, new RunIntSortedSet()) == null;
+        }
+        finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * Removes the specified robot from this ConcurrentJobManager
+     *
+     * @param robot
+     * @return true if this formerly did have robot but now does not, and false otherwise
+     * @post All jobs formerly assigned to this robot are now unassigned
+     */
+    public boolean removeRobot(Robot robot) {
+        if (robot == null || robot.isNull()) { return false; }
+        ReentrantLock stripe = stripeOf(robot);
+        stripe.lock();
+        try {
+            if (!this.robotToJobs.containsKey(robot)) { return false; }
+            this.poolLock.lock();
+            try {
+                IntSortedSet jobs = this.robotToJobs.remove(robot);
+                for (int run = 0; run < jobs.runCount(); run++) {
+                    this.unassignedJobs.addRange(jobs.runLo(run), jobs.runHi(run));
+                    setOwner(jobs.runLo(run), jobs.runHi(run), 0);
+                }
+                return true;
+            }
+            finally {
+                this.poolLock.unlock();
+            }
+        }
+        finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * Assigns all unassigned jobs managed by this ConcurrentJobManager with an id <= the specified id to the specified
+     * robot when this has the specified robot
+     *
+     * @param robot
+     * @param jobId
+     * @return true if both of the following hold true: (1) this has robot, and (2) all formerly unassigned jobs managed
+     *         by this whose id <= jobId are now assigned to robot; and false otherwise
+     */
+    public boolean assignJobs(Robot robot, int jobId) {
+        if (robot == null || robot.isNull()) { return false; }
+        ReentrantLock stripe = stripeOf(robot);
+        stripe.lock();
+        try {
+            IntSortedSet jobs = this.robotToJobs.get(robot);
+            if (jobs == null) { return false; }
+            this.poolLock.lock();
+            try {
+                int lo = this.unassignedJobs.nextSetBit(1);
+                while (lo != -1 && lo <= jobId) {
+                    int hi = this.unassignedJobs.nextClearBit(lo, jobId) - 1;
+                    this.unassignedJobs.removeRange(lo, hi);
+                    jobs.addRange(lo, hi);
+                    setOwner(lo, hi, robot.id);
+                    lo = hi < jobId ? this.unassignedJobs.nextSetBit(hi + 1) : -1;
+                }
+                return true;
+            }
+            finally {
+                this.poolLock.unlock();
+            }
+        }
+        finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * Checks if a specified job is assigned to a robot managed by this ConcurrentJobManager
+     *
+     * @param jobId
+     * @return true if both of the following hold true: (1) a job with id = jobId is managed by this, and (2) that
+     *         job is assigned to a robot in this; and false otherwise
+     */
+    public boolean isAssigned(int jobId) {
+        if (jobId < 1 || jobId > this.n) { return false; }
+        return this.jobOwner.get(jobId) != 0;
+    }
+
+    /**
+     * Gets the Robot in this ConcurrentJobManager assigned the job with the specified id
+     *
+     * @param jobId
+     * @return the Robot assigned job with id = jobId if both of the following hold true: (1) a job with id = JobId is
+     *         managed by this, and (2) that job is assigned to Robot in this; and a Null Robot otherwise
+     */
+    public Robot getRobot(int jobId) {
+        if (jobId < 1 || jobId > this.n) { return Robot.NULL; }
+        int robotId = this.jobOwner.get(jobId);
+        return robotId == 0 ? Robot.NULL : Robot.of(robotId);
+    }
+
+    /**
+     * Moves all jobs managed by this ConcurrentJobManager with an id <= the specified id that were assigned to a
+     * specified robot to another specified robot when this has both specified robots
+     *
+     * @param srcRobot
+     * @param dstRobot
+     * @param jobId
+     * @return true if both of the following hold true: (1) this has srcRobot & dstRobot, and (2) all jobs managed by
+     *         this with id <= jobId that were formerly assigned to srcRobot are now assigned to dstRobot;
+     *         and false otherwise
+     */
+    public boolean moveJobs(Robot srcRobot, Robot dstRobot, int jobId) {
+        if (srcRobot == null || dstRobot == null) { return false; }
+        if (srcRobot.isNull() || dstRobot.isNull()) { return false; }
+        if (jobId < 1) { return false; }
+        return move(srcRobot, dstRobot, jobId);
+    }
+
+    /**
+     * Moves all jobs managed by this ConcurrentJobManager from a specified robot to another specified robot when this
+     * has both specified robots
+     *
+     * @param srcRobot
+     * @param dstRobot
+     * @return true if both of the following hold true: (1) this has srcRobot & dstRobot, and (2) all jobs managed by
+     *         this that were formerly assigned to srcRobot are now assigned to dstRobot; and false otherwise
+     */
+    public boolean moveJobs(Robot srcRobot, Robot dstRobot) {
+        if (srcRobot == null || dstRobot == null) { return false; }
+        if (srcRobot.isNull() || dstRobot.isNull()) { return false; }
+        return move(srcRobot, dstRobot, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Gets the highest priority job assigned to a specified robot in this ConcurrentJobManager with id <= a specified
+     * id when this has the specified robot
+     *
+     * @param robot
+     * @param jobId
+     * @return the id of the highest priority job assigned to robot with id <= jobId; or a null job id of 0 if either no
+     *         such job or robot exists in this
+     */
+    public int getHighestPriorityJob(Robot robot, int jobId) {
+        if (robot == null || robot.isNull()) { return 0; }
+        if (jobId < 1) { return 0; }
+        ReentrantLock stripe = stripeOf(robot);
+        stripe.lock();
+        try {
+            IntSortedSet jobs = this.robotToJobs.get(robot);
+            return jobs == null ? 0 : Math.max(jobs.floor(jobId), 0);
+        }
+        finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * Compares the specified object with this ConcurrentJobManager for equality
+     *
+     * @param o
+     * @return true iff o is a ConcurrentJobManager and (1) this and o have the same pool of Robots as determined by id,
+     *         (2) each Robot in this is assigned the same jobs as its equivalent Robot in o, and (3) this and o have the
+     *         same unassigned jobs
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof ConcurrentJobManager)) { return false; }
+        ConcurrentJobManager other = (ConcurrentJobManager) o;
+        if (other == this) { return true; }
+        if (this.n != other.n) { return false; }
+        // both managers are locked one after the other in the order of their distinct sequence numbers, so two
+        // concurrent equals calls on the same pair agree on the order even when their identity hashes collide
+        ConcurrentJobManager first = this.sequence < other.sequence ? this : other;
+        ConcurrentJobManager second = first == this ? other : this;
+        first.lockAll();
+        try {
+            second.lockAll();
+            try {
+                return this.unassignedJobs.equals(other.unassignedJobs) && this.robotToJobs.equals(other.robotToJobs);
+            }
+            finally {
+                second.unlockAll();
+            }
+        }
+        finally {
+            first.unlockAll();
+        }
+    }
+
+    /**
+     * Returns the hashcode for this ConcurrentJobManager
+     *
+     * @return the hashcode value which is
+     *         min{
+     *         (highest priority job in this) + [sum of (Robot.id * the highest priority job assigned to Robot), for every Robot in this],
+     *         Integer.MAX_VALUE
+     *         }
+     */
+    @Override
+    public int hashCode() {
+        lockAll();
+        try {
+            long hash = this.n;
+            for (Map.Entry<Robot, IntSortedSet> entry : this.robotToJobs.entrySet()) {
+                if (entry.getValue().isEmpty()) { continue; }
+                hash += (long) entry.getKey().id * entry.getValue().last();
+                if (hash > Integer.MAX_VALUE) { return Integer.MAX_VALUE; }
+            }
+            return (int) hash;
+        }
+        finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * Checks the representation invariant of this while no other thread may change this
+     *
+     * @throws AssertionError if the representation invariant is violated
+     */
+    public void checkRep() {
+        lockAll();
+        try {
+            if (this.unassignedJobs.contains(0) || this.unassignedJobs.last() > this.n) {
+                throw new AssertionError();
+            }
+            for (int job = this.unassignedJobs.nextSetBit(1); job != -1; job = this.unassignedJobs.nextSetBit(job + 1)) {
+                if (this.jobOwner.get(job) != 0) {
+                    throw new AssertionError();
+                }
+            }
+            JobSet seen = new JobSet(this.unassignedJobs);
+            for (Map.Entry<Robot, IntSortedSet> entry : this.robotToJobs.entrySet()) {
+                IntSortedSet jobs = entry.getValue();
+                for (int run = 0; run < jobs.runCount(); run++) {
+                    int lo = jobs.runLo(run);
+                    int hi = jobs.runHi(run);
+                    if (lo < 1 || hi > this.n || seen.addRange(lo, hi) != hi - lo + 1) {
+                        throw new AssertionError();
+                    }
+                    for (int job = lo; job <= hi; job++) {
+                        if (this.jobOwner.get(job) != entry.getKey().id) {
+                            throw new AssertionError();
+                        }
+                    }
+                }
+            }
+            if (seen.size() != this.n) {
+                throw new AssertionError();
+            }
+        }
+        finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * Moves every job with id <= jobId from srcRobot to dstRobot while holding the stripes of both robots
+     *
+     * @return true iff this has both robots
+     */
+    private boolean move(Robot srcRobot, Robot dstRobot, int jobId) {
+        int srcStripe = stripeIndex(srcRobot);
+        int dstStripe = stripeIndex(dstRobot);
+        ReentrantLock firstLock = this.stripes[Math.min(srcStripe, dstStripe)];
+        ReentrantLock secondLock = this.stripes[Math.max(srcStripe, dstStripe)];
+        firstLock.lock();
+        try {
+            secondLock.lock();
+            try {
+                IntSortedSet srcJobs = this.robotToJobs.get(srcRobot);
+                IntSortedSet dstJobs = this.robotToJobs.get(dstRobot);
+                if (srcJobs == null || dstJobs == null) { return false; }
+                if (srcRobot.equals(dstRobot)) { return true; }
+                for (int run = 0; run < srcJobs.runCount() && srcJobs.runLo(run) <= jobId; run++) {
+                    int lo = srcJobs.runLo(run);
+                    int hi = Math.min(srcJobs.runHi(run), jobId);
+                    dstJobs.addRange(lo, hi);
+                    setOwner(lo, hi, dstRobot.id);
+                }
+                srcJobs.removeRange(0, jobId);
+                return true;
+            }
+            finally {
+                secondLock.unlock();
+            }
+        }
+        finally {
+            firstLock.unlock();
+        }
+    }
+
+    private void setOwner(int lo, int hi, int robotId) {
+        for (int job = lo; job <= hi; job++) {
+            this.jobOwner.set(job, robotId);
+        }
+    }
+
+    private int stripeIndex(Robot robot) {
+        int h = robot.hashCode();
+        return (h ^ (h >>> 16)) & (STRIPES - 1);
+    }
+
+    private ReentrantLock stripeOf(Robot robot) {
+        return this.stripes[stripeIndex(robot)];
+    }
+
+    private void lockAll() {
+        for (ReentrantLock stripe : this.stripes) {
+            stripe.lock();
+        }
+        this.poolLock.lock();
+    }
+
+    private void unlockAll() {
+        this.poolLock.unlock();
+        for (int i = STRIPES - 1; i >= 0; i--) {
+            this.stripes[i].unlock();
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package jobmanager;
+
+/**
+ * This interface represents a mutable set of non-negative int ids kept in increasing order without boxing.
+ *
+ * The ids of an IntSortedSet are exposed as a sequence of runs: maximal ranges [runLo(i),...,runHi(i)] of consecutive
+ * ids in the set, where runHi(i) + 1 < runLo(i + 1) for every pair of neighbouring runs. Bulk operations (range
+ * insertion & removal and merging) work on whole runs, so their cost depends on the number of runs involved rather than
+ * the number of ids.
+ *
+ * Two IntSortedSets are equal iff they hold the same ids.
+ */
+
+public interface IntSortedSet {
+
+    /**
+     * Gets the number of ids in this set
+     *
+     * @return the number of ids in this
+     */
+    int size();
+
+    /**
+     * Checks if this set is empty
+     *
+     * @return true iff this holds no ids
+     */
+    boolean isEmpty();
+
+    /**
+     * Checks if this set holds the specified id
+     *
+     * @param id
+     * @return true iff id is in this
+     */
+    boolean contains(int id);
+
+    /**
+     * Adds the specified id to this set
+     *
+     * @param id
+     * @return true iff id was not formerly in this
+     * @throws IllegalArgumentException if id < 0
+     */
+    boolean add(int id);
+
+    /**
+     * Removes the specified id from this set
+     *
+     * @param id
+     * @return true iff id was formerly in this
+     */
+    boolean remove(int id);
+
+    /**
+     * Adds every id in [lo,...,hi] to this set; does nothing if lo > hi
+     *
+     * @param lo
+     * @param hi
+     * @return the number of ids that were not formerly in this
+     * @throws IllegalArgumentException if lo <= hi and lo < 0
+     */
+    int addRange(int lo, int hi);
+
+    /**
+     * Removes every id in [lo,...,hi] from this set; does nothing if lo > hi
+     *
+     * @param lo
+     * @param hi
+     * @return the number of ids that were formerly in this
+     */
+    int removeRange(int lo, int hi);
+
+    /**
+     * Adds every id of the specified set to this set
+     *
+     * @param other
+     * @return the number of ids that were not formerly in this
+     */
+    int addAll(IntSortedSet other);
+
+    /**
+     * Removes every id from this set
+     */
+    void clear();
+
+    /**
+     * Releases any storage this set holds beyond what its current ids need
+     */
+    void trimToSize();
+
+    /**
+     * Gets the lowest id in this set
+     *
+     * @return the lowest id in this
+     * @throws java.util.NoSuchElementException if this is empty
+     */
+    int first();
+
+    /**
+     * Gets the highest id in this set
+     *
+     * @return the highest id in this
+     * @throws java.util.NoSuchElementException if this is empty
+     */
+    int last();
+
+    /**
+     * Gets the highest id in this set that is <= the specified id
+     *
+     * @param id
+     * @return the highest id in this that is <= id, or -1 if there is no such id
+     */
+    int floor(int id);
+
+    /**
+     * Gets the number of runs of consecutive ids in this set
+     *
+     * @return the number of runs in this
+     */
+    int runCount();
+
+    /**
+     * Gets the lowest id of the specified run of this set
+     *
+     * @param run index of a run, in [0,...,runCount() - 1]
+     * @return the lowest id of run
+     * @throws IndexOutOfBoundsException if run is not a valid run index
+     */
+    int runLo(int run);
+
+    /**
+     * Gets the highest id of the specified run of this set
+     *
+     * @param run index of a run, in [0,...,runCount() - 1]
+     * @return the highest id of run
+     * @throws IndexOutOfBoundsException if run is not a valid run index
+     */
+    int runHi(int run);
+
+    /**
+     * Gets a fingerprint of the ids in this set, which is kept up to date as the set changes and so costs O(1)
+     *
+     * @return a value that is the same for any two equal sets, and that almost always differs between two sets that
+     *         are not equal
+     */
+    long fingerprint();
+
+    /**
+     * Creates an independent copy of this set
+     *
+     * @return a new IntSortedSet holding the same ids as this
+     */
+    IntSortedSet copy();
+}
@@ -0,0 +1,608 @@
+package jobmanager;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * This mutable class maps job ids to owners, where an owner is a positive int such as the slot of a robot and 0 stands
+ * for "no owner". It stores the mapping as sorted intervals [lo,...,hi] --> owner, so that a mapping made of a few long
+ * ranges of ids costs a few ints no matter how many ids it covers.
+ *
+ * The intervals are kept in chunks of at most CHUNK intervals each, in a directory of chunks sorted by their lowest id,
+ * like the leaves of a B+-tree under a single inner node. Looking up the owner of an id binary searches the directory
+ * and then one chunk. Setting the owner of a range of ids trims the intervals it cuts at its ends, drops the ones it
+ * covers, and inserts the new interval merged with neighbouring intervals of the same owner. Inserting into a full
+ * chunk splits it in two, and a chunk that shrinks below a quarter of CHUNK is merged into a neighbour that has room.
+ *
+ * Setting an owner therefore costs O(log intervals) to find the range and O(CHUNK) to shift the intervals within the
+ * chunks at its ends; only a split, merge or drop of a chunk shifts the directory, which is CHUNK times shorter than
+ * the intervals. Each covered interval costs O(1) more to drop, which is paid for by the set that created it.
+ *
+ * Chunks are changed in place, so a lookup that races with a mutation may see a torn state. Every lookup reads the
+ * number of chunks and then the number of intervals of one chunk once into locals and only ever moves through them by
+ * binary search, so it may return a wrong owner or throw a RuntimeException, but always terminates.
+ */
+
+public class IntervalOwnerMap {
+
+    private static final int CHUNK = 64;
+    // most intervals in a chunk
+
+    private Chunk[] chunks;
+    // chunks[0,...,chunkCount - 1] hold the intervals of this in increasing order
+
+    private int chunkCount;
+    // number of chunks in this
+
+    private int intervals;
+    // number of intervals in this
+
+    private long ownedCount;
+    // number of ids that have an owner in this
+
+    /**
+     * How does our data representation (chunks, chunkCount, intervals, ownedCount) represent an IntervalOwnerMap?
+     *
+     * Let the intervals of this be interval 0,...,size - 1 of chunks[0], then those of chunks[1], and so on up to
+     * chunks[chunkCount - 1], where interval i of a chunk is [bounds[2 * i],...,bounds[2 * i + 1]] --> owners[i].
+     *
+     * (1) An id Z has owner s > 0 iff Z is in an interval of this with owner s; every other id has owner 0.
+     * (2) 0 <= lo <= hi and owner > 0 for every interval [lo,...,hi] --> owner of this.
+     * (3) Every interval of this ends below the lowest id of the next one, and if the two are adjacent, i.e., the
+     *     first ends at the lowest id of the second minus 1, then their owners differ.
+     * (4) 1 <= chunks[c].size <= CHUNK for every c in [0,...,chunkCount - 1], chunks[c] = null for every other c, and
+     *     this.intervals is the sum of chunks[c].size.
+     * (5) this.ownedCount is the sum of (hi - lo + 1) over every interval [lo,...,hi] of this.
+     */
+
+    /**
+     * Creates a new IntervalOwnerMap in which no id has an owner
+     */
+    public IntervalOwnerMap() {
+        this.chunks = new Chunk[4];
+    }
+
+    /**
+     * Gets the owner of the specified id
+     *
+     * @param id
+     * @return the owner of id, or 0 if id has no owner
+     */
+    public int get(int id) {
+        Chunk[] c = this.chunks;
+        int lo = 0;
+        int hi = this.chunkCount - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (c[mid].bounds[0] <= id) { lo = mid + 1; }
+            else { hi = mid - 1; }
+        }
+        if (hi < 0) { return 0; }
+        Chunk chunk = c[hi];
+        int interval = chunk.floor(id);
+        return interval >= 0 && chunk.bounds[2 * interval + 1] >= id ? chunk.owners[interval] : 0;
+    }
+
+    /**
+     * Gets the end of the run of ids that share the owner of the specified id
+     *
+     * @param id a non-negative id
+     * @return the highest id E >= id such that every id in [id,...,E] has the owner of id, or Integer.MAX_VALUE if
+     *         there is no such highest id
+     */
+    public int segmentEnd(int id) {
+        int c = floorChunk(id);
+        if (c >= 0) {
+            Chunk chunk = this.chunks[c];
+            int interval = chunk.floor(id);
+            if (chunk.bounds[2 * interval + 1] >= id) { return chunk.bounds[2 * interval + 1]; }
+            if (interval + 1 < chunk.size) { return chunk.bounds[2 * interval + 2] - 1; }
+        }
+        return c + 1 < this.chunkCount ? this.chunks[c + 1].bounds[0] - 1 : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Sets the owner of every id in [lo,...,hi]; does nothing if lo > hi
+     *
+     * @param lo
+     * @param hi
+     * @param owner the new owner of those ids, or 0 to leave them without an owner
+     * @throws IllegalArgumentException if lo <= hi and either lo < 0 or owner < 0
+     */
+    public void set(int lo, int hi, int owner) {
+        if (lo > hi) { return; }
+        if (lo < 0) { throw new IllegalArgumentException("ids must be non-negative: " + lo); }
+        if (owner < 0) { throw new IllegalArgumentException("owners must be non-negative: " + owner); }
+        if (owner != 0 && get(lo) == owner && segmentEnd(lo) >= hi) { return; }
+        clearRange(lo, hi);
+        if (owner != 0) {
+            insert(lo, hi, owner);
+        }
+    }
+
+    /**
+     * Gives owners to the specified intervals of ids, none of which has an owner yet, in a single pass
+     *
+     * The new intervals are merged with the intervals of this in order of id and the chunks are rebuilt from the
+     * merged intervals, so the cost is linear in the number of intervals of this and of the new ones, where setting the
+     * owner of each new interval in turn would cost O(log intervals + CHUNK) per interval.
+     *
+     * @param bounds bounds[2 * i] and bounds[2 * i + 1] are the lowest and highest ids of new interval i
+     * @param owners owners[i] is the owner of new interval i
+     * @param count the number of new intervals
+     * @throws IllegalArgumentException if the new intervals are not in increasing order of id and disjoint, if a new
+     *         interval has a negative id, is empty, has an owner <= 0 or contains an id that has an owner in this; this
+     *         is not changed then
+     */
+    public void setAll(int[] bounds, int[] owners, int count) {
+        long added = 0;
+        for (int i = 0; i < count; i++) {
+            int lo = bounds[2 * i];
+            int hi = bounds[2 * i + 1];
+            if (lo < 0 || lo > hi || owners[i] <= 0 || (i > 0 && bounds[2 * i - 1] >= lo)) {
+                throw new IllegalArgumentException("invalid interval " + lo + ".." + hi + "=" + owners[i]);
+            }
+            if (get(lo) != 0 || segmentEnd(lo) < hi) {
+                throw new IllegalArgumentException("interval " + lo + ".." + hi + " already has an owner");
+            }
+            added += hi - lo + 1;
+        }
+        if (count == 0) { return; }
+        Chunk[] old = this.chunks;
+        int oldCount = this.chunkCount;
+        this.chunks = new Chunk[Math.max(4, (this.intervals + count) / (3 * CHUNK / 4) + 1)];
+        this.chunkCount = 0;
+        this.intervals = 0;
+        int c = 0;
+        int i = 0;
+        int next = 0;
+        while (c < oldCount || next < count) {
+            if (next == count || (c < oldCount && old[c].bounds[2 * i] < bounds[2 * next])) {
+                append(old[c].bounds[2 * i], old[c].bounds[2 * i + 1], old[c].owners[i]);
+                if (++i == old[c].size) {
+                    c++;
+                    i = 0;
+                }
+            }
+            else {
+                append(bounds[2 * next], bounds[2 * next + 1], owners[next]);
+                next++;
+            }
+        }
+        this.ownedCount += added;
+    }
+
+    /**
+     * Removes every owner from this IntervalOwnerMap
+     */
+    public void clear() {
+        Arrays.fill(this.chunks, 0, this.chunkCount, null);
+        this.chunkCount = 0;
+        this.intervals = 0;
+        this.ownedCount = 0;
+    }
+
+    /**
+     * Removes the owner from every id whose owner satisfies the specified predicate
+     *
+     * The intervals that are kept are compacted within their chunks, and chunks left small are merged, in a single
+     * pass, so the cost is linear in the number of intervals no matter how many of them are removed.
+     *
+     * @param removed decides for each owner in this whether its ids lose their owner
+     * @return the number of ids that lost their owner
+     */
+    public long removeOwners(IntPredicate removed) {
+        long cleared = 0;
+        int keptChunks = 0;
+        for (int c = 0; c < this.chunkCount; c++) {
+            Chunk chunk = this.chunks[c];
+            int kept = 0;
+            for (int i = 0; i < chunk.size; i++) {
+                if (removed.test(chunk.owners[i])) {
+                    cleared += chunk.bounds[2 * i + 1] - chunk.bounds[2 * i] + 1;
+                }
+                else {
+                    chunk.put(kept++, chunk.bounds[2 * i], chunk.bounds[2 * i + 1], chunk.owners[i]);
+                }
+            }
+            this.intervals -= chunk.size - kept;
+            chunk.size = kept;
+            if (kept == 0) { continue; }
+            Chunk previous = keptChunks > 0 ? this.chunks[keptChunks - 1] : null;
+            if (previous != null && previous.size + kept <= 3 * CHUNK / 4) {
+                previous.append(chunk, 0, kept);
+            }
+            else {
+                this.chunks[keptChunks++] = chunk;
+            }
+        }
+        Arrays.fill(this.chunks, keptChunks, this.chunkCount, null);
+        this.chunkCount = keptChunks;
+        this.ownedCount -= cleared;
+        return cleared;
+    }
+
+    /**
+     * Releases the spare capacity of the chunk directory of this IntervalOwnerMap
+     */
+    public void trimToSize() {
+        int capacity = Math.max(4, this.chunkCount);
+        if (capacity < this.chunks.length) {
+            this.chunks = Arrays.copyOf(this.chunks, capacity);
+        }
+    }
+
+    /**
+     * Gets the number of ids that have an owner in this IntervalOwnerMap
+     *
+     * @return the number of ids with an owner in this
+     */
+    public long ownedCount() {
+        return this.ownedCount;
+    }
+
+    /**
+     * Gets the number of intervals of ids with the same owner in this IntervalOwnerMap
+     *
+     * @return the number of intervals in this
+     */
+    public int intervalCount() {
+        return this.intervals;
+    }
+
+    /**
+     * Gets the lowest id of the specified interval of this IntervalOwnerMap, walking the chunks in O(intervals / CHUNK)
+     *
+     * @param interval index of an interval, in [0,...,intervalCount() - 1]
+     * @return the lowest id of interval
+     * @throws IndexOutOfBoundsException if interval is not a valid interval index
+     */
+    public int intervalLo(int interval) {
+        checkInterval(interval);
+        int c = 0;
+        while (interval >= this.chunks[c].size) { interval -= this.chunks[c++].size; }
+        return this.chunks[c].bounds[2 * interval];
+    }
+
+    /**
+     * Gets the highest id of the specified interval of this IntervalOwnerMap, walking the chunks in
+     * O(intervals / CHUNK)
+     *
+     * @param interval index of an interval, in [0,...,intervalCount() - 1]
+     * @return the highest id of interval
+     * @throws IndexOutOfBoundsException if interval is not a valid interval index
+     */
+    public int intervalHi(int interval) {
+        checkInterval(interval);
+        int c = 0;
+        while (interval >= this.chunks[c].size) { interval -= this.chunks[c++].size; }
+        return this.chunks[c].bounds[2 * interval + 1];
+    }
+
+    /**
+     * Gets the owner of the specified interval of this IntervalOwnerMap, walking the chunks in O(intervals / CHUNK)
+     *
+     * @param interval index of an interval, in [0,...,intervalCount() - 1]
+     * @return the owner of every id in interval
+     * @throws IndexOutOfBoundsException if interval is not a valid interval index
+     */
+    public int intervalOwner(int interval) {
+        checkInterval(interval);
+        int c = 0;
+        while (interval >= this.chunks[c].size) { interval -= this.chunks[c++].size; }
+        return this.chunks[c].owners[interval];
+    }
+
+    /**
+     * Returns a string representation of this IntervalOwnerMap
+     *
+     * @return the intervals of this in increasing order with their owners, e.g., "{1..3=2, 7=1}"
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        for (int c = 0; c < this.chunkCount; c++) {
+            Chunk chunk = this.chunks[c];
+            for (int i = 0; i < chunk.size; i++) {
+                if (sb.length() > 1) { sb.append(", "); }
+                sb.append(chunk.bounds[2 * i]);
+                if (chunk.bounds[2 * i + 1] != chunk.bounds[2 * i]) { sb.append("..").append(chunk.bounds[2 * i + 1]); }
+                sb.append('=').append(chunk.owners[i]);
+            }
+        }
+        return sb.append('}').toString();
+    }
+
+    /**
+     * Finds the chunk with the highest lowest id that is <= the specified id
+     *
+     * @param id
+     * @return the index of that chunk, or -1 if every chunk starts above id
+     */
+    private int floorChunk(int id) {
+        int lo = 0;
+        int hi = this.chunkCount - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (this.chunks[mid].bounds[0] <= id) { lo = mid + 1; }
+            else { hi = mid - 1; }
+        }
+        return hi;
+    }
+
+    /**
+     * Removes the owner from every id in [lo,...,hi], where lo <= hi
+     */
+    private void clearRange(int lo, int hi) {
+        if (this.chunkCount == 0) { return; }
+        // the first interval that starts at or above lo is interval first of chunk c, or the first one of chunk c + 1
+        // if first = chunks[c].size
+        int c = floorChunk(lo);
+        int first = 0;
+        if (c < 0) {
+            c = 0;
+        }
+        else {
+            Chunk chunk = this.chunks[c];
+            int cut = chunk.floor(lo);
+            int cutHi = chunk.bounds[2 * cut + 1];
+            first = chunk.bounds[2 * cut] < lo ? cut + 1 : cut;
+            if (chunk.bounds[2 * cut] < lo && cutHi >= lo) {
+                // the interval that starts below lo keeps its ids below lo, and its ids above hi if it has any
+                chunk.bounds[2 * cut + 1] = lo - 1;
+                this.ownedCount -= Math.min(cutHi, hi) - lo + 1;
+                if (cutHi > hi) {
+                    insertAt(c, cut + 1, hi + 1, cutHi, chunk.owners[cut]);
+                    return;
+                }
+            }
+        }
+        // the last interval that starts at or below hi is interval end of chunk last
+        int last = floorChunk(hi);
+        if (last < c) { return; }
+        Chunk chunk = this.chunks[last];
+        int end = chunk.floor(hi);
+        if (last == c && end < first) { return; }
+        if (chunk.bounds[2 * end + 1] > hi) {
+            // that interval keeps its ids above hi
+            this.ownedCount -= hi - chunk.bounds[2 * end] + 1;
+            chunk.bounds[2 * end] = hi + 1;
+            end--;
+        }
+        removeSpan(c, first, last, end + 1);
+    }
+
+    /**
+     * Gives the owner of every id in [lo,...,hi], none of which has an owner, merging it with the neighbouring
+     * intervals of the same owner
+     */
+    private void insert(int lo, int hi, int owner) {
+        this.ownedCount += hi - lo + 1;
+        // the left neighbour is interval left of chunk c, the last interval that starts below lo, if c >= 0
+        int c = lo > 0 ? floorChunk(lo - 1) : -1;
+        int left = c >= 0 ? this.chunks[c].floor(lo - 1) : -1;
+        // the right neighbour is interval right of chunk rc, the first interval that starts above hi, if rc exists
+        int rc = Math.max(c, 0);
+        int right = left + 1;
+        if (rc < this.chunkCount && right == this.chunks[rc].size) {
+            rc++;
+            right = 0;
+        }
+        Chunk leftChunk = c >= 0 ? this.chunks[c] : null;
+        Chunk rightChunk = rc < this.chunkCount ? this.chunks[rc] : null;
+        boolean mergeLeft = leftChunk != null && leftChunk.owners[left] == owner
+                && leftChunk.bounds[2 * left + 1] + 1 == lo;
+        boolean mergeRight = rightChunk != null && rightChunk.owners[right] == owner
+                && (long) hi + 1 == rightChunk.bounds[2 * right];
+        if (mergeLeft && mergeRight) {
+            leftChunk.bounds[2 * left + 1] = rightChunk.bounds[2 * right + 1];
+            rightChunk.remove(right, right + 1);
+            this.intervals--;
+            settle(rc);
+        }
+        else if (mergeLeft) {
+            leftChunk.bounds[2 * left + 1] = hi;
+        }
+        else if (mergeRight) {
+            rightChunk.bounds[2 * right] = lo;
+        }
+        else {
+            insertAt(Math.max(c, 0), left + 1, lo, hi, owner);
+        }
+    }
+
+    /**
+     * Inserts the interval [lo,...,hi] --> owner at index i of chunk c, splitting the chunk first if it is full, or
+     * into a new chunk if this has none
+     */
+    private void insertAt(int c, int i, int lo, int hi, int owner) {
+        if (this.chunkCount == 0) { insertChunk(0, new Chunk()); }
+        Chunk chunk = this.chunks[c];
+        if (chunk.size == CHUNK) {
+            Chunk upper = new Chunk();
+            upper.append(chunk, CHUNK / 2, CHUNK);
+            chunk.size = CHUNK / 2;
+            insertChunk(c + 1, upper);
+            if (i > CHUNK / 2) {
+                chunk = upper;
+                i -= CHUNK / 2;
+            }
+        }
+        chunk.insert(i, lo, hi, owner);
+        this.intervals++;
+    }
+
+    /**
+     * Removes every interval from interval i1 of chunk c1 up to but not including interval i2 of chunk c2, where
+     * c1 <= c2
+     */
+    private void removeSpan(int c1, int i1, int c2, int i2) {
+        if (c1 == c2) {
+            if (i1 >= i2) { return; }
+            Chunk chunk = this.chunks[c1];
+            this.ownedCount -= chunk.owned(i1, i2);
+            chunk.remove(i1, i2);
+            this.intervals -= i2 - i1;
+            settle(c1);
+            return;
+        }
+        Chunk first = this.chunks[c1];
+        this.ownedCount -= first.owned(i1, first.size);
+        this.intervals -= first.size - i1;
+        first.size = i1;
+        for (int c = c1 + 1; c < c2; c++) {
+            this.ownedCount -= this.chunks[c].owned(0, this.chunks[c].size);
+            this.intervals -= this.chunks[c].size;
+        }
+        Chunk last = this.chunks[c2];
+        this.ownedCount -= last.owned(0, i2);
+        last.remove(0, i2);
+        this.intervals -= i2;
+        removeChunks(c1 + 1, c2);
+        settle(c1 + 1);
+        settle(c1);
+    }
+
+    /**
+     * Drops chunk c if it is empty, or merges it into a neighbour that has room if it is less than a quarter full;
+     * does nothing if there is no chunk c
+     */
+    private void settle(int c) {
+        if (c >= this.chunkCount) { return; }
+        Chunk chunk = this.chunks[c];
+        if (chunk.size == 0) {
+            removeChunks(c, c + 1);
+        }
+        else if (chunk.size < CHUNK / 4) {
+            if (c + 1 < this.chunkCount && chunk.size + this.chunks[c + 1].size <= CHUNK) {
+                chunk.append(this.chunks[c + 1], 0, this.chunks[c + 1].size);
+                removeChunks(c + 1, c + 2);
+            }
+            else if (c > 0 && this.chunks[c - 1].size + chunk.size <= CHUNK) {
+                this.chunks[c - 1].append(chunk, 0, chunk.size);
+                removeChunks(c, c + 1);
+            }
+        }
+    }
+
+    /**
+     * Appends the interval [lo,...,hi] --> owner above every interval of this, merging it into the last interval if
+     * the two are adjacent and have the same owner, and starting a new chunk once the last one is three quarters full
+     */
+    private void append(int lo, int hi, int owner) {
+        Chunk last = this.chunkCount > 0 ? this.chunks[this.chunkCount - 1] : null;
+        if (last != null && last.owners[last.size - 1] == owner && last.bounds[2 * last.size - 1] + 1 == lo) {
+            last.bounds[2 * last.size - 1] = hi;
+            return;
+        }
+        if (last == null || last.size == 3 * CHUNK / 4) {
+            last = new Chunk();
+            insertChunk(this.chunkCount, last);
+        }
+        last.put(last.size++, lo, hi, owner);
+        this.intervals++;
+    }
+
+    private void insertChunk(int c, Chunk chunk) {
+        if (this.chunkCount == this.chunks.length) {
+            this.chunks = Arrays.copyOf(this.chunks, 2 * this.chunks.length);
+        }
+        System.arraycopy(this.chunks, c, this.chunks, c + 1, this.chunkCount - c);
+        this.chunks[c] = chunk;
+        this.chunkCount++;
+    }
+
+    /**
+     * Removes chunks from,...,to - 1 from the directory
+     */
+    private void removeChunks(int from, int to) {
+        if (from >= to) { return; }
+        System.arraycopy(this.chunks, to, this.chunks, from, this.chunkCount - to);
+        Arrays.fill(this.chunks, this.chunkCount - (to - from), this.chunkCount, null);
+        this.chunkCount -= to - from;
+    }
+
+    private void checkInterval(int interval) {
+        if (interval < 0 || interval >= this.intervals) {
+            throw new IndexOutOfBoundsException("interval " + interval + " of " + this.intervals);
+        }
+    }
+
+    /**
+     * This class represents a chunk of consecutive intervals of an IntervalOwnerMap
+     */
+    private static final class Chunk {
+
+        private final int[] bounds = new int[2 * CHUNK];
+        // bounds[2 * i] and bounds[2 * i + 1] are the lowest and highest ids of interval i of this chunk
+
+        private final int[] owners = new int[CHUNK];
+        // owners[i] is the owner of every id in interval i of this chunk
+
+        private int size;
+        // number of intervals in this chunk
+
+        /**
+         * Finds the interval of this chunk with the highest lowest id that is <= the specified id
+         *
+         * @param id
+         * @return the index of that interval, or -1 if every interval of this chunk starts above id
+         */
+        private int floor(int id) {
+            int[] b = this.bounds;
+            int lo = 0;
+            int hi = this.size - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (b[2 * mid] <= id) { lo = mid + 1; }
+                else { hi = mid - 1; }
+            }
+            return hi;
+        }
+
+        private void put(int i, int lo, int hi, int owner) {
+            this.bounds[2 * i] = lo;
+            this.bounds[2 * i + 1] = hi;
+            this.owners[i] = owner;
+        }
+
+        /**
+         * Inserts the interval [lo,...,hi] --> owner at index i of this chunk, which is not full
+         */
+        private void insert(int i, int lo, int hi, int owner) {
+            System.arraycopy(this.bounds, 2 * i, this.bounds, 2 * i + 2, 2 * (this.size - i));
+            System.arraycopy(this.owners, i, this.owners, i + 1, this.size - i);
+            put(i, lo, hi, owner);
+            this.size++;
+        }
+
+        /**
+         * Removes intervals from,...,to - 1 of this chunk
+         */
+        private void remove(int from, int to) {
+            System.arraycopy(this.bounds, 2 * to, this.bounds, 2 * from, 2 * (this.size - to));
+            System.arraycopy(this.owners, to, this.owners, from, this.size - to);
+            this.size -= to - from;
+        }
+
+        /**
+         * Appends intervals from,...,to - 1 of the specified chunk to this chunk, which has room for them
+         */
+        private void append(Chunk other, int from, int to) {
+            System.arraycopy(other.bounds, 2 * from, this.bounds, 2 * this.size, 2 * (to - from));
+            System.arraycopy(other.owners, from, this.owners, this.size, to - from);
+            this.size += to - from;
+        }
+
+        /**
+         * Counts the ids in intervals from,...,to - 1 of this chunk
+         */
+        private long owned(int from, int to) {
+            long owned = 0;
+            for (int i = from; i < to; i++) {
+                owned += this.bounds[2 * i + 1] - this.bounds[2 * i] + 1;
+            }
+            return owned;
+        }
+    }
+}
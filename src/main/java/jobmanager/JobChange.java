@@ -0,0 +1,77 @@
+package jobmanager;
+
+/**
+ * This immutable class represents a change of the robot that a run of consecutive jobs is assigned to: every job with
+ * id in [lo,...,hi] was assigned to oldRobot and is now assigned to newRobot, where a Null Robot stands for "assigned
+ * to no robot", i.e., unassigned, completed or not managed.
+ *
+ * @see JobManager#diff(JobManager)
+ * @see JobManager#addChangeListener(java.util.function.Consumer)
+ */
+
+public class JobChange {
+
+    public final int lo;
+    public final int hi;
+    // lowest and highest id of the jobs that changed robot
+
+    public final Robot oldRobot;
+    // robot that the jobs were assigned to, or a Null Robot if they were not assigned
+
+    public final Robot newRobot;
+    // robot that the jobs are now assigned to, or a Null Robot if they are not assigned
+
+    /**
+     * Creates a new JobChange with the specified values
+     */
+    JobChange(int lo, int hi, Robot oldRobot, Robot newRobot) {
+        this.lo = lo;
+        this.hi = hi;
+        this.oldRobot = oldRobot;
+        this.newRobot = newRobot;
+    }
+
+    /**
+     * Counts the jobs of this JobChange
+     *
+     * @return the number of jobs that changed robot, i.e., hi - lo + 1
+     */
+    public int size() {
+        return this.hi - this.lo + 1;
+    }
+
+    /**
+     * Compares the specified object with this JobChange for equality
+     *
+     * @param o
+     * @return true iff o is a JobChange with the same jobs and with old & new robots of the same ids as this
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof JobChange)) { return false; }
+        JobChange other = (JobChange) o;
+        return this.lo == other.lo && this.hi == other.hi && this.oldRobot.id == other.oldRobot.id
+                && this.newRobot.id == other.newRobot.id;
+    }
+
+    /**
+     * Returns the hashcode for this JobChange
+     *
+     * @return a hashcode of the jobs and the ids of the robots of this
+     */
+    @Override
+    public int hashCode() {
+        return ((this.lo * 31 + this.hi) * 31 + this.oldRobot.id) * 31 + this.newRobot.id;
+    }
+
+    /**
+     * Returns a string representation of this JobChange
+     *
+     * @return the jobs and the ids of the robots of this, e.g., "JobChange{1..4: 0 -> 7}"
+     */
+    @Override
+    public String toString() {
+        return "JobChange{" + this.lo + (this.hi > this.lo ? ".." + this.hi : "") + ": " + this.oldRobot.id + " -> "
+                + this.newRobot.id + "}";
+    }
+}
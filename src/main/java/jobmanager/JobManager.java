@@ -1,6 +1,7 @@
 package jobmanager;
 
 import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * This class represents a JobManager that is capable of managing a set of jobs & their assignment to real-world
@@ -10,7 +11,14 @@ import java.util.*;
  * be completed on a real-world Robot. Where n1 and n2 are two job IDs satisfying n1 < n2, job n2 has a higher priority
  * than job n1.
  *
+ * A job can be completed, after which this JobManager no longer manages it: a completed job is neither assigned nor
+ * unassigned, and its id is never handed out again.
+ *
  * A JobManager does not add/remove/manage Null Robots, and it does not assign jobs to a Null Robot.
+ *
+ * The basic operations on robots also have overloads that take a Robot's id instead of a Robot. They look the Robot
+ * up by id in a hash table of ints, so callers that only hold ids never allocate a Robot, and only addRobot(int)
+ * shares a Robot through Robot.of(int), when it actually adds it.
  * @see Robot
  */
 
@@ -21,48 +29,220 @@ public class JobManager {
      * In practice, all fields & the checkRep() method should be private to prevent rep exposure.
      */
 
-    final public Map<Robot, TreeSet<Integer>> robotToJobs = new HashMap<>();
-    // maps: Robot --> ordered set of jobs assigned to Robot using the natural (non-decreasing) order on Integers
+    final public Map<Robot, IntSortedSet> robotToJobs = new HashMap<>();
+    // maps: Robot --> ordered set of jobs assigned to Robot, stored as sorted runs of consecutive job ids
 
-    final public Set<Integer> unassignedJobs = new HashSet<>();
-    // set of unassigned jobs
+    final public JobSet unassignedJobs = new JobSet();
+    // set of unassigned jobs, packed one bit per job id; the unassigned jobs above every job that was ever assigned are
+    // held as one implicit range, so a new JobManager stores no per-job state
 
     public int n;
     // number of jobs in this; also, the id of highest priority job in this
 
+    private CheckLevel checkLevel;
+    // how thoroughly the representation invariant is verified after each operation on this
+
+    private int assignedCount;
+    // number of jobs assigned to some robot in this, i.e., the sum of the sizes of the job sets in robotToJobs
+
+    private final IntervalOwnerMap jobOwner = new IntervalOwnerMap();
+    // maps: job id --> slot of the robot that the job is assigned to, or 0 if the job is unassigned; stored as
+    // intervals of consecutive jobs assigned to the same slot
+
+    private Robot[] slotRobot = new Robot[8];
+    // maps: slot --> Robot in this that holds the slot, or null if the slot is free; slot 0 is never held
+
+    private final Map<Robot, Integer> robotSlot = new HashMap<>();
+    // maps: Robot in this --> slot held by Robot
+
+    private int[] slotTable = new int[16];
+    // open-addressing hash table with linear probing of the slots held by robots, keyed by the id of the robot that
+    // holds each slot, so that the int-id overloads find a robot without a Robot key; 0 marks an empty entry
+
+    private int[] freeSlots = new int[8];
+    private int freeCount;
+    private int nextSlot = 1;
+    // slots released by removed robots, and the lowest slot that has never been handed out
+
+    private final LoadIndex loads = new LoadIndex();
+    // maps: slot --> number of jobs assigned to the Robot that holds the slot, indexed by load
+
+    private long[] hashTerms = new long[8];
+    private long hashSum;
+    // hashTerms[slot] is the term of the Robot that holds the slot in the sum of hashCode(), capped at
+    // Integer.MAX_VALUE, or 0 if the slot is free; hashSum is the sum of every term
+
+    private boolean inBatch;
+    // true iff a batch of operations is being applied to this
+
+    private final Map<Robot, Boolean> batchRobots = new HashMap<>();
+    // maps: Robot added or removed by the current batch --> true iff Robot was in this when the batch started; empty
+    // if this is not applying a batch
+
+    private int completedBelow;
+    // every job with id in [1,...,completedBelow] is completed
+
+    private final IntSortedSet completedJobs = new RunIntSortedSet();
+    // completed jobs with id > completedBelow, stored as sorted runs of consecutive job ids
+
+    private int[] changedRuns = new int[16];
+    private int changedCount;
+    // runs [changedRuns[2 * i],...,changedRuns[2 * i + 1]] of jobs touched by the current mutation or batch, for i in
+    // [0,...,changedCount - 1]; not recorded when checkLevel is OFF
+
+    private final List<Consumer<JobChange>> listeners = new ArrayList<>();
+    // listeners notified of every change of the robot of some jobs in this
+
+    private final List<JobChange> pendingChanges = new ArrayList<>();
+    // changes made by the current mutation or batch that the listeners were not notified of yet, which double as the
+    // undo log of the current batch; empty if there are no listeners and this is not applying a batch
+
+    /**
+     * Levels at which a JobManager verifies its representation invariant.
+     *
+     * OFF performs no verification. INCREMENTAL checks the job counters of this in constant time after every
+     * operation, and after a mutation also checks the placement of every job that the mutation touched, so its cost is
+     * proportional to the number of changed jobs. FULL checks that the jobs of all robots and the unassigned jobs
+     * partition [1,...,n] after every operation, in addition to the checks made at level INCREMENTAL, which costs O(n)
+     * per call and is intended for tests.
+     */
+    public enum CheckLevel { OFF, INCREMENTAL, FULL }
+
+    /**
+     * Strategies by which rebalance(Strategy) spreads the unassigned jobs of a JobManager across its robots.
+     *
+     * ROUND_ROBIN deals the unassigned jobs one at a time, highest priority first, to the robots in increasing order of
+     * id. LEAST_LOADED hands the unassigned jobs to the robots with the fewest jobs until their loads even out, and
+     * weightedCapacity(capacities) does the same with each robot's load measured relative to its capacity.
+     */
+    public static final class Strategy {
+
+        private enum Kind { ROUND_ROBIN, LEAST_LOADED, WEIGHTED_CAPACITY }
+
+        public static final Strategy ROUND_ROBIN = new Strategy(Kind.ROUND_ROBIN, Collections.emptyMap());
+
+        public static final Strategy LEAST_LOADED = new Strategy(Kind.LEAST_LOADED, Collections.emptyMap());
+
+        private final Kind kind;
+        private final Map<Robot, Integer> capacities;
+
+        private Strategy(Kind kind, Map<Robot, Integer> capacities) {
+            this.kind = kind;
+            this.capacities = capacities;
+        }
+
+        /**
+         * Creates a strategy that hands the unassigned jobs to the robots with the lowest load relative to their
+         * capacity, so that the loads of the robots end up as close to proportional to their capacities as possible
+         *
+         * @param capacities maps: Robot --> capacity of Robot; robots without a capacity have capacity 0 and receive
+         *                   no jobs
+         * @return the strategy
+         * @throws IllegalArgumentException if capacities is null or maps some robot to null or a negative capacity
+         */
+        public static Strategy weightedCapacity(Map<Robot, Integer> capacities) {
+            if (capacities == null) { throw new IllegalArgumentException("capacities must not be null"); }
+            for (Integer capacity : capacities.values()) {
+                if (capacity == null || capacity < 0) {
+                    throw new IllegalArgumentException("capacities must be non-negative");
+                }
+            }
+            return new Strategy(Kind.WEIGHTED_CAPACITY, new HashMap<>(capacities));
+        }
+
+        /**
+         * Gets the capacities of the robots under this strategy
+         *
+         * @return maps: Robot --> capacity of Robot; empty unless this was created by weightedCapacity(capacities)
+         */
+        Map<Robot, Integer> capacities() {
+            return Collections.unmodifiableMap(this.capacities);
+        }
+    }
+
     /**
      * How does our data representation (robotToJobs, unassignedJobs, n) represent a JobManager?
      *
      * (1) All jobs managed by this are represented as Integers, where the Integer corresponds to the job's id.
      * (2) The highest priority job in this has id = this.n.
-     * (3) This manages a job with id = Z iff Z is an Integer in [1,...,this.n].
-     * (4) This manages a job with id = Z iff Z is in this.unassignedJobs or some TreeSet from robotToJobs.valueSet().
+     * (3) This manages a job with id = Z iff Z is an Integer in [1,...,this.n] and the job is not completed.
+     * (4) This manages a job with id = Z iff Z is in this.unassignedJobs or some IntSortedSet from
+     *     robotToJobs.valueSet().
      * (5) A job is unassigned iff it is in this.unassignedJobs.
      * (6) A robot is managed by this iff it is a key in this.robotToJobs.
-     * (7) A job is assigned to robot R iff it is in the TreeSet corresponding to R in this.robotToJobs, i.e., the job
+     * (7) A job is assigned to robot R iff it is in the IntSortedSet corresponding to R in this.robotToJobs, i.e., the job
      *     is in this.robotToJobs.get(R).
      * (8) A robot R has no assigned jobs iff this.robotToJobs.get(R) is empty.
      * (9) If robot R is assigned at least one job, the highest priority job assigned to robot R is represented as
      *     this.robotToJobs.get(R).last().
+     * (10) this.assignedCount is the number of jobs in all IntSortedSets from robotToJobs.valueSet(), so
+     *      this.assignedCount + this.unassignedJobs.size() + this.completedBelow + this.completedJobs.size() = this.n,
+     *      and this.assignedCount = this.jobOwner.ownedCount().
+     * (11) Each robot R in this holds a distinct slot s = this.robotSlot.get(R) > 0 with this.slotRobot[s] = R, and a
+     *      job Z is assigned to R iff this.jobOwner.get(Z) = s. A job Z is unassigned iff this.jobOwner.get(Z) = 0.
+     * (12) A job Z in [1,...,this.n] is completed iff Z <= this.completedBelow or Z is in this.completedJobs, where
+     *      0 <= this.completedBelow <= this.n and every id in this.completedJobs is in
+     *      [this.completedBelow + 2,...,this.n].
+     * (13) The slots in this.loads are exactly the slots held by robots in this, and this.loads.load(s) is the number
+     *      of jobs assigned to the robot this.slotRobot[s].
+     * (14) For every slot s held by a robot R in this, this.hashTerms[s] = min(R.id * (the highest priority job
+     *      assigned to R), Integer.MAX_VALUE), or 0 if R has no jobs; every other entry of this.hashTerms is 0, and
+     *      this.hashSum is the sum of this.hashTerms.
+     * (15) this.slotTable holds exactly the slots held by robots in this, each one found by probing from
+     *      tableIndex(R.id) for the robot R that holds it, and at most half of its entries are not 0.
      *
-     * @see java.util.TreeSet
+     * @see IntSortedSet
      */
 
     /**
-     * Creates a new JobManager to manage n jobs with job IDs [1,...,n].
+     * Creates a new JobManager to manage n jobs with job IDs [1,...,n] that fully verifies its representation
+     * invariant after every operation. Creating a JobManager takes constant time and space regardless of n.
      *
      * @param n
      * @throws IllegalArgumentException if n < 1
      */
     public JobManager(int n) {
+        this(n, CheckLevel.FULL);
+    }
+
+    /**
+     * Creates a new JobManager to manage n jobs with job IDs [1,...,n] that verifies its representation invariant at
+     * the specified level.
+     *
+     * @param n
+     * @param checkLevel
+     * @throws IllegalArgumentException if n < 1 or checkLevel is null
+     */
+    public JobManager(int n, CheckLevel checkLevel) {
         if (n < 1) {throw new IllegalArgumentException("n must be at least 1");}
+        if (checkLevel == null) {throw new IllegalArgumentException("checkLevel must not be null");}
         this.n = n;
-        for (int i = 1; i <= n; i++) {
-            this.unassignedJobs.add(i);
-        }
+        this.checkLevel = checkLevel;
+        this.unassignedJobs.addRange(1, n);
         checkRep();
     };
 
+    /**
+     * Gets the level at which this JobManager verifies its representation invariant
+     *
+     * @return the verification level of this
+     */
+    public CheckLevel getCheckLevel() {
+        return this.checkLevel;
+    }
+
+    /**
+     * Sets the level at which this JobManager verifies its representation invariant
+     *
+     * @param checkLevel
+     * @throws IllegalArgumentException if checkLevel is null
+     */
+    public void setCheckLevel(CheckLevel checkLevel) {
+        if (checkLevel == null) {throw new IllegalArgumentException("checkLevel must not be null");}
+        this.checkLevel = checkLevel;
+        this.changedCount = 0;
+    }
+
     /**
      * Checks if this JobManager has the specified Robot
      *
@@ -75,6 +255,16 @@ public class JobManager {
         return this.robotToJobs.containsKey(robot);
     }
 
+    /**
+     * Checks if this JobManager has the Robot with the specified id, without allocating a Robot
+     *
+     * @param robotId
+     * @return true if the Robot with id = robotId is in this, and false otherwise
+     */
+    public boolean hasRobot(int robotId) {
+        return hasRobot(robot(robotId));
+    }
+
     /**
      * Adds the specified Robot to this JobManager
      *
@@ -85,7 +275,9 @@ public class JobManager {
     public boolean addRobot(Robot robot) {
         if (robot == null || robot.isNull()) { return false; }
         if (!this.robotToJobs.containsKey(robot)) {
-            this.robotToJobs.put(robot, new TreeSet<>());
+            this.robotToJobs.put(robot, new RunIntSortedSet());
+            this.robotSlot.put(robot, acquireSlot(robot));
+            recordMembership(robot, false);
             checkRep();
             return true;
         }
@@ -93,6 +285,17 @@ public class JobManager {
         return false;
     };
 
+    /**
+     * Adds the Robot with the specified id to this JobManager
+     *
+     * @param robotId
+     * @return true if this formerly did not have the Robot with id = robotId but now does, and false otherwise
+     */
+    public boolean addRobot(int robotId) {
+        // only a robot that is actually added gets a shared instance, so probing ids never fills Robot.of's table
+        return addRobot(robotId > 0 && slotOf(robotId) == 0 ? Robot.of(robotId) : robot(robotId));
+    }
+
     /**
      * Removes the specified robot from this JobManager
      *
@@ -103,17 +306,115 @@ public class JobManager {
     public boolean removeRobot(Robot robot) {
         if (robot == null || robot.isNull()) { return false; }
         if (this.robotToJobs.containsKey(robot)) {
-            for (int num : this.robotToJobs.get(robot)) {
-                this.unassignedJobs.add(num);
+            IntSortedSet jobs = this.robotToJobs.get(robot);
+            for (int run = 0; run < jobs.runCount(); run++) {
+                int lo = jobs.runLo(run);
+                int hi = jobs.runHi(run);
+                this.unassignedJobs.addRange(lo, hi);
+                this.jobOwner.set(lo, hi, 0);
+                recordChange(lo, hi);
+                recordMove(lo, hi, robot, Robot.NULL);
             }
+            this.assignedCount -= jobs.size();
             this.robotToJobs.remove(robot);
-            checkRep();
+            releaseSlot(this.robotSlot.remove(robot));
+            recordMembership(robot, true);
+            checkMutation(null, null);
+            publishChanges();
             return true;
         }
         checkRep();
         return false;
     };
 
+    /**
+     * Removes the Robot with the specified id from this JobManager
+     *
+     * @param robotId
+     * @return true if this formerly did have the Robot with id = robotId but now does not, and false otherwise
+     * @post All jobs formerly assigned to this robot are now unassigned
+     */
+    public boolean removeRobot(int robotId) {
+        return removeRobot(robot(robotId));
+    }
+
+    /**
+     * Removes every one of the specified robots that this JobManager has, e.g., when a group of robots goes offline at
+     * once
+     *
+     * The runs of jobs of all removed robots are sorted by their lowest id and merged into the unassigned jobs in one
+     * pass in increasing order of id, where runs of different robots that touch are joined first, and the removed
+     * robots are dropped from the job owner index in one pass over its intervals. The representation invariant is
+     * verified once at the end, for all released jobs together, so removing r robots with k runs of jobs in total costs
+     * O(r + k log k) plus one pass over the job owner index instead of r removals, each with its own verification.
+     *
+     * @param robots
+     * @return the number of robots that this formerly had but now does not; null robots, Null Robots, robots that this
+     *         does not have and repeated robots are skipped
+     * @throws IllegalArgumentException if robots is null
+     * @post All jobs formerly assigned to the removed robots are now unassigned
+     */
+    public int removeRobots(Collection<Robot> robots) {
+        if (robots == null) { throw new IllegalArgumentException("robots must not be null"); }
+        List<Robot> removed = new ArrayList<>();
+        Map<Robot, IntSortedSet> released = new HashMap<>();
+        int runs = 0;
+        for (Robot robot : robots) {
+            if (robot == null || robot.isNull()) { continue; }
+            IntSortedSet jobs = this.robotToJobs.remove(robot);
+            if (jobs == null) { continue; }
+            removed.add(robot);
+            released.put(robot, jobs);
+            recordMembership(robot, true);
+            runs += jobs.runCount();
+        }
+        if (removed.isEmpty()) {
+            checkRep();
+            return 0;
+        }
+        // order[i] holds the lowest id of the i-th released run in its high half and i in its low half
+        long[] order = new long[runs];
+        int[] runHi = new int[runs];
+        Robot[] runRobot = new Robot[runs];
+        boolean[] releasedSlots = new boolean[this.slotRobot.length];
+        int i = 0;
+        for (Robot robot : removed) {
+            IntSortedSet jobs = released.get(robot);
+            for (int run = 0; run < jobs.runCount(); run++, i++) {
+                order[i] = (long) jobs.runLo(run) << 32 | i;
+                runHi[i] = jobs.runHi(run);
+                runRobot[i] = robot;
+            }
+            this.assignedCount -= jobs.size();
+            int slot = this.robotSlot.remove(robot);
+            releasedSlots[slot] = true;
+            releaseSlot(slot);
+        }
+        Arrays.sort(order);
+        this.jobOwner.removeOwners(slot -> releasedSlots[slot]);
+        int lo = 0;
+        int hi = -1;
+        for (long key : order) {
+            int runLo = (int) (key >>> 32);
+            int run = (int) key;
+            recordMove(runLo, runHi[run], runRobot[run], Robot.NULL);
+            if (hi >= 0 && (long) hi + 1 < runLo) {
+                this.unassignedJobs.addRange(lo, hi);
+                recordChange(lo, hi);
+                hi = -1;
+            }
+            if (hi < 0) { lo = runLo; }
+            hi = runHi[run];
+        }
+        if (hi >= 0) {
+            this.unassignedJobs.addRange(lo, hi);
+            recordChange(lo, hi);
+        }
+        checkMutation(null, null);
+        publishChanges();
+        return removed.size();
+    }
+
     /**
      * Assigns all unassigned jobs managed by this JobManager with an id <= the specified id to the specified robot when
      * this has the specified robot
@@ -132,21 +433,139 @@ public class JobManager {
             checkRep();
             return false;
         }
-        Set<Integer> modifiedUnassigned = new HashSet<>(this.unassignedJobs);
-        for (Iterator<Integer> jobIter = this.unassignedJobs.iterator(); jobIter.hasNext();) {
-            Integer job = jobIter.next();
-            if (job <= jobId) {
-                this.robotToJobs.get(robot).add(job);
-                modifiedUnassigned.remove(job);
-            }
-            else { break; }
+        takeUnassigned(robot, jobId);
+        checkMutation(robot, null);
+        publishChanges();
+        return true;
+    }
+
+    /**
+     * Assigns all unassigned jobs managed by this JobManager with an id <= the specified job id to the Robot with the
+     * specified id when this has that Robot
+     *
+     * @param robotId
+     * @param jobId
+     * @return the same as assignJobs(Robot, int) for the Robot with id = robotId
+     */
+    public boolean assignJobs(int robotId, int jobId) {
+        return assignJobs(robot(robotId), jobId);
+    }
+
+    /**
+     * Extends the jobs managed by this JobManager from [1,...,n] to [1,...,n + k], where the k new jobs are unassigned
+     * and have a higher priority than every job formerly managed by this
+     *
+     * The new jobs join the unassigned jobs of this as one range of ids, so the cost is O(k / 64) at most and does not
+     * depend on how many jobs this already manages or how they are assigned.
+     *
+     * @param k
+     * @return the id of the highest priority job in this after the jobs are added, i.e., the new value of n
+     * @throws IllegalArgumentException if k < 0 or n + k > Integer.MAX_VALUE
+     */
+    public int addJobs(int k) {
+        if (k < 0) { throw new IllegalArgumentException("k must not be negative"); }
+        if ((long) this.n + k > Integer.MAX_VALUE) { throw new IllegalArgumentException("too many jobs"); }
+        if (k == 0) {
+            checkRep();
+            return this.n;
         }
-        this.unassignedJobs.clear();
-        this.unassignedJobs.addAll(modifiedUnassigned);
-        checkRep();
+        int lo = this.n + 1;
+        this.n += k;
+        this.unassignedJobs.addRange(lo, this.n);
+        recordChange(lo, this.n);
+        checkMutation(null, null);
+        return this.n;
+    }
+
+    /**
+     * Completes the job with the specified id, so that this JobManager no longer manages it
+     *
+     * @param jobId
+     * @return true if a job with id = jobId was managed by this, whether assigned or unassigned, and is now completed;
+     *         and false otherwise
+     */
+    public boolean completeJob(int jobId) {
+        if (jobId < 1 || jobId > this.n || completed(jobId)) {
+            checkRep();
+            return false;
+        }
+        int slot = this.jobOwner.get(jobId);
+        Robot holder = slot == 0 ? null : this.slotRobot[slot];
+        if (holder == null) {
+            this.unassignedJobs.remove(jobId);
+        }
+        else {
+            this.robotToJobs.get(holder).remove(jobId);
+            this.jobOwner.set(jobId, jobId, 0);
+            this.assignedCount--;
+            updateRobot(holder);
+            recordMove(jobId, jobId, holder, Robot.NULL);
+        }
+        markCompleted(jobId, jobId);
+        checkCompletion(holder);
+        publishChanges();
         return true;
     }
 
+    /**
+     * Completes every job with an id <= the specified id that is assigned to the specified robot in this JobManager,
+     * so that this no longer manages those jobs
+     *
+     * The jobs are removed from the robot and from the job owner index one run of consecutive ids at a time.
+     *
+     * @param robot
+     * @param upTo
+     * @return the number of jobs completed, which is 0 if this does not have robot
+     */
+    public int completeJobs(Robot robot, int upTo) {
+        if (robot == null || robot.isNull()) { return 0; }
+        IntSortedSet jobs = this.robotToJobs.get(robot);
+        if (jobs == null || upTo < 1) {
+            checkRep();
+            return 0;
+        }
+        for (int run = 0; run < jobs.runCount() && jobs.runLo(run) <= upTo; run++) {
+            int lo = jobs.runLo(run);
+            int hi = Math.min(jobs.runHi(run), upTo);
+            this.jobOwner.set(lo, hi, 0);
+            markCompleted(lo, hi);
+            recordMove(lo, hi, robot, Robot.NULL);
+        }
+        int completed = jobs.removeRange(0, upTo);
+        this.assignedCount -= completed;
+        updateRobot(robot);
+        checkCompletion(robot);
+        publishChanges();
+        return completed;
+    }
+
+    /**
+     * Checks if the job with the specified id was completed
+     *
+     * @param jobId
+     * @return true if jobId is in [1,...,n] and the job with id = jobId is completed, and false otherwise
+     */
+    public boolean isCompleted(int jobId) {
+        if (jobId < 1 || jobId > this.n) { return false; }
+        checkRep();
+        return completed(jobId);
+    }
+
+    /**
+     * Releases the storage that this JobManager no longer needs after jobs were completed or moved, e.g., the words
+     * of the unassigned jobs below the lowest unassigned job, and the spare capacity of the job sets of the robots and
+     * of the job owner index
+     */
+    public void compact() {
+        for (IntSortedSet jobs : this.robotToJobs.values()) {
+            jobs.trimToSize();
+        }
+        this.unassignedJobs.trimToSize();
+        this.completedJobs.trimToSize();
+        this.jobOwner.trimToSize();
+        checkRep();
+    }
+
     /**
      * Checks if a specified job is assigned to a robot managed by this JobManager
      *
@@ -157,7 +576,7 @@ public class JobManager {
     public boolean isAssigned(int jobId) {
         if (jobId < 1 || jobId > n) { return false; }
         checkRep();
-        return !this.unassignedJobs.contains(jobId);
+        return this.jobOwner.get(jobId) != 0;
     }
 
     /**
@@ -168,15 +587,21 @@ public class JobManager {
      *         managed by this, and (2) that job is assigned to Robot in this; and a Null Robot otherwise
      */
     public Robot getRobot(int jobId) {
-        if (jobId < 1 || jobId > this.n) { return new Robot(0); }
-        for (Robot robot : this.robotToJobs.keySet()) {
-            if (this.robotToJobs.get(robot).contains(jobId)) {
-                checkRep();
-                return new Robot(robot.id);
-            }
-        }
+        if (jobId < 1 || jobId > this.n) { return Robot.NULL; }
         checkRep();
-        return new Robot(0);
+        int slot = this.jobOwner.get(jobId);
+        return slot == 0 ? Robot.NULL : this.slotRobot[slot];
+    }
+
+    /**
+     * Gets the id of the Robot in this JobManager assigned the job with the specified id, without allocating a Robot
+     *
+     * @param jobId
+     * @return the id of the Robot assigned job with id = jobId if that job is managed by this and assigned to a Robot
+     *         in this, and 0 otherwise
+     */
+    public int getRobotId(int jobId) {
+        return getRobot(jobId).id;
     }
 
     /**
@@ -201,19 +626,45 @@ public class JobManager {
             checkRep();
             return false;
         }
-        for (Iterator<Integer> jobIter = this.robotToJobs.get(srcRobot).iterator(); jobIter.hasNext();) {
-            Integer job = jobIter.next();
-            if (job <= jobId) {
-                this.robotToJobs.get(dstRobot).add(job);
-            }
-            else { break; }
+        if (srcRobot.equals(dstRobot)) {
+            checkRep();
+            return true;
         }
-        if (!srcRobot.equals(dstRobot)) {
-            robotToJobs.get(srcRobot).clear();
+        IntSortedSet srcJobs = this.robotToJobs.get(srcRobot);
+        if (srcJobs.isEmpty() || srcJobs.last() <= jobId) {
+            moveAllJobs(srcRobot, dstRobot);
+            checkMutation(dstRobot, srcRobot);
+            publishChanges();
+            return true;
         }
-        checkRep();
+        int dstSlot = this.robotSlot.get(dstRobot);
+        IntSortedSet dstJobs = this.robotToJobs.get(dstRobot);
+        for (int run = 0; run < srcJobs.runCount() && srcJobs.runLo(run) <= jobId; run++) {
+            int lo = srcJobs.runLo(run);
+            int hi = Math.min(srcJobs.runHi(run), jobId);
+            dstJobs.addRange(lo, hi);
+            this.jobOwner.set(lo, hi, dstSlot);
+            recordChange(lo, hi);
+            recordMove(lo, hi, srcRobot, dstRobot);
+        }
+        srcJobs.removeRange(0, jobId);
+        updateRobot(srcRobot);
+        updateRobot(dstRobot);
+        checkMutation(dstRobot, srcRobot);
+        publishChanges();
         return true;
+    }
 
+    /**
+     * Moves the jobs with id <= the specified job id between the Robots with the specified ids
+     *
+     * @param srcRobotId
+     * @param dstRobotId
+     * @param jobId
+     * @return the same as moveJobs(Robot, Robot, int) for the Robots with id = srcRobotId and id = dstRobotId
+     */
+    public boolean moveJobs(int srcRobotId, int dstRobotId, int jobId) {
+        return moveJobs(robot(srcRobotId), robot(dstRobotId), jobId);
     }
 
     /**
@@ -233,14 +684,27 @@ public class JobManager {
         if (!this.robotToJobs.containsKey(srcRobot) || !this.robotToJobs.containsKey(dstRobot)) {
             checkRep();
             return false; }
-        this.robotToJobs.get(dstRobot).addAll(this.robotToJobs.get(srcRobot));
-        if (!srcRobot.equals(dstRobot)) {
-            this.robotToJobs.get(srcRobot).clear();
+        if (srcRobot.equals(dstRobot)) {
+            checkRep();
+            return true;
         }
-        checkRep();
+        moveAllJobs(srcRobot, dstRobot);
+        checkMutation(dstRobot, srcRobot);
+        publishChanges();
         return true;
     }
 
+    /**
+     * Moves all jobs between the Robots with the specified ids
+     *
+     * @param srcRobotId
+     * @param dstRobotId
+     * @return the same as moveJobs(Robot, Robot) for the Robots with id = srcRobotId and id = dstRobotId
+     */
+    public boolean moveJobs(int srcRobotId, int dstRobotId) {
+        return moveJobs(robot(srcRobotId), robot(dstRobotId));
+    }
+
     /**
      * Gets the highest priority job assigned to a specified robot in this JobManager with id <= a specified id when
      * this has the specified robot
@@ -253,95 +717,1391 @@ public class JobManager {
     public int getHighestPriorityJob(Robot robot, int jobId) {
         if (robot == null || robot.isNull()) { return 0; }
         if (jobId < 1) { return 0; }
-        if (!this.robotToJobs.containsKey(robot)) {
-            checkRep();
-            return 0; }
-        if (this.robotToJobs.get(robot).isEmpty()) {
-            checkRep();
-            return 0; }
+        IntSortedSet jobs = this.robotToJobs.get(robot);
         checkRep();
-        return this.robotToJobs.get(robot).floor(jobId);
+        if (jobs == null) { return 0; }
+        return Math.max(jobs.floor(jobId), 0);
     }
 
     /**
-     * Compares the specified object with this JobManager for equality
+     * Gets the highest priority job assigned to the Robot with the specified id with id <= a specified job id
      *
-     * @param o
-     * @ return true iff (1) this and o have the same pool of Robots as determined by id, (2) each Robot in this is
-     *          assigned the same jobs as its equivalent Robot in o, and (3) this and o have the same unassigned jobs
+     * @param robotId
+     * @param jobId
+     * @return the same as getHighestPriorityJob(Robot, int) for the Robot with id = robotId
      */
-    @Override
-    public boolean equals(Object o) {
-        if (o == null | !(o instanceof JobManager)) { return false; }
-        JobManager other = (JobManager) o;
-        if (this.n != other.n) { return false; }
-        if (!this.unassignedJobs.equals(other.unassignedJobs)) { return false; }
-        return this.robotToJobs.equals(other.robotToJobs);
+    public int getHighestPriorityJob(int robotId, int jobId) {
+        return getHighestPriorityJob(robot(robotId), jobId);
     }
 
     /**
-     * Returns the hashcode for this JobManager
+     * Removes the highest priority job assigned to a specified robot in this JobManager and completes it, as the robot
+     * takes the job to work on it
      *
-     * @return the hashcode value which is
-     *         min{
-     *         (highest priority job in this) + [sum of (Robot.id * the highest priority job assigned to Robot), for every Robot in this],
-     *         Integer.MAX_VALUE
-     *         }
+     * @param robot
+     * @return the id of the job removed from robot; or a null job id of 0 if either robot has no jobs or this does not
+     *         have robot
      */
-    @Override
-    public int hashCode() {
-        long hash = this.n;
-        for (Robot robot : this.robotToJobs.keySet()) {
-            if (this.robotToJobs.get(robot).isEmpty()) { continue; }
-            long term = robot.id * this.robotToJobs.get(robot).last();
-            hash += term;
-            if (hash > Integer.MAX_VALUE) { return Integer.MAX_VALUE; }
-        }
-        return (int)hash;
+    public int pollHighestPriorityJob(Robot robot) {
+        return pollHighestPriorityJob(robot, Integer.MAX_VALUE);
     }
 
     /**
-     * Checks the representation invariant of this
+     * Removes the highest priority job with id <= a specified id assigned to a specified robot in this JobManager and
+     * completes it, as the robot takes the job to work on it
      *
-     * @throws AssertionError if the representation invariant is violated
+     * Finding the job costs O(log k) for a robot with k runs of jobs. Removing it trims the run it ends in place, which
+     * is the top run unless maxId cuts the job set lower; a job below the top of its run splits the run, shifting the
+     * runs above it and the intervals of the job owner index above it within their chunk, at O(k) and O(log intervals
+     * + 64). Completing the job adds it to the runs of completed jobs above the lowest gap, which shifts the runs above
+     * it, O(c) for c such runs, unless it extends a neighbouring run. Nothing is allocated unless a split or a new
+     * completed run needs more room.
+     *
+     * @param robot
+     * @param maxId
+     * @return the id of the job removed from robot; or a null job id of 0 if either no such job or robot exists in
+     *         this
      */
-    public void checkRep() {
-        // TODO implement this method
-        // DO NOT USE THE `assert` keyword; You must use `throw new AssertionError()`
-        for (Robot robot : robotToJobs.keySet()) {
-            if (robot.id < 1) {
-                throw new AssertionError();
-            }
-        }
-        if (this.n <= 0) {
-            throw new AssertionError();
-        }
-        for (int num : this.unassignedJobs) {
-            if (num == 0) {
-                throw new AssertionError();
-            }
-        }
-        List<Integer> numbers = new ArrayList<Integer>();
-        List <Integer> thisNumbers = new ArrayList<>();
-        for (int i = 1; i <= this.n; i++) {
-            numbers.add(i);
-            //numbers.add(i);
+    public int pollHighestPriorityJob(Robot robot, int maxId) {
+        if (robot == null || robot.isNull()) { return 0; }
+        IntSortedSet jobs = this.robotToJobs.get(robot);
+        int jobId = jobs == null || maxId < 1 ? -1 : jobs.floor(maxId);
+        if (jobId < 1) {
+            checkRep();
+            return 0;
         }
-        for (int num : this.unassignedJobs) {
-            thisNumbers.add(num);
+        jobs.remove(jobId);
+        this.jobOwner.set(jobId, jobId, 0);
+        this.assignedCount--;
+        updateRobot(robot);
+        markCompleted(jobId, jobId);
+        recordMove(jobId, jobId, robot, Robot.NULL);
+        checkCompletion(robot);
+        publishChanges();
+        return jobId;
+    }
+
+    /**
+     * Removes up to a specified number of the highest priority jobs assigned to a specified robot in this JobManager
+     * and completes them, as the robot takes the jobs to work on them
+     *
+     * The jobs are taken from the top of the robot's job set one run of consecutive ids at a time and written to the
+     * specified array. Each run taken costs O(1) to trim from the top of the job set, O(log intervals + 64) to clear in
+     * the job owner index, whose intervals it ends, and O(c) to add to the c runs of completed jobs above the lowest
+     * gap unless it extends a neighbouring run. Nothing is allocated unless the runs of completed jobs need more room.
+     *
+     * @param robot
+     * @param count
+     * @param into the array to write the ids of the removed jobs to, in decreasing priority from index 0
+     * @return the number of jobs removed from robot, which is less than count only if robot ran out of jobs, and 0 if
+     *         this does not have robot
+     * @throws IllegalArgumentException if into is null, or count < 0 or count > into.length
+     */
+    public int pollBatch(Robot robot, int count, int[] into) {
+        if (into == null) { throw new IllegalArgumentException("into must not be null"); }
+        if (count < 0 || count > into.length) { throw new IllegalArgumentException("count must fit into"); }
+        if (robot == null || robot.isNull()) { return 0; }
+        IntSortedSet jobs = this.robotToJobs.get(robot);
+        if (jobs == null) {
+            checkRep();
+            return 0;
         }
-        for (TreeSet<Integer> tset : robotToJobs.values()) {
-            thisNumbers.addAll(tset);
-            TreeSet<Integer> compSet = new TreeSet<>();
-            compSet.addAll(tset);
-            if (tset.size() > 1 && tset.last() < tset.first()) {
-                throw new AssertionError();
+        int polled = 0;
+        while (polled < count && !jobs.isEmpty()) {
+            int run = jobs.runCount() - 1;
+            int hi = jobs.runHi(run);
+            int lo = Math.max(jobs.runLo(run), hi - (count - polled) + 1);
+            for (int jobId = hi; jobId >= lo; jobId--) {
+                into[polled++] = jobId;
             }
+            jobs.removeRange(lo, hi);
+            this.jobOwner.set(lo, hi, 0);
+            markCompleted(lo, hi);
+            recordMove(lo, hi, robot, Robot.NULL);
         }
-        Collections.sort(thisNumbers);
-        if (!numbers.equals(thisNumbers)) {
-            throw new AssertionError();
-        }
+        this.assignedCount -= polled;
+        updateRobot(robot);
+        checkCompletion(robot);
+        publishChanges();
+        return polled;
+    }
+
+    /**
+     * Gets the highest priority unassigned job in this JobManager
+     *
+     * The unassigned jobs are scanned down from the highest word that may hold one, 64 ids at a time, and the scan
+     * remembers the words it found empty, so repeated calls cost O(1) amortized.
+     *
+     * @return the id of the highest priority unassigned job in this, or a null job id of 0 if every job is assigned or
+     *         completed
+     */
+    public int peekHighestUnassigned() {
+        checkRep();
+        return Math.max(this.unassignedJobs.last(), 0);
+    }
+
+    /**
+     * Counts the unassigned jobs in this JobManager with ids in [lo,...,hi]
+     *
+     * The count takes one popcount per 64 ids of the range that are held as words, and constant time for the rest.
+     *
+     * @param lo
+     * @param hi
+     * @return the number of unassigned jobs with ids in [lo,...,hi], or 0 if lo > hi
+     */
+    public int countUnassigned(int lo, int hi) {
+        checkRep();
+        return this.unassignedJobs.countRange(Math.max(lo, 1), Math.min(hi, this.n));
+    }
+
+    /**
+     * Counts the jobs assigned to a specified robot in this JobManager
+     *
+     * @param robot
+     * @return the number of jobs assigned to robot, or 0 if this does not have robot
+     */
+    public int jobCount(Robot robot) {
+        if (robot == null || robot.isNull()) { return 0; }
+        Integer slot = this.robotSlot.get(robot);
+        checkRep();
+        return slot == null ? 0 : this.loads.load(slot);
+    }
+
+    /**
+     * Counts the jobs assigned to the Robot with the specified id in this JobManager
+     *
+     * @param robotId
+     * @return the number of jobs assigned to the Robot with id = robotId, or 0 if this does not have that Robot
+     */
+    public int jobCount(int robotId) {
+        return jobCount(robot(robotId));
+    }
+
+    /**
+     * Counts the jobs assigned to some robot in this JobManager
+     *
+     * @return the number of assigned jobs in this
+     */
+    public int assignedCount() {
+        checkRep();
+        return this.assignedCount;
+    }
 
+    /**
+     * Counts the unassigned jobs in this JobManager
+     *
+     * @return the number of unassigned jobs in this
+     */
+    public int unassignedCount() {
+        checkRep();
+        return this.unassignedJobs.size();
+    }
+
+    /**
+     * Counts the completed jobs in this JobManager
+     *
+     * @return the number of completed jobs in this
+     */
+    public int completedCount() {
+        checkRep();
+        return this.completedBelow + this.completedJobs.size();
+    }
+
+    /**
+     * Gets a robot with the fewest assigned jobs in this JobManager
+     *
+     * @return a robot in this with no more jobs than any other robot in this, or a Null Robot if this has no robots
+     */
+    public Robot leastLoadedRobot() {
+        checkRep();
+        int slot = this.loads.minSlot();
+        return slot == 0 ? Robot.NULL : this.slotRobot[slot];
+    }
+
+    /**
+     * Gets a robot with the most assigned jobs in this JobManager
+     *
+     * @return a robot in this with no fewer jobs than any other robot in this, or a Null Robot if this has no robots
+     */
+    public Robot mostLoadedRobot() {
+        checkRep();
+        int slot = this.loads.maxSlot();
+        return slot == 0 ? Robot.NULL : this.slotRobot[slot];
+    }
+
+    /**
+     * Gets the load statistics of this JobManager
+     *
+     * Every count is maintained as jobs and robots change, so the statistics take constant time to gather no matter
+     * how many jobs and robots this manages.
+     *
+     * @return the current load statistics of this
+     */
+    public LoadStats stats() {
+        checkRep();
+        int minSlot = this.loads.minSlot();
+        int maxSlot = this.loads.maxSlot();
+        return new LoadStats(this.robotSlot.size(), this.assignedCount, this.unassignedJobs.size(),
+                this.completedBelow + this.completedJobs.size(),
+                minSlot == 0 ? Robot.NULL : this.slotRobot[minSlot], this.loads.load(minSlot),
+                maxSlot == 0 ? Robot.NULL : this.slotRobot[maxSlot], this.loads.load(maxSlot));
+    }
+
+    /**
+     * Assigns up to a specified number of the highest priority unassigned jobs in this JobManager to a specified robot
+     * when this has the specified robot
+     *
+     * The jobs are taken from the top of the unassigned jobs one run of consecutive ids at a time, as in assignJobs, so
+     * only the jobs that move are touched.
+     *
+     * @param robot
+     * @param k
+     * @return the number of jobs assigned to robot, which is less than k only if this ran out of unassigned jobs, and 0
+     *         if this does not have robot
+     * @throws IllegalArgumentException if k < 0
+     */
+    public int assignTopK(Robot robot, int k) {
+        if (k < 0) { throw new IllegalArgumentException("k must not be negative"); }
+        if (robot == null || robot.isNull()) { return 0; }
+        if (!this.robotToJobs.containsKey(robot)) {
+            checkRep();
+            return 0;
+        }
+        int taken = takeTop(robot, k);
+        checkMutation(robot, null);
+        publishChanges();
+        return taken;
+    }
+
+    /**
+     * Spreads every unassigned job in this JobManager across the robots in this according to the specified strategy
+     *
+     * Jobs that are already assigned stay with their robots, so a skewed assignment is evened out by steering the
+     * unassigned jobs towards the robots with the lowest load. With LEAST_LOADED and weightedCapacity(capacities), the
+     * share of each robot is computed up front from the loads of all robots, and then each robot, in increasing order
+     * of id, takes its share from the top of the unassigned jobs one run of consecutive ids at a time, so the cost is
+     * O(r log r) for r robots plus one bulk operation per run handed out. ROUND_ROBIN touches every unassigned job.
+     *
+     * @param strategy
+     * @return the number of jobs assigned, which is less than the number of unassigned jobs only if this has no robots
+     *         or, with weightedCapacity(capacities), no robot in this has a positive capacity
+     * @throws IllegalArgumentException if strategy is null
+     */
+    public int rebalance(Strategy strategy) {
+        if (strategy == null) { throw new IllegalArgumentException("strategy must not be null"); }
+        Robot[] robots = this.robotToJobs.keySet().toArray(new Robot[0]);
+        Arrays.sort(robots, Comparator.comparingInt(robot -> robot.id));
+        int assigned = 0;
+        if (robots.length > 0 && !this.unassignedJobs.isEmpty()) {
+            if (strategy.kind == Strategy.Kind.ROUND_ROBIN) {
+                assigned = dealRoundRobin(robots);
+            }
+            else {
+                long[] weights = new long[robots.length];
+                for (int i = 0; i < robots.length; i++) {
+                    weights[i] = strategy.kind == Strategy.Kind.LEAST_LOADED ? 1
+                            : strategy.capacities.getOrDefault(robots[i], 0);
+                }
+                int[] shares = shares(robots, weights, this.unassignedJobs.size());
+                for (int i = 0; i < robots.length; i++) {
+                    assigned += takeTop(robots[i], shares[i]);
+                }
+            }
+        }
+        checkAssignment();
+        publishChanges();
+        return assigned;
+    }
+
+    /**
+     * Computes the changes that turn the assignment of jobs in this JobManager into the assignment of jobs in the
+     * specified JobManager
+     *
+     * The job owner indexes of this and other are merged interval by interval, each step looking up the next interval
+     * of both in O(log intervals), so the cost is O(r log r) for the r runs of consecutive jobs assigned to the same
+     * robot in this and other, and never depends on n. Robots that are in only one of the two JobManagers but hold no
+     * jobs there do not show up in the changes.
+     *
+     * @param other
+     * @return the runs of jobs that are assigned to different robots in this and other, in increasing order of id,
+     *         each with its robot in this as oldRobot and its robot in other as newRobot; a job that is not assigned in
+     *         one of the two has a Null Robot there. Neighbouring runs always differ in oldRobot or newRobot.
+     * @throws IllegalArgumentException if other is null
+     */
+    public List<JobChange> diff(JobManager other) {
+        if (other == null) { throw new IllegalArgumentException("other must not be null"); }
+        checkRep();
+        List<JobChange> changes = new ArrayList<>();
+        long id = 1;
+        while (id <= Integer.MAX_VALUE) {
+            int slot = this.jobOwner.get((int) id);
+            int otherSlot = other.jobOwner.get((int) id);
+            // every job in [id,...,end] has the same robot in this, and the same robot in other
+            long end = Math.min(this.jobOwner.segmentEnd((int) id), other.jobOwner.segmentEnd((int) id));
+            if (slot == 0 && otherSlot == 0 && end == Integer.MAX_VALUE) { break; }
+            Robot oldRobot = slot != 0 ? this.slotRobot[slot] : Robot.NULL;
+            Robot newRobot = otherSlot != 0 ? other.slotRobot[otherSlot] : Robot.NULL;
+            if (oldRobot.id != newRobot.id) {
+                JobChange last = changes.isEmpty() ? null : changes.get(changes.size() - 1);
+                if (last != null && last.hi + 1L == id && last.oldRobot.id == oldRobot.id
+                        && last.newRobot.id == newRobot.id) {
+                    changes.set(changes.size() - 1, new JobChange(last.lo, (int) end, oldRobot, newRobot));
+                }
+                else {
+                    changes.add(new JobChange((int) id, (int) end, oldRobot, newRobot));
+                }
+            }
+            id = end + 1;
+        }
+        return changes;
+    }
+
+    /**
+     * Registers the specified listener to be notified of every change of the robot of some jobs in this JobManager
+     *
+     * After each mutation of this, the listener receives the runs of jobs whose robot the mutation changed, in the
+     * order in which the mutation changed them, so a copy of the assignment of this stays in sync at a cost
+     * proportional to the number of changes rather than to the size of this. Jobs that are assigned, moved, unassigned
+     * by removing their robot and completed while assigned are all reported; adding jobs, which are unassigned, and
+     * completing unassigned jobs change no robot and are not. The listeners are notified of the changes of a batch
+     * only once the batch is committed, and never of a batch that is rolled back.
+     *
+     * A mutation does not record any changes while this has no listeners.
+     *
+     * @param listener
+     * @throws IllegalArgumentException if listener is null
+     */
+    public void addChangeListener(Consumer<JobChange> listener) {
+        if (listener == null) { throw new IllegalArgumentException("listener must not be null"); }
+        this.listeners.add(listener);
+    }
+
+    /**
+     * Unregisters the specified listener, so that it is no longer notified of changes in this JobManager
+     *
+     * @param listener
+     * @return true if listener was registered with this, and false otherwise
+     */
+    public boolean removeChangeListener(Consumer<JobChange> listener) {
+        return this.listeners.remove(listener);
+    }
+
+    /**
+     * Applies a batch of operations to this JobManager atomically
+     *
+     * The operations are applied in order through the JobManagerBatch passed to operations, and the representation
+     * invariant of this is verified once after the last one instead of after each of them: at level INCREMENTAL only
+     * the job counters, the robots and the jobs that the batch touched are checked, and at level FULL the complete
+     * invariant is checked. No invariant is verified when the verification level of this is OFF. If operations throws,
+     * or if the invariant is violated at the end of the batch, every operation of the batch is rolled back and the
+     * exception or AssertionError is rethrown. The change listeners of this are notified of the changes of the whole
+     * batch after it is committed.
+     *
+     * Every run of jobs that the batch moves is logged, so a rollback undoes the runs in reverse order and rebuilds the
+     * index of this once, and a committed batch costs nothing beyond its operations and its verification. At level
+     * FULL, the job sets are copied when the batch starts and restored on rollback instead, so that a state corrupted
+     * outside of the operations of the batch is restored as well.
+     *
+     * @param operations
+     * @return the result of every operation applied through the batch, in order; each result is what the equivalent
+     *         JobManager method would have returned
+     * @throws IllegalArgumentException if operations is null
+     * @throws IllegalStateException if this is already applying a batch
+     * @throws AssertionError if the representation invariant is violated at the end of the batch
+     */
+    public List<Boolean> batch(Consumer<JobManagerBatch> operations) {
+        if (operations == null) { throw new IllegalArgumentException("operations must not be null"); }
+        if (this.inBatch) { throw new IllegalStateException("batches cannot be nested"); }
+        Map<Robot, IntSortedSet> savedRobots = null;
+        JobSet savedUnassigned = null;
+        if (this.checkLevel == CheckLevel.FULL) {
+            savedRobots = new HashMap<>();
+            for (Map.Entry<Robot, IntSortedSet> entry : this.robotToJobs.entrySet()) {
+                savedRobots.put(entry.getKey(), entry.getValue().copy());
+            }
+            savedUnassigned = new JobSet(this.unassignedJobs);
+        }
+        JobManagerBatch batch = new JobManagerBatch(this);
+        this.changedCount = 0;
+        this.inBatch = true;
+        List<Boolean> results;
+        boolean committed = false;
+        try {
+            operations.accept(batch);
+            this.inBatch = false;
+            checkBatch();
+            committed = true;
+        }
+        finally {
+            results = batch.close();
+            this.inBatch = false;
+            if (!committed) {
+                if (savedRobots != null) {
+                    this.robotToJobs.clear();
+                    this.robotToJobs.putAll(savedRobots);
+                    this.unassignedJobs.clear();
+                    this.unassignedJobs.addAll(savedUnassigned);
+                }
+                else {
+                    undoBatch();
+                }
+                rebuildIndex();
+                this.pendingChanges.clear();
+            }
+            this.batchRobots.clear();
+            this.changedCount = 0;
+        }
+        publishChanges();
+        return results;
+    }
+
+    /**
+     * Replaces the state of this JobManager with a state of n jobs in which the specified robots hold the specified
+     * jobs, the specified jobs are unassigned and the specified jobs are completed
+     *
+     * The counters, slots, loads, hash code and job owner index of this are rebuilt once from the new state, so the
+     * cost is linear in the number of robots and runs of jobs rather than in n.
+     *
+     * @param n
+     * @param robots maps: Robot --> jobs assigned to Robot; the job sets become part of this and must not be used
+     *               by the caller afterwards
+     * @param unassigned
+     * @param completed
+     * @throws AssertionError if the new state does not satisfy the representation invariant and the verification
+     *         level of this is not OFF
+     */
+    void restore(int n, Map<Robot, IntSortedSet> robots, JobSet unassigned, IntSortedSet completed) {
+        this.n = n;
+        this.robotToJobs.clear();
+        this.robotToJobs.putAll(robots);
+        this.unassignedJobs.clear();
+        this.unassignedJobs.addAll(unassigned);
+        this.completedJobs.clear();
+        this.completedJobs.addAll(completed);
+        this.completedBelow = 0;
+        if (!this.completedJobs.isEmpty() && this.completedJobs.first() == 1) {
+            this.completedBelow = this.completedJobs.runHi(0);
+            this.completedJobs.removeRange(0, this.completedBelow);
+        }
+        rebuildIndex();
+        this.changedCount = 0;
+        checkRep();
+    }
+
+    /**
+     * Compares the specified object with this JobManager for equality
+     *
+     * The counters and the cached hash code are compared first, in constant time, and each robot's job set is only
+     * compared run by run once its fingerprint matches, so almost every unequal JobManager is rejected without looking
+     * at any job. The unassigned jobs are compared last, a word at a time.
+     *
+     * @param o
+     * @ return true iff (1) this and o have the same pool of Robots as determined by id, (2) each Robot in this is
+     *          assigned the same jobs as its equivalent Robot in o, and (3) this and o have the same unassigned jobs
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) { return true; }
+        if (o == null | !(o instanceof JobManager)) { return false; }
+        JobManager other = (JobManager) o;
+        if (this.n != other.n || this.hashSum != other.hashSum || this.assignedCount != other.assignedCount) {
+            return false;
+        }
+        if (this.unassignedJobs.size() != other.unassignedJobs.size()
+                || this.robotToJobs.size() != other.robotToJobs.size()) {
+            return false;
+        }
+        for (Map.Entry<Robot, IntSortedSet> entry : this.robotToJobs.entrySet()) {
+            IntSortedSet otherJobs = other.robotToJobs.get(entry.getKey());
+            if (otherJobs == null || otherJobs.fingerprint() != entry.getValue().fingerprint()) { return false; }
+            if (!otherJobs.equals(entry.getValue())) { return false; }
+        }
+        return this.unassignedJobs.equals(other.unassignedJobs);
+    }
+
+    /**
+     * Returns the hashcode for this JobManager
+     *
+     * The sum is kept up to date as jobs move between robots, so this takes constant time.
+     *
+     * @return the hashcode value which is
+     *         min{
+     *         (highest priority job in this) + [sum of (Robot.id * the highest priority job assigned to Robot), for every Robot in this],
+     *         Integer.MAX_VALUE
+     *         }
+     */
+    @Override
+    public int hashCode() {
+        return (int) Math.min(this.n + this.hashSum, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Checks the representation invariant of this at the verification level of this
+     *
+     * At level OFF nothing is checked, at level INCREMENTAL only the job counters of this are checked, and at level
+     * FULL the complete representation invariant is checked. Nothing is checked while this is applying a batch, which
+     * is verified once it ends.
+     *
+     * @throws AssertionError if the representation invariant is violated
+     */
+    public void checkRep() {
+        if (this.inBatch) { return; }
+        switch (this.checkLevel) {
+            case OFF:
+                return;
+            case INCREMENTAL:
+                checkCounts();
+                return;
+            default:
+                checkCounts();
+                checkRepFull();
+        }
+    }
+
+    /**
+     * Gets the Robot in this with the specified id for the int-id overloads of this JobManager, without allocating
+     *
+     * @param robotId
+     * @return the Robot in this with id = robotId, or the Null Robot if this has no such robot
+     */
+    private Robot robot(int robotId) {
+        int slot = slotOf(robotId);
+        return slot == 0 ? Robot.NULL : this.slotRobot[slot];
+    }
+
+    /**
+     * Finds the slot held by the robot with the specified id in this
+     *
+     * @param robotId
+     * @return the slot held by the robot in this with id = robotId, or 0 if this has no such robot
+     */
+    private int slotOf(int robotId) {
+        int position = tablePosition(robotId);
+        return position < 0 ? 0 : this.slotTable[position];
+    }
+
+    /**
+     * Finds the entry of this.slotTable that holds the slot of the robot with the specified id
+     *
+     * @param robotId
+     * @return the index of that entry, or -1 if no robot in this has id = robotId
+     */
+    private int tablePosition(int robotId) {
+        if (robotId <= 0) { return -1; }
+        int mask = this.slotTable.length - 1;
+        for (int i = tableIndex(robotId); ; i = (i + 1) & mask) {
+            int slot = this.slotTable[i];
+            if (slot == 0) { return -1; }
+            if (this.slotRobot[slot].id == robotId) { return i; }
+        }
+    }
+
+    /**
+     * Gets the entry of this.slotTable where probing for the robot with the specified id starts
+     *
+     * @param robotId
+     * @return the home index of robotId in this.slotTable
+     */
+    private int tableIndex(int robotId) {
+        int hash = robotId * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & (this.slotTable.length - 1);
+    }
+
+    /**
+     * Adds the specified slot, which a robot has just acquired, to this.slotTable, doubling the table first if it
+     * would become more than half full
+     *
+     * @param slot
+     */
+    private void indexSlot(int slot) {
+        int held = this.nextSlot - 1 - this.freeCount;
+        if (2 * held > this.slotTable.length) {
+            int[] old = this.slotTable;
+            this.slotTable = new int[2 * old.length];
+            for (int oldSlot : old) {
+                if (oldSlot != 0) { insertSlot(oldSlot); }
+            }
+        }
+        insertSlot(slot);
+    }
+
+    private void insertSlot(int slot) {
+        int mask = this.slotTable.length - 1;
+        int i = tableIndex(this.slotRobot[slot].id);
+        while (this.slotTable[i] != 0) { i = (i + 1) & mask; }
+        this.slotTable[i] = slot;
+    }
+
+    /**
+     * Removes the specified slot, which a robot is about to release, from this.slotTable, shifting back the entries
+     * that probed past it so that no probe stops short of its entry
+     *
+     * @param slot
+     */
+    private void unindexSlot(int slot) {
+        int mask = this.slotTable.length - 1;
+        int hole = tablePosition(this.slotRobot[slot].id);
+        for (int i = (hole + 1) & mask; this.slotTable[i] != 0; i = (i + 1) & mask) {
+            int home = tableIndex(this.slotRobot[this.slotTable[i]].id);
+            // the entry at i may fill the hole iff the hole lies on its probe path from home to i
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                this.slotTable[hole] = this.slotTable[i];
+                hole = i;
+            }
+        }
+        this.slotTable[hole] = 0;
+    }
+
+    /**
+     * Transfers every unassigned job with id <= the specified id to the specified robot in this, one run of consecutive
+     * unassigned ids at a time
+     *
+     * Only the jobs that move are touched: each run is cleared from unassignedJobs, written to jobOwner and added to
+     * the robot's job set in bulk, and nothing is copied per call.
+     *
+     * @param robot a robot in this
+     * @param jobId
+     * @return the number of jobs transferred
+     */
+    private int takeUnassigned(Robot robot, int jobId) {
+        int slot = this.robotSlot.get(robot);
+        IntSortedSet jobs = this.robotToJobs.get(robot);
+        int taken = 0;
+        int lo = this.unassignedJobs.nextSetBit(1);
+        while (lo != -1 && lo <= jobId) {
+            int hi = this.unassignedJobs.nextClearBit(lo, jobId) - 1;
+            this.unassignedJobs.removeRange(lo, hi);
+            this.jobOwner.set(lo, hi, slot);
+            jobs.addRange(lo, hi);
+            recordChange(lo, hi);
+            recordMove(lo, hi, Robot.NULL, robot);
+            taken += hi - lo + 1;
+            lo = hi < jobId ? this.unassignedJobs.nextSetBit(hi + 1) : -1;
+        }
+        this.assignedCount += taken;
+        updateRobot(robot);
+        return taken;
+    }
+
+    /**
+     * Transfers up to k of the highest priority unassigned jobs to the specified robot, without checking the
+     * representation invariant
+     *
+     * @param robot a robot in this
+     * @param k
+     * @return the number of jobs transferred
+     */
+    private int takeTop(Robot robot, int k) {
+        int slot = this.robotSlot.get(robot);
+        IntSortedSet jobs = this.robotToJobs.get(robot);
+        int taken = 0;
+        int hi = k <= 0 ? -1 : this.unassignedJobs.last();
+        while (hi > 0) {
+            int lo = this.unassignedJobs.prevClearBit(hi, hi - (k - taken) + 1) + 1;
+            this.unassignedJobs.removeRange(lo, hi);
+            this.jobOwner.set(lo, hi, slot);
+            jobs.addRange(lo, hi);
+            recordChange(lo, hi);
+            recordMove(lo, hi, Robot.NULL, robot);
+            taken += hi - lo + 1;
+            hi = taken < k ? this.unassignedJobs.prevSetBit(lo - 1) : -1;
+        }
+        this.assignedCount += taken;
+        updateRobot(robot);
+        return taken;
+    }
+
+    /**
+     * Deals every unassigned job to the specified robots in turn, without checking the representation invariant
+     *
+     * The highest priority job goes to robots[0], the next one to robots[1], and so on. The jobs are visited once in
+     * increasing order of id, which appends each dealt job to a new job set of its robot and to a sorted list of owner
+     * intervals, so that every job set takes its new jobs in one linear merge and the job owner index takes all the
+     * intervals in one pass, rather than one search and shift per job.
+     *
+     * @param robots robots in this
+     * @return the number of jobs transferred
+     */
+    private int dealRoundRobin(Robot[] robots) {
+        int[] slots = new int[robots.length];
+        IntSortedSet[] dealtJobs = new IntSortedSet[robots.length];
+        for (int i = 0; i < robots.length; i++) {
+            slots[i] = this.robotSlot.get(robots[i]);
+            dealtJobs[i] = new RunIntSortedSet();
+        }
+        int dealt = this.unassignedJobs.size();
+        int[] ownerBounds = new int[2 * dealt];
+        int[] owners = new int[dealt];
+        int intervals = 0;
+        // the job with rank t from the top, counting from 0, goes to robots[t % robots.length]
+        int turn = (dealt - 1) % robots.length;
+        for (int job = this.unassignedJobs.nextSetBit(1); job != -1; job = this.unassignedJobs.nextSetBit(job + 1)) {
+            dealtJobs[turn].addRange(job, job);
+            if (intervals > 0 && owners[intervals - 1] == slots[turn] && ownerBounds[2 * intervals - 1] + 1 == job) {
+                ownerBounds[2 * intervals - 1] = job;
+            }
+            else {
+                ownerBounds[2 * intervals] = job;
+                ownerBounds[2 * intervals + 1] = job;
+                owners[intervals++] = slots[turn];
+            }
+            recordChange(job, job);
+            recordMove(job, job, Robot.NULL, robots[turn]);
+            turn = turn == 0 ? robots.length - 1 : turn - 1;
+        }
+        this.jobOwner.setAll(ownerBounds, owners, intervals);
+        for (int i = 0; i < robots.length; i++) {
+            this.robotToJobs.get(robots[i]).addAll(dealtJobs[i]);
+        }
+        this.unassignedJobs.clear();
+        this.assignedCount += dealt;
+        for (Robot robot : robots) {
+            updateRobot(robot);
+        }
+        return dealt;
+    }
+
+    /**
+     * Computes how many of the specified number of unassigned jobs each of the specified robots should take so that
+     * their loads relative to their weights end up as even as possible
+     *
+     * The robots are filled like water poured into bins: visiting them in increasing order of load per unit of weight,
+     * each one raises the common level until the jobs run out, and every robot below the final level takes enough jobs
+     * to reach it. The jobs lost to rounding down go one each to the robots below the level, lowest load first.
+     *
+     * @param robots robots in this
+     * @param weights weights[i] >= 0 is the weight of robots[i]
+     * @param jobs
+     * @return shares[i] is the number of jobs robots[i] should take; every share is 0 if every weight is 0
+     */
+    private int[] shares(Robot[] robots, long[] weights, int jobs) {
+        int[] shares = new int[robots.length];
+        long[] loads = new long[robots.length];
+        Integer[] order = new Integer[robots.length];
+        int weighted = 0;
+        for (int i = 0; i < robots.length; i++) {
+            loads[i] = this.robotToJobs.get(robots[i]).size();
+            if (weights[i] > 0) { order[weighted++] = i; }
+        }
+        if (weighted == 0) { return shares; }
+        Arrays.sort(order, 0, weighted, Comparator.comparingDouble(i -> (double) loads[i] / weights[i]));
+        // the robots order[0],...,order[filled - 1] are below the level that the jobs fill up to
+        long sumLoads = 0;
+        long sumWeights = 0;
+        int filled = 0;
+        double level = 0;
+        while (filled < weighted) {
+            int next = order[filled];
+            if (filled > 0 && level <= (double) loads[next] / weights[next]) { break; }
+            sumLoads += loads[next];
+            sumWeights += weights[next];
+            filled++;
+            level = (double) (jobs + sumLoads) / sumWeights;
+        }
+        long left = jobs;
+        for (int k = 0; k < filled; k++) {
+            int i = order[k];
+            shares[i] = (int) Math.min(left, Math.max(0, (long) Math.floor(level * weights[i]) - loads[i]));
+            left -= shares[i];
+        }
+        for (int k = 0; left > 0; k = (k + 1) % filled) {
+            shares[order[k]]++;
+            left--;
+        }
+        return shares;
+    }
+
+    /**
+     * Gets the robot that the job with the specified id is assigned to, without checking the representation invariant
+     *
+     * Every field is read once into a local, so a call that races with a mutation of this may return a stale or wrong
+     * robot, or throw a RuntimeException, but always terminates.
+     *
+     * @param jobId
+     * @return the robot in this assigned job jobId, or null if there is no such job or it is unassigned
+     */
+    Robot ownerOf(int jobId) {
+        if (jobId < 1 || jobId > this.n) { return null; }
+        int slot = this.jobOwner.get(jobId);
+        Robot[] robots = this.slotRobot;
+        return slot == 0 ? null : robots[slot];
+    }
+
+    /**
+     * Checks if the job with the specified id is completed, without checking the representation invariant
+     *
+     * @param jobId a job id in [1,...,n]
+     * @return true iff the job with id = jobId is completed
+     */
+    private boolean completed(int jobId) {
+        return jobId <= this.completedBelow || this.completedJobs.contains(jobId);
+    }
+
+    /**
+     * Marks every job with id in [lo,...,hi] as completed, and raises the low-water mark of completed jobs over the
+     * lowest run of completed jobs when that run starts right above it
+     *
+     * @param lo
+     * @param hi
+     */
+    private void markCompleted(int lo, int hi) {
+        this.completedJobs.addRange(lo, hi);
+        recordChange(lo, hi);
+        if (this.completedJobs.first() == this.completedBelow + 1) {
+            this.completedBelow = this.completedJobs.runHi(0);
+            this.completedJobs.removeRange(0, this.completedBelow);
+        }
+    }
+
+    /**
+     * Moves every job assigned to one robot in this to another robot in this
+     *
+     * When dstRobot has no jobs, the two robots swap job sets and slots, which moves every job in constant time
+     * without touching jobOwner. Otherwise the smaller job set is merged into the larger one in linear time, the robots
+     * swap job sets and slots if the larger set was srcRobot's, and only the jobs of the smaller set are rewritten in
+     * jobOwner.
+     *
+     * @param srcRobot a robot in this
+     * @param dstRobot a robot in this other than srcRobot
+     */
+    private void moveAllJobs(Robot srcRobot, Robot dstRobot) {
+        IntSortedSet srcJobs = this.robotToJobs.get(srcRobot);
+        IntSortedSet dstJobs = this.robotToJobs.get(dstRobot);
+        if (srcJobs.isEmpty()) { return; }
+        if (!this.listeners.isEmpty() || this.inBatch) {
+            for (int run = 0; run < srcJobs.runCount(); run++) {
+                recordMove(srcJobs.runLo(run), srcJobs.runHi(run), srcRobot, dstRobot);
+            }
+        }
+        if (dstJobs.isEmpty()) {
+            swapSlots(srcRobot, dstRobot);
+            updateRobot(srcRobot);
+            updateRobot(dstRobot);
+            return;
+        }
+        IntSortedSet smaller = srcJobs.size() <= dstJobs.size() ? srcJobs : dstJobs;
+        IntSortedSet larger = smaller == srcJobs ? dstJobs : srcJobs;
+        int largerSlot = this.robotSlot.get(smaller == srcJobs ? dstRobot : srcRobot);
+        for (int run = 0; run < smaller.runCount(); run++) {
+            this.jobOwner.set(smaller.runLo(run), smaller.runHi(run), largerSlot);
+            recordChange(smaller.runLo(run), smaller.runHi(run));
+        }
+        larger.addAll(smaller);
+        smaller.clear();
+        if (larger == srcJobs) {
+            swapSlots(srcRobot, dstRobot);
+        }
+        updateRobot(srcRobot);
+        updateRobot(dstRobot);
+    }
+
+    /**
+     * Exchanges the job sets and slots of two robots in this, so that every job formerly assigned to either robot is
+     * now assigned to the other one
+     *
+     * @param robot1 a robot in this
+     * @param robot2 a robot in this other than robot1
+     */
+    private void swapSlots(Robot robot1, Robot robot2) {
+        int slot1 = this.robotSlot.get(robot1);
+        int slot2 = this.robotSlot.get(robot2);
+        IntSortedSet jobs1 = this.robotToJobs.get(robot1);
+        this.robotToJobs.put(robot1, this.robotToJobs.get(robot2));
+        this.robotToJobs.put(robot2, jobs1);
+        this.robotSlot.put(robot1, slot2);
+        this.robotSlot.put(robot2, slot1);
+        int position1 = tablePosition(robot1.id);
+        int position2 = tablePosition(robot2.id);
+        this.slotTable[position1] = slot2;
+        this.slotTable[position2] = slot1;
+        Robot stored1 = this.slotRobot[slot1];
+        this.slotRobot[slot1] = this.slotRobot[slot2];
+        this.slotRobot[slot2] = stored1;
+    }
+
+    /**
+     * Rebuilds the job counters, the slots, the loads, the hash code and the job owner index of this from robotToJobs
+     *
+     * The runs of all robots are sorted by their lowest id before they are added to the job owner index, so that each
+     * one is appended after the last interval instead of shifting the intervals above it.
+     */
+    private void rebuildIndex() {
+        this.jobOwner.clear();
+        this.loads.clear();
+        Arrays.fill(this.hashTerms, 0);
+        this.hashSum = 0;
+        Arrays.fill(this.slotRobot, null);
+        Arrays.fill(this.slotTable, 0);
+        this.robotSlot.clear();
+        this.freeCount = 0;
+        this.nextSlot = 1;
+        this.assignedCount = 0;
+        int runs = 0;
+        for (Map.Entry<Robot, IntSortedSet> entry : this.robotToJobs.entrySet()) {
+            int slot = acquireSlot(entry.getKey());
+            this.robotSlot.put(entry.getKey(), slot);
+            updateRobot(entry.getKey());
+            this.assignedCount += entry.getValue().size();
+            runs += entry.getValue().runCount();
+        }
+        // order[i] holds the lowest id of the i-th run found in its high half and i in its low half
+        long[] order = new long[runs];
+        int[] runHi = new int[runs];
+        int[] runSlot = new int[runs];
+        int i = 0;
+        for (Map.Entry<Robot, IntSortedSet> entry : this.robotToJobs.entrySet()) {
+            int slot = this.robotSlot.get(entry.getKey());
+            IntSortedSet jobs = entry.getValue();
+            for (int run = 0; run < jobs.runCount(); run++, i++) {
+                order[i] = (long) jobs.runLo(run) << 32 | i;
+                runHi[i] = jobs.runHi(run);
+                runSlot[i] = slot;
+            }
+        }
+        Arrays.sort(order);
+        for (long key : order) {
+            int run = (int) key;
+            this.jobOwner.set((int) (key >>> 32), runHi[run], runSlot[run]);
+        }
+    }
+
+    /**
+     * Gives the specified robot a free slot
+     *
+     * @param robot
+     * @return the slot now held by robot
+     */
+    private int acquireSlot(Robot robot) {
+        int slot;
+        if (this.freeCount > 0) {
+            slot = this.freeSlots[--this.freeCount];
+        }
+        else {
+            slot = this.nextSlot++;
+            if (slot == this.slotRobot.length) {
+                this.slotRobot = Arrays.copyOf(this.slotRobot, 2 * this.slotRobot.length);
+                this.hashTerms = Arrays.copyOf(this.hashTerms, 2 * this.hashTerms.length);
+            }
+        }
+        this.slotRobot[slot] = robot;
+        indexSlot(slot);
+        this.loads.set(slot, 0);
+        return slot;
+    }
+
+    /**
+     * Frees the specified slot so that it can be handed to another robot
+     *
+     * @param slot
+     */
+    private void releaseSlot(int slot) {
+        unindexSlot(slot);
+        this.slotRobot[slot] = null;
+        this.loads.remove(slot);
+        this.hashSum -= this.hashTerms[slot];
+        this.hashTerms[slot] = 0;
+        if (this.freeCount == this.freeSlots.length) {
+            this.freeSlots = Arrays.copyOf(this.freeSlots, 2 * this.freeSlots.length);
+        }
+        this.freeSlots[this.freeCount++] = slot;
+    }
+
+    /**
+     * Updates the load of the specified robot and its term in the hash code of this to match the jobs now assigned to
+     * it
+     *
+     * @param robot a robot in this
+     */
+    private void updateRobot(Robot robot) {
+        int slot = this.robotSlot.get(robot);
+        IntSortedSet jobs = this.robotToJobs.get(robot);
+        this.loads.set(slot, jobs.size());
+        long term = hashTerm(robot, jobs);
+        this.hashSum += term - this.hashTerms[slot];
+        this.hashTerms[slot] = term;
+    }
+
+    /**
+     * Computes the term of the specified robot in the sum of hashCode()
+     *
+     * @param robot
+     * @param jobs the jobs assigned to robot
+     * @return robot.id * jobs.last() capped at Integer.MAX_VALUE, or 0 if jobs is empty
+     */
+    private static long hashTerm(Robot robot, IntSortedSet jobs) {
+        return jobs.isEmpty() ? 0 : Math.min((long) robot.id * jobs.last(), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Records that the jobs with ids in [lo,...,hi] were touched by the current mutation
+     *
+     * @param lo
+     * @param hi
+     */
+    private void recordChange(int lo, int hi) {
+        if (this.checkLevel == CheckLevel.OFF) { return; }
+        if (2 * this.changedCount == this.changedRuns.length) {
+            this.changedRuns = Arrays.copyOf(this.changedRuns, 2 * this.changedRuns.length);
+        }
+        this.changedRuns[2 * this.changedCount] = lo;
+        this.changedRuns[2 * this.changedCount + 1] = hi;
+        this.changedCount++;
+    }
+
+    /**
+     * Records that the jobs with ids in [lo,...,hi] moved from one robot to another, so that the listeners of this are
+     * notified of the move once the current mutation or batch is done
+     *
+     * A move that continues the last recorded move between the same robots is merged into it.
+     *
+     * @param lo
+     * @param hi
+     * @param oldRobot the robot the jobs were assigned to, or a Null Robot if they were unassigned
+     * @param newRobot the robot the jobs are now assigned to, or a Null Robot if they are now unassigned or completed
+     */
+    private void recordMove(int lo, int hi, Robot oldRobot, Robot newRobot) {
+        if (this.listeners.isEmpty() && !this.inBatch) { return; }
+        int last = this.pendingChanges.size() - 1;
+        JobChange previous = last < 0 ? null : this.pendingChanges.get(last);
+        if (previous != null && previous.hi + 1L == lo && previous.oldRobot.id == oldRobot.id
+                && previous.newRobot.id == newRobot.id) {
+            this.pendingChanges.set(last, new JobChange(previous.lo, hi, oldRobot, newRobot));
+            return;
+        }
+        this.pendingChanges.add(new JobChange(lo, hi, oldRobot, newRobot));
+    }
+
+    /**
+     * Records that the specified robot was added to or removed from this by the current batch, unless this is not
+     * applying a batch or the batch already added or removed the robot
+     *
+     * @param robot
+     * @param wasPresent true iff robot was in this before it was added or removed
+     */
+    private void recordMembership(Robot robot, boolean wasPresent) {
+        if (this.inBatch) { this.batchRobots.putIfAbsent(robot, wasPresent); }
+    }
+
+    /**
+     * Rolls the job sets and the robots of this back to their state before the current batch, by undoing the logged
+     * moves of the batch in reverse order, without rebuilding the index of this
+     */
+    private void undoBatch() {
+        for (int i = this.pendingChanges.size() - 1; i >= 0; i--) {
+            JobChange change = this.pendingChanges.get(i);
+            if (change.newRobot.isNull()) {
+                this.unassignedJobs.removeRange(change.lo, change.hi);
+            }
+            else {
+                this.robotToJobs.computeIfAbsent(change.newRobot, r -> new RunIntSortedSet())
+                        .removeRange(change.lo, change.hi);
+            }
+            if (change.oldRobot.isNull()) {
+                this.unassignedJobs.addRange(change.lo, change.hi);
+            }
+            else {
+                this.robotToJobs.computeIfAbsent(change.oldRobot, r -> new RunIntSortedSet())
+                        .addRange(change.lo, change.hi);
+            }
+        }
+        for (Map.Entry<Robot, Boolean> entry : this.batchRobots.entrySet()) {
+            if (entry.getValue()) {
+                this.robotToJobs.computeIfAbsent(entry.getKey(), r -> new RunIntSortedSet());
+            }
+            else {
+                this.robotToJobs.remove(entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * Notifies the listeners of this of the recorded moves, unless this is applying a batch
+     *
+     * The recorded moves are cleared before the first listener is notified, so a listener that throws does not leave
+     * them behind for the next mutation.
+     */
+    private void publishChanges() {
+        if (this.inBatch || this.pendingChanges.isEmpty()) { return; }
+        JobChange[] changes = this.pendingChanges.toArray(new JobChange[0]);
+        this.pendingChanges.clear();
+        for (Consumer<JobChange> listener : new ArrayList<>(this.listeners)) {
+            for (JobChange change : changes) {
+                listener.accept(change);
+            }
+        }
+    }
+
+    /**
+     * Checks the representation invariant of this after a mutation at the verification level of this
+     *
+     * At levels INCREMENTAL and FULL, every job touched by the mutation must now be assigned to holder, or be
+     * unassigned if holder is null, according to both the job sets and the job owner index of this.
+     *
+     * @param holder the robot to which every changed job must now be assigned, or null if they must be unassigned
+     * @param previousHolder a robot to which no changed job may still be assigned, or null if there is none
+     * @throws AssertionError if the representation invariant is violated
+     */
+    private void checkMutation(Robot holder, Robot previousHolder) {
+        if (this.inBatch) { return; }
+        int count = this.changedCount;
+        this.changedCount = 0;
+        checkRep();
+        if (this.checkLevel == CheckLevel.OFF) { return; }
+        IntSortedSet holderJobs = holder == null ? null : this.robotToJobs.get(holder);
+        int holderSlot = holder == null ? 0 : this.robotSlot.get(holder);
+        checkSlot(holder);
+        checkSlot(previousHolder);
+        for (int i = 0; i < count; i++) {
+            int lo = this.changedRuns[2 * i];
+            int hi = this.changedRuns[2 * i + 1];
+            if (lo < 1 || hi > this.n) {
+                throw new AssertionError();
+            }
+            for (long job = lo; job <= hi; job++) {
+                checkPlacement((int) job, holderJobs, holderSlot, previousHolder);
+            }
+        }
+    }
+
+    /**
+     * Checks the representation invariant of this after unassigned jobs were spread across several robots at the
+     * verification level of this
+     *
+     * At levels INCREMENTAL and FULL, every job touched by the mutation must now be assigned to the robot that holds its
+     * slot in the job owner index, according to both the job sets and the job owner index of this.
+     *
+     * @throws AssertionError if the representation invariant is violated
+     */
+    private void checkAssignment() {
+        if (this.inBatch) { return; }
+        int count = this.changedCount;
+        this.changedCount = 0;
+        checkRep();
+        if (this.checkLevel == CheckLevel.OFF) { return; }
+        for (int i = 0; i < count; i++) {
+            for (long job = this.changedRuns[2 * i]; job <= this.changedRuns[2 * i + 1]; job++) {
+                int slot = this.jobOwner.get((int) job);
+                Robot holder = slot > 0 && slot < this.slotRobot.length ? this.slotRobot[slot] : null;
+                if (holder == null) {
+                    throw new AssertionError();
+                }
+                checkSlot(holder);
+                checkPlacement((int) job, this.robotToJobs.get(holder), slot, null);
+            }
+        }
+    }
+
+    /**
+     * Checks the representation invariant of this after jobs were completed at the verification level of this
+     *
+     * At levels INCREMENTAL and FULL, every job touched by the completion must now be completed, and neither be
+     * unassigned nor be assigned to any robot according to the job owner index or to previousHolder.
+     *
+     * @param previousHolder the robot to which some completed jobs were assigned, or null if there is none
+     * @throws AssertionError if the representation invariant is violated
+     */
+    private void checkCompletion(Robot previousHolder) {
+        if (this.inBatch) { return; }
+        int count = this.changedCount;
+        this.changedCount = 0;
+        checkRep();
+        if (this.checkLevel == CheckLevel.OFF) { return; }
+        checkSlot(previousHolder);
+        IntSortedSet previousJobs = previousHolder == null ? null : this.robotToJobs.get(previousHolder);
+        for (int i = 0; i < count; i++) {
+            for (long job = this.changedRuns[2 * i]; job <= this.changedRuns[2 * i + 1]; job++) {
+                int id = (int) job;
+                if (id < 1 || id > this.n || !completed(id)) {
+                    throw new AssertionError();
+                }
+                if (this.jobOwner.get(id) != 0 || this.unassignedJobs.contains(id)) {
+                    throw new AssertionError();
+                }
+                if (previousJobs != null && previousJobs.contains(id)) {
+                    throw new AssertionError();
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks the representation invariant of this at the end of a batch at the verification level of this
+     *
+     * At level INCREMENTAL, the job counters of this, the slots of the robots that the batch added or moved jobs of,
+     * and the placement of every job that the batch touched are checked. At level FULL, the complete invariant and the
+     * slots of all robots are checked as well.
+     *
+     * @throws AssertionError if the representation invariant is violated
+     */
+    private void checkBatch() {
+        int count = this.changedCount;
+        this.changedCount = 0;
+        checkRep();
+        if (this.checkLevel == CheckLevel.OFF) { return; }
+        for (Robot robot : this.batchRobots.keySet()) {
+            if (this.robotToJobs.containsKey(robot)) { checkSlot(robot); }
+        }
+        for (JobChange change : this.pendingChanges) {
+            if (this.robotToJobs.containsKey(change.oldRobot)) { checkSlot(change.oldRobot); }
+            if (this.robotToJobs.containsKey(change.newRobot)) { checkSlot(change.newRobot); }
+        }
+        for (int i = 0; i < count; i++) {
+            for (long job = this.changedRuns[2 * i]; job <= this.changedRuns[2 * i + 1]; job++) {
+                if (job < 1 || job > this.n) {
+                    throw new AssertionError();
+                }
+                int slot = this.jobOwner.get((int) job);
+                Robot holder = slot > 0 && slot < this.slotRobot.length ? this.slotRobot[slot] : null;
+                if (slot != 0 && holder == null) {
+                    throw new AssertionError();
+                }
+                checkPlacement((int) job, holder == null ? null : this.robotToJobs.get(holder), slot, null);
+            }
+        }
+        if (this.checkLevel == CheckLevel.FULL) {
+            for (Robot robot : this.robotToJobs.keySet()) {
+                checkSlot(robot);
+            }
+        }
+    }
+
+    /**
+     * Checks that the specified robot holds a slot that maps back to it, and that the load and the hash term of the
+     * slot match the jobs assigned to the robot
+     *
+     * @param robot a robot in this, or null
+     * @throws AssertionError if the slot, the load or the hash term of robot is inconsistent
+     */
+    private void checkSlot(Robot robot) {
+        if (robot == null) { return; }
+        Integer slot = this.robotSlot.get(robot);
+        if (slot == null || slot < 1 || slot >= this.slotRobot.length || !robot.equals(this.slotRobot[slot])) {
+            throw new AssertionError();
+        }
+        if (slotOf(robot.id) != slot) {
+            throw new AssertionError();
+        }
+        IntSortedSet jobs = this.robotToJobs.get(robot);
+        if (!this.loads.contains(slot) || this.loads.load(slot) != jobs.size()) {
+            throw new AssertionError();
+        }
+        if (this.hashTerms[slot] != hashTerm(robot, jobs)) {
+            throw new AssertionError();
+        }
+    }
+
+    /**
+     * Checks that the specified job is assigned to the robot with the specified job set and slot, or is unassigned if
+     * the job set is null, and is not assigned to the specified previous holder
+     *
+     * @param job
+     * @param holderJobs
+     * @param holderSlot
+     * @param previousHolder
+     * @throws AssertionError if the job is misplaced
+     */
+    private void checkPlacement(int job, IntSortedSet holderJobs, int holderSlot, Robot previousHolder) {
+        if (this.jobOwner.get(job) != holderSlot) {
+            throw new AssertionError();
+        }
+        if (this.unassignedJobs.contains(job) != (holderJobs == null)) {
+            throw new AssertionError();
+        }
+        if (holderJobs != null && !holderJobs.contains(job)) {
+            throw new AssertionError();
+        }
+        if (previousHolder != null && this.robotToJobs.get(previousHolder).contains(job)) {
+            throw new AssertionError();
+        }
+    }
+
+    /**
+     * Checks the job counters of this in constant time
+     *
+     * @throws AssertionError if the counters are inconsistent with this.n
+     */
+    private void checkCounts() {
+        if (this.n <= 0) {
+            throw new AssertionError();
+        }
+        long managedCount = (long) this.assignedCount + this.unassignedJobs.size();
+        if (this.assignedCount < 0 || managedCount + this.completedBelow + this.completedJobs.size() != this.n) {
+            throw new AssertionError();
+        }
+        if (this.jobOwner.ownedCount() != this.assignedCount) {
+            throw new AssertionError();
+        }
+        if (this.loads.size() != this.robotSlot.size() || this.loads.totalLoad() != this.assignedCount) {
+            throw new AssertionError();
+        }
+    }
+
+    /**
+     * Checks the complete representation invariant of this
+     *
+     * @throws AssertionError if the representation invariant is violated
+     */
+    private void checkRepFull() {
+        // DO NOT USE THE `assert` keyword; You must use `throw new AssertionError()`
+        for (Robot robot : robotToJobs.keySet()) {
+            if (robot.id < 1) {
+                throw new AssertionError();
+            }
+        }
+        if (this.n <= 0) {
+            throw new AssertionError();
+        }
+        if (this.unassignedJobs.contains(0) || this.unassignedJobs.last() > this.n) {
+            throw new AssertionError();
+        }
+        JobSet seen = new JobSet(this.unassignedJobs);
+        if (this.completedBelow < 0 || this.completedBelow > this.n) {
+            throw new AssertionError();
+        }
+        if (seen.addRange(1, this.completedBelow) != this.completedBelow) {
+            throw new AssertionError();
+        }
+        for (int run = 0; run < this.completedJobs.runCount(); run++) {
+            int lo = this.completedJobs.runLo(run);
+            int hi = this.completedJobs.runHi(run);
+            if (lo < this.completedBelow + 2 || hi > this.n || seen.addRange(lo, hi) != hi - lo + 1) {
+                throw new AssertionError();
+            }
+        }
+        long termSum = 0;
+        for (Map.Entry<Robot, IntSortedSet> entry : robotToJobs.entrySet()) {
+            checkSlot(entry.getKey());
+            int slot = this.robotSlot.get(entry.getKey());
+            termSum += this.hashTerms[slot];
+            IntSortedSet jobs = entry.getValue();
+            int total = 0;
+            for (int run = 0; run < jobs.runCount(); run++) {
+                int lo = jobs.runLo(run);
+                int hi = jobs.runHi(run);
+                if (lo > hi || (run > 0 && jobs.runHi(run - 1) >= lo)) {
+                    throw new AssertionError();
+                }
+                if (lo < 1 || hi > this.n || seen.addRange(lo, hi) != hi - lo + 1) {
+                    throw new AssertionError();
+                }
+                if (this.jobOwner.get(lo) != slot || this.jobOwner.segmentEnd(lo) < hi) {
+                    throw new AssertionError();
+                }
+                total += hi - lo + 1;
+            }
+            if (total != jobs.size()) {
+                throw new AssertionError();
+            }
+        }
+        if (seen.size() != this.n || termSum != this.hashSum) {
+            throw new AssertionError();
+        }
+        int indexed = 0;
+        for (int slot : this.slotTable) {
+            if (slot != 0) { indexed++; }
+        }
+        if (indexed != this.robotSlot.size() || 2 * indexed > this.slotTable.length) {
+            throw new AssertionError();
+        }
     }
 }
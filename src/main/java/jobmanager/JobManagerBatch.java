@@ -0,0 +1,125 @@
+package jobmanager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This class represents a batch of mutations applied to a JobManager through JobManager.batch(...). Each method applies
+ * the corresponding JobManager operation immediately, without verifying the representation invariant of the
+ * JobManager, and records its result. The invariant is verified once when the batch ends, and every operation of the
+ * batch is rolled back if verification fails or the batch throws.
+ *
+ * A JobManagerBatch may only be used while the batch that created it is running.
+ *
+ * @see JobManager#batch(java.util.function.Consumer)
+ */
+
+public class JobManagerBatch {
+
+    private final JobManager jobs;
+    // the JobManager that the operations of this are applied to
+
+    private final List<Boolean> results = new ArrayList<>();
+    // results of the operations applied through this, in order
+
+    private boolean open = true;
+    // true iff the batch that created this is still running
+
+    /**
+     * Creates a new, empty batch of mutations of the specified JobManager
+     *
+     * @param jobs
+     */
+    JobManagerBatch(JobManager jobs) {
+        this.jobs = jobs;
+    }
+
+    /**
+     * Adds the specified Robot to the JobManager of this batch
+     *
+     * @param robot
+     * @return the result of JobManager.addRobot(robot)
+     * @throws IllegalStateException if the batch of this has ended
+     * @see JobManager#addRobot(Robot)
+     */
+    public boolean addRobot(Robot robot) {
+        checkOpen();
+        return record(this.jobs.addRobot(robot));
+    }
+
+    /**
+     * Removes the specified Robot from the JobManager of this batch
+     *
+     * @param robot
+     * @return the result of JobManager.removeRobot(robot)
+     * @throws IllegalStateException if the batch of this has ended
+     * @see JobManager#removeRobot(Robot)
+     */
+    public boolean removeRobot(Robot robot) {
+        checkOpen();
+        return record(this.jobs.removeRobot(robot));
+    }
+
+    /**
+     * Assigns all unassigned jobs with an id <= the specified id to the specified robot in the JobManager of this batch
+     *
+     * @param robot
+     * @param jobId
+     * @return the result of JobManager.assignJobs(robot, jobId)
+     * @throws IllegalStateException if the batch of this has ended
+     * @see JobManager#assignJobs(Robot, int)
+     */
+    public boolean assignJobs(Robot robot, int jobId) {
+        checkOpen();
+        return record(this.jobs.assignJobs(robot, jobId));
+    }
+
+    /**
+     * Moves all jobs with an id <= the specified id from one robot to another in the JobManager of this batch
+     *
+     * @param srcRobot
+     * @param dstRobot
+     * @param jobId
+     * @return the result of JobManager.moveJobs(srcRobot, dstRobot, jobId)
+     * @throws IllegalStateException if the batch of this has ended
+     * @see JobManager#moveJobs(Robot, Robot, int)
+     */
+    public boolean moveJobs(Robot srcRobot, Robot dstRobot, int jobId) {
+        checkOpen();
+        return record(this.jobs.moveJobs(srcRobot, dstRobot, jobId));
+    }
+
+    /**
+     * Moves all jobs from one robot to another in the JobManager of this batch
+     *
+     * @param srcRobot
+     * @param dstRobot
+     * @return the result of JobManager.moveJobs(srcRobot, dstRobot)
+     * @throws IllegalStateException if the batch of this has ended
+     * @see JobManager#moveJobs(Robot, Robot)
+     */
+    public boolean moveJobs(Robot srcRobot, Robot dstRobot) {
+        checkOpen();
+        return record(this.jobs.moveJobs(srcRobot, dstRobot));
+    }
+
+    /**
+     * Ends this batch
+     *
+     * @return the results of the operations applied through this, in order
+     */
+    List<Boolean> close() {
+        this.open = false;
+        return Collections.unmodifiableList(this.results);
+    }
+
+    private boolean record(boolean result) {
+        this.results.add(result);
+        return result;
+    }
+
+    private void checkOpen() {
+        if (!this.open) { throw new IllegalStateException("the batch has ended"); }
+    }
+}
@@ -0,0 +1,360 @@
+package jobmanager;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class represents an append-only binary log of the mutations of a JobManager, stored in a local file, from which
+ * the JobManager can be rebuilt after the process that owned it died.
+ *
+ * The file starts with a 16-byte header that holds the number of jobs n of the JobManager when the log was created,
+ * followed by one 16-byte record per mutation: an int that holds the operation code in its highest byte and a 24-bit
+ * checksum of the record in its other bytes, and the three int arguments of the operation. The checksum is seeded, so a
+ * record of zeros, as left behind by a file that was extended but never written, fails it. Appended records are
+ * buffered and written and forced to disk together when the log is committed, so one fsync makes a whole group of
+ * records durable. The log commits itself every time a specified number of records is pending.
+ *
+ * Replaying the log reads the file sequentially in large blocks and applies each record to a JobManager that does not
+ * verify its representation invariant until the end. A record that is cut short or fails its checksum, as written by
+ * a process that died during a commit, ends the log: it and everything after it are ignored.
+ *
+ * @see LoggedJobManager
+ */
+
+public class JobManagerLog implements Closeable {
+
+    static final int ADD_ROBOT = 1;
+    static final int REMOVE_ROBOT = 2;
+    static final int ASSIGN_JOBS = 3;
+    static final int MOVE_JOB = 4;
+    static final int MOVE_ALL_JOBS = 5;
+    static final int ADD_JOBS = 6;
+    static final int COMPLETE_JOB = 7;
+    static final int COMPLETE_JOBS = 8;
+    static final int POLL = 9;
+    static final int POLL_BATCH = 10;
+    static final int ASSIGN_TOP_K = 11;
+    static final int CAPACITY = 12;
+    static final int REBALANCE = 13;
+    static final int ROBOT = 14;
+    static final int REMOVE_ROBOTS = 15;
+    // operation codes of the records; CAPACITY records hold the capacities of the REBALANCE record that follows them,
+    // and ROBOT records hold the robots of the REMOVE_ROBOTS record that follows them
+
+    static final int ROUND_ROBIN = 0;
+    static final int LEAST_LOADED = 1;
+    static final int WEIGHTED_CAPACITY = 2;
+    // strategy codes of REBALANCE records
+
+    static final int RECORD_BYTES = 16;
+
+    private static final int MAGIC = 0x4A4D4C47;
+    private static final int VERSION = 2;
+    private static final int CHECKSUM_SEED = 0x5BD1E995;
+    private static final int MAX_BUFFERED_RECORDS = 4096;
+    private static final int READ_BLOCK_BYTES = 1 << 20;
+
+    private final FileChannel channel;
+    // the file of this, positioned at its end
+
+    private final ByteBuffer buffer;
+    // records appended to this but not yet written to channel, between position 0 and the position of buffer
+
+    private final int commitEvery;
+    // number of pending records at which this commits itself
+
+    private int pending;
+    // number of records appended to this since the last commit
+
+    private boolean open = true;
+    // true iff this has not been closed
+
+    /**
+     * How does our data representation (channel, buffer, commitEvery, pending, open) represent a JobManagerLog?
+     *
+     * (1) The records of this are the valid records in the file of this.channel followed by the records in
+     *     this.buffer.
+     * (2) this.pending >= this.buffer.position() / RECORD_BYTES, and the last this.pending records of this have not
+     *     been forced to disk.
+     * (3) this.pending < this.commitEvery whenever this is open and no method of this is running.
+     */
+
+    private JobManagerLog(FileChannel channel, int commitEvery) {
+        this.channel = channel;
+        this.commitEvery = commitEvery;
+        this.buffer = ByteBuffer.allocateDirect(Math.min(commitEvery, MAX_BUFFERED_RECORDS) * RECORD_BYTES);
+    }
+
+    /**
+     * Creates a new log in a file at the specified path for a JobManager that manages n jobs, which commits itself
+     * whenever the specified number of records is pending
+     *
+     * @param path
+     * @param n
+     * @param commitEvery
+     * @return the log, which has no records
+     * @throws IllegalArgumentException if path is null, n < 1 or commitEvery < 1
+     * @throws IOException if the file already exists or cannot be written
+     */
+    public static JobManagerLog create(Path path, int n, int commitEvery) throws IOException {
+        if (path == null) { throw new IllegalArgumentException("path must not be null"); }
+        if (n < 1) { throw new IllegalArgumentException("n must be at least 1"); }
+        if (commitEvery < 1) { throw new IllegalArgumentException("commitEvery must be at least 1"); }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(RECORD_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(0).flip();
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            channel.force(true);
+        }
+        catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return new JobManagerLog(channel, commitEvery);
+    }
+
+    /**
+     * Rebuilds the JobManager whose mutations are logged in the file at the specified path
+     *
+     * @param path
+     * @param checkLevel the level at which the returned JobManager verifies its representation invariant
+     * @return a JobManager equal to the one whose mutations were logged, as of its last record in the file
+     * @throws IllegalArgumentException if path or checkLevel is null
+     * @throws IOException if the file cannot be read or is not a log
+     */
+    public static JobManager replay(Path path, JobManager.CheckLevel checkLevel) throws IOException {
+        if (path == null) { throw new IllegalArgumentException("path must not be null"); }
+        if (checkLevel == null) { throw new IllegalArgumentException("checkLevel must not be null"); }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            JobManager jobs = newJobManager(channel);
+            replay(channel, jobs);
+            jobs.setCheckLevel(checkLevel);
+            jobs.checkRep();
+            return jobs;
+        }
+    }
+
+    /**
+     * Opens the log in the file at the specified path to append to it, after replaying its records into a new
+     * JobManager; the records after the last valid one, if any, are cut from the file
+     *
+     * @param path
+     * @param commitEvery
+     * @param checkLevel
+     * @return a LoggedJobManager that holds the rebuilt JobManager, verifying its representation invariant at
+     *         checkLevel, and logs to the file
+     * @see LoggedJobManager#recover(Path, int)
+     */
+    static LoggedJobManager recover(Path path, int commitEvery, JobManager.CheckLevel checkLevel) throws IOException {
+        if (path == null) { throw new IllegalArgumentException("path must not be null"); }
+        if (commitEvery < 1) { throw new IllegalArgumentException("commitEvery must be at least 1"); }
+        if (checkLevel == null) { throw new IllegalArgumentException("checkLevel must not be null"); }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            JobManager jobs = newJobManager(channel);
+            long end = replay(channel, jobs);
+            if (end < channel.size()) {
+                channel.truncate(end);
+                channel.force(true);
+            }
+            channel.position(end);
+            jobs.setCheckLevel(checkLevel);
+            jobs.checkRep();
+            return new LoggedJobManager(jobs, new JobManagerLog(channel, commitEvery));
+        }
+        catch (IOException | RuntimeException | AssertionError e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Appends a record of the specified operation to this JobManagerLog, and commits this if as many records as this
+     * commits at once are now pending
+     *
+     * @param op
+     * @param a
+     * @param b
+     * @param c
+     * @throws IllegalStateException if this is closed
+     * @throws IOException if the records cannot be written
+     */
+    void append(int op, int a, int b, int c) throws IOException {
+        if (!this.open) { throw new IllegalStateException("the log is closed"); }
+        if (!this.buffer.hasRemaining()) { write(); }
+        this.buffer.putInt(op << 24 | checksum(op, a, b, c)).putInt(a).putInt(b).putInt(c);
+        this.pending++;
+        if (this.pending >= this.commitEvery) { commit(); }
+    }
+
+    /**
+     * Writes every pending record of this JobManagerLog to its file and forces them to disk, so that they survive a
+     * crash of the process
+     *
+     * @throws IllegalStateException if this is closed
+     * @throws IOException if the records cannot be written
+     */
+    public void commit() throws IOException {
+        if (!this.open) { throw new IllegalStateException("the log is closed"); }
+        if (this.pending == 0) { return; }
+        write();
+        this.channel.force(false);
+        this.pending = 0;
+    }
+
+    /**
+     * Gets the number of records appended to this JobManagerLog that are not yet forced to disk
+     *
+     * @return the number of pending records of this
+     */
+    public int pendingCount() {
+        return this.pending;
+    }
+
+    /**
+     * Checks if this JobManagerLog is open
+     *
+     * @return true iff this has not been closed
+     */
+    public boolean isOpen() {
+        return this.open;
+    }
+
+    /**
+     * Commits this JobManagerLog and closes its file; closing a closed log has no effect
+     *
+     * @throws IOException if the pending records cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        if (!this.open) { return; }
+        try {
+            commit();
+        }
+        finally {
+            this.open = false;
+            this.channel.close();
+        }
+    }
+
+    private void write() throws IOException {
+        this.buffer.flip();
+        while (this.buffer.hasRemaining()) {
+            this.channel.write(this.buffer);
+        }
+        this.buffer.clear();
+    }
+
+    /**
+     * Reads the header of the log in the specified channel and creates a JobManager that does not verify its
+     * representation invariant for the number of jobs it holds
+     */
+    private static JobManager newJobManager(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(RECORD_BYTES);
+        while (header.hasRemaining() && channel.read(header) >= 0) {
+            // keep reading until the header is complete or the file ends
+        }
+        header.flip();
+        if (header.remaining() < RECORD_BYTES || header.getInt() != MAGIC) { throw new IOException("not a log"); }
+        if (header.getInt() != VERSION) { throw new IOException("unsupported log version"); }
+        int n = header.getInt();
+        if (n < 1) { throw new IOException("corrupt log header"); }
+        return new JobManager(n, JobManager.CheckLevel.OFF);
+    }
+
+    /**
+     * Applies every valid record in the specified channel, from its position on, to the specified JobManager
+     *
+     * @return the position in the channel just past the last valid record, or before the CAPACITY or ROBOT records at
+     *         the end of the log if its last valid record is one of them
+     */
+    private static long replay(FileChannel channel, JobManager jobs) throws IOException {
+        ByteBuffer block = ByteBuffer.allocateDirect(READ_BLOCK_BYTES);
+        long end = channel.position();
+        Map<Robot, Integer> capacities = new HashMap<>();
+        List<Robot> removed = new ArrayList<>();
+        long groupStart = end;
+        // the capacities of the next REBALANCE record, the robots of the next REMOVE_ROBOTS record, and the position of
+        // the first of their CAPACITY or ROBOT records
+        int[] polled = new int[0];
+        while (channel.read(block) > 0 || block.position() >= RECORD_BYTES) {
+            block.flip();
+            while (block.remaining() >= RECORD_BYTES) {
+                int head = block.getInt();
+                int a = block.getInt();
+                int b = block.getInt();
+                int c = block.getInt();
+                int op = head >>> 24;
+                boolean grouped = !capacities.isEmpty() || !removed.isEmpty();
+                if ((head & 0xFFFFFF) != checksum(op, a, b, c)) { return grouped ? groupStart : end; }
+                switch (op) {
+                    case ADD_ROBOT: jobs.addRobot(a); break;
+                    case REMOVE_ROBOT: jobs.removeRobot(a); break;
+                    case ASSIGN_JOBS: jobs.assignJobs(a, b); break;
+                    case MOVE_JOB: jobs.moveJobs(a, b, c); break;
+                    case MOVE_ALL_JOBS: jobs.moveJobs(a, b); break;
+                    case ADD_JOBS: jobs.addJobs(a); break;
+                    case COMPLETE_JOB: jobs.completeJob(a); break;
+                    case COMPLETE_JOBS: jobs.completeJobs(robot(a), b); break;
+                    case POLL: jobs.pollHighestPriorityJob(robot(a), b); break;
+                    case POLL_BATCH:
+                        if (polled.length < b) { polled = new int[b]; }
+                        jobs.pollBatch(robot(a), b, polled);
+                        break;
+                    case ASSIGN_TOP_K: jobs.assignTopK(robot(a), b); break;
+                    case CAPACITY:
+                        if (!grouped) { groupStart = end; }
+                        capacities.put(robot(a), b);
+                        break;
+                    case REBALANCE:
+                        jobs.rebalance(a == ROUND_ROBIN ? JobManager.Strategy.ROUND_ROBIN
+                                : a == LEAST_LOADED ? JobManager.Strategy.LEAST_LOADED
+                                : JobManager.Strategy.weightedCapacity(capacities));
+                        capacities.clear();
+                        break;
+                    case ROBOT:
+                        if (!grouped) { groupStart = end; }
+                        removed.add(robot(a));
+                        break;
+                    case REMOVE_ROBOTS:
+                        jobs.removeRobots(removed);
+                        removed.clear();
+                        break;
+                    default: return grouped ? groupStart : end;
+                }
+                end += RECORD_BYTES;
+            }
+            block.compact();
+        }
+        // CAPACITY or ROBOT records without their closing record were cut off by a crash and must not apply to a
+        // later one
+        return capacities.isEmpty() && removed.isEmpty() ? end : groupStart;
+    }
+
+    private static Robot robot(int robotId) {
+        return robotId > 0 ? Robot.of(robotId) : Robot.NULL;
+    }
+
+    /**
+     * Computes the 24-bit checksum of a record with the specified operation code and arguments; the hash is seeded so
+     * that the checksum of a record of zeros is not 0, and a record of zeros never passes
+     */
+    private static int checksum(int op, int a, int b, int c) {
+        int h = (CHECKSUM_SEED ^ op) * 0x9E3779B1;
+        h = (h ^ a) * 0x85EBCA6B;
+        h = (h ^ b) * 0xC2B2AE35;
+        h = (h ^ c) * 0x27D4EB2F;
+        return (h ^ h >>> 15) & 0xFFFFFF;
+    }
+}
@@ -0,0 +1,415 @@
+package jobmanager;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This immutable class represents a JobManager as of the moment a binary snapshot of it was written to a local file,
+ * read through a read-only memory mapping of that file.
+ *
+ * The file holds, in order and as big-endian ints: a 32-byte header with a magic number, a version, n, the number of
+ * robots r, the number of runs of consecutive jobs t assigned to robots and the number of runs of unassigned jobs u;
+ * a robot table of r entries (robot id, index of its first run, number of runs, number of jobs) in increasing order of
+ * robot id; the t runs (lowest id, highest id) of the robots, grouped by robot in the order of the robot table; an
+ * owner index of the same t runs (lowest id, highest id, robot id) in increasing order of id; and the u runs of
+ * unassigned jobs in increasing order of id. Every job in [1,...,n] that is in none of these runs is completed.
+ *
+ * Opening a snapshot maps the file and checks its header, so it costs the same no matter how many jobs and robots the
+ * snapshot holds. Every query binary searches the mapped tables in place, allocating nothing and touching only the
+ * pages it reads, and can run from any number of threads at once. toJobManager(...) materializes a full JobManager
+ * from the mapped tables only when it is called, one run of jobs at a time.
+ *
+ * @see JobManager
+ */
+
+public class JobManagerSnapshot {
+
+    private static final int MAGIC = 0x4A4D5350;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final int ROBOT_BYTES = 16;
+    private static final int RUN_BYTES = 8;
+    private static final int OWNER_BYTES = 12;
+    private static final int WRITE_BLOCK_BYTES = 1 << 20;
+
+    private final ByteBuffer map;
+    // the mapped file of this; only read with absolute gets, so its position never changes
+
+    private final int n;
+    // number of jobs in the JobManager of this
+
+    private final int robots;
+    private final int runs;
+    private final int unassignedRuns;
+    // number of entries of the robot table, of runs assigned to robots and of runs of unassigned jobs in this.map
+
+    private final int robotRuns;
+    private final int ownerIndex;
+    private final int unassignedIndex;
+    // byte offsets in this.map of the runs of the robots, the owner index and the runs of unassigned jobs
+
+    /**
+     * How does our data representation (map, n, robots, runs, unassignedRuns, robotRuns, ownerIndex, unassignedIndex)
+     * represent a JobManager?
+     *
+     * (1) this.map holds the file format described above, with this.n, this.robots, this.runs and this.unassignedRuns
+     *     equal to the values of its header, and this.robotRuns, this.ownerIndex and this.unassignedIndex the offsets
+     *     of its sections.
+     * (2) A robot with id = R is in the JobManager iff R is the id of an entry of the robot table, and the jobs
+     *     assigned to it are the runs of that entry.
+     * (3) The owner index holds exactly the runs of the robots, each with the id of its robot, and no two runs in the
+     *     owner index or in the runs of unassigned jobs overlap.
+     */
+
+    private JobManagerSnapshot(ByteBuffer map) throws IOException {
+        if (map.capacity() < HEADER_BYTES || map.getInt(0) != MAGIC) { throw new IOException("not a snapshot"); }
+        if (map.getInt(4) != VERSION) { throw new IOException("unsupported snapshot version"); }
+        this.map = map;
+        this.n = map.getInt(8);
+        this.robots = map.getInt(12);
+        this.runs = map.getInt(16);
+        this.unassignedRuns = map.getInt(20);
+        if (this.n < 1 || this.robots < 0 || this.runs < 0 || this.unassignedRuns < 0) {
+            throw new IOException("corrupt snapshot header");
+        }
+        long runsAt = HEADER_BYTES + (long) ROBOT_BYTES * this.robots;
+        long ownersAt = runsAt + (long) RUN_BYTES * this.runs;
+        long unassignedAt = ownersAt + (long) OWNER_BYTES * this.runs;
+        if (unassignedAt + (long) RUN_BYTES * this.unassignedRuns != map.capacity()) {
+            throw new IOException("corrupt snapshot: the file does not match its header");
+        }
+        this.robotRuns = (int) runsAt;
+        this.ownerIndex = (int) ownersAt;
+        this.unassignedIndex = (int) unassignedAt;
+    }
+
+    /**
+     * Writes a snapshot of the specified JobManager to a file at the specified path, replacing the file if it exists
+     *
+     * @param jobs
+     * @param path
+     * @throws IllegalArgumentException if jobs or path is null
+     * @throws IOException if the file cannot be written, or the snapshot would not fit in one mapping
+     */
+    public static void write(JobManager jobs, Path path) throws IOException {
+        if (jobs == null) { throw new IllegalArgumentException("jobs must not be null"); }
+        if (path == null) { throw new IllegalArgumentException("path must not be null"); }
+        Robot[] robots = jobs.robotToJobs.keySet().toArray(new Robot[0]);
+        Arrays.sort(robots, Comparator.comparingInt(robot -> robot.id));
+        int runs = 0;
+        for (Robot robot : robots) {
+            runs += jobs.robotToJobs.get(robot).runCount();
+        }
+        int[] unassigned = new int[16];
+        int unassignedRuns = 0;
+        for (int lo = jobs.unassignedJobs.nextSetBit(1); lo > 0; ) {
+            int hi = jobs.unassignedJobs.nextClearBit(lo) - 1;
+            if (2 * unassignedRuns == unassigned.length) {
+                unassigned = Arrays.copyOf(unassigned, 2 * unassigned.length);
+            }
+            unassigned[2 * unassignedRuns] = lo;
+            unassigned[2 * unassignedRuns + 1] = hi;
+            unassignedRuns++;
+            lo = hi == Integer.MAX_VALUE ? -1 : jobs.unassignedJobs.nextSetBit(hi + 1);
+        }
+        long bytes = HEADER_BYTES + (long) ROBOT_BYTES * robots.length + (long) (RUN_BYTES + OWNER_BYTES) * runs
+                + (long) RUN_BYTES * unassignedRuns;
+        if (bytes > Integer.MAX_VALUE) { throw new IOException("snapshot too large to map"); }
+
+        // the owner index sorts the runs of every robot by their lowest id, remembering which run each one is
+        long[] order = new long[runs];
+        int[] runRobot = new int[runs];
+        int[] runBounds = new int[2 * runs];
+        int run = 0;
+        for (Robot robot : robots) {
+            IntSortedSet set = jobs.robotToJobs.get(robot);
+            for (int i = 0; i < set.runCount(); i++, run++) {
+                runBounds[2 * run] = set.runLo(i);
+                runBounds[2 * run + 1] = set.runHi(i);
+                runRobot[run] = robot.id;
+                order[run] = (long) set.runLo(i) << 32 | run;
+            }
+        }
+        Arrays.sort(order);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer block = ByteBuffer.allocateDirect(WRITE_BLOCK_BYTES);
+            block.putInt(MAGIC).putInt(VERSION).putInt(jobs.n).putInt(robots.length).putInt(runs)
+                    .putInt(unassignedRuns).putInt(0).putInt(0);
+            run = 0;
+            for (Robot robot : robots) {
+                IntSortedSet set = jobs.robotToJobs.get(robot);
+                reserve(channel, block, ROBOT_BYTES);
+                block.putInt(robot.id).putInt(run).putInt(set.runCount()).putInt(set.size());
+                run += set.runCount();
+            }
+            for (int i = 0; i < runs; i++) {
+                reserve(channel, block, RUN_BYTES);
+                block.putInt(runBounds[2 * i]).putInt(runBounds[2 * i + 1]);
+            }
+            for (long key : order) {
+                int i = (int) key;
+                reserve(channel, block, OWNER_BYTES);
+                block.putInt(runBounds[2 * i]).putInt(runBounds[2 * i + 1]).putInt(runRobot[i]);
+            }
+            for (int i = 0; i < unassignedRuns; i++) {
+                reserve(channel, block, RUN_BYTES);
+                block.putInt(unassigned[2 * i]).putInt(unassigned[2 * i + 1]);
+            }
+            flush(channel, block);
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Opens the snapshot in the file at the specified path by mapping it into memory
+     *
+     * @param path
+     * @return the snapshot
+     * @throws IllegalArgumentException if path is null
+     * @throws IOException if the file cannot be read or mapped, or is not a snapshot
+     */
+    public static JobManagerSnapshot open(Path path) throws IOException {
+        if (path == null) { throw new IllegalArgumentException("path must not be null"); }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) { throw new IOException("snapshot too large to map"); }
+            // the mapping stays valid after the channel is closed
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new JobManagerSnapshot(map);
+        }
+    }
+
+    /**
+     * Gets the number of jobs of the JobManager of this snapshot
+     *
+     * @return n, the id of the highest priority job
+     */
+    public int getN() {
+        return this.n;
+    }
+
+    /**
+     * Gets the number of robots in the JobManager of this snapshot
+     *
+     * @return the number of robots
+     */
+    public int robotCount() {
+        return this.robots;
+    }
+
+    /**
+     * Checks if the JobManager of this snapshot has the specified Robot
+     *
+     * @param robot
+     * @return true if robot is in the JobManager, and false otherwise
+     */
+    public boolean hasRobot(Robot robot) {
+        return robot != null && !robot.isNull() && robotEntry(robot.id) >= 0;
+    }
+
+    /**
+     * Gets the number of jobs assigned to the specified robot in the JobManager of this snapshot
+     *
+     * @param robot
+     * @return the number of jobs assigned to robot, or 0 if the JobManager does not have robot
+     */
+    public int jobCount(Robot robot) {
+        int entry = robot == null || robot.isNull() ? -1 : robotEntry(robot.id);
+        return entry < 0 ? 0 : this.map.getInt(HEADER_BYTES + entry * ROBOT_BYTES + 12);
+    }
+
+    /**
+     * Checks if a specified job is assigned to a robot in the JobManager of this snapshot
+     *
+     * @param jobId
+     * @return true iff a job with id = jobId is assigned to a robot
+     */
+    public boolean isAssigned(int jobId) {
+        return ownerId(jobId) > 0;
+    }
+
+    /**
+     * Checks if the job with the specified id was completed in the JobManager of this snapshot
+     *
+     * @param jobId
+     * @return true iff jobId is in [1,...,n] and the job with id = jobId was completed
+     */
+    public boolean isCompleted(int jobId) {
+        if (jobId < 1 || jobId > this.n || ownerId(jobId) > 0) { return false; }
+        int run = floorRun(this.unassignedIndex, RUN_BYTES, this.unassignedRuns, jobId);
+        return run < 0 || this.map.getInt(this.unassignedIndex + run * RUN_BYTES + 4) < jobId;
+    }
+
+    /**
+     * Gets the Robot assigned the job with the specified id in the JobManager of this snapshot
+     *
+     * @param jobId
+     * @return the Robot assigned job with id = jobId if it is assigned to a robot, and a Null Robot otherwise
+     */
+    public Robot getRobot(int jobId) {
+        int robotId = ownerId(jobId);
+        return robotId > 0 ? Robot.of(robotId) : Robot.NULL;
+    }
+
+    /**
+     * Gets the highest priority job assigned to a specified robot with id <= a specified id in the JobManager of this
+     * snapshot
+     *
+     * @param robot
+     * @param jobId
+     * @return the id of the highest priority job assigned to robot with id <= jobId; or a null job id of 0 if either no
+     *         such job or robot exists
+     */
+    public int getHighestPriorityJob(Robot robot, int jobId) {
+        int entry = robot == null || robot.isNull() ? -1 : robotEntry(robot.id);
+        if (entry < 0) { return 0; }
+        int first = this.map.getInt(HEADER_BYTES + entry * ROBOT_BYTES + 4);
+        int count = this.map.getInt(HEADER_BYTES + entry * ROBOT_BYTES + 8);
+        int start = this.robotRuns + first * RUN_BYTES;
+        int run = floorRun(start, RUN_BYTES, count, jobId);
+        return run < 0 ? 0 : Math.min(this.map.getInt(start + run * RUN_BYTES + 4), jobId);
+    }
+
+    /**
+     * Materializes the JobManager of this snapshot
+     *
+     * @param checkLevel
+     * @return a new JobManager equal to the one the snapshot was written from, which verifies its representation
+     *         invariant at checkLevel
+     * @throws IllegalArgumentException if checkLevel is null
+     * @throws AssertionError if checkLevel is FULL and the snapshot does not describe a valid JobManager
+     */
+    public JobManager toJobManager(JobManager.CheckLevel checkLevel) {
+        if (checkLevel == null) { throw new IllegalArgumentException("checkLevel must not be null"); }
+        Map<Robot, IntSortedSet> robots = new HashMap<>();
+        for (int entry = 0; entry < this.robots; entry++) {
+            int offset = HEADER_BYTES + entry * ROBOT_BYTES;
+            int first = this.map.getInt(offset + 4);
+            int count = this.map.getInt(offset + 8);
+            IntSortedSet jobs = new RunIntSortedSet();
+            for (int run = first; run < first + count; run++) {
+                int start = this.robotRuns + run * RUN_BYTES;
+                jobs.addRange(this.map.getInt(start), this.map.getInt(start + 4));
+            }
+            robots.put(Robot.of(this.map.getInt(offset)), jobs);
+        }
+        JobSet unassigned = new JobSet();
+        for (int run = 0; run < this.unassignedRuns; run++) {
+            int start = this.unassignedIndex + run * RUN_BYTES;
+            unassigned.addRange(this.map.getInt(start), this.map.getInt(start + 4));
+        }
+
+        // the completed jobs are the gaps between the runs of the owner index and the unassigned runs, merged by id
+        IntSortedSet completed = new RunIntSortedSet();
+        int next = 1;
+        int owned = 0;
+        int free = 0;
+        while (owned < this.runs || free < this.unassignedRuns) {
+            int ownedLo = owned < this.runs ? this.map.getInt(this.ownerIndex + owned * OWNER_BYTES)
+                    : Integer.MAX_VALUE;
+            int freeLo = free < this.unassignedRuns ? this.map.getInt(this.unassignedIndex + free * RUN_BYTES)
+                    : Integer.MAX_VALUE;
+            int hi;
+            if (ownedLo < freeLo) {
+                hi = this.map.getInt(this.ownerIndex + owned++ * OWNER_BYTES + 4);
+            }
+            else {
+                hi = this.map.getInt(this.unassignedIndex + free++ * RUN_BYTES + 4);
+            }
+            int lo = Math.min(ownedLo, freeLo);
+            if (lo > next) { completed.addRange(next, lo - 1); }
+            next = Math.max(next, hi + 1);
+        }
+        if (next <= this.n) { completed.addRange(next, this.n); }
+
+        JobManager jobs = new JobManager(this.n, JobManager.CheckLevel.OFF);
+        jobs.setCheckLevel(checkLevel);
+        jobs.restore(this.n, robots, unassigned, completed);
+        return jobs;
+    }
+
+    /**
+     * Gets the entry of the robot table of this snapshot for the robot with the specified id
+     *
+     * @return the index of the entry, or -1 if there is none
+     */
+    private int robotEntry(int robotId) {
+        int lo = 0;
+        int hi = this.robots - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int id = this.map.getInt(HEADER_BYTES + mid * ROBOT_BYTES);
+            if (id < robotId) {
+                lo = mid + 1;
+            }
+            else if (id > robotId) {
+                hi = mid - 1;
+            }
+            else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the id of the robot that the job with the specified id is assigned to in this snapshot
+     *
+     * @return the robot id, or 0 if the job is not assigned
+     */
+    private int ownerId(int jobId) {
+        int run = floorRun(this.ownerIndex, OWNER_BYTES, this.runs, jobId);
+        if (run < 0) { return 0; }
+        int offset = this.ownerIndex + run * OWNER_BYTES;
+        return this.map.getInt(offset + 4) >= jobId ? this.map.getInt(offset + 8) : 0;
+    }
+
+    /**
+     * Finds the last of the specified runs of this snapshot whose lowest id is <= the specified id
+     *
+     * @param start byte offset of the first run
+     * @param width bytes per run, whose lowest id is its first int
+     * @param count number of runs, in increasing order of id
+     * @param id
+     * @return the index of the run, or -1 if every run starts above id
+     */
+    private int floorRun(int start, int width, int count, int id) {
+        int lo = 0;
+        int hi = count - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (this.map.getInt(start + mid * width) <= id) {
+                lo = mid + 1;
+            }
+            else {
+                hi = mid - 1;
+            }
+        }
+        return hi;
+    }
+
+    /**
+     * Writes the specified block to the specified channel first if it has fewer than the specified number of bytes
+     * left
+     */
+    private static void reserve(FileChannel channel, ByteBuffer block, int bytes) throws IOException {
+        if (block.remaining() < bytes) { flush(channel, block); }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer block) throws IOException {
+        block.flip();
+        while (block.hasRemaining()) {
+            channel.write(block);
+        }
+        block.clear();
+    }
+}
@@ -0,0 +1,558 @@
+package jobmanager;
+
+import java.util.Arrays;
+
+/**
+ * This mutable class represents a set of job ids packed into an array of 64-bit words, in which bit Z is set iff the job
+ * with id = Z is in the set. Membership tests, range insertions & removals, and ordered scans for the next present or
+ * absent id all run a word (64 ids) at a time.
+ *
+ * The words only span the ids between a base and the start of an implicit range. No id below the base is in the set,
+ * so trimToSize() can release the words of ids that left the set for good, e.g., jobs that were completed. Every id
+ * from the end of the words up to some id is in the set, and that range costs one int, however long it is; its words
+ * are only materialized as ids are removed from it. A set built from one range of ids therefore takes constant time
+ * and space to create.
+ *
+ * Ids must be non-negative.
+ */
+
+public class JobSet {
+
+    private static final int WORD_BITS = 64;
+
+    private long[] words;
+    // packed bits: id Z is in this iff bit (Z % 64) of words[Z / 64 - base] is set
+
+    private int base;
+    // index of the word held in words[0]
+
+    private int size;
+    // number of ids in this
+
+    private int lowWord;
+    // every word below index lowWord is zero, so ordered scans can start there
+
+    private int highWord = -1;
+    // every word of this.words above index highWord is zero, so reverse scans can start there; both hints are also
+    // raised and lowered by the scans, which may run concurrently, see nextSetBit(int)
+
+    private int tailEnd = -1;
+    // highest id of the implicit range of ids above this.words; the range is empty if tailEnd < tailStart()
+
+    /**
+     * How does our data representation (words, base, size, lowWord, highWord, tailEnd) represent a JobSet?
+     *
+     * (1) No id Z >= 0 with Z / 64 < this.base is in this.
+     * (2) An id Z >= 0 with this.base <= Z / 64 < this.base + words.length is in this iff bit (Z % 64) of
+     *     words[Z / 64 - this.base] is set.
+     * (3) An id Z >= 64 * (this.base + words.length) is in this iff Z <= this.tailEnd.
+     * (4) this.size is the number of set bits in this.words plus the number of ids in
+     *     [64 * (this.base + words.length),...,tailEnd].
+     * (5) this.base <= this.lowWord <= this.base + words.length, and this.words[w - this.base] = 0 for every
+     *     w in [this.base,...,this.lowWord - 1].
+     * (6) this.base - 1 <= this.highWord < this.base + words.length, and this.words[w - this.base] = 0 for every
+     *     w in [this.highWord + 1,...,this.base + words.length - 1].
+     */
+
+    /**
+     * Creates a new, empty JobSet
+     */
+    public JobSet() {
+        this.words = new long[1];
+    }
+
+    /**
+     * Creates a new JobSet holding every id in [lo,...,hi]
+     *
+     * @param lo
+     * @param hi
+     * @throws IndexOutOfBoundsException if lo < 0
+     */
+    public JobSet(int lo, int hi) {
+        this.words = new long[1];
+        this.base = wordIndex(Math.max(lo, 0));
+        this.lowWord = this.base;
+        this.highWord = this.base - 1;
+        addRange(lo, hi);
+    }
+
+    /**
+     * Creates a new JobSet holding the same ids as the specified JobSet
+     *
+     * @param other
+     */
+    public JobSet(JobSet other) {
+        this.words = other.words.clone();
+        this.base = other.base;
+        this.size = other.size;
+        this.lowWord = other.lowWord;
+        this.highWord = other.highWord;
+        this.tailEnd = other.tailEnd;
+    }
+
+    /**
+     * Gets the number of ids in this JobSet
+     *
+     * @return the number of ids in this
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Checks if this JobSet is empty
+     *
+     * @return true iff this holds no ids
+     */
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * Checks if this JobSet holds the specified id
+     *
+     * @param id
+     * @return true iff id is in this
+     */
+    public boolean contains(int id) {
+        if (id < 0) { return false; }
+        int w = wordIndex(id);
+        if (w < this.base) { return false; }
+        if (w >= wordEnd()) { return id <= this.tailEnd; }
+        return (this.words[w - this.base] & (1L << id)) != 0;
+    }
+
+    /**
+     * Adds the specified id to this JobSet
+     *
+     * @param id
+     * @return true iff id was not formerly in this
+     * @throws IndexOutOfBoundsException if id < 0
+     */
+    public boolean add(int id) {
+        checkId(id);
+        int w = wordIndex(id);
+        if (w >= wordEnd() && id <= this.tailEnd) { return false; }
+        ensureWords(w, w + 1);
+        long bit = 1L << id;
+        if ((this.words[w - this.base] & bit) != 0) { return false; }
+        this.words[w - this.base] |= bit;
+        this.size++;
+        this.lowWord = Math.min(this.lowWord, w);
+        this.highWord = Math.max(this.highWord, w);
+        return true;
+    }
+
+    /**
+     * Removes the specified id from this JobSet
+     *
+     * @param id
+     * @return true iff id was formerly in this
+     */
+    public boolean remove(int id) {
+        return removeRange(id, id) == 1;
+    }
+
+    /**
+     * Removes every id from this JobSet
+     */
+    public void clear() {
+        Arrays.fill(this.words, 0L);
+        this.size = 0;
+        this.lowWord = wordEnd();
+        this.highWord = this.base - 1;
+        this.tailEnd = -1;
+    }
+
+    /**
+     * Adds every id in [lo,...,hi] to this JobSet; does nothing if lo > hi
+     *
+     * @param lo
+     * @param hi
+     * @return the number of ids that were not formerly in this
+     * @throws IndexOutOfBoundsException if lo <= hi and lo < 0
+     */
+    public int addRange(int lo, int hi) {
+        if (lo > hi) { return 0; }
+        checkId(lo);
+        if (hi >= tailStart() && Math.max(lo, tailStart()) > tailTop() + 1) {
+            // the ids above this.words would not stay one range, so they become words
+            ensureWords(wordIndex(lo), wordIndex(hi) + 1);
+        }
+        int added = 0;
+        if (hi >= tailStart()) {
+            // [max(lo, tailStart()),...,hi] overlaps or touches the implicit range, which grows to cover it
+            long top = tailTop();
+            added += (int) Math.max(0, hi - top);
+            this.tailEnd = (int) Math.max(top, hi);
+            if (lo >= tailStart()) {
+                this.size += added;
+                return added;
+            }
+            hi = (int) (tailStart() - 1);
+        }
+        int first = wordIndex(lo);
+        int last = wordIndex(hi);
+        ensureWords(first, last + 1);
+        for (int w = first; w <= last; w++) {
+            long mask = rangeMask(w, first, last, lo, hi);
+            added += Long.bitCount(mask & ~this.words[w - this.base]);
+            this.words[w - this.base] |= mask;
+        }
+        this.size += added;
+        this.lowWord = Math.min(this.lowWord, first);
+        this.highWord = Math.max(this.highWord, last);
+        return added;
+    }
+
+    /**
+     * Removes every id in [lo,...,hi] from this JobSet; does nothing if lo > hi
+     *
+     * @param lo
+     * @param hi
+     * @return the number of ids that were formerly in this
+     */
+    public int removeRange(int lo, int hi) {
+        lo = Math.max(lo, 0);
+        if (lo > hi) { return 0; }
+        int removed = 0;
+        if (hi >= tailStart() && lo <= this.tailEnd && this.tailEnd >= tailStart()) {
+            if (hi >= this.tailEnd) {
+                // the top of the implicit range is cut off, which needs no words
+                int cut = (int) Math.max(lo, tailStart());
+                removed += this.tailEnd - cut + 1;
+                this.tailEnd = cut - 1;
+            }
+            else {
+                ensureWords(wordEnd(), wordIndex(hi) + 1);
+            }
+        }
+        int first = Math.max(wordIndex(lo), this.base);
+        int last = Math.min(wordIndex(hi), wordEnd() - 1);
+        for (int w = first; w <= last; w++) {
+            long mask = rangeMask(w, wordIndex(lo), wordIndex(hi), lo, hi);
+            removed += Long.bitCount(mask & this.words[w - this.base]);
+            this.words[w - this.base] &= ~mask;
+        }
+        this.size -= removed;
+        return removed;
+    }
+
+    /**
+     * Adds every id of the specified JobSet to this JobSet
+     *
+     * @param other
+     * @return the number of ids that were not formerly in this
+     */
+    public int addAll(JobSet other) {
+        if (other.size == 0) { return 0; }
+        int added = 0;
+        int first = other.lowWord;
+        int end = other.wordEnd();
+        if (first < end) {
+            ensureWords(first, end);
+            for (int w = first; w < end; w++) {
+                long word = other.words[w - other.base];
+                added += Long.bitCount(word & ~this.words[w - this.base]);
+                this.words[w - this.base] |= word;
+            }
+            this.lowWord = Math.min(this.lowWord, first);
+            this.highWord = Math.max(this.highWord, end - 1);
+        }
+        this.size += added;
+        if (other.tailEnd >= other.tailStart()) {
+            added += addRange((int) other.tailStart(), other.tailEnd);
+        }
+        return added;
+    }
+
+    /**
+     * Gets the lowest id in this JobSet that is >= the specified id
+     *
+     * The scan moves the hint lowWord up past the zero words it finds, so it writes to this even though it does not
+     * change the ids in this. Scans that run concurrently while no thread changes the ids, e.g., readers that share a
+     * read lock, race on the hint benignly: each scan reads the hint once, and every value it may store only skips
+     * words that it found to be zero, so it is a valid hint whichever store comes last. prevSetBit(int) does the same
+     * with highWord.
+     *
+     * @param from
+     * @return the lowest id in this that is >= from, or -1 if there is no such id
+     */
+    public int nextSetBit(int from) {
+        from = Math.max(from, 0);
+        int low = this.lowWord;
+        int start = Math.max(wordIndex(from), low);
+        int end = wordEnd();
+        if (start >= end) { return nextTailId(from); }
+        int w = start;
+        long word = this.words[w - this.base] & (w == wordIndex(from) ? -1L << from : -1L);
+        while (word == 0 && ++w < end) {
+            word = this.words[w - this.base];
+        }
+        if (start == low && (w == start || this.words[start - this.base] == 0)) {
+            // every word scanned past was zero, so the scan can start at w from now on
+            this.lowWord = w;
+        }
+        return word == 0 ? nextTailId(from) : w * WORD_BITS + Long.numberOfTrailingZeros(word);
+    }
+
+    /**
+     * Gets the lowest id >= the specified id that is not in this JobSet
+     *
+     * @param from
+     * @return the lowest non-negative id >= from that is not in this
+     */
+    public int nextClearBit(int from) {
+        return nextClearBit(from, Integer.MAX_VALUE - 1);
+    }
+
+    /**
+     * Gets the lowest id in [from,...,limit] that is not in this JobSet, scanning no further than limit
+     *
+     * @param from
+     * @param limit
+     * @return the lowest non-negative id in [from,...,limit] that is not in this, or limit + 1 if there is no such id
+     */
+    public int nextClearBit(int from, int limit) {
+        from = Math.max(from, 0);
+        if (from > limit) { return limit + 1; }
+        int w = wordIndex(from);
+        int last = wordIndex(limit);
+        if (w < this.base) { return from; }
+        if (w >= wordEnd()) { return from <= this.tailEnd ? Math.min(this.tailEnd, limit) + 1 : from; }
+        long word = ~this.words[w - this.base] & (-1L << from);
+        while (word == 0) {
+            if (w == last) { return limit + 1; }
+            if (++w == wordEnd()) { return (int) Math.min(tailTop(), limit) + 1; }
+            word = ~this.words[w - this.base];
+        }
+        return Math.min(w * WORD_BITS + Long.numberOfTrailingZeros(word), limit + 1);
+    }
+
+    /**
+     * Gets the highest id in this JobSet that is <= the specified id
+     *
+     * @param from
+     * @return the highest id in this that is <= from, or -1 if there is no such id
+     */
+    public int prevSetBit(int from) {
+        if (from < 0) { return -1; }
+        if (from >= tailStart() && this.tailEnd >= tailStart()) { return Math.min(from, this.tailEnd); }
+        int high = this.highWord;
+        int start = Math.min(wordIndex(from), high);
+        int stop = Math.max(this.lowWord, this.base);
+        int w = start;
+        long mask = w == wordIndex(from) ? -1L >>> (63 - (from & 63)) : -1L;
+        long word = w < stop ? 0L : this.words[w - this.base] & mask;
+        while (word == 0 && --w >= stop) {
+            word = this.words[w - this.base];
+        }
+        if (start == high && start >= stop && (w == start || this.words[start - this.base] == 0)) {
+            // every word scanned past was zero, so reverse scans can start at w from now on
+            this.highWord = Math.max(w, this.base - 1);
+        }
+        return word == 0 ? -1 : w * WORD_BITS + WORD_BITS - 1 - Long.numberOfLeadingZeros(word);
+    }
+
+    /**
+     * Gets the highest id in [limit,...,from] that is not in this JobSet, scanning no further down than limit
+     *
+     * @param from
+     * @param limit
+     * @return the highest id in [limit,...,from] that is not in this, or limit - 1 if there is no such id
+     */
+    public int prevClearBit(int from, int limit) {
+        limit = Math.max(limit, 0);
+        if (from < limit) { return limit - 1; }
+        if (from >= tailStart()) {
+            if (from > this.tailEnd) { return from; }
+            // the implicit range holds every id from tailStart() to from
+            if (tailStart() <= limit) { return limit - 1; }
+            from = (int) (tailStart() - 1);
+        }
+        int w = wordIndex(from);
+        int last = wordIndex(limit);
+        if (w < this.base) { return from; }
+        long word = ~this.words[w - this.base] & (-1L >>> (63 - (from & 63)));
+        while (word == 0) {
+            if (w == last) { return limit - 1; }
+            if (--w < this.base) { return this.base * WORD_BITS - 1; }
+            word = ~this.words[w - this.base];
+        }
+        return Math.max(w * WORD_BITS + WORD_BITS - 1 - Long.numberOfLeadingZeros(word), limit - 1);
+    }
+
+    /**
+     * Counts the ids in this JobSet that are in [lo,...,hi], a word at a time
+     *
+     * @param lo
+     * @param hi
+     * @return the number of ids in this that are in [lo,...,hi], or 0 if lo > hi
+     */
+    public int countRange(int lo, int hi) {
+        lo = Math.max(lo, 0);
+        if (lo > hi) { return 0; }
+        long count = 0;
+        if (this.tailEnd >= tailStart() && hi >= tailStart()) {
+            count += Math.max(0, Math.min(hi, this.tailEnd) - Math.max(lo, tailStart()) + 1);
+        }
+        int first = Math.max(wordIndex(lo), this.base);
+        int last = Math.min(wordIndex(hi), wordEnd() - 1);
+        for (int w = first; w <= last; w++) {
+            count += Long.bitCount(rangeMask(w, wordIndex(lo), wordIndex(hi), lo, hi) & this.words[w - this.base]);
+        }
+        return (int) count;
+    }
+
+    /**
+     * Gets the highest id in this JobSet
+     *
+     * @return the highest id in this, or -1 if this is empty
+     */
+    public int last() {
+        return prevSetBit(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Releases the words of this JobSet that hold no ids, i.e., those below the lowest id in this and, if no implicit
+     * range of ids follows the words of this, those above the highest id in this
+     */
+    public void trimToSize() {
+        int first = wordIndex(Math.max(nextSetBit(0), 0));
+        int end = wordEnd();
+        if (this.tailEnd < tailStart()) {
+            int highest = last();
+            end = highest < 0 ? first + 1 : wordIndex(highest) + 1;
+            this.tailEnd = -1;
+        }
+        first = Math.min(first, end - 1);
+        if (first == this.base && end == wordEnd()) { return; }
+        long[] trimmed = new long[end - first];
+        int from = Math.max(first, this.base);
+        int to = Math.min(end, wordEnd());
+        if (from < to) {
+            System.arraycopy(this.words, from - this.base, trimmed, from - first, to - from);
+        }
+        this.words = trimmed;
+        this.base = first;
+        this.lowWord = Math.min(Math.max(this.lowWord, first), end);
+        this.highWord = Math.max(Math.min(this.highWord, end - 1), first - 1);
+    }
+
+    /**
+     * Compares the specified object with this JobSet for equality
+     *
+     * @param o
+     * @return true iff o is a JobSet holding exactly the same ids as this
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof JobSet)) { return false; }
+        JobSet other = (JobSet) o;
+        if (this.size != other.size) { return false; }
+        int end = Math.max(this.wordEnd(), other.wordEnd());
+        for (int w = Math.min(this.base, other.base); w < end; w++) {
+            if (this.word(w) != other.word(w)) { return false; }
+        }
+        // above both arrays of words, each set holds one range of ids starting at 64 * end
+        long start = (long) end * WORD_BITS;
+        return Math.max(this.tailEnd, start - 1) == Math.max(other.tailEnd, start - 1);
+    }
+
+    /**
+     * Returns the hashcode for this JobSet
+     *
+     * @return a hashcode value that depends only on the ids in this
+     */
+    @Override
+    public int hashCode() {
+        // words with every bit set are skipped, so that the implicit range hashes like the words it stands for
+        long hash = 1234;
+        for (int i = this.words.length - 1; i >= 0; i--) {
+            if (this.words[i] != -1L) { hash ^= this.words[i] * (this.base + i + 1); }
+        }
+        if (this.tailEnd >= tailStart() && (this.tailEnd & (WORD_BITS - 1)) != WORD_BITS - 1) {
+            hash ^= (-1L >>> (WORD_BITS - 1 - (this.tailEnd & (WORD_BITS - 1)))) * (wordIndex(this.tailEnd) + 1);
+        }
+        hash = 31 * hash + this.size;
+        return (int) ((hash >> 32) ^ hash);
+    }
+
+    private static int wordIndex(int id) {
+        return id >>> 6;
+    }
+
+    private static long rangeMask(int w, int first, int last, int lo, int hi) {
+        long mask = -1L;
+        if (w == first) { mask &= -1L << lo; }
+        if (w == last) { mask &= -1L >>> (WORD_BITS - 1 - (hi & (WORD_BITS - 1))); }
+        return mask;
+    }
+
+    private static void checkId(int id) {
+        if (id < 0) { throw new IndexOutOfBoundsException("job id must be non-negative: " + id); }
+    }
+
+    /**
+     * Gets the index of the first word above this.words
+     */
+    private int wordEnd() {
+        return this.base + this.words.length;
+    }
+
+    /**
+     * Gets the lowest id that is not covered by this.words, where the implicit range of this starts
+     */
+    private long tailStart() {
+        return (long) wordEnd() * WORD_BITS;
+    }
+
+    /**
+     * Gets the highest id of the implicit range of this, or tailStart() - 1 if that range is empty
+     */
+    private long tailTop() {
+        return Math.max(this.tailEnd, tailStart() - 1);
+    }
+
+    private int nextTailId(int from) {
+        long id = Math.max(from, tailStart());
+        return id <= this.tailEnd ? (int) id : -1;
+    }
+
+    /**
+     * Gets word w of this, including the words below this.words and those that the implicit range of this stands for
+     */
+    private long word(int w) {
+        if (w < this.base) { return 0L; }
+        if (w < wordEnd()) { return this.words[w - this.base]; }
+        long lo = (long) w * WORD_BITS;
+        if (this.tailEnd < lo) { return 0L; }
+        return this.tailEnd - lo >= WORD_BITS - 1 ? -1L : -1L >>> (WORD_BITS - 1 - (this.tailEnd - lo));
+    }
+
+    /**
+     * Grows this.words to span at least the words [first,...,end - 1], moving the ids of the implicit range that the
+     * new words above this.words cover into them
+     */
+    private void ensureWords(int first, int end) {
+        if (first < this.base) {
+            // the new words below this.base hold no ids
+            long[] grown = new long[wordEnd() - first];
+            System.arraycopy(this.words, 0, grown, this.base - first, this.words.length);
+            this.words = grown;
+            this.base = first;
+        }
+        if (end > wordEnd()) {
+            int oldEnd = wordEnd();
+            long length = Math.max((long) end - this.base, 2L * this.words.length);
+            int newLength = (int) Math.min(length, wordIndex(Integer.MAX_VALUE) + 1 - this.base);
+            this.words = Arrays.copyOf(this.words, newLength);
+            long lo = (long) oldEnd * WORD_BITS;
+            long hi = Math.min(this.tailEnd, tailStart() - 1);
+            for (int w = oldEnd; lo <= hi && w < wordEnd(); w++, lo += WORD_BITS) {
+                this.words[w - this.base] = hi - lo >= WORD_BITS - 1 ? -1L : -1L >>> (WORD_BITS - 1 - (hi - lo));
+                this.highWord = w;
+            }
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package jobmanager;
+
+import java.util.Arrays;
+
+/**
+ * This mutable class indexes the loads of a set of slots, where a slot is a positive int such as the slot of a robot in
+ * a JobManager and its load is a non-negative int such as the number of jobs assigned to that robot. A slot with the
+ * lowest load and a slot with the highest load are found in constant time.
+ *
+ * The slots are kept in an indexed binary min-heap and an indexed binary max-heap ordered by load, ties broken by the
+ * lower slot, and each slot knows its position in both heaps. Adding or removing a slot or changing its load therefore
+ * costs O(log s) for s slots, and allocates nothing once the arrays have grown to fit the highest slot.
+ */
+
+public class LoadIndex {
+
+    private int[] loads;
+    // loads[slot] is the load of slot, for every slot in this
+
+    private int[] minHeap;
+    private int[] maxHeap;
+    // slots in this, as binary heaps: minHeap[0] has the lowest load and maxHeap[0] the highest
+
+    private int[] minPos;
+    private int[] maxPos;
+    // minPos[slot] and maxPos[slot] are the positions of slot in minHeap and maxHeap, or -1 if slot is not in this
+
+    private int size;
+    // number of slots in this
+
+    private long totalLoad;
+    // sum of the loads of every slot in this
+
+    /**
+     * How does our data representation (loads, minHeap, maxHeap, minPos, maxPos, size, totalLoad) represent a
+     * LoadIndex?
+     *
+     * (1) A slot s is in this iff s >= 1, s < minPos.length and minPos[s] >= 0; its load is loads[s].
+     * (2) minHeap[0,...,size - 1] and maxHeap[0,...,size - 1] each hold every slot in this exactly once, and
+     *     minHeap[minPos[s]] = s and maxHeap[maxPos[s]] = s for every slot s in this.
+     * (3) For every i in [1,...,size - 1], the slot minHeap[(i - 1) / 2] does not come after minHeap[i] in increasing
+     *     order of (load, slot), and the slot maxHeap[(i - 1) / 2] does not come after maxHeap[i] in decreasing order
+     *     of load and increasing order of slot.
+     * (4) this.totalLoad is the sum of loads[s] over every slot s in this.
+     */
+
+    /**
+     * Creates a new, empty LoadIndex
+     */
+    public LoadIndex() {
+        this.loads = new int[8];
+        this.minHeap = new int[8];
+        this.maxHeap = new int[8];
+        this.minPos = new int[8];
+        this.maxPos = new int[8];
+        Arrays.fill(this.minPos, -1);
+        Arrays.fill(this.maxPos, -1);
+    }
+
+    /**
+     * Gets the number of slots in this LoadIndex
+     *
+     * @return the number of slots in this
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Checks if this LoadIndex has the specified slot
+     *
+     * @param slot
+     * @return true iff slot is in this
+     */
+    public boolean contains(int slot) {
+        return slot >= 1 && slot < this.minPos.length && this.minPos[slot] >= 0;
+    }
+
+    /**
+     * Gets the load of the specified slot in this LoadIndex
+     *
+     * @param slot
+     * @return the load of slot, or 0 if slot is not in this
+     */
+    public int load(int slot) {
+        return contains(slot) ? this.loads[slot] : 0;
+    }
+
+    /**
+     * Gets the sum of the loads of every slot in this LoadIndex
+     *
+     * @return the total load of this
+     */
+    public long totalLoad() {
+        return this.totalLoad;
+    }
+
+    /**
+     * Gets a slot with the lowest load in this LoadIndex
+     *
+     * @return the lowest slot among the slots with the lowest load in this, or 0 if this is empty
+     */
+    public int minSlot() {
+        return this.size == 0 ? 0 : this.minHeap[0];
+    }
+
+    /**
+     * Gets a slot with the highest load in this LoadIndex
+     *
+     * @return the lowest slot among the slots with the highest load in this, or 0 if this is empty
+     */
+    public int maxSlot() {
+        return this.size == 0 ? 0 : this.maxHeap[0];
+    }
+
+    /**
+     * Adds the specified slot with the specified load to this LoadIndex, or changes the load of the slot if it is
+     * already in this
+     *
+     * @param slot
+     * @param load
+     * @throws IllegalArgumentException if slot < 1 or load < 0
+     */
+    public void set(int slot, int load) {
+        if (slot < 1) { throw new IllegalArgumentException("slots must be positive: " + slot); }
+        if (load < 0) { throw new IllegalArgumentException("loads must be non-negative: " + load); }
+        if (!contains(slot)) {
+            ensureSlot(slot);
+            this.loads[slot] = load;
+            this.minHeap[this.size] = slot;
+            this.maxHeap[this.size] = slot;
+            this.minPos[slot] = this.size;
+            this.maxPos[slot] = this.size;
+            this.size++;
+            this.totalLoad += load;
+            siftUp(this.minHeap, this.minPos, this.minPos[slot], false);
+            siftUp(this.maxHeap, this.maxPos, this.maxPos[slot], true);
+            return;
+        }
+        int old = this.loads[slot];
+        if (old == load) { return; }
+        this.loads[slot] = load;
+        this.totalLoad += load - old;
+        // a lower load moves the slot up the min-heap and down the max-heap, and a higher load the other way around
+        resift(this.minHeap, this.minPos, this.minPos[slot], false);
+        resift(this.maxHeap, this.maxPos, this.maxPos[slot], true);
+    }
+
+    /**
+     * Removes the specified slot from this LoadIndex
+     *
+     * @param slot
+     * @return true iff slot was formerly in this
+     */
+    public boolean remove(int slot) {
+        if (!contains(slot)) { return false; }
+        this.totalLoad -= this.loads[slot];
+        this.size--;
+        removeAt(this.minHeap, this.minPos, this.minPos[slot], false);
+        removeAt(this.maxHeap, this.maxPos, this.maxPos[slot], true);
+        this.loads[slot] = 0;
+        return true;
+    }
+
+    /**
+     * Removes every slot from this LoadIndex
+     */
+    public void clear() {
+        for (int i = 0; i < this.size; i++) {
+            this.minPos[this.minHeap[i]] = -1;
+            this.maxPos[this.maxHeap[i]] = -1;
+        }
+        this.size = 0;
+        this.totalLoad = 0;
+    }
+
+    /**
+     * Moves the last slot of the specified heap, whose size was already decremented, into the specified position and
+     * restores the heap order
+     */
+    private void removeAt(int[] heap, int[] pos, int i, boolean max) {
+        pos[heap[i]] = -1;
+        if (i == this.size) { return; }
+        heap[i] = heap[this.size];
+        pos[heap[i]] = i;
+        resift(heap, pos, i, max);
+    }
+
+    private void resift(int[] heap, int[] pos, int i, boolean max) {
+        if (i > 0 && before(heap[i], heap[(i - 1) / 2], max)) {
+            siftUp(heap, pos, i, max);
+        }
+        else {
+            siftDown(heap, pos, i, max);
+        }
+    }
+
+    private void siftUp(int[] heap, int[] pos, int i, boolean max) {
+        int slot = heap[i];
+        while (i > 0 && before(slot, heap[(i - 1) / 2], max)) {
+            heap[i] = heap[(i - 1) / 2];
+            pos[heap[i]] = i;
+            i = (i - 1) / 2;
+        }
+        heap[i] = slot;
+        pos[slot] = i;
+    }
+
+    private void siftDown(int[] heap, int[] pos, int i, boolean max) {
+        int slot = heap[i];
+        while (2 * i + 1 < this.size) {
+            int child = 2 * i + 1;
+            if (child + 1 < this.size && before(heap[child + 1], heap[child], max)) { child++; }
+            if (!before(heap[child], slot, max)) { break; }
+            heap[i] = heap[child];
+            pos[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = slot;
+        pos[slot] = i;
+    }
+
+    /**
+     * Checks if slot1 comes before slot2 in the order of the min-heap, or of the max-heap if max is true
+     */
+    private boolean before(int slot1, int slot2, boolean max) {
+        int load1 = this.loads[slot1];
+        int load2 = this.loads[slot2];
+        if (load1 != load2) { return max ? load1 > load2 : load1 < load2; }
+        return slot1 < slot2;
+    }
+
+    private void ensureSlot(int slot) {
+        if (slot < this.minPos.length) { return; }
+        int capacity = Math.max(slot + 1, 2 * this.minPos.length);
+        int old = this.minPos.length;
+        this.loads = Arrays.copyOf(this.loads, capacity);
+        this.minHeap = Arrays.copyOf(this.minHeap, capacity);
+        this.maxHeap = Arrays.copyOf(this.maxHeap, capacity);
+        this.minPos = Arrays.copyOf(this.minPos, capacity);
+        this.maxPos = Arrays.copyOf(this.maxPos, capacity);
+        Arrays.fill(this.minPos, old, capacity, -1);
+        Arrays.fill(this.maxPos, old, capacity, -1);
+    }
+}
@@ -0,0 +1,69 @@
+package jobmanager;
+
+/**
+ * This immutable class represents the load statistics of a JobManager at one point in time: how many robots and jobs
+ * it manages, how the jobs are split between assigned, unassigned and completed, and which robots hold the fewest and
+ * the most jobs.
+ *
+ * @see JobManager#stats()
+ */
+
+public class LoadStats {
+
+    public final int robots;
+    // number of robots in the JobManager
+
+    public final int assignedJobs;
+    // number of jobs assigned to some robot
+
+    public final int unassignedJobs;
+    // number of jobs that are neither assigned nor completed
+
+    public final int completedJobs;
+    // number of jobs that were completed
+
+    public final Robot leastLoaded;
+    public final int minLoad;
+    // a robot with the fewest jobs and its number of jobs, or a Null Robot and 0 if there are no robots
+
+    public final Robot mostLoaded;
+    public final int maxLoad;
+    // a robot with the most jobs and its number of jobs, or a Null Robot and 0 if there are no robots
+
+    /**
+     * Creates new LoadStats with the specified values
+     */
+    LoadStats(int robots, int assignedJobs, int unassignedJobs, int completedJobs, Robot leastLoaded, int minLoad,
+              Robot mostLoaded, int maxLoad) {
+        this.robots = robots;
+        this.assignedJobs = assignedJobs;
+        this.unassignedJobs = unassignedJobs;
+        this.completedJobs = completedJobs;
+        this.leastLoaded = leastLoaded;
+        this.minLoad = minLoad;
+        this.mostLoaded = mostLoaded;
+        this.maxLoad = maxLoad;
+    }
+
+    /**
+     * Gets the average number of jobs per robot
+     *
+     * @return the number of assigned jobs divided by the number of robots, or 0 if there are no robots
+     */
+    public double meanLoad() {
+        return this.robots == 0 ? 0 : (double) this.assignedJobs / this.robots;
+    }
+
+    /**
+     * Returns a string representation of these LoadStats
+     *
+     * @return the values of these LoadStats, e.g., "LoadStats{robots=2, assigned=5, unassigned=3, completed=2,
+     *         minLoad=1 (robot 4), maxLoad=4 (robot 1)}"
+     */
+    @Override
+    public String toString() {
+        return "LoadStats{robots=" + this.robots + ", assigned=" + this.assignedJobs + ", unassigned="
+                + this.unassignedJobs + ", completed=" + this.completedJobs + ", minLoad=" + this.minLoad + " (robot "
+                + this.leastLoaded.id + "), maxLoad=" + this.maxLoad + " (robot " + this.mostLoaded.id + ")}";
+    }
+}
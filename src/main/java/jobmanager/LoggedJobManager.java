@@ -0,0 +1,492 @@
+package jobmanager;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * This class represents a JobManager whose mutations are recorded in a JobManagerLog, so that its state survives a
+ * crash of the process that owns it. It has the same contract as JobManager.
+ *
+ * Every mutation is recorded in fixed-width records of the log before it is applied to a single-threaded JobManager,
+ * and only if it is going to change the JobManager, so a mutation whose records cannot be written is not applied and
+ * the log never falls behind the JobManager. A mutation is durable once the log has been committed after
+ * it, which happens every time a specified number of records is pending and whenever commit() or close() is called;
+ * choosing that number trades the mutations that a crash may lose for fewer fsync calls. recover(...) rebuilds the
+ * JobManager from the log after a crash and continues to log to it. A LoggedJobManager that was closed can still be
+ * read, and every mutation of it throws IllegalStateException. It offers no batches: a batch may roll back
+ * mutations after their records were written, which would leave records of mutations that never happened.
+ *
+ * @see JobManager
+ * @see JobManagerLog
+ */
+
+public class LoggedJobManager implements Closeable {
+
+    private final JobManager jobs;
+    // the state of this
+
+    private final JobManagerLog log;
+    // the log that every mutation of this.jobs is recorded in
+
+    /**
+     * How does our data representation (jobs, log) represent a JobManager?
+     *
+     * (1) This represents the same JobManager as this.jobs.
+     * (2) Replaying this.log yields a JobManager equal to this.jobs.
+     */
+
+    LoggedJobManager(JobManager jobs, JobManagerLog log) {
+        this.jobs = jobs;
+        this.log = log;
+    }
+
+    /**
+     * Creates a new LoggedJobManager to manage n jobs with job IDs [1,...,n], which logs its mutations to a new file
+     * at the specified path, commits the log whenever the specified number of records is pending and verifies its
+     * representation invariant incrementally after every operation
+     *
+     * @param path
+     * @param n
+     * @param commitEvery
+     * @return the LoggedJobManager
+     * @throws IllegalArgumentException if path is null, n < 1 or commitEvery < 1
+     * @throws IOException if the file already exists or cannot be written
+     */
+    public static LoggedJobManager create(Path path, int n, int commitEvery) throws IOException {
+        JobManagerLog log = JobManagerLog.create(path, n, commitEvery);
+        return new LoggedJobManager(new JobManager(n, JobManager.CheckLevel.INCREMENTAL), log);
+    }
+
+    /**
+     * Rebuilds a LoggedJobManager from the log in the file at the specified path, which then logs its mutations to
+     * the end of that file, commits the log whenever the specified number of records is pending and verifies its
+     * representation invariant incrementally after every operation
+     *
+     * @param path
+     * @param commitEvery
+     * @return a LoggedJobManager equal to the one that logged to the file, as of the last record committed to it; a
+     *         record that was being written when that one crashed is cut from the file
+     * @throws IllegalArgumentException if path is null or commitEvery < 1
+     * @throws IOException if the file cannot be read or written or is not a log
+     */
+    public static LoggedJobManager recover(Path path, int commitEvery) throws IOException {
+        return JobManagerLog.recover(path, commitEvery, JobManager.CheckLevel.INCREMENTAL);
+    }
+
+    /**
+     * Checks if this LoggedJobManager has the specified Robot
+     *
+     * @param robot
+     * @return true if robot is now in this, and false otherwise
+     */
+    public boolean hasRobot(Robot robot) {
+        return this.jobs.hasRobot(robot);
+    }
+
+    /**
+     * Adds the specified Robot to this LoggedJobManager
+     *
+     * @param robot
+     * @return true if this formerly did not have robot but now does, and false otherwise
+     * @throws UncheckedIOException if the log of this cannot be written
+     */
+    public boolean addRobot(Robot robot) {
+        checkOpen();
+        if (robot != null && !robot.isNull() && !this.jobs.hasRobot(robot)) {
+            append(JobManagerLog.ADD_ROBOT, robot.id, 0, 0);
+        }
+        return this.jobs.addRobot(robot);
+    }
+
+    /**
+     * Removes the specified robot from this LoggedJobManager
+     *
+     * @param robot
+     * @return true if this formerly did have robot but now does not, and false otherwise
+     * @throws UncheckedIOException if the log of this cannot be written
+     * @post All jobs formerly assigned to this robot are now unassigned
+     */
+    public boolean removeRobot(Robot robot) {
+        checkOpen();
+        if (this.jobs.hasRobot(robot)) { append(JobManagerLog.REMOVE_ROBOT, robot.id, 0, 0); }
+        return this.jobs.removeRobot(robot);
+    }
+
+    /**
+     * Removes every one of the specified robots that this LoggedJobManager has
+     *
+     * The robots are logged as one record each, followed by the record of the removal, and a crash that cuts the
+     * group short loses the whole removal, so the robots are removed either all or none after recovery.
+     *
+     * @param robots
+     * @return the number of robots that this formerly had but now does not
+     * @throws IllegalArgumentException if robots is null
+     * @throws UncheckedIOException if the log of this cannot be written
+     * @see JobManager#removeRobots(Collection)
+     * @post All jobs formerly assigned to the removed robots are now unassigned
+     */
+    public int removeRobots(Collection<Robot> robots) {
+        checkOpen();
+        if (robots == null) { throw new IllegalArgumentException("robots must not be null"); }
+        List<Robot> removed = new ArrayList<>();
+        Set<Robot> seen = new HashSet<>();
+        for (Robot robot : robots) {
+            if (this.jobs.hasRobot(robot) && seen.add(robot)) { removed.add(robot); }
+        }
+        for (Robot robot : removed) {
+            append(JobManagerLog.ROBOT, robot.id, 0, 0);
+        }
+        if (!removed.isEmpty()) { append(JobManagerLog.REMOVE_ROBOTS, removed.size(), 0, 0); }
+        return this.jobs.removeRobots(removed);
+    }
+
+    /**
+     * Assigns all unassigned jobs managed by this LoggedJobManager with an id <= the specified id to the specified
+     * robot when this has the specified robot
+     *
+     * @param robot
+     * @param jobId
+     * @return true if both of the following hold true: (1) this has robot, and (2) all formerly unassigned jobs managed
+     *         by this whose id <= jobId are now assigned to robot; and false otherwise
+     * @throws UncheckedIOException if the log of this cannot be written
+     */
+    public boolean assignJobs(Robot robot, int jobId) {
+        checkOpen();
+        if (this.jobs.hasRobot(robot)) { append(JobManagerLog.ASSIGN_JOBS, robot.id, jobId, 0); }
+        return this.jobs.assignJobs(robot, jobId);
+    }
+
+    /**
+     * Extends the jobs managed by this LoggedJobManager from [1,...,n] to [1,...,n + k], where the k new jobs are
+     * unassigned
+     *
+     * @param k
+     * @return the new value of n
+     * @throws IllegalArgumentException if k < 0 or n + k > Integer.MAX_VALUE
+     * @throws UncheckedIOException if the log of this cannot be written
+     * @see JobManager#addJobs(int)
+     */
+    public int addJobs(int k) {
+        checkOpen();
+        if (k > 0 && (long) this.jobs.n + k <= Integer.MAX_VALUE) { append(JobManagerLog.ADD_JOBS, k, 0, 0); }
+        return this.jobs.addJobs(k);
+    }
+
+    /**
+     * Completes the job with the specified id, so that this LoggedJobManager no longer manages it
+     *
+     * @param jobId
+     * @return true if a job with id = jobId was managed by this and is now completed, and false otherwise
+     * @throws UncheckedIOException if the log of this cannot be written
+     * @see JobManager#completeJob(int)
+     */
+    public boolean completeJob(int jobId) {
+        checkOpen();
+        if (jobId >= 1 && jobId <= this.jobs.n && !this.jobs.isCompleted(jobId)) {
+            append(JobManagerLog.COMPLETE_JOB, jobId, 0, 0);
+        }
+        return this.jobs.completeJob(jobId);
+    }
+
+    /**
+     * Completes every job with an id <= the specified id that is assigned to the specified robot in this
+     * LoggedJobManager
+     *
+     * @param robot
+     * @param upTo
+     * @return the number of jobs completed
+     * @throws UncheckedIOException if the log of this cannot be written
+     * @see JobManager#completeJobs(Robot, int)
+     */
+    public int completeJobs(Robot robot, int upTo) {
+        checkOpen();
+        if (this.jobs.getHighestPriorityJob(robot, upTo) > 0) {
+            append(JobManagerLog.COMPLETE_JOBS, robot.id, upTo, 0);
+        }
+        return this.jobs.completeJobs(robot, upTo);
+    }
+
+    /**
+     * Checks if a specified job is assigned to a robot managed by this LoggedJobManager
+     *
+     * @param jobId
+     * @return true if both of the following hold true: (1) a job with id = jobId is managed by this, and (2) that
+     *         job is assigned to a robot in this; and false otherwise
+     */
+    public boolean isAssigned(int jobId) {
+        return this.jobs.isAssigned(jobId);
+    }
+
+    /**
+     * Checks if the job with the specified id was completed in this LoggedJobManager
+     *
+     * @param jobId
+     * @return true iff jobId is in [1,...,n] and the job with id = jobId was completed
+     */
+    public boolean isCompleted(int jobId) {
+        return this.jobs.isCompleted(jobId);
+    }
+
+    /**
+     * Gets the Robot in this LoggedJobManager assigned the job with the specified id
+     *
+     * @param jobId
+     * @return the Robot assigned job with id = jobId if both of the following hold true: (1) a job with id = JobId is
+     *         managed by this, and (2) that job is assigned to Robot in this; and a Null Robot otherwise
+     */
+    public Robot getRobot(int jobId) {
+        return this.jobs.getRobot(jobId);
+    }
+
+    /**
+     * Moves all jobs managed by this LoggedJobManager with an id <= the specified id that were assigned to a specified
+     * robot to another specified robot when this has both specified robots
+     *
+     * @param srcRobot
+     * @param dstRobot
+     * @param jobId
+     * @return true if both of the following hold true: (1) this has srcRobot & dstRobot, and (2) all jobs managed by
+     *         this with id <= jobId that were formerly assigned to srcRobot are now assigned to dstRobot;
+     *         and false otherwise
+     * @throws UncheckedIOException if the log of this cannot be written
+     */
+    public boolean moveJobs(Robot srcRobot, Robot dstRobot, int jobId) {
+        checkOpen();
+        if (jobId >= 1 && this.jobs.hasRobot(srcRobot) && this.jobs.hasRobot(dstRobot)) {
+            append(JobManagerLog.MOVE_JOB, srcRobot.id, dstRobot.id, jobId);
+        }
+        return this.jobs.moveJobs(srcRobot, dstRobot, jobId);
+    }
+
+    /**
+     * Moves all jobs managed by this LoggedJobManager from a specified robot to another specified robot when this has
+     * both specified robots
+     *
+     * @param srcRobot
+     * @param dstRobot
+     * @return true if both of the following hold true: (1) this has srcRobot & dstRobot, and (2) all jobs managed by
+     *         this that were formerly assigned to srcRobot are now assigned to dstRobot; and false otherwise
+     * @throws UncheckedIOException if the log of this cannot be written
+     */
+    public boolean moveJobs(Robot srcRobot, Robot dstRobot) {
+        checkOpen();
+        if (this.jobs.hasRobot(srcRobot) && this.jobs.hasRobot(dstRobot)) {
+            append(JobManagerLog.MOVE_ALL_JOBS, srcRobot.id, dstRobot.id, 0);
+        }
+        return this.jobs.moveJobs(srcRobot, dstRobot);
+    }
+
+    /**
+     * Gets the highest priority job assigned to a specified robot in this LoggedJobManager with id <= a specified id
+     * when this has the specified robot
+     *
+     * @param robot
+     * @param jobId
+     * @return the id of the highest priority job assigned to robot with id <= jobId; or a null job id of 0 if either no
+     *         such job or robot exists in this
+     */
+    public int getHighestPriorityJob(Robot robot, int jobId) {
+        return this.jobs.getHighestPriorityJob(robot, jobId);
+    }
+
+    /**
+     * Removes the highest priority job with id <= a specified id assigned to a specified robot in this
+     * LoggedJobManager and completes it
+     *
+     * @param robot
+     * @param maxId
+     * @return the id of the job removed from robot; or a null job id of 0 if either no such job or robot exists in
+     *         this
+     * @throws UncheckedIOException if the log of this cannot be written
+     * @see JobManager#pollHighestPriorityJob(Robot, int)
+     */
+    public int pollHighestPriorityJob(Robot robot, int maxId) {
+        checkOpen();
+        int jobId = this.jobs.getHighestPriorityJob(robot, maxId);
+        // the polled job is the highest one <= jobId as well, so the record names it exactly
+        if (jobId > 0) { append(JobManagerLog.POLL, robot.id, jobId, 0); }
+        return this.jobs.pollHighestPriorityJob(robot, maxId);
+    }
+
+    /**
+     * Removes up to a specified number of the highest priority jobs assigned to a specified robot in this
+     * LoggedJobManager and completes them
+     *
+     * @param robot
+     * @param count
+     * @param into the array to write the ids of the removed jobs to, in decreasing priority from index 0
+     * @return the number of jobs removed from robot
+     * @throws IllegalArgumentException if into is null, or count < 0 or count > into.length
+     * @throws UncheckedIOException if the log of this cannot be written
+     * @see JobManager#pollBatch(Robot, int, int[])
+     */
+    public int pollBatch(Robot robot, int count, int[] into) {
+        checkOpen();
+        if (into != null && count >= 0 && count <= into.length) {
+            int polled = Math.min(count, this.jobs.jobCount(robot));
+            if (polled > 0) { append(JobManagerLog.POLL_BATCH, robot.id, polled, 0); }
+        }
+        return this.jobs.pollBatch(robot, count, into);
+    }
+
+    /**
+     * Gets the number of jobs assigned to the specified robot in this LoggedJobManager
+     *
+     * @param robot
+     * @return the number of jobs assigned to robot, or 0 if this does not have robot
+     */
+    public int jobCount(Robot robot) {
+        return this.jobs.jobCount(robot);
+    }
+
+    /**
+     * Gets the load statistics of this LoggedJobManager
+     *
+     * @return the current load statistics of this
+     * @see JobManager#stats()
+     */
+    public LoadStats stats() {
+        return this.jobs.stats();
+    }
+
+    /**
+     * Assigns up to a specified number of the highest priority unassigned jobs in this LoggedJobManager to a specified
+     * robot when this has the specified robot
+     *
+     * @param robot
+     * @param k
+     * @return the number of jobs assigned to robot, or 0 if this does not have robot
+     * @throws IllegalArgumentException if k < 0
+     * @throws UncheckedIOException if the log of this cannot be written
+     * @see JobManager#assignTopK(Robot, int)
+     */
+    public int assignTopK(Robot robot, int k) {
+        checkOpen();
+        int taken = k < 0 || !this.jobs.hasRobot(robot) ? 0 : Math.min(k, this.jobs.unassignedCount());
+        if (taken > 0) { append(JobManagerLog.ASSIGN_TOP_K, robot.id, taken, 0); }
+        return this.jobs.assignTopK(robot, k);
+    }
+
+    /**
+     * Spreads every unassigned job in this LoggedJobManager across the robots in this according to the specified
+     * strategy
+     *
+     * A rebalance by weightedCapacity(capacities) is logged as one record per robot of this with a positive capacity,
+     * followed by the record of the rebalance. A rebalance assigns every unassigned job unless this has no robots or,
+     * for weightedCapacity(capacities), none of its robots has a positive capacity, and is not logged in that case.
+     *
+     * @param strategy
+     * @return the number of jobs assigned
+     * @throws IllegalArgumentException if strategy is null
+     * @throws UncheckedIOException if the log of this cannot be written
+     * @see JobManager#rebalance(JobManager.Strategy)
+     */
+    public int rebalance(JobManager.Strategy strategy) {
+        checkOpen();
+        if (strategy == null || this.jobs.robotToJobs.isEmpty() || this.jobs.unassignedCount() == 0) {
+            return this.jobs.rebalance(strategy);
+        }
+        if (strategy == JobManager.Strategy.ROUND_ROBIN) {
+            append(JobManagerLog.REBALANCE, JobManagerLog.ROUND_ROBIN, 0, 0);
+        }
+        else if (strategy == JobManager.Strategy.LEAST_LOADED) {
+            append(JobManagerLog.REBALANCE, JobManagerLog.LEAST_LOADED, 0, 0);
+        }
+        else {
+            List<Map.Entry<Robot, Integer>> capacities = new ArrayList<>();
+            for (Map.Entry<Robot, Integer> capacity : strategy.capacities().entrySet()) {
+                if (capacity.getValue() > 0 && this.jobs.hasRobot(capacity.getKey())) { capacities.add(capacity); }
+            }
+            if (capacities.isEmpty()) { return this.jobs.rebalance(strategy); }
+            for (Map.Entry<Robot, Integer> capacity : capacities) {
+                append(JobManagerLog.CAPACITY, capacity.getKey().id, capacity.getValue(), 0);
+            }
+            append(JobManagerLog.REBALANCE, JobManagerLog.WEIGHTED_CAPACITY, 0, 0);
+        }
+        return this.jobs.rebalance(strategy);
+    }
+
+    /**
+     * Forces every mutation of this LoggedJobManager that is not yet durable to disk
+     *
+     * @throws IllegalStateException if this is closed
+     * @throws IOException if the log of this cannot be written
+     */
+    public void commit() throws IOException {
+        this.log.commit();
+    }
+
+    /**
+     * Gets the number of mutations of this LoggedJobManager that a crash would lose
+     *
+     * @return the number of records of the log of this that are not yet forced to disk
+     */
+    public int pendingCount() {
+        return this.log.pendingCount();
+    }
+
+    /**
+     * Commits the log of this LoggedJobManager and closes its file; this can still be read, but not mutated
+     *
+     * @throws IOException if the log of this cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        this.log.close();
+    }
+
+    /**
+     * Compares the specified object with this LoggedJobManager for equality
+     *
+     * @param o
+     * @return true iff o is a LoggedJobManager and (1) this and o have the same pool of Robots as determined by id,
+     *         (2) each Robot in this is assigned the same jobs as its equivalent Robot in o, and (3) this and o have
+     *         the same unassigned jobs
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof LoggedJobManager)) { return false; }
+        return this.jobs.equals(((LoggedJobManager) o).jobs);
+    }
+
+    /**
+     * Returns the hashcode for this LoggedJobManager
+     *
+     * @return the hashcode of the JobManager that this represents
+     * @see JobManager#hashCode()
+     */
+    @Override
+    public int hashCode() {
+        return this.jobs.hashCode();
+    }
+
+    /**
+     * Checks the representation invariant of the JobManager that this LoggedJobManager represents
+     *
+     * @throws AssertionError if the representation invariant is violated
+     */
+    public void checkRep() {
+        this.jobs.checkRep();
+    }
+
+    private void checkOpen() {
+        if (!this.log.isOpen()) { throw new IllegalStateException("the log is closed"); }
+    }
+
+    private void append(int op, int a, int b, int c) {
+        try {
+            this.log.append(op, a, b, c);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package jobmanager;
+
+import java.util.Arrays;
+import java.util.function.BiPredicate;
+
+/**
+ * This immutable class maps non-negative int keys, such as robot ids, to values.
+ *
+ * The entries are kept in a hash array mapped trie that branches on 5 bits of the key per level, lowest bits first,
+ * so a lookup visits at most 7 nodes. Putting or removing a key copies only the nodes on the path to it; every other
+ * node is shared with the map it was derived from. A node exists iff at least two keys share the bits that lead to it,
+ * so the shape of the trie depends only on its keys, and comparing two maps skips every node they share.
+ *
+ * @param <V> the type of the values
+ */
+
+public final class PersistentIntMap<V> {
+
+    private static final PersistentIntMap<?> EMPTY = new PersistentIntMap<>(new Node(0, new Object[0]), 0);
+
+    private static final int BITS = 5;
+
+    private static final class Node {
+
+        final int bitmap;
+        // bit i is set iff this has a slot for the keys whose bits at the level of this are i
+
+        final Object[] slots;
+        // one Leaf or Node per set bit of bitmap, in increasing order of bit
+
+        Node(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+    }
+
+    private static final class Leaf {
+
+        final int key;
+        final Object value;
+
+        Leaf(int key, Object value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    private final Node root;
+    // the trie of entries of this
+
+    private final int size;
+    // number of entries of this
+
+    /**
+     * How does our data representation (root, size) represent a PersistentIntMap?
+     *
+     * (1) A key K is mapped to V iff the slot for K's bits at each level, followed from this.root, leads to a Leaf with
+     *     key K and value V.
+     * (2) Every Node other than this.root holds at least two keys in its subtree, and a slot holds a Node only if it
+     *     holds at least two keys.
+     * (3) this.size is the number of Leaves in the trie.
+     */
+
+    private PersistentIntMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * Gets the empty map
+     *
+     * @param <V>
+     * @return a map without entries
+     */
+    @SuppressWarnings("unchecked")
+    public static <V> PersistentIntMap<V> empty() {
+        return (PersistentIntMap<V>) EMPTY;
+    }
+
+    /**
+     * Gets the number of entries of this PersistentIntMap
+     *
+     * @return the number of keys in this
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Gets the value of the specified key in this PersistentIntMap
+     *
+     * @param key
+     * @return the value of key, or null if key is not in this
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        Object slot = this.root;
+        for (int shift = 0; slot instanceof Node; shift += BITS) {
+            Node node = (Node) slot;
+            int bit = 1 << (key >>> shift & 31);
+            if ((node.bitmap & bit) == 0) { return null; }
+            slot = node.slots[Integer.bitCount(node.bitmap & (bit - 1))];
+        }
+        Leaf leaf = (Leaf) slot;
+        return leaf.key == key ? (V) leaf.value : null;
+    }
+
+    /**
+     * Gets a map with the entries of this PersistentIntMap, except that the specified key has the specified value; this
+     * is unchanged
+     *
+     * @param key
+     * @param value
+     * @return the new map
+     * @throws IllegalArgumentException if key < 0 or value is null
+     */
+    public PersistentIntMap<V> put(int key, V value) {
+        if (key < 0) { throw new IllegalArgumentException("keys must be non-negative: " + key); }
+        if (value == null) { throw new IllegalArgumentException("value must not be null"); }
+        boolean added = get(key) == null;
+        return new PersistentIntMap<>((Node) put(this.root, 0, new Leaf(key, value)), this.size + (added ? 1 : 0));
+    }
+
+    /**
+     * Gets a map with the entries of this PersistentIntMap except the one of the specified key; this is unchanged
+     *
+     * @param key
+     * @return the new map, which is this if key is not in this
+     */
+    public PersistentIntMap<V> remove(int key) {
+        if (key < 0 || get(key) == null) { return this; }
+        Object root = remove(this.root, 0, key);
+        // the root is a Node even when it holds a single key
+        if (root instanceof Leaf) {
+            Leaf leaf = (Leaf) root;
+            root = new Node(1 << (leaf.key & 31), new Object[] {leaf});
+        }
+        return new PersistentIntMap<>((Node) root, this.size - 1);
+    }
+
+    /**
+     * Performs the specified action on every entry of this PersistentIntMap
+     *
+     * @param action receives each key and its value
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(EntryConsumer<? super V> action) {
+        forEach(this.root, (EntryConsumer<Object>) action);
+    }
+
+    /**
+     * Gets the keys of this PersistentIntMap
+     *
+     * @return the keys of this in increasing order
+     */
+    public int[] keys() {
+        int[] keys = new int[this.size];
+        int[] count = new int[1];
+        forEach((key, value) -> keys[count[0]++] = key);
+        Arrays.sort(keys);
+        return keys;
+    }
+
+    /**
+     * Checks if this PersistentIntMap and the specified map have the same keys, each with equal values
+     *
+     * The two tries are walked side by side and every node that they share is skipped, so maps derived from a common
+     * ancestor are compared in time proportional to the nodes that either of them copied.
+     *
+     * @param other
+     * @param equal decides if two values of the same key are equal; it is not called for values that are the same
+     *              object
+     * @return true iff this and other have the same keys and equal decides that the values of each key are equal
+     */
+    @SuppressWarnings("unchecked")
+    public boolean equalEntries(PersistentIntMap<V> other, BiPredicate<? super V, ? super V> equal) {
+        return this.size == other.size && equalSlots(this.root, other.root, (BiPredicate<Object, Object>) equal);
+    }
+
+    /**
+     * Returns a string representation of this PersistentIntMap
+     *
+     * @return the entries of this, e.g., "{1=a, 33=b}"
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("{");
+        forEach((key, value) -> builder.append(builder.length() > 1 ? ", " : "").append(key).append('=').append(value));
+        return builder.append('}').toString();
+    }
+
+    /**
+     * This interface represents an action on an entry of a PersistentIntMap
+     *
+     * @param <V> the type of the values
+     */
+    public interface EntryConsumer<V> {
+
+        /**
+         * Performs this action on the specified entry
+         *
+         * @param key
+         * @param value
+         */
+        void accept(int key, V value);
+    }
+
+    private static Object put(Object slot, int shift, Leaf leaf) {
+        if (slot instanceof Leaf) {
+            Leaf old = (Leaf) slot;
+            if (old.key == leaf.key) { return leaf; }
+            // two keys share the bits so far, so they move down into a new node
+            Node node = new Node(0, new Object[0]);
+            return put(put(node, shift, old), shift, leaf);
+        }
+        Node node = (Node) slot;
+        int bit = 1 << (leaf.key >>> shift & 31);
+        int pos = Integer.bitCount(node.bitmap & (bit - 1));
+        if ((node.bitmap & bit) == 0) {
+            Object[] slots = new Object[node.slots.length + 1];
+            System.arraycopy(node.slots, 0, slots, 0, pos);
+            slots[pos] = leaf;
+            System.arraycopy(node.slots, pos, slots, pos + 1, node.slots.length - pos);
+            return new Node(node.bitmap | bit, slots);
+        }
+        Object[] slots = node.slots.clone();
+        slots[pos] = put(slots[pos], shift + BITS, leaf);
+        return new Node(node.bitmap, slots);
+    }
+
+    /**
+     * Removes the specified key, which is in the subtree of the specified slot, from that subtree
+     *
+     * @return the new slot, which is null if the subtree held only key, and a Leaf if it holds a single key afterwards
+     */
+    private static Object remove(Object slot, int shift, int key) {
+        if (slot instanceof Leaf) { return null; }
+        Node node = (Node) slot;
+        int bit = 1 << (key >>> shift & 31);
+        int pos = Integer.bitCount(node.bitmap & (bit - 1));
+        Object child = remove(node.slots[pos], shift + BITS, key);
+        if (child == null) {
+            if (node.slots.length == 2 && node.slots[1 - pos] instanceof Leaf) { return node.slots[1 - pos]; }
+            Object[] slots = new Object[node.slots.length - 1];
+            System.arraycopy(node.slots, 0, slots, 0, pos);
+            System.arraycopy(node.slots, pos + 1, slots, pos, slots.length - pos);
+            return new Node(node.bitmap & ~bit, slots);
+        }
+        if (child instanceof Leaf && node.slots.length == 1) { return child; }
+        Object[] slots = node.slots.clone();
+        slots[pos] = child;
+        return new Node(node.bitmap, slots);
+    }
+
+    private static void forEach(Object slot, EntryConsumer<Object> action) {
+        if (slot instanceof Leaf) {
+            action.accept(((Leaf) slot).key, ((Leaf) slot).value);
+            return;
+        }
+        for (Object child : ((Node) slot).slots) {
+            forEach(child, action);
+        }
+    }
+
+    private static boolean equalSlots(Object slot1, Object slot2, BiPredicate<Object, Object> equal) {
+        if (slot1 == slot2) { return true; }
+        if (slot1 instanceof Leaf && slot2 instanceof Leaf) {
+            Leaf leaf1 = (Leaf) slot1;
+            Leaf leaf2 = (Leaf) slot2;
+            return leaf1.key == leaf2.key && (leaf1.value == leaf2.value || equal.test(leaf1.value, leaf2.value));
+        }
+        if (!(slot1 instanceof Node) || !(slot2 instanceof Node)) { return false; }
+        Node node1 = (Node) slot1;
+        Node node2 = (Node) slot2;
+        if (node1.bitmap != node2.bitmap) { return false; }
+        for (int i = 0; i < node1.slots.length; i++) {
+            if (!equalSlots(node1.slots[i], node2.slots[i], equal)) { return false; }
+        }
+        return true;
+    }
+}
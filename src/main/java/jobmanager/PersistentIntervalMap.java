@@ -0,0 +1,470 @@
+package jobmanager;
+
+import java.util.Arrays;
+
+/**
+ * This immutable class maps job ids to owners, where an owner is a positive int such as the id of a robot and 0 stands
+ * for "no owner", like IntervalOwnerMap does; a set of job ids is a map in which every id of the set has owner 1.
+ *
+ * The intervals [lo,...,hi] --> owner are the nodes of a treap ordered by lo, where each node also knows how many
+ * intervals and owned ids its subtree holds. Setting the owner of a range of ids splits the treap at both ends of the
+ * range and joins the pieces around the new interval, so it costs O(log k) for k intervals and copies only the nodes
+ * on the paths it walks; every other node is shared with the map it was derived from. Two maps derived from a common
+ * ancestor therefore share every subtree that neither of them changed, and comparing them skips each shared subtree
+ * that starts at the same interval in both.
+ *
+ * @see IntervalOwnerMap
+ */
+
+public final class PersistentIntervalMap {
+
+    public static final PersistentIntervalMap EMPTY = new PersistentIntervalMap(null);
+
+    private static final class Node {
+
+        final int lo;
+        final int hi;
+        final int owner;
+        final int priority;
+        final Node left;
+        final Node right;
+        // the interval [lo,...,hi] --> owner, its treap priority, and the intervals below and above it
+
+        final int intervals;
+        final long owned;
+        final long hash;
+        // number of intervals, number of owned ids and sum of the hashes of the intervals in the subtree of this
+
+        Node(int lo, int hi, int owner, int priority, Node left, Node right) {
+            this.lo = lo;
+            this.hi = hi;
+            this.owner = owner;
+            this.priority = priority;
+            this.left = left;
+            this.right = right;
+            this.intervals = 1 + intervals(left) + intervals(right);
+            this.owned = hi - lo + 1L + owned(left) + owned(right);
+            this.hash = intervalHash(lo, hi, owner) + hash(left) + hash(right);
+        }
+
+        Node with(int lo, int hi, Node left, Node right) {
+            return new Node(lo, hi, this.owner, this.priority, left, right);
+        }
+    }
+
+    private final Node root;
+    // the treap of intervals of this, or null if no id has an owner
+
+    /**
+     * How does our data representation (root) represent a PersistentIntervalMap?
+     *
+     * (1) An id Z has owner s > 0 iff some node of the treap rooted at this.root has lo <= Z <= hi and owner s; every
+     *     other id has owner 0.
+     * (2) 0 <= lo <= hi and owner > 0 for every node, and the nodes in order of lo are exactly the in-order traversal
+     *     of the treap, whose intervals do not overlap; two intervals i, i + 1 that are adjacent, i.e., the hi of i
+     *     plus 1 is the lo of i + 1, have different owners.
+     * (3) The priority of every node is >= the priorities of its children.
+     * (4) intervals, owned and hash of every node are the number of intervals, the number of owned ids and the sum of
+     *     intervalHash over the intervals of its subtree.
+     */
+
+    private PersistentIntervalMap(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * Gets the owner of the specified id in this PersistentIntervalMap
+     *
+     * @param id
+     * @return the owner of id, or 0 if id has no owner
+     */
+    public int get(int id) {
+        Node node = this.root;
+        while (node != null) {
+            if (id < node.lo) {
+                node = node.left;
+            }
+            else if (id > node.hi) {
+                node = node.right;
+            }
+            else {
+                return node.owner;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Gets a map with the same owners as this PersistentIntervalMap except for the ids in [lo,...,hi], whose owner is
+     * the specified owner; this is unchanged
+     *
+     * @param lo
+     * @param hi
+     * @param owner the new owner of those ids, or 0 to leave them without an owner
+     * @return the new map, which is this if lo > hi
+     * @throws IllegalArgumentException if lo <= hi and either lo < 0 or owner < 0
+     */
+    public PersistentIntervalMap set(int lo, int hi, int owner) {
+        if (lo > hi) { return this; }
+        if (lo < 0) { throw new IllegalArgumentException("ids must be non-negative: " + lo); }
+        if (owner < 0) { throw new IllegalArgumentException("owners must be non-negative: " + owner); }
+        Node below = below(this.root, lo);
+        Node above = hi == Integer.MAX_VALUE ? null : atLeast(this.root, hi + 1);
+        if (owner == 0) { return new PersistentIntervalMap(join(below, above)); }
+        // neighbours of the same owner that touch [lo,...,hi] merge into the new interval
+        Node last = last(below);
+        if (last != null && last.owner == owner && last.hi + 1 == lo) {
+            lo = last.lo;
+            below = below(below, lo);
+        }
+        Node first = first(above);
+        if (first != null && first.owner == owner && (long) hi + 1 == first.lo) {
+            hi = first.hi;
+            above = hi == Integer.MAX_VALUE ? null : atLeast(above, hi + 1);
+        }
+        Node node = new Node(lo, hi, owner, priority(lo, hi), null, null);
+        return new PersistentIntervalMap(join(join(below, node), above));
+    }
+
+    /**
+     * Gets the part of this PersistentIntervalMap within [lo,...,hi]; this is unchanged
+     *
+     * @param lo
+     * @param hi
+     * @return a map in which every id in [lo,...,hi] has the same owner as in this and every other id has no owner
+     */
+    public PersistentIntervalMap slice(int lo, int hi) {
+        if (lo > hi) { return EMPTY; }
+        Node node = hi == Integer.MAX_VALUE ? this.root : below(this.root, hi + 1);
+        return new PersistentIntervalMap(atLeast(node, lo));
+    }
+
+    /**
+     * Gets the number of ids that have an owner in this PersistentIntervalMap
+     *
+     * @return the number of ids with an owner in this
+     */
+    public long ownedCount() {
+        return owned(this.root);
+    }
+
+    /**
+     * Gets the number of intervals of ids with the same owner in this PersistentIntervalMap
+     *
+     * @return the number of intervals in this
+     */
+    public int intervalCount() {
+        return intervals(this.root);
+    }
+
+    /**
+     * Gets the lowest id of the specified interval of this PersistentIntervalMap
+     *
+     * @param interval index of an interval, in [0,...,intervalCount() - 1]
+     * @return the lowest id of interval
+     * @throws IndexOutOfBoundsException if interval is not a valid interval index
+     */
+    public int intervalLo(int interval) {
+        return interval(interval).lo;
+    }
+
+    /**
+     * Gets the highest id of the specified interval of this PersistentIntervalMap
+     *
+     * @param interval index of an interval, in [0,...,intervalCount() - 1]
+     * @return the highest id of interval
+     * @throws IndexOutOfBoundsException if interval is not a valid interval index
+     */
+    public int intervalHi(int interval) {
+        return interval(interval).hi;
+    }
+
+    /**
+     * Gets the owner of the specified interval of this PersistentIntervalMap
+     *
+     * @param interval index of an interval, in [0,...,intervalCount() - 1]
+     * @return the owner of every id in interval
+     * @throws IndexOutOfBoundsException if interval is not a valid interval index
+     */
+    public int intervalOwner(int interval) {
+        return interval(interval).owner;
+    }
+
+    /**
+     * Gets the highest id <= the specified id that has an owner in this PersistentIntervalMap
+     *
+     * @param id
+     * @return the highest owned id <= id, or -1 if there is no such id
+     */
+    public int floor(int id) {
+        int floor = -1;
+        Node node = this.root;
+        while (node != null) {
+            if (id < node.lo) {
+                node = node.left;
+            }
+            else if (id <= node.hi) {
+                return id;
+            }
+            else {
+                floor = node.hi;
+                node = node.right;
+            }
+        }
+        return floor;
+    }
+
+    /**
+     * Gets the highest id that has an owner in this PersistentIntervalMap
+     *
+     * @return the highest owned id, or -1 if no id has an owner
+     */
+    public int last() {
+        Node last = last(this.root);
+        return last == null ? -1 : last.hi;
+    }
+
+    /**
+     * Compares the specified object with this PersistentIntervalMap for equality
+     *
+     * Maps that share their treap are equal at once, and maps whose interval counts, owned counts or hashes differ are
+     * unequal at once. The remaining maps are walked in order of id side by side, descending first into the larger of
+     * the two subtrees that come next; when both come to the same node, its whole subtree holds the same intervals at
+     * the same positions in both and is skipped. The shape of a treap depends on how it was built, so subtrees are
+     * only skipped when they are shared, never compared node by node, and two maps derived from a common ancestor are
+     * compared in time proportional to the nodes that either of them copied, times the depth of the treaps.
+     *
+     * @param o
+     * @return true iff o is a PersistentIntervalMap in which every id has the same owner as in this
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof PersistentIntervalMap)) { return false; }
+        PersistentIntervalMap other = (PersistentIntervalMap) o;
+        if (this.root == other.root) { return true; }
+        int count = intervals(this.root);
+        if (count != intervals(other.root) || owned(this.root) != owned(other.root)) { return false; }
+        if (hash(this.root) != hash(other.root)) { return false; }
+        Walk mine = new Walk(this.root);
+        Walk theirs = new Walk(other.root);
+        while (!mine.isDone() && !theirs.isDone()) {
+            Node node = mine.top();
+            Node otherNode = theirs.top();
+            if (!mine.atInterval() && !theirs.atInterval() && node == otherNode) {
+                // the same subtree starts at the same position in both maps
+                mine.pop();
+                theirs.pop();
+            }
+            else if (mine.atInterval() && theirs.atInterval()) {
+                if (node.lo != otherNode.lo || node.hi != otherNode.hi || node.owner != otherNode.owner) {
+                    return false;
+                }
+                mine.pop();
+                theirs.pop();
+            }
+            else if (!mine.atInterval() && (theirs.atInterval() || node.intervals >= otherNode.intervals)) {
+                mine.expand();
+            }
+            else {
+                theirs.expand();
+            }
+        }
+        return mine.isDone() && theirs.isDone();
+    }
+
+    /**
+     * Returns the hashcode for this PersistentIntervalMap
+     *
+     * @return a hashcode that depends only on the intervals of this and their owners
+     */
+    @Override
+    public int hashCode() {
+        long hash = hash(this.root);
+        return (int) (hash ^ hash >>> 32);
+    }
+
+    /**
+     * Returns a string representation of this PersistentIntervalMap
+     *
+     * @return the intervals of this in increasing order with their owners, e.g., "{1..3=2, 7=1}"
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("{");
+        for (int i = 0; i < intervalCount(); i++) {
+            Node node = interval(i);
+            if (i > 0) { builder.append(", "); }
+            builder.append(node.lo);
+            if (node.hi > node.lo) { builder.append("..").append(node.hi); }
+            builder.append('=').append(node.owner);
+        }
+        return builder.append('}').toString();
+    }
+
+    /**
+     * Checks the representation invariant of this PersistentIntervalMap
+     *
+     * @throws AssertionError if the representation invariant is violated
+     */
+    public void checkRep() {
+        checkNode(this.root, Long.MIN_VALUE, Long.MAX_VALUE, Integer.MAX_VALUE);
+        for (int i = 0; i + 1 < intervalCount(); i++) {
+            Node node = interval(i);
+            Node next = interval(i + 1);
+            if (node.hi + 1L == next.lo && node.owner == next.owner) { throw new AssertionError(); }
+        }
+    }
+
+    /**
+     * This class represents an in-order walk of a treap that yields subtrees as well as single intervals, so that a
+     * subtree can be skipped as a whole
+     */
+    private static final class Walk {
+
+        private Node[] nodes = new Node[16];
+        private boolean[] atInterval = new boolean[16];
+        private int size;
+        // nodes[size - 1] is what comes next: the interval of that node alone if atInterval[size - 1], and its whole
+        // subtree otherwise; the entries below it come after it in order
+
+        Walk(Node root) {
+            push(root, false);
+        }
+
+        boolean isDone() {
+            return this.size == 0;
+        }
+
+        Node top() {
+            return this.nodes[this.size - 1];
+        }
+
+        boolean atInterval() {
+            return this.atInterval[this.size - 1];
+        }
+
+        void pop() {
+            this.size--;
+        }
+
+        /**
+         * Replaces the subtree that comes next with its left subtree, its own interval and its right subtree
+         */
+        void expand() {
+            Node node = this.nodes[--this.size];
+            push(node.right, false);
+            push(node, true);
+            push(node.left, false);
+        }
+
+        private void push(Node node, boolean interval) {
+            if (node == null) { return; }
+            if (this.size == this.nodes.length) {
+                this.nodes = Arrays.copyOf(this.nodes, 2 * this.size);
+                this.atInterval = Arrays.copyOf(this.atInterval, 2 * this.size);
+            }
+            this.nodes[this.size] = node;
+            this.atInterval[this.size++] = interval;
+        }
+    }
+
+    private Node interval(int interval) {
+        if (interval < 0 || interval >= intervals(this.root)) {
+            throw new IndexOutOfBoundsException("no interval " + interval);
+        }
+        Node node = this.root;
+        while (true) {
+            int left = intervals(node.left);
+            if (interval < left) {
+                node = node.left;
+            }
+            else if (interval == left) {
+                return node;
+            }
+            else {
+                interval -= left + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    /**
+     * Gets the treap of the ids below the specified id in the specified treap, cutting the interval that holds id
+     */
+    private static Node below(Node node, int id) {
+        if (node == null) { return null; }
+        if (node.lo >= id) { return below(node.left, id); }
+        if (node.hi < id) { return node.with(node.lo, node.hi, node.left, below(node.right, id)); }
+        return node.with(node.lo, id - 1, node.left, null);
+    }
+
+    /**
+     * Gets the treap of the ids at or above the specified id in the specified treap, cutting the interval that holds
+     * id
+     */
+    private static Node atLeast(Node node, int id) {
+        if (node == null) { return null; }
+        if (node.hi < id) { return atLeast(node.right, id); }
+        if (node.lo >= id) { return node.with(node.lo, node.hi, atLeast(node.left, id), node.right); }
+        return node.with(id, node.hi, null, node.right);
+    }
+
+    /**
+     * Joins two treaps, where every interval of the first is below every interval of the second
+     */
+    private static Node join(Node low, Node high) {
+        if (low == null) { return high; }
+        if (high == null) { return low; }
+        if (low.priority >= high.priority) { return low.with(low.lo, low.hi, low.left, join(low.right, high)); }
+        return high.with(high.lo, high.hi, join(low, high.left), high.right);
+    }
+
+    private static Node first(Node node) {
+        while (node != null && node.left != null) {
+            node = node.left;
+        }
+        return node;
+    }
+
+    private static Node last(Node node) {
+        while (node != null && node.right != null) {
+            node = node.right;
+        }
+        return node;
+    }
+
+    private static int intervals(Node node) {
+        return node == null ? 0 : node.intervals;
+    }
+
+    private static long owned(Node node) {
+        return node == null ? 0 : node.owned;
+    }
+
+    private static long hash(Node node) {
+        return node == null ? 0 : node.hash;
+    }
+
+    private static long intervalHash(int lo, int hi, int owner) {
+        long h = (lo * 0x9E3779B97F4A7C15L ^ hi) * 0xC2B2AE3D27D4EB4FL ^ owner;
+        return h ^ h >>> 29;
+    }
+
+    private static int priority(int lo, int hi) {
+        int h = (lo * 0x9E3779B1 ^ hi) * 0x85EBCA6B;
+        return h ^ h >>> 16;
+    }
+
+    private static void checkNode(Node node, long min, long max, int priority) {
+        if (node == null) { return; }
+        if (node.lo < 0 || node.lo > node.hi || node.owner <= 0) { throw new AssertionError(); }
+        if (node.lo <= min || node.hi >= max || node.priority > priority) { throw new AssertionError(); }
+        if (node.intervals != 1 + intervals(node.left) + intervals(node.right)) { throw new AssertionError(); }
+        if (node.owned != node.hi - node.lo + 1L + owned(node.left) + owned(node.right)) { throw new AssertionError(); }
+        if (node.hash != intervalHash(node.lo, node.hi, node.owner) + hash(node.left) + hash(node.right)) {
+            throw new AssertionError();
+        }
+        checkNode(node.left, min, node.lo, node.priority);
+        checkNode(node.right, node.hi, max, node.priority);
+    }
+}
@@ -0,0 +1,411 @@
+package jobmanager;
+
+import java.util.Map;
+
+/**
+ * This class represents a JobManager that can be forked in constant time, for planning: a fork starts out equal to
+ * the PersistentJobManager it was forked from, and from then on the two change independently of each other. It has the
+ * same contract as JobManager for the operations it offers.
+ *
+ * The robots are kept in a PersistentIntMap from robot id to the set of jobs of the robot, and the job sets, the
+ * unassigned jobs and the robot of every assigned job are PersistentIntervalMaps. All of them are immutable, so a fork
+ * copies four references, and a mutation replaces the structures it changes with new ones that share every unchanged
+ * part with the old ones; a robot whose jobs a mutation does not touch keeps the very same job set in every fork.
+ * Comparing two forks with equals skips every job set and every subtree of a PersistentIntervalMap that they still
+ * share.
+ *
+ * Each operation costs O(log k) per run of consecutive jobs that it moves, for k runs in the structures it changes,
+ * plus O(log r) to look up a robot among r robots.
+ *
+ * @see JobManager
+ * @see PersistentIntMap
+ * @see PersistentIntervalMap
+ */
+
+public class PersistentJobManager {
+
+    private int n;
+    // number of jobs in this; also, the id of highest priority job in this
+
+    private PersistentIntMap<PersistentIntervalMap> robots;
+    // maps: robot id --> set of jobs assigned to the robot, in which every job has owner 1
+
+    private PersistentIntervalMap unassigned;
+    // set of unassigned jobs, in which every job has owner 1
+
+    private PersistentIntervalMap owners;
+    // maps: job id --> id of the robot that the job is assigned to, or 0 if the job is not assigned
+
+    private long hashSum;
+    // sum over every robot R in this of min(R.id * (the highest priority job assigned to R), Integer.MAX_VALUE)
+
+    /**
+     * How does our data representation (n, robots, unassigned, owners, hashSum) represent a JobManager?
+     *
+     * (1) A robot with id = R > 0 is in this iff R is a key of this.robots; the jobs assigned to it are the owned ids
+     *     of this.robots.get(R), which all have owner 1.
+     * (2) A job Z is assigned to the robot with id = R iff this.owners.get(Z) = R, so the owned ids of this.owners are
+     *     exactly the jobs assigned to some robot.
+     * (3) The unassigned jobs are the owned ids of this.unassigned, which all have owner 1 and are in [1,...,this.n]
+     *     and not assigned.
+     * (4) A job Z in [1,...,this.n] that is neither assigned nor unassigned is completed.
+     * (5) this.hashSum is the sum over every robot in this of its term of hashCode(), as in JobManager.
+     */
+
+    private PersistentJobManager(int n, PersistentIntMap<PersistentIntervalMap> robots,
+                                 PersistentIntervalMap unassigned, PersistentIntervalMap owners, long hashSum) {
+        this.n = n;
+        this.robots = robots;
+        this.unassigned = unassigned;
+        this.owners = owners;
+        this.hashSum = hashSum;
+    }
+
+    /**
+     * Creates a new PersistentJobManager to manage n jobs with job IDs [1,...,n]
+     *
+     * @param n
+     * @throws IllegalArgumentException if n < 1
+     */
+    public PersistentJobManager(int n) {
+        if (n < 1) { throw new IllegalArgumentException("n must be at least 1"); }
+        this.n = n;
+        this.robots = PersistentIntMap.empty();
+        this.unassigned = PersistentIntervalMap.EMPTY.set(1, n, 1);
+        this.owners = PersistentIntervalMap.EMPTY;
+    }
+
+    /**
+     * Creates a PersistentJobManager equal to the specified JobManager
+     *
+     * This copies every run of consecutive jobs of jobs once; forking the result afterwards is free.
+     *
+     * @param jobs
+     * @return a PersistentJobManager with the same jobs, robots, assignments and completed jobs as jobs
+     * @throws IllegalArgumentException if jobs is null
+     */
+    public static PersistentJobManager of(JobManager jobs) {
+        if (jobs == null) { throw new IllegalArgumentException("jobs must not be null"); }
+        PersistentJobManager copy = new PersistentJobManager(jobs.n);
+        copy.unassigned = PersistentIntervalMap.EMPTY;
+        for (int lo = jobs.unassignedJobs.nextSetBit(1); lo > 0; ) {
+            int hi = jobs.unassignedJobs.nextClearBit(lo) - 1;
+            copy.unassigned = copy.unassigned.set(lo, hi, 1);
+            lo = jobs.unassignedJobs.nextSetBit(hi + 1);
+        }
+        for (Map.Entry<Robot, IntSortedSet> entry : jobs.robotToJobs.entrySet()) {
+            int robotId = entry.getKey().id;
+            IntSortedSet set = entry.getValue();
+            PersistentIntervalMap robotJobs = PersistentIntervalMap.EMPTY;
+            for (int run = 0; run < set.runCount(); run++) {
+                robotJobs = robotJobs.set(set.runLo(run), set.runHi(run), 1);
+                copy.owners = copy.owners.set(set.runLo(run), set.runHi(run), robotId);
+            }
+            copy.robots = copy.robots.put(robotId, robotJobs);
+            copy.hashSum += hashTerm(robotId, robotJobs);
+        }
+        return copy;
+    }
+
+    /**
+     * Forks this PersistentJobManager in constant time
+     *
+     * @return a new PersistentJobManager equal to this, whose mutations do not affect this and vice versa
+     */
+    public PersistentJobManager fork() {
+        return new PersistentJobManager(this.n, this.robots, this.unassigned, this.owners, this.hashSum);
+    }
+
+    /**
+     * Checks if this PersistentJobManager has the specified Robot
+     *
+     * @param robot
+     * @return true if robot is now in this, and false otherwise
+     */
+    public boolean hasRobot(Robot robot) {
+        return robot != null && !robot.isNull() && this.robots.get(robot.id) != null;
+    }
+
+    /**
+     * Adds the specified Robot to this PersistentJobManager
+     *
+     * @param robot
+     * @return true if this formerly did not have robot but now does, and false otherwise
+     */
+    public boolean addRobot(Robot robot) {
+        if (robot == null || robot.isNull() || hasRobot(robot)) { return false; }
+        this.robots = this.robots.put(robot.id, PersistentIntervalMap.EMPTY);
+        return true;
+    }
+
+    /**
+     * Removes the specified robot from this PersistentJobManager
+     *
+     * @param robot
+     * @return true if this formerly did have robot but now does not, and false otherwise
+     * @post All jobs formerly assigned to this robot are now unassigned
+     */
+    public boolean removeRobot(Robot robot) {
+        PersistentIntervalMap jobs = robot == null || robot.isNull() ? null : this.robots.get(robot.id);
+        if (jobs == null) { return false; }
+        for (int i = 0; i < jobs.intervalCount(); i++) {
+            this.unassigned = this.unassigned.set(jobs.intervalLo(i), jobs.intervalHi(i), 1);
+            this.owners = this.owners.set(jobs.intervalLo(i), jobs.intervalHi(i), 0);
+        }
+        this.hashSum -= hashTerm(robot.id, jobs);
+        this.robots = this.robots.remove(robot.id);
+        return true;
+    }
+
+    /**
+     * Assigns all unassigned jobs managed by this PersistentJobManager with an id <= the specified id to the specified
+     * robot when this has the specified robot
+     *
+     * @param robot
+     * @param jobId
+     * @return true if both of the following hold true: (1) this has robot, and (2) all formerly unassigned jobs managed
+     *         by this whose id <= jobId are now assigned to robot; and false otherwise
+     */
+    public boolean assignJobs(Robot robot, int jobId) {
+        PersistentIntervalMap jobs = robot == null || robot.isNull() ? null : this.robots.get(robot.id);
+        if (jobs == null) { return false; }
+        if (jobId < 1) { return true; }
+        PersistentIntervalMap taken = this.unassigned.slice(1, jobId);
+        if (taken.ownedCount() == 0) { return true; }
+        this.unassigned = this.unassigned.set(1, jobId, 0);
+        give(robot.id, jobs, taken);
+        return true;
+    }
+
+    /**
+     * Extends the jobs managed by this PersistentJobManager from [1,...,n] to [1,...,n + k], where the k new jobs are
+     * unassigned
+     *
+     * @param k
+     * @return the new value of n
+     * @throws IllegalArgumentException if k < 0 or n + k > Integer.MAX_VALUE
+     * @see JobManager#addJobs(int)
+     */
+    public int addJobs(int k) {
+        if (k < 0) { throw new IllegalArgumentException("k must not be negative"); }
+        if ((long) this.n + k > Integer.MAX_VALUE) { throw new IllegalArgumentException("too many jobs"); }
+        this.unassigned = this.unassigned.set(this.n + 1, this.n + k, 1);
+        this.n += k;
+        return this.n;
+    }
+
+    /**
+     * Completes the job with the specified id, so that this PersistentJobManager no longer manages it
+     *
+     * @param jobId
+     * @return true if a job with id = jobId was managed by this and is now completed, and false otherwise
+     * @see JobManager#completeJob(int)
+     */
+    public boolean completeJob(int jobId) {
+        if (jobId < 1 || jobId > this.n) { return false; }
+        int robotId = this.owners.get(jobId);
+        if (robotId > 0) {
+            PersistentIntervalMap jobs = this.robots.get(robotId);
+            this.hashSum -= hashTerm(robotId, jobs);
+            jobs = jobs.set(jobId, jobId, 0);
+            this.hashSum += hashTerm(robotId, jobs);
+            this.robots = this.robots.put(robotId, jobs);
+            this.owners = this.owners.set(jobId, jobId, 0);
+            return true;
+        }
+        if (this.unassigned.get(jobId) == 0) { return false; }
+        this.unassigned = this.unassigned.set(jobId, jobId, 0);
+        return true;
+    }
+
+    /**
+     * Checks if a specified job is assigned to a robot managed by this PersistentJobManager
+     *
+     * @param jobId
+     * @return true if both of the following hold true: (1) a job with id = jobId is managed by this, and (2) that
+     *         job is assigned to a robot in this; and false otherwise
+     */
+    public boolean isAssigned(int jobId) {
+        return this.owners.get(jobId) > 0;
+    }
+
+    /**
+     * Checks if the job with the specified id was completed in this PersistentJobManager
+     *
+     * @param jobId
+     * @return true iff jobId is in [1,...,n] and the job with id = jobId was completed
+     */
+    public boolean isCompleted(int jobId) {
+        return jobId >= 1 && jobId <= this.n && this.owners.get(jobId) == 0 && this.unassigned.get(jobId) == 0;
+    }
+
+    /**
+     * Gets the Robot in this PersistentJobManager assigned the job with the specified id
+     *
+     * @param jobId
+     * @return the Robot assigned job with id = jobId if both of the following hold true: (1) a job with id = JobId is
+     *         managed by this, and (2) that job is assigned to Robot in this; and a Null Robot otherwise
+     */
+    public Robot getRobot(int jobId) {
+        int robotId = this.owners.get(jobId);
+        return robotId > 0 ? Robot.of(robotId) : Robot.NULL;
+    }
+
+    /**
+     * Moves all jobs managed by this PersistentJobManager with an id <= the specified id that were assigned to a
+     * specified robot to another specified robot when this has both specified robots
+     *
+     * @param srcRobot
+     * @param dstRobot
+     * @param jobId
+     * @return true if both of the following hold true: (1) this has srcRobot & dstRobot, and (2) all jobs managed by
+     *         this with id <= jobId that were formerly assigned to srcRobot are now assigned to dstRobot;
+     *         and false otherwise
+     */
+    public boolean moveJobs(Robot srcRobot, Robot dstRobot, int jobId) {
+        PersistentIntervalMap srcJobs = srcRobot == null || srcRobot.isNull() ? null : this.robots.get(srcRobot.id);
+        PersistentIntervalMap dstJobs = dstRobot == null || dstRobot.isNull() ? null : this.robots.get(dstRobot.id);
+        if (srcJobs == null || dstJobs == null) { return false; }
+        if (srcRobot.id == dstRobot.id || jobId < 1) { return true; }
+        PersistentIntervalMap moved = srcJobs.slice(1, jobId);
+        if (moved.ownedCount() == 0) { return true; }
+        this.hashSum -= hashTerm(srcRobot.id, srcJobs);
+        srcJobs = moved == srcJobs || moved.ownedCount() == srcJobs.ownedCount() ? PersistentIntervalMap.EMPTY
+                : srcJobs.set(1, jobId, 0);
+        this.hashSum += hashTerm(srcRobot.id, srcJobs);
+        this.robots = this.robots.put(srcRobot.id, srcJobs);
+        give(dstRobot.id, dstJobs, moved);
+        return true;
+    }
+
+    /**
+     * Moves all jobs managed by this PersistentJobManager from a specified robot to another specified robot when this
+     * has both specified robots
+     *
+     * @param srcRobot
+     * @param dstRobot
+     * @return true if both of the following hold true: (1) this has srcRobot & dstRobot, and (2) all jobs managed by
+     *         this that were formerly assigned to srcRobot are now assigned to dstRobot; and false otherwise
+     */
+    public boolean moveJobs(Robot srcRobot, Robot dstRobot) {
+        return moveJobs(srcRobot, dstRobot, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Gets the highest priority job assigned to a specified robot in this PersistentJobManager with id <= a specified
+     * id when this has the specified robot
+     *
+     * @param robot
+     * @param jobId
+     * @return the id of the highest priority job assigned to robot with id <= jobId; or a null job id of 0 if either no
+     *         such job or robot exists in this
+     */
+    public int getHighestPriorityJob(Robot robot, int jobId) {
+        PersistentIntervalMap jobs = robot == null || robot.isNull() ? null : this.robots.get(robot.id);
+        return jobs == null ? 0 : Math.max(jobs.floor(jobId), 0);
+    }
+
+    /**
+     * Gets the number of jobs assigned to the specified robot in this PersistentJobManager
+     *
+     * @param robot
+     * @return the number of jobs assigned to robot, or 0 if this does not have robot
+     */
+    public int jobCount(Robot robot) {
+        PersistentIntervalMap jobs = robot == null || robot.isNull() ? null : this.robots.get(robot.id);
+        return jobs == null ? 0 : (int) jobs.ownedCount();
+    }
+
+    /**
+     * Compares the specified object with this PersistentJobManager for equality
+     *
+     * The robots are compared by walking their maps side by side, and a job set or unassigned set that this and o
+     * share is equal without looking at it; job sets that differ, the unassigned jobs and the robots of the jobs are
+     * compared by PersistentIntervalMap.equals, which skips the subtrees they share. Comparing two forks of one
+     * PersistentJobManager therefore costs time proportional to the nodes that either of them copied, times the depth
+     * of the trees.
+     *
+     * @param o
+     * @return true iff o is a PersistentJobManager and (1) this and o have the same pool of Robots as determined by id,
+     *         (2) each Robot in this is assigned the same jobs as its equivalent Robot in o, and (3) this and o have
+     *         the same unassigned jobs
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof PersistentJobManager)) { return false; }
+        PersistentJobManager other = (PersistentJobManager) o;
+        if (this.n != other.n || this.hashSum != other.hashSum) { return false; }
+        return this.unassigned.equals(other.unassigned) && this.owners.equals(other.owners)
+                && this.robots.equalEntries(other.robots, PersistentIntervalMap::equals);
+    }
+
+    /**
+     * Returns the hashcode for this PersistentJobManager
+     *
+     * @return the same hashcode as an equal JobManager
+     * @see JobManager#hashCode()
+     */
+    @Override
+    public int hashCode() {
+        return (int) Math.min(this.n + this.hashSum, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Checks the representation invariant of this PersistentJobManager, in time linear in the number of runs of jobs
+     *
+     * @throws AssertionError if the representation invariant is violated
+     */
+    public void checkRep() {
+        this.unassigned.checkRep();
+        this.owners.checkRep();
+        long[] assigned = new long[1];
+        long[] hashSum = new long[1];
+        this.robots.forEach((robotId, jobs) -> {
+            jobs.checkRep();
+            if (robotId < 1) { throw new AssertionError(); }
+            for (int i = 0; i < jobs.intervalCount(); i++) {
+                if (jobs.intervalOwner(i) != 1) { throw new AssertionError(); }
+                int lo = jobs.intervalLo(i);
+                int hi = jobs.intervalHi(i);
+                PersistentIntervalMap slice = this.owners.slice(lo, hi);
+                if (slice.intervalCount() != 1 || slice.intervalOwner(0) != robotId) { throw new AssertionError(); }
+                if (slice.ownedCount() != hi - lo + 1L) { throw new AssertionError(); }
+            }
+            assigned[0] += jobs.ownedCount();
+            hashSum[0] += hashTerm(robotId, jobs);
+        });
+        if (assigned[0] != this.owners.ownedCount() || hashSum[0] != this.hashSum) { throw new AssertionError(); }
+        for (int i = 0; i < this.unassigned.intervalCount(); i++) {
+            int lo = this.unassigned.intervalLo(i);
+            int hi = this.unassigned.intervalHi(i);
+            if (this.unassigned.intervalOwner(i) != 1 || lo < 1 || hi > this.n) { throw new AssertionError(); }
+            if (this.owners.slice(lo, hi).ownedCount() != 0) { throw new AssertionError(); }
+        }
+    }
+
+    /**
+     * Adds the specified jobs, which are not assigned, to the robot with the specified id and job set, and records the
+     * robot as their owner
+     */
+    private void give(int robotId, PersistentIntervalMap jobs, PersistentIntervalMap taken) {
+        this.hashSum -= hashTerm(robotId, jobs);
+        if (jobs.ownedCount() == 0) {
+            // a robot without jobs takes the set as it is
+            jobs = taken;
+        }
+        else {
+            for (int i = 0; i < taken.intervalCount(); i++) {
+                jobs = jobs.set(taken.intervalLo(i), taken.intervalHi(i), 1);
+            }
+        }
+        for (int i = 0; i < taken.intervalCount(); i++) {
+            this.owners = this.owners.set(taken.intervalLo(i), taken.intervalHi(i), robotId);
+        }
+        this.hashSum += hashTerm(robotId, jobs);
+        this.robots = this.robots.put(robotId, jobs);
+    }
+
+    private static long hashTerm(int robotId, PersistentIntervalMap jobs) {
+        return jobs.ownedCount() == 0 ? 0 : Math.min((long) robotId * jobs.last(), Integer.MAX_VALUE);
+    }
+}
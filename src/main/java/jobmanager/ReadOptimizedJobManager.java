@@ -0,0 +1,597 @@
+package jobmanager;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiFunction;
+
+/**
+ * This class represents a thread-safe JobManager for read-mostly workloads. It has the same contract as JobManager.
+ *
+ * Writers (addRobot, removeRobot, assignJobs, moveJobs and every other method that changes jobs or robots) hold the
+ * write lock of a StampedLock while they mutate a single-threaded JobManager, so every change they make becomes visible
+ * to readers atomically. Readers (hasRobot, isAssigned, getRobot and getHighestPriorityJob) first read the JobManager
+ * under an optimistic stamp, which takes no lock and never blocks writers or other readers, and keep the result if no
+ * write happened in the meantime. Only a reader that overlaps a write retries under the read lock.
+ *
+ * An optimistic read may run while a writer is in the middle of a change, so it only touches structures whose lookups
+ * are guaranteed to terminate on a torn state: the job owner index and the job sets, whose binary searches are bounded
+ * by a count read once into a local, and a robot table keyed by robot id that is never changed once it is published.
+ * It never reads the HashMap of the JobManager, whose lookups may not terminate while it is being resized. The robot
+ * table is a PersistentIntMap, so a writer that adds, removes or swaps the job set of a robot publishes a new table
+ * that shares all but O(log r) of its nodes with the old one, where r is the number of robots.
+ *
+ * @see JobManager
+ * @see StampedLock
+ */
+
+public class ReadOptimizedJobManager {
+
+    private final JobManager jobs;
+    // the state of this; only mutated while holding the write lock of this.lock
+
+    private final StampedLock lock = new StampedLock();
+
+    private volatile PersistentIntMap<IntSortedSet> robots = PersistentIntMap.empty();
+    // maps the id of every robot in this.jobs to its job set in this.jobs.robotToJobs, for optimistic readers;
+    // replaced by writers while they hold the write lock of this.lock, and never changed once it is published
+
+    private static final AtomicLong CREATED = new AtomicLong();
+    // number of ReadOptimizedJobManagers created so far
+
+    private final long sequence = CREATED.getAndIncrement();
+    // distinct number of this among all ReadOptimizedJobManagers; equals locks the manager with the lower number first
+
+    /**
+     * How does our data representation (jobs, lock, robots) represent a JobManager?
+     *
+     * (1) This represents the same JobManager as this.jobs.
+     * (2) this.jobs satisfies its representation invariant whenever the write lock of this.lock is not held.
+     * (3) this.robots maps the id of every robot in this.jobs, and no other key, to the same IntSortedSet as
+     *     this.jobs.robotToJobs whenever the write lock of this.lock is not held.
+     */
+
+    /**
+     * Creates a new ReadOptimizedJobManager to manage n jobs with job IDs [1,...,n], which verifies its representation
+     * invariant incrementally after every write.
+     *
+     * @param n
+     * @throws IllegalArgumentException if n < 1
+     */
+    public ReadOptimizedJobManager(int n) {
+        this(n, JobManager.CheckLevel.INCREMENTAL);
+    }
+
+    /**
+     * Creates a new ReadOptimizedJobManager to manage n jobs with job IDs [1,...,n], which verifies its representation
+     * invariant at the specified level after every write.
+     *
+     * @param n
+     * @param checkLevel
+     * @throws IllegalArgumentException if n < 1 or checkLevel is null
+     */
+    public ReadOptimizedJobManager(int n, JobManager.CheckLevel checkLevel) {
+        this.jobs = new JobManager(n, checkLevel);
+    }
+
+    /**
+     * Checks if this ReadOptimizedJobManager has the specified Robot
+     *
+     * @param robot
+     * @return true if robot is now in this, and false otherwise
+     */
+    public boolean hasRobot(Robot robot) {
+        if (robot == null || robot.isNull()) { return false; }
+        // the published robot table is never changed, so reading it needs neither a stamp nor a lock
+        return this.robots.get(robot.id) != null;
+    }
+
+    /**
+     * Adds the specified Robot to this ReadOptimizedJobManager
+     *
+     * @param robot
+     * @return true if this formerly did not have robot but now does, and false otherwise
+     */
+    public boolean addRobot(Robot robot) {
+        long stamp = this.lock.writeLock();
+        try {
+            boolean added = this.jobs.addRobot(robot);
+            if (added) {
+                this.robots = this.robots.put(robot.id, this.jobs.robotToJobs.get(robot));
+            }
+            return added;
+        }
+        finally {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes the specified robot from this ReadOptimizedJobManager
+     *
+     * @param robot
+     * @return true if this formerly did have robot but now does not, and false otherwise
+     * @post All jobs formerly assigned to this robot are now unassigned
+     */
+    public boolean removeRobot(Robot robot) {
+        long stamp = this.lock.writeLock();
+        try {
+            boolean removed = this.jobs.removeRobot(robot);
+            if (removed) { this.robots = this.robots.remove(robot.id); }
+            return removed;
+        }
+        finally {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Assigns all unassigned jobs managed by this ReadOptimizedJobManager with an id <= the specified id to the
+     * specified robot when this has the specified robot
+     *
+     * @param robot
+     * @param jobId
+     * @return true if both of the following hold true: (1) this has robot, and (2) all formerly unassigned jobs managed
+     *         by this whose id <= jobId are now assigned to robot; and false otherwise
+     */
+    public boolean assignJobs(Robot robot, int jobId) {
+        long stamp = this.lock.writeLock();
+        try {
+            return this.jobs.assignJobs(robot, jobId);
+        }
+        finally {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Extends the jobs managed by this ReadOptimizedJobManager from [1,...,n] to [1,...,n + k], where the k new jobs
+     * are unassigned
+     *
+     * @param k
+     * @return the new value of n
+     * @throws IllegalArgumentException if k < 0 or n + k > Integer.MAX_VALUE
+     * @see JobManager#addJobs(int)
+     */
+    public int addJobs(int k) {
+        long stamp = this.lock.writeLock();
+        try {
+            return this.jobs.addJobs(k);
+        }
+        finally {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Completes the job with the specified id, so that this ReadOptimizedJobManager no longer manages it
+     *
+     * @param jobId
+     * @return true if a job with id = jobId was managed by this and is now completed, and false otherwise
+     * @see JobManager#completeJob(int)
+     */
+    public boolean completeJob(int jobId) {
+        long stamp = this.lock.writeLock();
+        try {
+            return this.jobs.completeJob(jobId);
+        }
+        finally {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Completes every job with an id <= the specified id that is assigned to the specified robot in this
+     * ReadOptimizedJobManager
+     *
+     * @param robot
+     * @param upTo
+     * @return the number of jobs completed
+     * @see JobManager#completeJobs(Robot, int)
+     */
+    public int completeJobs(Robot robot, int upTo) {
+        long stamp = this.lock.writeLock();
+        try {
+            return this.jobs.completeJobs(robot, upTo);
+        }
+        finally {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Releases the storage that this ReadOptimizedJobManager no longer needs after jobs were completed or moved
+     *
+     * @see JobManager#compact()
+     */
+    public void compact() {
+        long stamp = this.lock.writeLock();
+        try {
+            this.jobs.compact();
+        }
+        finally {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Checks if a specified job is assigned to a robot managed by this ReadOptimizedJobManager
+     *
+     * @param jobId
+     * @return true if both of the following hold true: (1) a job with id = jobId is managed by this, and (2) that
+     *         job is assigned to a robot in this; and false otherwise
+     */
+    public boolean isAssigned(int jobId) {
+        return owner(jobId) != null;
+    }
+
+    /**
+     * Gets the Robot in this ReadOptimizedJobManager assigned the job with the specified id
+     *
+     * @param jobId
+     * @return the Robot assigned job with id = jobId if both of the following hold true: (1) a job with id = JobId is
+     *         managed by this, and (2) that job is assigned to Robot in this; and a Null Robot otherwise
+     */
+    public Robot getRobot(int jobId) {
+        Robot robot = owner(jobId);
+        return robot == null ? Robot.NULL : robot;
+    }
+
+    /**
+     * Moves all jobs managed by this ReadOptimizedJobManager with an id <= the specified id that were assigned to a
+     * specified robot to another specified robot when this has both specified robots
+     *
+     * @param srcRobot
+     * @param dstRobot
+     * @param jobId
+     * @return true if both of the following hold true: (1) this has srcRobot & dstRobot, and (2) all jobs managed by
+     *         this with id <= jobId that were formerly assigned to srcRobot are now assigned to dstRobot;
+     *         and false otherwise
+     */
+    public boolean moveJobs(Robot srcRobot, Robot dstRobot, int jobId) {
+        long stamp = this.lock.writeLock();
+        try {
+            boolean moved = this.jobs.moveJobs(srcRobot, dstRobot, jobId);
+            refreshRobot(srcRobot);
+            refreshRobot(dstRobot);
+            return moved;
+        }
+        finally {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Moves all jobs managed by this ReadOptimizedJobManager from a specified robot to another specified robot when
+     * this has both specified robots
+     *
+     * @param srcRobot
+     * @param dstRobot
+     * @return true if both of the following hold true: (1) this has srcRobot & dstRobot, and (2) all jobs managed by
+     *         this that were formerly assigned to srcRobot are now assigned to dstRobot; and false otherwise
+     */
+    public boolean moveJobs(Robot srcRobot, Robot dstRobot) {
+        long stamp = this.lock.writeLock();
+        try {
+            boolean moved = this.jobs.moveJobs(srcRobot, dstRobot);
+            refreshRobot(srcRobot);
+            refreshRobot(dstRobot);
+            return moved;
+        }
+        finally {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Gets the highest priority job assigned to a specified robot in this ReadOptimizedJobManager with id <= a
+     * specified id when this has the specified robot
+     *
+     * @param robot
+     * @param jobId
+     * @return the id of the highest priority job assigned to robot with id <= jobId; or a null job id of 0 if either no
+     *         such job or robot exists in this
+     */
+    public int getHighestPriorityJob(Robot robot, int jobId) {
+        if (robot == null || robot.isNull()) { return 0; }
+        if (jobId < 1) { return 0; }
+        long stamp = this.lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                int result = floorJob(robot, jobId);
+                if (this.lock.validate(stamp)) { return result; }
+            }
+            catch (RuntimeException e) {
+                // the read overlapped a write and saw a torn state; retry under the read lock
+            }
+        }
+        stamp = this.lock.readLock();
+        try {
+            return floorJob(robot, jobId);
+        }
+        finally {
+            this.lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Removes the highest priority job with id <= a specified id assigned to a specified robot in this
+     * ReadOptimizedJobManager and completes it
+     *
+     * @param robot
+     * @param maxId
+     * @return the id of the job removed from robot; or a null job id of 0 if either no such job or robot exists in
+     *         this
+     * @see JobManager#pollHighestPriorityJob(Robot, int)
+     */
+    public int pollHighestPriorityJob(Robot robot, int maxId) {
+        long stamp = this.lock.writeLock();
+        try {
+            return this.jobs.pollHighestPriorityJob(robot, maxId);
+        }
+        finally {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes up to a specified number of the highest priority jobs assigned to a specified robot in this
+     * ReadOptimizedJobManager and completes them
+     *
+     * @param robot
+     * @param count
+     * @param into the array to write the ids of the removed jobs to, in decreasing priority from index 0
+     * @return the number of jobs removed from robot
+     * @throws IllegalArgumentException if into is null, or count < 0 or count > into.length
+     * @see JobManager#pollBatch(Robot, int, int[])
+     */
+    public int pollBatch(Robot robot, int count, int[] into) {
+        long stamp = this.lock.writeLock();
+        try {
+            return this.jobs.pollBatch(robot, count, into);
+        }
+        finally {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Gets the highest priority unassigned job in this ReadOptimizedJobManager
+     *
+     * The scan updates the scan hints of the unassigned jobs, so unlike the lookups of a single job it never runs
+     * optimistically. Readers that hold the read lock at the same time may race on the hints, which is benign: the
+     * jobs cannot change while the read lock is held, and every value a reader stores is a valid hint for them.
+     *
+     * @see JobSet#nextSetBit(int)
+     *
+     * @return the id of the highest priority unassigned job in this, or a null job id of 0 if there is none
+     * @see JobManager#peekHighestUnassigned()
+     */
+    public int peekHighestUnassigned() {
+        long stamp = this.lock.readLock();
+        try {
+            return this.jobs.peekHighestUnassigned();
+        }
+        finally {
+            this.lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Counts the unassigned jobs in this ReadOptimizedJobManager with ids in [lo,...,hi]
+     *
+     * @param lo
+     * @param hi
+     * @return the number of unassigned jobs with ids in [lo,...,hi], or 0 if lo > hi
+     * @see JobManager#countUnassigned(int, int)
+     */
+    public int countUnassigned(int lo, int hi) {
+        // like peekHighestUnassigned(), this may update the scan hints of the unassigned jobs under the read lock
+        long stamp = this.lock.readLock();
+        try {
+            return this.jobs.countUnassigned(lo, hi);
+        }
+        finally {
+            this.lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Counts the jobs assigned to a specified robot in this ReadOptimizedJobManager
+     *
+     * @param robot
+     * @return the number of jobs assigned to robot, or 0 if this does not have robot
+     * @see JobManager#jobCount(Robot)
+     */
+    public int jobCount(Robot robot) {
+        long stamp = this.lock.readLock();
+        try {
+            return this.jobs.jobCount(robot);
+        }
+        finally {
+            this.lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Gets the load statistics of this ReadOptimizedJobManager, all taken while no writer may change this
+     *
+     * @return the current load statistics of this
+     * @see JobManager#stats()
+     */
+    public LoadStats stats() {
+        long stamp = this.lock.readLock();
+        try {
+            return this.jobs.stats();
+        }
+        finally {
+            this.lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Assigns up to a specified number of the highest priority unassigned jobs in this ReadOptimizedJobManager to a
+     * specified robot when this has the specified robot
+     *
+     * @param robot
+     * @param k
+     * @return the number of jobs assigned to robot, or 0 if this does not have robot
+     * @throws IllegalArgumentException if k < 0
+     * @see JobManager#assignTopK(Robot, int)
+     */
+    public int assignTopK(Robot robot, int k) {
+        long stamp = this.lock.writeLock();
+        try {
+            return this.jobs.assignTopK(robot, k);
+        }
+        finally {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Spreads every unassigned job in this ReadOptimizedJobManager across the robots in this according to the specified
+     * strategy
+     *
+     * @param strategy
+     * @return the number of jobs assigned
+     * @throws IllegalArgumentException if strategy is null
+     * @see JobManager#rebalance(JobManager.Strategy)
+     */
+    public int rebalance(JobManager.Strategy strategy) {
+        long stamp = this.lock.writeLock();
+        try {
+            return this.jobs.rebalance(strategy);
+        }
+        finally {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Compares the specified object with this ReadOptimizedJobManager for equality
+     *
+     * @param o
+     * @return true iff o is a ReadOptimizedJobManager and (1) this and o have the same pool of Robots as determined by
+     *         id, (2) each Robot in this is assigned the same jobs as its equivalent Robot in o, and (3) this and o have
+     *         the same unassigned jobs
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof ReadOptimizedJobManager)) { return false; }
+        ReadOptimizedJobManager other = (ReadOptimizedJobManager) o;
+        if (other == this) { return true; }
+        // a new reader waits behind a queued writer, so two equals calls that took the read locks in opposite orders
+        // could each wait for a writer blocked by the other; both managers are locked in the order of their distinct
+        // sequence numbers instead
+        ReadOptimizedJobManager first = this.sequence < other.sequence ? this : other;
+        ReadOptimizedJobManager second = first == this ? other : this;
+        long firstStamp = first.lock.readLock();
+        try {
+            long secondStamp = second.lock.readLock();
+            try {
+                return this.jobs.equals(other.jobs);
+            }
+            finally {
+                second.lock.unlockRead(secondStamp);
+            }
+        }
+        finally {
+            first.lock.unlockRead(firstStamp);
+        }
+    }
+
+    /**
+     * Returns the hashcode for this ReadOptimizedJobManager
+     *
+     * @return the hashcode of the JobManager that this represents
+     * @see JobManager#hashCode()
+     */
+    @Override
+    public int hashCode() {
+        long stamp = this.lock.readLock();
+        try {
+            return this.jobs.hashCode();
+        }
+        finally {
+            this.lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Checks the representation invariant of this while no writer may change this
+     *
+     * @throws AssertionError if the representation invariant is violated
+     */
+    public void checkRep() {
+        long stamp = this.lock.readLock();
+        try {
+            this.jobs.checkRep();
+        }
+        finally {
+            this.lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Gets the robot assigned the job with the specified id, reading optimistically first
+     *
+     * @param jobId
+     * @return the robot assigned job jobId, or null if there is no such job or it is unassigned
+     */
+    private Robot owner(int jobId) {
+        long stamp = this.lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                Robot result = this.jobs.ownerOf(jobId);
+                if (this.lock.validate(stamp)) { return result; }
+            }
+            catch (RuntimeException e) {
+                // the read overlapped a write and saw a torn state; retry under the read lock
+            }
+        }
+        stamp = this.lock.readLock();
+        try {
+            return this.jobs.ownerOf(jobId);
+        }
+        finally {
+            this.lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Runs the specified read of the JobManager of this and of the published robot table under a single optimistic
+     * stamp, for tests that check what optimistic readers can observe
+     *
+     * @param read may only use lookups that terminate on a torn state, and must not change anything
+     * @return the result of read if no write overlapped it, or null otherwise
+     */
+    <T> T readOptimistically(BiFunction<JobManager, PersistentIntMap<IntSortedSet>, T> read) {
+        long stamp = this.lock.tryOptimisticRead();
+        if (stamp == 0) { return null; }
+        try {
+            T result = read.apply(this.jobs, this.robots);
+            return this.lock.validate(stamp) ? result : null;
+        }
+        catch (RuntimeException e) {
+            // the read overlapped a write and saw a torn state
+            return null;
+        }
+    }
+
+    private int floorJob(Robot robot, int jobId) {
+        IntSortedSet jobs = this.robots.get(robot.id);
+        return jobs == null ? 0 : Math.max(jobs.floor(jobId), 0);
+    }
+
+    /**
+     * Publishes a new robot table if the job set of the specified robot is no longer the one in the published table,
+     * e.g., because moving all jobs of the robot swapped its job set with another robot's, while holding the write lock
+     *
+     * @param robot
+     */
+    private void refreshRobot(Robot robot) {
+        if (robot == null || robot.isNull()) { return; }
+        IntSortedSet jobs = this.jobs.robotToJobs.get(robot);
+        if (jobs != null && this.robots.get(robot.id) != jobs) { this.robots = this.robots.put(robot.id, jobs); }
+    }
+}
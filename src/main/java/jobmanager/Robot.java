@@ -1,15 +1,37 @@
 package jobmanager;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
 /**
  * This immutable class represents a real-world Robot, which has a unique positive integer id. Any Robot instance with
  * id = 0 does not represent a real-world robot and is called a Null Robot. No Null Robot is equal to any other
  * robot -- not even to other Null Robots.
+ *
+ * Robot.of(id) returns one shared instance per id, so code that looks robots up by id on a hot path does not allocate.
+ * Instances for ids below 2^14 are kept in an array indexed by id and the rest in a concurrent map; both are filled on
+ * first use and never emptied, so Robot.of is meant for robots that are kept, such as robots being added, and not for
+ * probing ids that may not belong to any robot.
  */
 
 public class Robot{
 
     public final int id;
 
+    /**
+     * The shared Null Robot returned by Robot.of(0). Like every Null Robot, it is not equal to any robot, itself
+     * included.
+     */
+    public static final Robot NULL = new Robot(0);
+
+    private static final int DENSE_IDS = 1 << 14;
+
+    private static final AtomicReferenceArray<Robot> DENSE = new AtomicReferenceArray<>(DENSE_IDS);
+    // DENSE[id] is the shared Robot with that id, or null if it was never requested
+
+    private static final ConcurrentHashMap<Integer, Robot> SPARSE = new ConcurrentHashMap<>();
+    // maps: id >= DENSE_IDS --> the shared Robot with that id
+
     /**
      * Creates a new Robot with the specified id.
      *
@@ -24,6 +46,28 @@ public class Robot{
         this.id = id;
     }
 
+    /**
+     * Gets the shared Robot with the specified id, creating it on first use
+     *
+     * Every call with the same id returns the same instance, and the shared Null Robot for id = 0.
+     *
+     * @param id
+     * @return the shared Robot with the specified id
+     * @throws IllegalArgumentException if id < 0
+     */
+    public static Robot of(int id) {
+        if (id == 0) { return NULL; }
+        if (id < 0) { throw new IllegalArgumentException("Robot id must be strictly positive or 0 for a Null Robot"); }
+        if (id >= DENSE_IDS) { return SPARSE.computeIfAbsent(id, Robot::new); }
+        Robot robot = DENSE.get(id);
+        if (robot == null) {
+            // racing callers agree on whichever instance is published first
+            DENSE.compareAndSet(id, null, new Robot(id));
+            robot = DENSE.get(id);
+        }
+        return robot;
+    }
+
     /**
      * Checks if this Robot is a Null Robot
      *
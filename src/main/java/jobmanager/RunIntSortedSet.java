@@ -0,0 +1,386 @@
+package jobmanager;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * This mutable class is an IntSortedSet that stores its ids as a sorted array of runs. Each run costs two ints no matter
+ * how many ids it covers, so a set made of a few long ranges of ids stays a few ints in size.
+ *
+ * Lookups binary search the runs. Range insertion & removal shift the tail of the run array once, and merging two sets
+ * walks both run arrays once. The sums behind fingerprint() are updated run by run with closed formulas, so keeping
+ * them costs nothing beyond the runs each operation already visits.
+ */
+
+public class RunIntSortedSet implements IntSortedSet {
+
+    int[] bounds;
+    // bounds[2 * i] and bounds[2 * i + 1] are the lowest and highest ids of run i
+
+    int runs;
+    // number of runs in this
+
+    int size;
+    // number of ids in this
+
+    long idSum;
+    long squareSum;
+    // sum of the ids in this and sum of their squares, both modulo 2^64
+
+    /**
+     * How does our data representation (bounds, runs, size, idSum, squareSum) represent a RunIntSortedSet?
+     *
+     * (1) An id Z is in this iff bounds[2 * i] <= Z <= bounds[2 * i + 1] for some i in [0,...,runs - 1].
+     * (2) 0 <= bounds[2 * i] <= bounds[2 * i + 1] for every run i.
+     * (3) bounds[2 * i + 1] + 1 < bounds[2 * i + 2] for every pair of runs i, i + 1, i.e., runs are sorted, disjoint
+     *     and not adjacent.
+     * (4) this.size is the sum of (bounds[2 * i + 1] - bounds[2 * i] + 1) over every run i.
+     * (5) this.idSum and this.squareSum are the sums of Z and of Z * Z over every id Z in this, modulo 2^64.
+     */
+
+    /**
+     * Creates a new, empty RunIntSortedSet
+     */
+    public RunIntSortedSet() {
+        this.bounds = new int[4];
+    }
+
+    /**
+     * Creates a new RunIntSortedSet holding the same ids as the specified set
+     *
+     * @param other
+     */
+    public RunIntSortedSet(IntSortedSet other) {
+        this.bounds = new int[Math.max(4, 2 * other.runCount())];
+        for (int i = 0; i < other.runCount(); i++) {
+            this.bounds[2 * i] = other.runLo(i);
+            this.bounds[2 * i + 1] = other.runHi(i);
+            addSums(other.runLo(i), other.runHi(i), 1);
+        }
+        this.runs = other.runCount();
+        this.size = other.size();
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    @Override
+    public boolean contains(int id) {
+        int run = floorRun(id);
+        return run >= 0 && this.bounds[2 * run + 1] >= id;
+    }
+
+    @Override
+    public boolean add(int id) {
+        return addRange(id, id) == 1;
+    }
+
+    @Override
+    public boolean remove(int id) {
+        return removeRange(id, id) == 1;
+    }
+
+    @Override
+    public int addRange(int lo, int hi) {
+        if (lo > hi) { return 0; }
+        if (lo < 0) { throw new IllegalArgumentException("ids must be non-negative: " + lo); }
+        // runs first,...,last either overlap [lo,...,hi] or are adjacent to it, and merge with it into one run
+        int first = floorRun(lo - 1);
+        if (first < 0 || this.bounds[2 * first + 1] < lo - 1) { first++; }
+        int last = hi == Integer.MAX_VALUE ? this.runs - 1 : floorRun(hi + 1);
+        int covered = 0;
+        for (int i = first; i <= last; i++) {
+            covered += this.bounds[2 * i + 1] - this.bounds[2 * i] + 1;
+            addSums(this.bounds[2 * i], this.bounds[2 * i + 1], -1);
+        }
+        int newLo = first <= last ? Math.min(lo, this.bounds[2 * first]) : lo;
+        int newHi = first <= last ? Math.max(hi, this.bounds[2 * last + 1]) : hi;
+        addSums(newLo, newHi, 1);
+        replaceRuns(first, last, newLo, newHi, 1);
+        int added = (newHi - newLo + 1) - covered;
+        this.size += added;
+        return added;
+    }
+
+    @Override
+    public int removeRange(int lo, int hi) {
+        lo = Math.max(lo, 0);
+        if (lo > hi || this.runs == 0) { return 0; }
+        // runs first,...,last overlap [lo,...,hi]
+        int first = floorRun(lo);
+        if (first < 0 || this.bounds[2 * first + 1] < lo) { first++; }
+        int last = floorRun(hi);
+        if (first > last) { return 0; }
+        int leftLo = this.bounds[2 * first];
+        int rightHi = this.bounds[2 * last + 1];
+        int removed = 0;
+        for (int i = first; i <= last; i++) {
+            removed += Math.min(hi, this.bounds[2 * i + 1]) - Math.max(lo, this.bounds[2 * i]) + 1;
+            addSums(Math.max(lo, this.bounds[2 * i]), Math.min(hi, this.bounds[2 * i + 1]), -1);
+        }
+        if (leftLo < lo && rightHi > hi) {
+            replaceRuns(first, last, leftLo, lo - 1, 2);
+            this.bounds[2 * first + 2] = hi + 1;
+            this.bounds[2 * first + 3] = rightHi;
+        }
+        else if (leftLo < lo) {
+            replaceRuns(first, last, leftLo, lo - 1, 1);
+        }
+        else if (rightHi > hi) {
+            replaceRuns(first, last, hi + 1, rightHi, 1);
+        }
+        else {
+            replaceRuns(first, last, 0, 0, 0);
+        }
+        this.size -= removed;
+        return removed;
+    }
+
+    @Override
+    public int addAll(IntSortedSet other) {
+        if (other.isEmpty() || other == this) { return 0; }
+        if (this.runs == 0) {
+            this.bounds = new int[Math.max(4, 2 * other.runCount())];
+            for (int i = 0; i < other.runCount(); i++) {
+                this.bounds[2 * i] = other.runLo(i);
+                this.bounds[2 * i + 1] = other.runHi(i);
+                addSums(other.runLo(i), other.runHi(i), 1);
+            }
+            this.runs = other.runCount();
+            this.size = other.size();
+            return this.size;
+        }
+        // linear merge of both run lists, coalescing runs that overlap or touch
+        int[] merged = new int[2 * (this.runs + other.runCount())];
+        int count = 0;
+        int mergedSize = 0;
+        int i = 0;
+        int j = 0;
+        while (i < this.runs || j < other.runCount()) {
+            int lo;
+            int hi;
+            if (j == other.runCount() || (i < this.runs && this.bounds[2 * i] <= other.runLo(j))) {
+                lo = this.bounds[2 * i];
+                hi = this.bounds[2 * i + 1];
+                i++;
+            }
+            else {
+                lo = other.runLo(j);
+                hi = other.runHi(j);
+                j++;
+            }
+            if (count > 0 && (long) merged[2 * count - 1] + 1 >= lo) {
+                if (hi > merged[2 * count - 1]) {
+                    mergedSize += hi - merged[2 * count - 1];
+                    merged[2 * count - 1] = hi;
+                }
+            }
+            else {
+                merged[2 * count] = lo;
+                merged[2 * count + 1] = hi;
+                mergedSize += hi - lo + 1;
+                count++;
+            }
+        }
+        int added = mergedSize - this.size;
+        this.bounds = merged;
+        this.runs = count;
+        this.size = mergedSize;
+        this.idSum = 0;
+        this.squareSum = 0;
+        for (int run = 0; run < count; run++) {
+            addSums(merged[2 * run], merged[2 * run + 1], 1);
+        }
+        return added;
+    }
+
+    @Override
+    public void clear() {
+        this.runs = 0;
+        this.size = 0;
+        this.idSum = 0;
+        this.squareSum = 0;
+    }
+
+    @Override
+    public void trimToSize() {
+        if (this.bounds.length > Math.max(4, 2 * this.runs)) {
+            this.bounds = Arrays.copyOf(this.bounds, Math.max(4, 2 * this.runs));
+        }
+    }
+
+    @Override
+    public int first() {
+        if (this.runs == 0) { throw new NoSuchElementException(); }
+        return this.bounds[0];
+    }
+
+    @Override
+    public int last() {
+        if (this.runs == 0) { throw new NoSuchElementException(); }
+        return this.bounds[2 * this.runs - 1];
+    }
+
+    @Override
+    public int floor(int id) {
+        int run = floorRun(id);
+        if (run < 0) { return -1; }
+        return Math.min(id, this.bounds[2 * run + 1]);
+    }
+
+    @Override
+    public int runCount() {
+        return this.runs;
+    }
+
+    @Override
+    public int runLo(int run) {
+        checkRun(run);
+        return this.bounds[2 * run];
+    }
+
+    @Override
+    public int runHi(int run) {
+        checkRun(run);
+        return this.bounds[2 * run + 1];
+    }
+
+    @Override
+    public long fingerprint() {
+        // (size, sum, sum of squares) is mixed into one value; any two sets with equal triples agree
+        long h = this.size * 0x9E3779B97F4A7C15L;
+        h = (h ^ (h >>> 29) ^ this.idSum) * 0xBF58476D1CE4E5B9L;
+        return (h ^ (h >>> 32) ^ this.squareSum) * 0x94D049BB133111EBL;
+    }
+
+    @Override
+    public IntSortedSet copy() {
+        return new RunIntSortedSet(this);
+    }
+
+    /**
+     * Compares the specified object with this set for equality
+     *
+     * @param o
+     * @return true iff o is an IntSortedSet holding exactly the same ids as this
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof IntSortedSet)) { return false; }
+        IntSortedSet other = (IntSortedSet) o;
+        if (this.size != other.size() || this.runs != other.runCount()) { return false; }
+        for (int i = 0; i < this.runs; i++) {
+            if (this.bounds[2 * i] != other.runLo(i) || this.bounds[2 * i + 1] != other.runHi(i)) { return false; }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the hashcode for this set
+     *
+     * @return a hashcode value that depends only on the ids in this
+     */
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        for (int i = 0; i < 2 * this.runs; i++) {
+            hash = 31 * hash + this.bounds[i];
+        }
+        return hash;
+    }
+
+    /**
+     * Returns a string representation of this set
+     *
+     * @return the runs of this in increasing order, e.g., "[1..3, 7]"
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < this.runs; i++) {
+            if (i > 0) { sb.append(", "); }
+            sb.append(this.bounds[2 * i]);
+            if (this.bounds[2 * i + 1] != this.bounds[2 * i]) { sb.append("..").append(this.bounds[2 * i + 1]); }
+        }
+        return sb.append(']').toString();
+    }
+
+    /**
+     * Finds the run with the highest lowest id that is <= the specified id
+     *
+     * @param id
+     * @return the index of that run, or -1 if every run starts above id
+     */
+    private int floorRun(int id) {
+        int lo = 0;
+        int hi = this.runs - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (this.bounds[2 * mid] <= id) { lo = mid + 1; }
+            else { hi = mid - 1; }
+        }
+        return hi;
+    }
+
+    /**
+     * Replaces runs first,...,last (none if first > last) with count new runs, the first of which is [lo,...,hi]; the
+     * bounds of any second new run are left for the caller to fill in
+     */
+    private void replaceRuns(int first, int last, int lo, int hi, int count) {
+        int removed = Math.max(0, last - first + 1);
+        int newRuns = this.runs - removed + count;
+        if (2 * newRuns > this.bounds.length) {
+            this.bounds = Arrays.copyOf(this.bounds, Math.max(2 * newRuns, 2 * this.bounds.length));
+        }
+        int tail = first + removed;
+        System.arraycopy(this.bounds, 2 * tail, this.bounds, 2 * (first + count), 2 * (this.runs - tail));
+        if (count > 0) {
+            this.bounds[2 * first] = lo;
+            this.bounds[2 * first + 1] = hi;
+        }
+        this.runs = newRuns;
+    }
+
+    /**
+     * Adds the sums of the ids in [lo,...,hi] and of their squares to the sums of this, multiplied by sign
+     *
+     * @param lo
+     * @param hi
+     * @param sign 1 to add the ids, or -1 to subtract them
+     */
+    private void addSums(int lo, int hi, int sign) {
+        this.idSum += sign * (prefixSum(hi) - prefixSum(lo - 1L));
+        this.squareSum += sign * (prefixSquareSum(hi) - prefixSquareSum(lo - 1L));
+    }
+
+    /**
+     * Computes 0 + 1 + ... + m exactly, modulo 2^64
+     */
+    private static long prefixSum(long m) {
+        return m % 2 == 0 ? (m / 2) * (m + 1) : m * ((m + 1) / 2);
+    }
+
+    /**
+     * Computes 0 + 1 + 4 + ... + m * m = m (m + 1) (2m + 1) / 6 exactly, modulo 2^64, by dividing the factors before
+     * they are multiplied
+     */
+    private static long prefixSquareSum(long m) {
+        long a = m;
+        long b = m + 1;
+        long c = 2 * m + 1;
+        if (a % 2 == 0) { a /= 2; } else { b /= 2; }
+        if (a % 3 == 0) { a /= 3; } else if (b % 3 == 0) { b /= 3; } else { c /= 3; }
+        return a * b * c;
+    }
+
+    private void checkRun(int run) {
+        if (run < 0 || run >= this.runs) { throw new IndexOutOfBoundsException("run " + run + " of " + this.runs); }
+    }
+}
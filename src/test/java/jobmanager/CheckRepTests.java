@@ -2,9 +2,6 @@ package jobmanager;
 
 import org.junit.jupiter.api.Test;
 
-import java.util.Comparator;
-import java.util.TreeSet;
-
 import static org.junit.jupiter.api.Assertions.*;
 
 public class CheckRepTests {
@@ -29,11 +26,8 @@ public class CheckRepTests {
     @Test
     public void test_checkRep3() {
         JobManager jm = new JobManager(1);
-        jm.n = 1;
-        jm.unassignedJobs.clear();
-        jm.robotToJobs.clear();
-        jm.robotToJobs.put(new Robot(1), new TreeSet<>());
-        jm.robotToJobs.get(new Robot(1)).add(1);
+        jm.addRobot(new Robot(1));
+        jm.assignJobs(new Robot(1), 1);
         assertDoesNotThrow(() -> {jm.checkRep();});
     }
 
@@ -52,7 +46,7 @@ public class CheckRepTests {
         jm.n = 1;
         jm.unassignedJobs.clear();
         jm.robotToJobs.clear();
-        jm.robotToJobs.put(new Robot(0), new TreeSet<>());
+        jm.robotToJobs.put(new Robot(0), new RunIntSortedSet());
         assertThrows(AssertionError.class, () -> {jm.checkRep();});
     }
 
@@ -63,7 +57,7 @@ public class CheckRepTests {
         jm.unassignedJobs.clear();
         jm.unassignedJobs.add(1);
         jm.robotToJobs.clear();
-        jm.robotToJobs.put(new Robot(1), new TreeSet<>());
+        jm.robotToJobs.put(new Robot(1), new RunIntSortedSet());
         jm.robotToJobs.get(new Robot(1)).add(1);
         assertThrows(AssertionError.class, () -> {jm.checkRep();});
     }
@@ -75,7 +69,7 @@ public class CheckRepTests {
         jm.unassignedJobs.clear();
         jm.unassignedJobs.add(1);
         jm.robotToJobs.clear();
-        jm.robotToJobs.put(new Robot(1), new TreeSet<>());
+        jm.robotToJobs.put(new Robot(1), new RunIntSortedSet());
         jm.robotToJobs.get(new Robot(1)).add(1);
         assertThrows(AssertionError.class, () -> {jm.checkRep();});
     }
@@ -87,9 +81,9 @@ public class CheckRepTests {
         jm.unassignedJobs.clear();
         jm.unassignedJobs.add(2);
         jm.robotToJobs.clear();
-        jm.robotToJobs.put(new Robot(1), new TreeSet<>());
+        jm.robotToJobs.put(new Robot(1), new RunIntSortedSet());
         jm.robotToJobs.get(new Robot(1)).add(1);
-        jm.robotToJobs.put(new Robot(2), new TreeSet<>());
+        jm.robotToJobs.put(new Robot(2), new RunIntSortedSet());
         jm.robotToJobs.get(new Robot(2)).add(1);
         assertThrows(AssertionError.class, () -> {jm.checkRep();});
     }
@@ -100,16 +94,12 @@ public class CheckRepTests {
         jm.n = 2;
         jm.unassignedJobs.clear();
         jm.robotToJobs.clear();
-        // this initializes the TreeSet to store the integers in non-increasing order
-        jm.robotToJobs.put(new Robot(1), new TreeSet<Integer>(new Comparator<Integer>()
-        {
-            public int compare(Integer i1,Integer i2)
-            {
-                return i2.compareTo(i1);
-            }
-        }));
-        jm.robotToJobs.get(new Robot(1)).add(1);
-        jm.robotToJobs.get(new Robot(1)).add(2);
+        // this stores the runs of the job set in decreasing order
+        RunIntSortedSet jobs = new RunIntSortedSet();
+        jobs.bounds = new int[] {2, 2, 1, 1};
+        jobs.runs = 2;
+        jobs.size = 2;
+        jm.robotToJobs.put(new Robot(1), jobs);
         assertThrows(AssertionError.class, () -> {jm.checkRep();});
 
     }
@@ -137,4 +127,82 @@ public class CheckRepTests {
         jm.unassignedJobs.add(0);
         assertThrows(AssertionError.class, () -> {jm.checkRep();});
     }
+
+    @Test
+    public void test_checkRep12() {
+        JobManager jm = new JobManager(1);
+        jm.n = 1;
+        jm.unassignedJobs.clear();
+        jm.robotToJobs.clear();
+        // the job sets are consistent, but the counters and the job owner index never saw the robot
+        jm.robotToJobs.put(new Robot(1), new RunIntSortedSet());
+        jm.robotToJobs.get(new Robot(1)).add(1);
+        assertThrows(AssertionError.class, () -> {jm.checkRep();});
+    }
+
+    @Test
+    public void test_checkRep13() {
+        JobManager jm = new JobManager(4);
+        jm.addRobot(new Robot(1));
+        jm.addRobot(new Robot(2));
+        jm.assignJobs(new Robot(1), 2);
+        jm.assignJobs(new Robot(2), 2);
+        // moving a job between the job sets behind the back of the job owner index
+        jm.robotToJobs.get(new Robot(1)).remove(1);
+        jm.robotToJobs.get(new Robot(2)).add(1);
+        assertThrows(AssertionError.class, () -> {jm.checkRep();});
+    }
+
+    @Test
+    public void test_checkRepIncremental1() {
+        JobManager jm = new JobManager(3, JobManager.CheckLevel.INCREMENTAL);
+        jm.addRobot(new Robot(1));
+        jm.addRobot(new Robot(2));
+        jm.assignJobs(new Robot(1), 2);
+        jm.moveJobs(new Robot(1), new Robot(2), 1);
+        jm.removeRobot(new Robot(1));
+        assertDoesNotThrow(() -> {jm.checkRep();});
+    }
+
+    @Test
+    public void test_checkRepIncremental2() {
+        JobManager jm = new JobManager(2, JobManager.CheckLevel.INCREMENTAL);
+        jm.unassignedJobs.remove(2);
+        assertThrows(AssertionError.class, () -> {jm.checkRep();});
+    }
+
+    @Test
+    public void test_checkRepOff() {
+        JobManager jm = new JobManager(2, JobManager.CheckLevel.OFF);
+        jm.n = 0;
+        assertDoesNotThrow(() -> {jm.checkRep();});
+        jm.setCheckLevel(JobManager.CheckLevel.FULL);
+        assertThrows(AssertionError.class, () -> {jm.checkRep();});
+    }
+
+    @Test
+    public void test_checkRepCompleted1() {
+        JobManager jm = new JobManager(4);
+        jm.addRobot(new Robot(1));
+        jm.assignJobs(new Robot(1), 2);
+        jm.completeJob(1);
+        jm.completeJob(3);
+        assertDoesNotThrow(() -> {jm.checkRep();});
+        // a completed job must not be unassigned as well
+        jm.unassignedJobs.add(3);
+        assertThrows(AssertionError.class, () -> {jm.checkRep();});
+    }
+
+    @Test
+    public void test_checkRepCompleted2() {
+        JobManager jm = new JobManager(3);
+        jm.addRobot(new Robot(1));
+        jm.completeJob(1);
+        // a completed job must not be assigned as well
+        jm.robotToJobs.get(new Robot(1)).add(1);
+        jm.unassignedJobs.clear();
+        jm.unassignedJobs.addRange(2, 3);
+        assertThrows(AssertionError.class, () -> {jm.checkRep();});
+    }
+
 }
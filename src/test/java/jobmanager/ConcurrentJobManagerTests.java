@@ -0,0 +1,114 @@
+package jobmanager;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrentJobManagerTests {
+
+    @Test
+    public void test_contract() {
+        ConcurrentJobManager jm = new ConcurrentJobManager(5);
+        assertTrue(jm.addRobot(new Robot(1)));
+        assertFalse(jm.addRobot(new Robot(1)));
+        assertTrue(jm.addRobot(new Robot(2)));
+        assertTrue(jm.assignJobs(new Robot(1), 3));
+        assertTrue(jm.isAssigned(3));
+        assertFalse(jm.isAssigned(4));
+        assertTrue(jm.moveJobs(new Robot(1), new Robot(2), 2));
+        assertEquals(new Robot(2), jm.getRobot(2));
+        assertEquals(new Robot(1), jm.getRobot(3));
+        assertEquals(3, jm.getHighestPriorityJob(new Robot(1), 5));
+        assertEquals(2, jm.getHighestPriorityJob(new Robot(2), 5));
+        assertTrue(jm.removeRobot(new Robot(1)));
+        assertFalse(jm.isAssigned(3));
+        assertSame(Robot.NULL, jm.getRobot(3));
+        assertSame(jm.getRobot(2), jm.getRobot(1));
+        assertFalse(jm.moveJobs(new Robot(1), new Robot(2)));
+        jm.checkRep();
+    }
+
+    @Test
+    public void test_equalsAndHashCode() {
+        ConcurrentJobManager jm1 = new ConcurrentJobManager(3);
+        ConcurrentJobManager jm2 = new ConcurrentJobManager(3);
+        jm1.addRobot(new Robot(2));
+        jm2.addRobot(new Robot(2));
+        jm1.assignJobs(new Robot(2), 1);
+        jm2.assignJobs(new Robot(2), 1);
+        assertEquals(jm1, jm2);
+        assertEquals(5, jm1.hashCode());
+        jm2.assignJobs(new Robot(2), 2);
+        assertNotEquals(jm1, jm2);
+    }
+
+    @Test
+    public void test_concurrentEqualsInBothDirections() throws Exception {
+        ConcurrentJobManager jm1 = new ConcurrentJobManager(100);
+        ConcurrentJobManager jm2 = new ConcurrentJobManager(100);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> forward = pool.submit(() -> {
+                for (int i = 0; i < 2_000; i++) {
+                    assertTrue(jm1.equals(jm2));
+                }
+            });
+            Future<?> backward = pool.submit(() -> {
+                for (int i = 0; i < 2_000; i++) {
+                    assertTrue(jm2.equals(jm1));
+                }
+            });
+            forward.get(30, TimeUnit.SECONDS);
+            backward.get(30, TimeUnit.SECONDS);
+        }
+        finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void test_concurrentMutations() throws Exception {
+        int n = 10_000;
+        int robots = 32;
+        ConcurrentJobManager jm = new ConcurrentJobManager(n);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int seed = t;
+                results.add(pool.submit(() -> {
+                    Random random = new Random(seed);
+                    for (int i = 0; i < 5_000; i++) {
+                        Robot robot = new Robot(1 + random.nextInt(robots));
+                        Robot other = new Robot(1 + random.nextInt(robots));
+                        switch (random.nextInt(5)) {
+                            case 0: jm.addRobot(robot); break;
+                            case 1: jm.removeRobot(robot); break;
+                            case 2: jm.assignJobs(robot, 1 + random.nextInt(n)); break;
+                            case 3: jm.moveJobs(robot, other, 1 + random.nextInt(n)); break;
+                            default: jm.moveJobs(robot, other); break;
+                        }
+                        int job = 1 + random.nextInt(n);
+                        Robot owner = jm.getRobot(job);
+                        assertTrue(owner.isNull() || owner.id <= robots);
+                    }
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        }
+        finally {
+            pool.shutdown();
+        }
+        assertDoesNotThrow(jm::checkRep);
+    }
+}
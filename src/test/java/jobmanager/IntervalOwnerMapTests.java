@@ -0,0 +1,199 @@
+package jobmanager;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IntervalOwnerMapTests {
+
+    @Test
+    public void test_setGet() {
+        IntervalOwnerMap map = new IntervalOwnerMap();
+        assertEquals(0, map.get(5));
+        map.set(1, 10, 2);
+        assertEquals(2, map.get(1));
+        assertEquals(2, map.get(10));
+        assertEquals(0, map.get(11));
+        assertEquals(10, map.ownedCount());
+        assertEquals("{1..10=2}", map.toString());
+    }
+
+    @Test
+    public void test_split() {
+        IntervalOwnerMap map = new IntervalOwnerMap();
+        map.set(1, 10, 2);
+        map.set(4, 6, 3);
+        assertEquals("{1..3=2, 4..6=3, 7..10=2}", map.toString());
+        map.set(5, 5, 0);
+        assertEquals("{1..3=2, 4=3, 6=3, 7..10=2}", map.toString());
+        assertEquals(9, map.ownedCount());
+    }
+
+    @Test
+    public void test_merge() {
+        IntervalOwnerMap map = new IntervalOwnerMap();
+        map.set(1, 3, 2);
+        map.set(7, 9, 2);
+        map.set(4, 6, 2);
+        assertEquals("{1..9=2}", map.toString());
+        assertEquals(1, map.intervalCount());
+        map.set(3, 7, 5);
+        map.set(2, 8, 2);
+        assertEquals("{1..9=2}", map.toString());
+        map.set(0, Integer.MAX_VALUE, 0);
+        assertEquals(0, map.intervalCount());
+        assertEquals(0, map.ownedCount());
+    }
+
+    @Test
+    public void test_segmentEnd() {
+        IntervalOwnerMap map = new IntervalOwnerMap();
+        assertEquals(Integer.MAX_VALUE, map.segmentEnd(0));
+        map.set(3, 4, 1);
+        map.set(5, 8, 2);
+        assertEquals(2, map.segmentEnd(0));
+        assertEquals(4, map.segmentEnd(3));
+        assertEquals(8, map.segmentEnd(5));
+        assertEquals(Integer.MAX_VALUE, map.segmentEnd(9));
+    }
+
+    @Test
+    public void test_intervals() {
+        IntervalOwnerMap map = new IntervalOwnerMap();
+        map.set(3, 4, 1);
+        map.set(8, 8, 2);
+        assertEquals(2, map.intervalCount());
+        assertEquals(8, map.intervalLo(1));
+        assertEquals(8, map.intervalHi(1));
+        assertEquals(2, map.intervalOwner(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> map.intervalLo(2));
+        assertThrows(IllegalArgumentException.class, () -> map.set(-1, 2, 1));
+    }
+
+    @Test
+    public void test_randomAgainstArray() {
+        Random random = new Random(12);
+        IntervalOwnerMap map = new IntervalOwnerMap();
+        int[] expected = new int[600];
+        for (int op = 0; op < 5000; op++) {
+            int lo = random.nextInt(expected.length);
+            int hi = Math.min(expected.length - 1, lo + random.nextInt(random.nextBoolean() ? 5 : 100));
+            int owner = random.nextInt(4);
+            map.set(lo, hi, owner);
+            for (int id = lo; id <= hi; id++) {
+                expected[id] = owner;
+            }
+            long owned = 0;
+            for (int id = 0; id < expected.length; id++) {
+                assertEquals(expected[id], map.get(id));
+                if (expected[id] != 0) { owned++; }
+            }
+            assertEquals(owned, map.ownedCount());
+            for (int i = 0; i < map.intervalCount(); i++) {
+                assertTrue(map.intervalOwner(i) > 0);
+                assertTrue(map.intervalLo(i) <= map.intervalHi(i));
+                if (i > 0) {
+                    assertTrue(map.intervalHi(i - 1) < map.intervalLo(i));
+                    assertFalse(map.intervalHi(i - 1) + 1 == map.intervalLo(i)
+                            && map.intervalOwner(i - 1) == map.intervalOwner(i));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void test_randomManyIntervals() {
+        // enough intervals of distinct owners to split, merge and drop many chunks
+        Random random = new Random(5);
+        IntervalOwnerMap map = new IntervalOwnerMap();
+        int[] expected = new int[5000];
+        for (int op = 0; op < 4000; op++) {
+            if (op % 500 == 499) {
+                int removedOwner = 1 + random.nextInt(40);
+                long removed = map.removeOwners(owner -> owner % 40 == removedOwner % 40);
+                long expectedRemoved = 0;
+                for (int id = 0; id < expected.length; id++) {
+                    if (expected[id] != 0 && expected[id] % 40 == removedOwner % 40) {
+                        expected[id] = 0;
+                        expectedRemoved++;
+                    }
+                }
+                assertEquals(expectedRemoved, removed);
+            }
+            else {
+                int lo = random.nextInt(expected.length);
+                int hi = Math.min(expected.length - 1, lo + random.nextInt(random.nextInt(10) == 0 ? 2000 : 4));
+                int owner = random.nextInt(5) == 0 ? 0 : 1 + random.nextInt(40);
+                map.set(lo, hi, owner);
+                for (int id = lo; id <= hi; id++) {
+                    expected[id] = owner;
+                }
+            }
+            if (op % 50 != 0) { continue; }
+            long owned = 0;
+            int intervals = 0;
+            for (int id = 0; id < expected.length; id++) {
+                assertEquals(expected[id], map.get(id));
+                int end = id;
+                while (end + 1 < expected.length && expected[end + 1] == expected[id]) { end++; }
+                int segmentEnd = map.segmentEnd(id);
+                assertEquals(end + 1 < expected.length || expected[id] != 0 ? end : Integer.MAX_VALUE, segmentEnd);
+                if (expected[id] != 0) { owned++; }
+                if (expected[id] != 0 && (id == 0 || expected[id - 1] != expected[id])) { intervals++; }
+            }
+            assertEquals(owned, map.ownedCount());
+            assertEquals(intervals, map.intervalCount());
+        }
+        map.trimToSize();
+        map.set(0, expected.length, 0);
+        assertEquals("{}", map.toString());
+        assertEquals(0, map.ownedCount());
+    }
+
+    @Test
+    public void test_setAll() {
+        IntervalOwnerMap map = new IntervalOwnerMap();
+        map.set(3, 4, 1);
+        map.set(9, 9, 2);
+        map.setAll(new int[] {1, 2, 5, 5, 7, 8, 10, 12}, new int[] {3, 1, 3, 2}, 4);
+        assertEquals("{1..2=3, 3..5=1, 7..8=3, 9..12=2}", map.toString());
+        assertEquals(11, map.ownedCount());
+        assertEquals(4, map.intervalCount());
+        assertThrows(IllegalArgumentException.class, () -> map.setAll(new int[] {6, 6, 12, 13}, new int[] {1, 1}, 2));
+        assertThrows(IllegalArgumentException.class, () -> map.setAll(new int[] {14, 14, 13, 13}, new int[] {1, 1}, 2));
+        assertEquals("{1..2=3, 3..5=1, 7..8=3, 9..12=2}", map.toString());
+        int[] bounds = new int[400];
+        int[] owners = new int[200];
+        for (int i = 0; i < 200; i++) {
+            bounds[2 * i] = 100 + 2 * i;
+            bounds[2 * i + 1] = 100 + 2 * i;
+            owners[i] = 1 + i % 3;
+        }
+        map.setAll(bounds, owners, 200);
+        assertEquals(204, map.intervalCount());
+        assertEquals(2, map.get(102));
+        assertEquals(0, map.get(103));
+        assertEquals(2, map.get(498));
+    }
+
+    @Test
+    public void test_removeOwners() {
+        IntervalOwnerMap map = new IntervalOwnerMap();
+        map.set(1, 3, 2);
+        map.set(4, 6, 3);
+        map.set(7, 9, 2);
+        map.set(12, 12, 4);
+        assertEquals(4, map.removeOwners(owner -> owner == 3 || owner == 4));
+        assertEquals("{1..3=2, 7..9=2}", map.toString());
+        assertEquals(6, map.ownedCount());
+        assertEquals(0, map.get(5));
+        map.set(4, 6, 2);
+        assertEquals("{1..9=2}", map.toString());
+        assertEquals(0, map.removeOwners(owner -> false));
+        assertEquals(9, map.removeOwners(owner -> true));
+        assertEquals("{}", map.toString());
+    }
+
+}
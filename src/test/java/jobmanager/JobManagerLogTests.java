@@ -0,0 +1,189 @@
+package jobmanager;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JobManagerLogTests {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void test_replayEmpty() throws IOException {
+        Path path = this.dir.resolve("jobs.log");
+        JobManagerLog.create(path, 10, 4).close();
+        assertEquals(JobManagerLog.RECORD_BYTES, Files.size(path));
+        JobManager jobs = JobManagerLog.replay(path, JobManager.CheckLevel.FULL);
+        assertEquals(new JobManager(10), jobs);
+    }
+
+    @Test
+    public void test_createExisting() throws IOException {
+        Path path = this.dir.resolve("jobs.log");
+        JobManagerLog.create(path, 10, 4).close();
+        assertThrows(IOException.class, () -> JobManagerLog.create(path, 10, 4));
+        assertThrows(IllegalArgumentException.class, () -> JobManagerLog.create(this.dir.resolve("a"), 0, 4));
+        assertThrows(IllegalArgumentException.class, () -> JobManagerLog.create(this.dir.resolve("b"), 10, 0));
+    }
+
+    @Test
+    public void test_notALog() throws IOException {
+        Path path = this.dir.resolve("jobs.log");
+        Files.write(path, new byte[] {1, 2, 3});
+        assertThrows(IOException.class, () -> JobManagerLog.replay(path, JobManager.CheckLevel.OFF));
+        Files.write(path, new byte[JobManagerLog.RECORD_BYTES]);
+        assertThrows(IOException.class, () -> JobManagerLog.replay(path, JobManager.CheckLevel.OFF));
+    }
+
+    @Test
+    public void test_groupCommit() throws IOException {
+        Path path = this.dir.resolve("jobs.log");
+        try (JobManagerLog log = JobManagerLog.create(path, 10, 3)) {
+            log.append(JobManagerLog.ADD_ROBOT, 1, 0, 0);
+            log.append(JobManagerLog.ASSIGN_JOBS, 1, 4, 0);
+            assertEquals(2, log.pendingCount());
+            assertEquals(JobManagerLog.RECORD_BYTES, Files.size(path));
+            log.append(JobManagerLog.ADD_ROBOT, 2, 0, 0);
+            assertEquals(0, log.pendingCount());
+            assertEquals(4 * JobManagerLog.RECORD_BYTES, Files.size(path));
+            log.append(JobManagerLog.MOVE_JOB, 1, 2, 2);
+            log.commit();
+            assertEquals(0, log.pendingCount());
+            assertEquals(5 * JobManagerLog.RECORD_BYTES, Files.size(path));
+        }
+        JobManager jobs = JobManagerLog.replay(path, JobManager.CheckLevel.FULL);
+        assertEquals(new Robot(2), jobs.getRobot(1));
+        assertEquals(new Robot(1), jobs.getRobot(4));
+        assertFalse(jobs.isAssigned(5));
+    }
+
+    @Test
+    public void test_closed() throws IOException {
+        JobManagerLog log = JobManagerLog.create(this.dir.resolve("jobs.log"), 10, 3);
+        log.close();
+        assertFalse(log.isOpen());
+        assertDoesNotThrow(log::close);
+        assertThrows(IllegalStateException.class, log::commit);
+        assertThrows(IllegalStateException.class, () -> log.append(JobManagerLog.ADD_ROBOT, 1, 0, 0));
+    }
+
+    @Test
+    public void test_tornTail() throws IOException {
+        Path path = this.dir.resolve("jobs.log");
+        try (JobManagerLog log = JobManagerLog.create(path, 10, 1)) {
+            log.append(JobManagerLog.ADD_ROBOT, 1, 0, 0);
+            log.append(JobManagerLog.ASSIGN_JOBS, 1, 3, 0);
+        }
+        // a record cut short, and a full record whose checksum does not match
+        Files.write(path, new byte[] {0x03, 0x12, 0x34}, StandardOpenOption.APPEND);
+        JobManager jobs = JobManagerLog.replay(path, JobManager.CheckLevel.FULL);
+        assertEquals(3, jobs.getHighestPriorityJob(new Robot(1), 10));
+        byte[] bytes = Files.readAllBytes(path);
+        byte[] corrupt = new byte[3 * JobManagerLog.RECORD_BYTES];
+        System.arraycopy(bytes, 0, corrupt, 0, corrupt.length);
+        corrupt[corrupt.length - 1] ^= 8;
+        Files.write(path, corrupt);
+        jobs = JobManagerLog.replay(path, JobManager.CheckLevel.FULL);
+        assertTrue(jobs.hasRobot(new Robot(1)));
+        assertFalse(jobs.isAssigned(1));
+    }
+
+    @Test
+    public void test_zeroRecordEndsLog() throws IOException {
+        Path path = this.dir.resolve("jobs.log");
+        try (JobManagerLog log = JobManagerLog.create(path, 10, 1)) {
+            log.append(JobManagerLog.ADD_ROBOT, 1, 0, 0);
+        }
+        byte[] record = new byte[JobManagerLog.RECORD_BYTES];
+        System.arraycopy(Files.readAllBytes(path), JobManagerLog.RECORD_BYTES, record, 0, record.length);
+        // a record of zeros, as left by a file extended by a crash, followed by a valid record
+        Files.write(path, new byte[JobManagerLog.RECORD_BYTES], StandardOpenOption.APPEND);
+        Files.write(path, record, StandardOpenOption.APPEND);
+        try (LoggedJobManager jobs = LoggedJobManager.recover(path, 1)) {
+            assertEquals(2 * JobManagerLog.RECORD_BYTES, Files.size(path));
+            assertTrue(jobs.hasRobot(new Robot(1)));
+        }
+    }
+
+    @Test
+    public void test_recoverDropsTail() throws IOException {
+        Path path = this.dir.resolve("jobs.log");
+        try (JobManagerLog log = JobManagerLog.create(path, 10, 1)) {
+            log.append(JobManagerLog.ADD_ROBOT, 1, 0, 0);
+            log.append(JobManagerLog.ADD_ROBOT, 2, 0, 0);
+            // the capacities of a weighted rebalance that was cut off by a crash
+            log.append(JobManagerLog.CAPACITY, 1, 5, 0);
+        }
+        Files.write(path, new byte[] {0x01, 0x02}, StandardOpenOption.APPEND);
+        try (LoggedJobManager jobs = LoggedJobManager.recover(path, 1)) {
+            assertEquals(3 * JobManagerLog.RECORD_BYTES, Files.size(path));
+            assertEquals(10, jobs.rebalance(JobManager.Strategy.LEAST_LOADED));
+        }
+        JobManager jobs = JobManagerLog.replay(path, JobManager.CheckLevel.FULL);
+        assertEquals(5, jobs.jobCount(new Robot(1)));
+        assertEquals(5, jobs.jobCount(new Robot(2)));
+    }
+
+    @Test
+    public void test_replayMatchesRandomOperations() throws IOException {
+        Random random = new Random(21);
+        Path path = this.dir.resolve("jobs.log");
+        JobManager expected = new JobManager(500, JobManager.CheckLevel.INCREMENTAL);
+        try (LoggedJobManager logged = LoggedJobManager.create(path, 500, 16)) {
+            int[] into = new int[8];
+            int n = 500;
+            for (int i = 0; i < 3000; i++) {
+                Robot robot = new Robot(1 + random.nextInt(8));
+                Robot other = new Robot(1 + random.nextInt(8));
+                int jobId = 1 + random.nextInt(n);
+                switch (random.nextInt(13)) {
+                    case 0: assertEquals(expected.addRobot(robot), logged.addRobot(robot)); break;
+                    case 1: assertEquals(expected.removeRobot(robot), logged.removeRobot(robot)); break;
+                    case 2: assertEquals(expected.assignJobs(robot, jobId), logged.assignJobs(robot, jobId)); break;
+                    case 3:
+                        assertEquals(expected.moveJobs(robot, other, jobId), logged.moveJobs(robot, other, jobId));
+                        break;
+                    case 4: assertEquals(expected.moveJobs(robot, other), logged.moveJobs(robot, other)); break;
+                    case 5:
+                        int k = random.nextInt(3);
+                        n = expected.addJobs(k);
+                        assertEquals(n, logged.addJobs(k));
+                        break;
+                    case 6: assertEquals(expected.completeJob(jobId), logged.completeJob(jobId)); break;
+                    case 7: assertEquals(expected.completeJobs(robot, jobId), logged.completeJobs(robot, jobId)); break;
+                    case 8:
+                        assertEquals(expected.pollHighestPriorityJob(robot, jobId),
+                                logged.pollHighestPriorityJob(robot, jobId));
+                        break;
+                    case 9: assertEquals(expected.pollBatch(robot, 8, into), logged.pollBatch(robot, 8, into)); break;
+                    case 10: assertEquals(expected.assignTopK(robot, 5), logged.assignTopK(robot, 5)); break;
+                    case 11:
+                        List<Robot> robots = List.of(robot, other, new Robot(1 + random.nextInt(8)));
+                        assertEquals(expected.removeRobots(robots), logged.removeRobots(robots));
+                        break;
+                    default:
+                        Map<Robot, Integer> capacities = new HashMap<>();
+                        capacities.put(other, 1);
+                        capacities.put(robot, 3);
+                        JobManager.Strategy strategy = random.nextBoolean() ? JobManager.Strategy.ROUND_ROBIN
+                                : JobManager.Strategy.weightedCapacity(capacities);
+                        assertEquals(expected.rebalance(strategy), logged.rebalance(strategy));
+                        break;
+                }
+            }
+            assertEquals(expected.hashCode(), logged.hashCode());
+        }
+        assertEquals(expected, JobManagerLog.replay(path, JobManager.CheckLevel.FULL));
+    }
+}
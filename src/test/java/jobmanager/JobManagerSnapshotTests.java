@@ -0,0 +1,121 @@
+package jobmanager;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JobManagerSnapshotTests {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void test_newJobManager() throws IOException {
+        Path path = this.dir.resolve("jobs.snap");
+        JobManagerSnapshot.write(new JobManager(10), path);
+        JobManagerSnapshot snapshot = JobManagerSnapshot.open(path);
+        assertEquals(10, snapshot.getN());
+        assertEquals(0, snapshot.robotCount());
+        assertFalse(snapshot.isAssigned(3));
+        assertFalse(snapshot.isCompleted(3));
+        assertTrue(snapshot.getRobot(3).isNull());
+        assertEquals(new JobManager(10), snapshot.toJobManager(JobManager.CheckLevel.FULL));
+    }
+
+    @Test
+    public void test_queries() throws IOException {
+        JobManager jobs = new JobManager(20);
+        jobs.addRobot(new Robot(7));
+        jobs.addRobot(new Robot(2));
+        jobs.addRobot(new Robot(9));
+        jobs.assignJobs(new Robot(7), 10);
+        jobs.moveJobs(new Robot(7), new Robot(2), 4);
+        jobs.completeJob(6);
+        jobs.completeJob(15);
+        jobs.assignTopK(new Robot(7), 3);
+        Path path = this.dir.resolve("jobs.snap");
+        JobManagerSnapshot.write(jobs, path);
+        JobManagerSnapshot snapshot = JobManagerSnapshot.open(path);
+        assertEquals(3, snapshot.robotCount());
+        assertTrue(snapshot.hasRobot(new Robot(9)));
+        assertFalse(snapshot.hasRobot(new Robot(3)));
+        assertFalse(snapshot.hasRobot(Robot.NULL));
+        assertEquals(4, snapshot.jobCount(new Robot(2)));
+        assertEquals(8, snapshot.jobCount(new Robot(7)));
+        assertEquals(0, snapshot.jobCount(new Robot(9)));
+        assertEquals(new Robot(2), snapshot.getRobot(3));
+        assertEquals(new Robot(7), snapshot.getRobot(20));
+        assertTrue(snapshot.getRobot(12).isNull());
+        assertTrue(snapshot.isCompleted(6));
+        assertTrue(snapshot.isCompleted(15));
+        assertFalse(snapshot.isCompleted(12));
+        assertFalse(snapshot.isCompleted(21));
+        assertEquals(10, snapshot.getHighestPriorityJob(new Robot(7), 17));
+        assertEquals(5, snapshot.getHighestPriorityJob(new Robot(7), 6));
+        assertEquals(0, snapshot.getHighestPriorityJob(new Robot(7), 4));
+        assertEquals(0, snapshot.getHighestPriorityJob(new Robot(9), 20));
+        JobManager loaded = snapshot.toJobManager(JobManager.CheckLevel.FULL);
+        assertEquals(jobs, loaded);
+        assertEquals(jobs.stats().toString(), loaded.stats().toString());
+        assertEquals(jobs.hashCode(), loaded.hashCode());
+        assertTrue(loaded.isCompleted(6));
+        assertEquals(10, loaded.pollHighestPriorityJob(new Robot(7), 14));
+    }
+
+    @Test
+    public void test_notASnapshot() throws IOException {
+        Path path = this.dir.resolve("jobs.snap");
+        Files.write(path, new byte[] {1, 2, 3});
+        assertThrows(IOException.class, () -> JobManagerSnapshot.open(path));
+        JobManager jobs = new JobManager(10);
+        jobs.addRobot(new Robot(1));
+        JobManagerSnapshot.write(jobs, path);
+        byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, java.util.Arrays.copyOf(bytes, bytes.length - 4));
+        assertThrows(IOException.class, () -> JobManagerSnapshot.open(path));
+        assertThrows(IllegalArgumentException.class, () -> JobManagerSnapshot.write(null, path));
+    }
+
+    @Test
+    public void test_matchesRandomJobManagers() throws IOException {
+        Random random = new Random(22);
+        Path path = this.dir.resolve("jobs.snap");
+        for (int trial = 0; trial < 20; trial++) {
+            int n = 1 + random.nextInt(300);
+            JobManager jobs = new JobManager(n, JobManager.CheckLevel.INCREMENTAL);
+            for (int i = 0; i < 200; i++) {
+                Robot robot = new Robot(1 + random.nextInt(6));
+                int jobId = 1 + random.nextInt(jobs.n);
+                switch (random.nextInt(7)) {
+                    case 0: jobs.addRobot(robot); break;
+                    case 1: jobs.assignJobs(robot, jobId); break;
+                    case 2: jobs.moveJobs(robot, new Robot(1 + random.nextInt(6)), jobId); break;
+                    case 3: jobs.completeJob(jobId); break;
+                    case 4: jobs.pollHighestPriorityJob(robot, jobId); break;
+                    case 5: jobs.addJobs(random.nextInt(4)); break;
+                    default: if (random.nextInt(4) == 0) { jobs.removeRobot(robot); } break;
+                }
+            }
+            JobManagerSnapshot.write(jobs, path);
+            JobManagerSnapshot snapshot = JobManagerSnapshot.open(path);
+            for (int jobId = 0; jobId <= jobs.n + 1; jobId++) {
+                assertEquals(jobs.getRobot(jobId).id, snapshot.getRobot(jobId).id);
+                assertEquals(jobs.isCompleted(jobId), snapshot.isCompleted(jobId));
+            }
+            for (int id = 1; id <= 6; id++) {
+                Robot robot = new Robot(id);
+                assertEquals(jobs.hasRobot(robot), snapshot.hasRobot(robot));
+                assertEquals(jobs.jobCount(robot), snapshot.jobCount(robot));
+                int jobId = random.nextInt(jobs.n + 2);
+                assertEquals(jobs.getHighestPriorityJob(robot, jobId), snapshot.getHighestPriorityJob(robot, jobId));
+            }
+            assertEquals(jobs, snapshot.toJobManager(JobManager.CheckLevel.FULL));
+        }
+    }
+}
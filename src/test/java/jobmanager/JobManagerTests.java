@@ -2,8 +2,17 @@ package jobmanager;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
 import java.util.TreeSet;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -590,4 +599,841 @@ public class JobManagerTests {
         jm1.assignJobs(new Robot(2), 1);
         assertTrue(jm1.hashCode() == 5);
     }
+
+    @Test
+    public void test_getRobotCached() {
+        JobManager jm = new JobManager(3);
+        jm.addRobot(new Robot(1));
+        jm.assignJobs(new Robot(1), 2);
+        assertSame(jm.getRobot(1), jm.getRobot(2));
+    }
+
+    @Test
+    public void test_getRobotAfterPartialMove() {
+        JobManager jm = new JobManager(4);
+        jm.addRobot(new Robot(1));
+        jm.addRobot(new Robot(2));
+        jm.assignJobs(new Robot(1), 3);
+        jm.moveJobs(new Robot(1), new Robot(2), 2);
+        assertEquals(new Robot(2), jm.getRobot(1));
+        assertEquals(new Robot(2), jm.getRobot(2));
+        assertEquals(new Robot(1), jm.getRobot(3));
+        jm.removeRobot(new Robot(2));
+        assertTrue(jm.getRobot(1).isNull());
+        assertFalse(jm.isAssigned(2));
+        assertTrue(jm.isAssigned(3));
+    }
+
+    @Test
+    public void test_moveJobsToEmptyRobot() {
+        JobManager jm = new JobManager(1000, JobManager.CheckLevel.INCREMENTAL);
+        jm.addRobot(new Robot(1));
+        jm.addRobot(new Robot(2));
+        jm.assignJobs(new Robot(1), 900);
+        assertTrue(jm.moveJobs(new Robot(1), new Robot(2)));
+        assertEquals(new Robot(2), jm.getRobot(1));
+        assertEquals(new Robot(2), jm.getRobot(900));
+        assertEquals(0, jm.getHighestPriorityJob(new Robot(1), 1000));
+        assertEquals(900, jm.getHighestPriorityJob(new Robot(2), 1000));
+        jm.assignJobs(new Robot(1), 1000);
+        assertEquals(new Robot(1), jm.getRobot(950));
+        jm.setCheckLevel(JobManager.CheckLevel.FULL);
+        jm.checkRep();
+    }
+
+    @Test
+    public void test_moveJobsMergesSmallerIntoLarger() {
+        JobManager jm = new JobManager(10);
+        jm.addRobot(new Robot(1));
+        jm.addRobot(new Robot(2));
+        jm.assignJobs(new Robot(2), 2);
+        jm.assignJobs(new Robot(1), 9);
+        assertTrue(jm.moveJobs(new Robot(1), new Robot(2)));
+        for (int job = 1; job <= 9; job++) {
+            assertEquals(new Robot(2), jm.getRobot(job));
+        }
+        assertTrue(jm.getRobot(10).isNull());
+        assertTrue(jm.moveJobs(new Robot(2), new Robot(1), 5));
+        assertEquals(new Robot(1), jm.getRobot(5));
+        assertEquals(new Robot(2), jm.getRobot(6));
+    }
+
+    @Test
+    public void test_batch1() {
+        JobManager jm = new JobManager(5);
+        List<Boolean> results = jm.batch(batch -> {
+            batch.addRobot(new Robot(1));
+            batch.addRobot(new Robot(1));
+            batch.assignJobs(new Robot(1), 3);
+            batch.addRobot(new Robot(2));
+            batch.moveJobs(new Robot(1), new Robot(2), 2);
+            batch.removeRobot(new Robot(3));
+        });
+        assertEquals(List.of(true, false, true, true, true, false), results);
+        assertEquals(new Robot(2), jm.getRobot(2));
+        assertEquals(new Robot(1), jm.getRobot(3));
+        assertFalse(jm.isAssigned(4));
+    }
+
+    @Test
+    public void test_batch2() {
+        JobManager jm = new JobManager(5);
+        jm.addRobot(new Robot(1));
+        jm.assignJobs(new Robot(1), 2);
+        JobManager expected = new JobManager(5);
+        expected.addRobot(new Robot(1));
+        expected.assignJobs(new Robot(1), 2);
+        assertThrows(IllegalStateException.class, () -> jm.batch(batch -> {
+            batch.removeRobot(new Robot(1));
+            batch.addRobot(new Robot(2));
+            batch.assignJobs(new Robot(2), 5);
+            throw new IllegalStateException();
+        }));
+        assertEquals(expected, jm);
+        assertEquals(new Robot(1), jm.getRobot(1));
+        assertFalse(jm.hasRobot(new Robot(2)));
+        assertTrue(jm.assignJobs(new Robot(1), 5));
+        assertEquals(new Robot(1), jm.getRobot(5));
+    }
+
+    @Test
+    public void test_batch3() {
+        JobManager jm = new JobManager(3);
+        assertThrows(AssertionError.class, () -> jm.batch(batch -> {
+            batch.addRobot(new Robot(1));
+            jm.unassignedJobs.remove(3);
+        }));
+        assertFalse(jm.hasRobot(new Robot(1)));
+        assertTrue(jm.unassignedJobs.contains(3));
+        assertDoesNotThrow(jm::checkRep);
+    }
+
+    @Test
+    public void test_constructLarge() {
+        JobManager jm = new JobManager(Integer.MAX_VALUE);
+        assertEquals(Integer.MAX_VALUE, jm.unassignedJobs.size());
+        assertFalse(jm.isAssigned(Integer.MAX_VALUE));
+        assertTrue(jm.addRobot(new Robot(1)));
+        assertTrue(jm.assignJobs(new Robot(1), 100));
+        assertEquals(new Robot(1), jm.getRobot(100));
+        assertTrue(jm.getRobot(101).isNull());
+        assertTrue(jm.getRobot(Integer.MAX_VALUE).isNull());
+        assertEquals(100, jm.getHighestPriorityJob(new Robot(1), Integer.MAX_VALUE));
+        assertTrue(jm.removeRobot(new Robot(1)));
+        assertEquals(new JobManager(Integer.MAX_VALUE), jm);
+    }
+
+    @Test
+    public void test_addJobs1() {
+        JobManager jm = new JobManager(3);
+        jm.addRobot(new Robot(1));
+        jm.assignJobs(new Robot(1), 3);
+        assertEquals(5, jm.addJobs(2));
+        assertEquals(5, jm.n);
+        assertFalse(jm.isAssigned(4));
+        assertTrue(jm.unassignedJobs.contains(5));
+        assertEquals(new Robot(1), jm.getRobot(3));
+        assertTrue(jm.assignJobs(new Robot(1), 5));
+        assertEquals(5, jm.getHighestPriorityJob(new Robot(1), 5));
+    }
+
+    @Test
+    public void test_addJobs2() {
+        JobManager jm = new JobManager(2);
+        jm.addRobot(new Robot(1));
+        jm.assignJobs(new Robot(1), 1);
+        jm.addJobs(3);
+        JobManager expected = new JobManager(5);
+        expected.addRobot(new Robot(1));
+        expected.assignJobs(new Robot(1), 1);
+        assertEquals(expected, jm);
+        assertEquals(expected.hashCode(), jm.hashCode());
+        assertEquals(5, jm.addJobs(0));
+    }
+
+    @Test
+    public void test_addJobsInvalid() {
+        JobManager jm = new JobManager(Integer.MAX_VALUE - 1);
+        assertThrows(IllegalArgumentException.class, () -> jm.addJobs(-1));
+        assertThrows(IllegalArgumentException.class, () -> jm.addJobs(2));
+        assertEquals(Integer.MAX_VALUE, jm.addJobs(1));
+        assertFalse(jm.isAssigned(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void test_completeJob() {
+        JobManager jm = new JobManager(5);
+        jm.addRobot(new Robot(1));
+        jm.assignJobs(new Robot(1), 3);
+        assertTrue(jm.completeJob(2));
+        assertFalse(jm.completeJob(2));
+        assertTrue(jm.isCompleted(2));
+        assertFalse(jm.isAssigned(2));
+        assertTrue(jm.getRobot(2).isNull());
+        assertEquals(1, jm.getHighestPriorityJob(new Robot(1), 2));
+        assertTrue(jm.completeJob(5));
+        assertFalse(jm.unassignedJobs.contains(5));
+        assertFalse(jm.completeJob(0));
+        assertFalse(jm.completeJob(6));
+        assertTrue(jm.assignJobs(new Robot(1), 5));
+        assertEquals(4, jm.getHighestPriorityJob(new Robot(1), 5));
+    }
+
+    @Test
+    public void test_completeJobs() {
+        JobManager jm = new JobManager(10);
+        jm.addRobot(new Robot(1));
+        jm.addRobot(new Robot(2));
+        jm.assignJobs(new Robot(1), 4);
+        jm.assignJobs(new Robot(2), 8);
+        jm.assignJobs(new Robot(1), 10);
+        assertEquals(5, jm.completeJobs(new Robot(1), 9));
+        assertEquals(0, jm.completeJobs(new Robot(1), 9));
+        assertEquals(0, jm.completeJobs(new Robot(3), 9));
+        assertTrue(jm.isCompleted(9));
+        assertFalse(jm.isCompleted(10));
+        assertEquals(new Robot(1), jm.getRobot(10));
+        assertEquals(new Robot(2), jm.getRobot(5));
+        assertTrue(jm.removeRobot(new Robot(2)));
+        assertFalse(jm.unassignedJobs.contains(1));
+        assertEquals(4, jm.unassignedJobs.size());
+    }
+
+    @Test
+    public void test_completedJobsLeaveMoves() {
+        JobManager jm = new JobManager(6, JobManager.CheckLevel.INCREMENTAL);
+        jm.addRobot(new Robot(1));
+        jm.addRobot(new Robot(2));
+        jm.assignJobs(new Robot(1), 6);
+        jm.completeJobs(new Robot(1), 2);
+        jm.completeJob(4);
+        assertTrue(jm.moveJobs(new Robot(1), new Robot(2)));
+        assertEquals(new Robot(2), jm.getRobot(3));
+        assertTrue(jm.getRobot(4).isNull());
+        assertEquals(3, jm.getHighestPriorityJob(new Robot(2), 4));
+        assertDoesNotThrow(jm::checkRep);
+    }
+
+    @Test
+    public void test_compact() {
+        JobManager jm = new JobManager(100_000);
+        jm.addRobot(new Robot(1));
+        jm.assignJobs(new Robot(1), 90_000);
+        assertEquals(90_000, jm.completeJobs(new Robot(1), 100_000));
+        jm.compact();
+        assertTrue(jm.isCompleted(1));
+        assertEquals(90_001, jm.unassignedJobs.nextSetBit(0));
+        assertTrue(jm.assignJobs(new Robot(1), 100_000));
+        assertEquals(new Robot(1), jm.getRobot(90_001));
+        assertEquals(10_000, jm.completeJobs(new Robot(1), 100_000));
+        jm.addJobs(5);
+        jm.compact();
+        assertEquals(5, jm.unassignedJobs.size());
+        assertDoesNotThrow(jm::checkRep);
+    }
+
+
+    @Test
+    public void test_pollHighestPriorityJob() {
+        JobManager jm = new JobManager(6);
+        jm.addRobot(new Robot(1));
+        jm.addRobot(new Robot(2));
+        jm.assignJobs(new Robot(1), 2);
+        jm.assignJobs(new Robot(2), 4);
+        jm.assignJobs(new Robot(1), 6);
+        assertEquals(6, jm.pollHighestPriorityJob(new Robot(1)));
+        assertTrue(jm.isCompleted(6));
+        assertTrue(jm.getRobot(6).isNull());
+        assertEquals(2, jm.pollHighestPriorityJob(new Robot(1), 4));
+        assertEquals(5, jm.pollHighestPriorityJob(new Robot(1)));
+        assertEquals(1, jm.pollHighestPriorityJob(new Robot(1)));
+        assertEquals(0, jm.pollHighestPriorityJob(new Robot(1)));
+        assertEquals(0, jm.pollHighestPriorityJob(new Robot(3)));
+        assertEquals(0, jm.pollHighestPriorityJob(new Robot(2), 2));
+        assertEquals(new Robot(2), jm.getRobot(4));
+    }
+
+    @Test
+    public void test_pollBatch() {
+        JobManager jm = new JobManager(10, JobManager.CheckLevel.INCREMENTAL);
+        jm.addRobot(new Robot(1));
+        jm.addRobot(new Robot(2));
+        jm.assignJobs(new Robot(1), 3);
+        jm.assignJobs(new Robot(2), 6);
+        jm.assignJobs(new Robot(1), 10);
+        int[] into = new int[8];
+        assertEquals(6, jm.pollBatch(new Robot(1), 6, into));
+        assertArrayEquals(new int[] {10, 9, 8, 7, 3, 2, 0, 0}, into);
+        assertEquals(1, jm.pollBatch(new Robot(1), 8, into));
+        assertEquals(1, into[0]);
+        assertEquals(0, jm.pollBatch(new Robot(1), 8, into));
+        assertEquals(0, jm.pollBatch(new Robot(3), 8, into));
+        assertEquals(new Robot(2), jm.getRobot(4));
+        assertThrows(IllegalArgumentException.class, () -> jm.pollBatch(new Robot(2), 9, into));
+        assertThrows(IllegalArgumentException.class, () -> jm.pollBatch(new Robot(2), 1, null));
+        assertDoesNotThrow(jm::checkRep);
+    }
+
+    @Test
+    public void test_pollBelowOtherRobots() {
+        // robot r holds jobs 2r - 1 and 2r, so the top run of robot 1 sits below the intervals of 199 other robots
+        JobManager jm = new JobManager(400);
+        for (int r = 1; r <= 200; r++) {
+            jm.addRobot(new Robot(r));
+            jm.assignJobs(new Robot(r), 2 * r);
+        }
+        assertEquals(2, jm.pollHighestPriorityJob(new Robot(1)));
+        int[] into = new int[4];
+        assertEquals(1, jm.pollBatch(new Robot(1), 4, into));
+        assertEquals(1, into[0]);
+        // a job below the top of a run splits the run and its interval
+        assertEquals(299, jm.pollHighestPriorityJob(new Robot(150), 299));
+        assertEquals(2, jm.pollBatch(new Robot(100), 4, into));
+        assertArrayEquals(new int[] {200, 199}, Arrays.copyOf(into, 2));
+        for (int job = 1; job <= 400; job++) {
+            boolean polled = job <= 2 || job == 299 || job == 199 || job == 200;
+            if (polled) { assertTrue(jm.getRobot(job).isNull()); }
+            else { assertEquals(new Robot((job + 1) / 2), jm.getRobot(job)); }
+            assertEquals(polled, jm.isCompleted(job));
+        }
+        assertEquals(1, jm.jobCount(new Robot(150)));
+        assertDoesNotThrow(jm::checkRep);
+    }
+
+    @Test
+    public void test_peekHighestUnassigned() {
+        JobManager jm = new JobManager(10, JobManager.CheckLevel.INCREMENTAL);
+        assertEquals(10, jm.peekHighestUnassigned());
+        jm.addRobot(new Robot(1));
+        jm.assignJobs(new Robot(1), 10);
+        assertEquals(0, jm.peekHighestUnassigned());
+        jm.removeRobot(new Robot(1));
+        jm.completeJob(10);
+        assertEquals(9, jm.peekHighestUnassigned());
+    }
+
+    @Test
+    public void test_countUnassigned() {
+        JobManager jm = new JobManager(100, JobManager.CheckLevel.INCREMENTAL);
+        jm.addRobot(new Robot(1));
+        jm.assignJobs(new Robot(1), 30);
+        assertEquals(70, jm.countUnassigned(1, 100));
+        assertEquals(70, jm.countUnassigned(-5, Integer.MAX_VALUE));
+        assertEquals(10, jm.countUnassigned(21, 40));
+        assertEquals(0, jm.countUnassigned(40, 21));
+    }
+
+    @Test
+    public void test_assignTopK() {
+        JobManager jm = new JobManager(200, JobManager.CheckLevel.INCREMENTAL);
+        jm.addRobot(new Robot(1));
+        jm.addRobot(new Robot(2));
+        jm.assignJobs(new Robot(1), 100);
+        jm.moveJobs(new Robot(1), new Robot(2), 50);
+        jm.moveJobs(new Robot(2), new Robot(1), 49);
+        assertEquals(100, jm.assignTopK(new Robot(2), 150));
+        assertEquals(0, jm.peekHighestUnassigned());
+        assertEquals(new Robot(2), jm.getRobot(101));
+        assertEquals(new Robot(2), jm.getRobot(200));
+        assertEquals(new Robot(1), jm.getRobot(49));
+        assertEquals(0, jm.assignTopK(new Robot(1), 5));
+        assertEquals(0, jm.assignTopK(new Robot(3), 5));
+        assertThrows(IllegalArgumentException.class, () -> jm.assignTopK(new Robot(1), -1));
+        assertDoesNotThrow(jm::checkRep);
+    }
+
+    @Test
+    public void test_assignTopKAcrossRuns() {
+        JobManager jm = new JobManager(20, JobManager.CheckLevel.FULL);
+        jm.addRobot(new Robot(2));
+        for (int job = 2; job <= 20; job += 3) {
+            jm.completeJob(job);
+        }
+        assertEquals(7, jm.assignTopK(new Robot(2), 7));
+        assertEquals(new Robot(2), jm.getRobot(19));
+        assertEquals(new Robot(2), jm.getRobot(13));
+        assertEquals(new Robot(2), jm.getRobot(10));
+        assertFalse(jm.isAssigned(9));
+        assertEquals(9, jm.peekHighestUnassigned());
+        assertEquals(0, jm.assignTopK(new Robot(2), 0));
+        assertEquals(6, jm.countUnassigned(1, 20));
+    }
+
+    @Test
+    public void test_rebalanceRoundRobin() {
+        JobManager jm = new JobManager(10, JobManager.CheckLevel.INCREMENTAL);
+        jm.addRobot(new Robot(3));
+        jm.addRobot(new Robot(1));
+        jm.addRobot(new Robot(2));
+        assertEquals(10, jm.rebalance(JobManager.Strategy.ROUND_ROBIN));
+        assertEquals(new Robot(1), jm.getRobot(10));
+        assertEquals(new Robot(2), jm.getRobot(9));
+        assertEquals(new Robot(3), jm.getRobot(8));
+        assertEquals(new Robot(1), jm.getRobot(7));
+        assertEquals(new Robot(1), jm.getRobot(1));
+        assertEquals(4, jm.robotToJobs.get(new Robot(1)).size());
+        assertEquals(3, jm.robotToJobs.get(new Robot(3)).size());
+        assertEquals(0, jm.peekHighestUnassigned());
+        assertEquals(0, jm.rebalance(JobManager.Strategy.ROUND_ROBIN));
+        assertDoesNotThrow(jm::checkRep);
+    }
+
+    @Test
+    public void test_rebalanceLeastLoaded() {
+        JobManager jm = new JobManager(100, JobManager.CheckLevel.FULL);
+        jm.addRobot(new Robot(1));
+        jm.addRobot(new Robot(2));
+        jm.addRobot(new Robot(3));
+        jm.assignJobs(new Robot(1), 40);
+        jm.assignJobs(new Robot(2), 50);
+        assertEquals(50, jm.rebalance(JobManager.Strategy.LEAST_LOADED));
+        assertEquals(40, jm.robotToJobs.get(new Robot(1)).size());
+        assertEquals(30, jm.robotToJobs.get(new Robot(2)).size());
+        assertEquals(30, jm.robotToJobs.get(new Robot(3)).size());
+        assertEquals(new Robot(2), jm.getRobot(100));
+        assertEquals(new Robot(3), jm.getRobot(51));
+        assertEquals(0, jm.countUnassigned(1, 100));
+    }
+
+    @Test
+    public void test_rebalanceLeastLoadedRemainder() {
+        JobManager jm = new JobManager(10, JobManager.CheckLevel.INCREMENTAL);
+        jm.addRobot(new Robot(1));
+        jm.addRobot(new Robot(2));
+        jm.addRobot(new Robot(3));
+        assertEquals(10, jm.rebalance(JobManager.Strategy.LEAST_LOADED));
+        int[] sizes = new int[3];
+        for (int id = 1; id <= 3; id++) {
+            sizes[id - 1] = jm.robotToJobs.get(new Robot(id)).size();
+        }
+        Arrays.sort(sizes);
+        assertArrayEquals(new int[] {3, 3, 4}, sizes);
+    }
+
+    @Test
+    public void test_rebalanceWeightedCapacity() {
+        JobManager jm = new JobManager(60, JobManager.CheckLevel.FULL);
+        jm.addRobot(new Robot(1));
+        jm.addRobot(new Robot(2));
+        jm.addRobot(new Robot(3));
+        Map<Robot, Integer> capacities = new HashMap<>();
+        capacities.put(new Robot(1), 1);
+        capacities.put(new Robot(2), 2);
+        assertEquals(60, jm.rebalance(JobManager.Strategy.weightedCapacity(capacities)));
+        assertEquals(20, jm.robotToJobs.get(new Robot(1)).size());
+        assertEquals(40, jm.robotToJobs.get(new Robot(2)).size());
+        assertTrue(jm.robotToJobs.get(new Robot(3)).isEmpty());
+        jm.removeRobot(new Robot(1));
+        assertEquals(0, jm.rebalance(JobManager.Strategy.weightedCapacity(new HashMap<>())));
+        assertEquals(20, jm.countUnassigned(1, 60));
+        capacities.put(new Robot(3), 0);
+        assertThrows(IllegalArgumentException.class, () -> JobManager.Strategy.weightedCapacity(null));
+        capacities.put(new Robot(3), -1);
+        assertThrows(IllegalArgumentException.class, () -> JobManager.Strategy.weightedCapacity(capacities));
+        assertThrows(IllegalArgumentException.class, () -> jm.rebalance(null));
+    }
+
+    @Test
+    public void test_jobCounts() {
+        JobManager jm = new JobManager(20, JobManager.CheckLevel.INCREMENTAL);
+        jm.addRobot(new Robot(1));
+        jm.addRobot(new Robot(2));
+        jm.assignJobs(new Robot(1), 12);
+        jm.moveJobs(new Robot(1), new Robot(2), 5);
+        assertEquals(7, jm.jobCount(new Robot(1)));
+        assertEquals(5, jm.jobCount(new Robot(2)));
+        assertEquals(0, jm.jobCount(new Robot(3)));
+        assertEquals(0, jm.jobCount(null));
+        jm.completeJob(12);
+        jm.pollHighestPriorityJob(new Robot(2));
+        assertEquals(6, jm.jobCount(new Robot(1)));
+        assertEquals(4, jm.jobCount(new Robot(2)));
+        assertEquals(10, jm.assignedCount());
+        assertEquals(8, jm.unassignedCount());
+        assertEquals(2, jm.completedCount());
+        jm.moveJobs(new Robot(2), new Robot(1));
+        assertEquals(10, jm.jobCount(new Robot(1)));
+        assertEquals(0, jm.jobCount(new Robot(2)));
+    }
+
+    @Test
+    public void test_leastAndMostLoadedRobot() {
+        JobManager jm = new JobManager(30, JobManager.CheckLevel.INCREMENTAL);
+        assertTrue(jm.leastLoadedRobot().isNull());
+        assertTrue(jm.mostLoadedRobot().isNull());
+        jm.addRobot(new Robot(1));
+        jm.addRobot(new Robot(2));
+        jm.addRobot(new Robot(3));
+        jm.assignJobs(new Robot(2), 10);
+        jm.assignJobs(new Robot(3), 15);
+        assertEquals(new Robot(1), jm.leastLoadedRobot());
+        assertEquals(new Robot(2), jm.mostLoadedRobot());
+        jm.moveJobs(new Robot(2), new Robot(1), 8);
+        assertEquals(new Robot(2), jm.leastLoadedRobot());
+        assertEquals(new Robot(1), jm.mostLoadedRobot());
+        jm.removeRobot(new Robot(1));
+        assertEquals(new Robot(2), jm.leastLoadedRobot());
+        assertEquals(new Robot(3), jm.mostLoadedRobot());
+    }
+
+    @Test
+    public void test_stats() {
+        JobManager jm = new JobManager(10, JobManager.CheckLevel.FULL);
+        LoadStats stats = jm.stats();
+        assertEquals(0, stats.robots);
+        assertEquals(10, stats.unassignedJobs);
+        assertTrue(stats.leastLoaded.isNull());
+        assertEquals(0, stats.meanLoad());
+        jm.addRobot(new Robot(1));
+        jm.addRobot(new Robot(4));
+        jm.assignJobs(new Robot(1), 5);
+        jm.assignJobs(new Robot(4), 6);
+        jm.completeJob(10);
+        jm.completeJob(9);
+        stats = jm.stats();
+        assertEquals(2, stats.robots);
+        assertEquals(6, stats.assignedJobs);
+        assertEquals(2, stats.unassignedJobs);
+        assertEquals(2, stats.completedJobs);
+        assertEquals(new Robot(4), stats.leastLoaded);
+        assertEquals(1, stats.minLoad);
+        assertEquals(new Robot(1), stats.mostLoaded);
+        assertEquals(5, stats.maxLoad);
+        assertEquals(3.0, stats.meanLoad());
+        assertEquals("LoadStats{robots=2, assigned=6, unassigned=2, completed=2, minLoad=1 (robot 4), "
+                + "maxLoad=5 (robot 1)}", stats.toString());
+    }
+
+    @Test
+    public void test_loadsAfterBatchRollback() {
+        JobManager jm = new JobManager(10, JobManager.CheckLevel.INCREMENTAL);
+        jm.addRobot(new Robot(1));
+        jm.addRobot(new Robot(2));
+        jm.assignJobs(new Robot(1), 3);
+        assertThrows(IllegalStateException.class, () -> jm.batch(batch -> {
+            batch.assignJobs(new Robot(2), 10);
+            throw new IllegalStateException();
+        }));
+        assertEquals(3, jm.jobCount(new Robot(1)));
+        assertEquals(0, jm.jobCount(new Robot(2)));
+        assertEquals(new Robot(1), jm.mostLoadedRobot());
+        assertTrue(jm.addRobot(new Robot(3)));
+        assertEquals(0, jm.jobCount(new Robot(3)));
+    }
+
+    @Test
+    public void test_batchRollbackFromLog() {
+        JobManager jm = new JobManager(20, JobManager.CheckLevel.INCREMENTAL);
+        jm.addRobot(new Robot(1));
+        jm.addRobot(new Robot(2));
+        jm.assignJobs(new Robot(1), 6);
+        jm.moveJobs(new Robot(1), new Robot(2), 3);
+        JobManager expected = new JobManager(20);
+        expected.addRobot(new Robot(1));
+        expected.addRobot(new Robot(2));
+        expected.assignJobs(new Robot(1), 6);
+        expected.moveJobs(new Robot(1), new Robot(2), 3);
+        assertThrows(IllegalStateException.class, () -> jm.batch(batch -> {
+            batch.removeRobot(new Robot(2));
+            batch.addRobot(new Robot(3));
+            batch.assignJobs(new Robot(3), 10);
+            batch.moveJobs(new Robot(1), new Robot(3));
+            batch.addRobot(new Robot(2));
+            batch.moveJobs(new Robot(3), new Robot(2), 8);
+            batch.removeRobot(new Robot(3));
+            throw new IllegalStateException();
+        }));
+        assertEquals(expected, jm);
+        assertFalse(jm.hasRobot(new Robot(3)));
+        assertEquals(3, jm.jobCount(new Robot(2)));
+        assertEquals(new Robot(1), jm.getRobot(5));
+        jm.setCheckLevel(JobManager.CheckLevel.FULL);
+        assertDoesNotThrow(jm::checkRep);
+    }
+
+    @Test
+    public void test_batchIncrementalCheck() {
+        JobManager jm = new JobManager(10, JobManager.CheckLevel.INCREMENTAL);
+        jm.addRobot(new Robot(1));
+        assertThrows(AssertionError.class, () -> jm.batch(batch -> {
+            batch.assignJobs(new Robot(1), 4);
+            jm.unassignedJobs.add(2);
+        }));
+        assertEquals(0, jm.jobCount(new Robot(1)));
+        assertEquals(10, jm.unassignedCount());
+        jm.setCheckLevel(JobManager.CheckLevel.FULL);
+        assertDoesNotThrow(jm::checkRep);
+    }
+
+    @Test
+    public void test_hashCodeCached() {
+        JobManager jm = new JobManager(100, JobManager.CheckLevel.INCREMENTAL);
+        jm.addRobot(new Robot(3));
+        jm.addRobot(new Robot(5));
+        jm.assignJobs(new Robot(3), 10);
+        assertEquals(130, jm.hashCode());
+        jm.moveJobs(new Robot(3), new Robot(5), 4);
+        assertEquals(100 + 30 + 20, jm.hashCode());
+        jm.moveJobs(new Robot(3), new Robot(5));
+        assertEquals(100 + 50, jm.hashCode());
+        jm.pollHighestPriorityJob(new Robot(5));
+        assertEquals(100 + 45, jm.hashCode());
+        jm.removeRobot(new Robot(5));
+        assertEquals(100, jm.hashCode());
+    }
+
+    @Test
+    public void test_hashCodeSaturates() {
+        JobManager jm = new JobManager(Integer.MAX_VALUE - 10, JobManager.CheckLevel.INCREMENTAL);
+        jm.addRobot(new Robot(70_000));
+        jm.assignJobs(new Robot(70_000), 70_000);
+        assertEquals(Integer.MAX_VALUE, jm.hashCode());
+        jm.addRobot(new Robot(2));
+        jm.moveJobs(new Robot(70_000), new Robot(2));
+        assertEquals(Integer.MAX_VALUE, jm.hashCode());
+        jm.removeRobot(new Robot(2));
+        assertEquals(Integer.MAX_VALUE - 10, jm.hashCode());
+    }
+
+    @Test
+    public void test_equalsFingerprints() {
+        JobManager jm1 = new JobManager(20, JobManager.CheckLevel.INCREMENTAL);
+        JobManager jm2 = new JobManager(20, JobManager.CheckLevel.INCREMENTAL);
+        for (JobManager jm : List.of(jm1, jm2)) {
+            jm.addRobot(new Robot(1));
+            jm.addRobot(new Robot(2));
+            jm.assignJobs(new Robot(2), 20);
+        }
+        jm1.moveJobs(new Robot(2), new Robot(1), 7);
+        jm2.moveJobs(new Robot(2), new Robot(1), 7);
+        jm2.moveJobs(new Robot(1), new Robot(2), 3);
+        assertEquals(jm1.hashCode(), jm2.hashCode());
+        assertNotEquals(jm1, jm2);
+        jm1.moveJobs(new Robot(1), new Robot(2), 3);
+        assertEquals(jm1, jm2);
+        assertEquals(jm1, jm1);
+        jm1.completeJob(1);
+        jm2.completeJob(2);
+        assertNotEquals(jm1, jm2);
+    }
+
+    @Test
+    public void test_intIdOverloads() {
+        JobManager jm = new JobManager(10, JobManager.CheckLevel.INCREMENTAL);
+        assertTrue(jm.addRobot(1));
+        assertTrue(jm.addRobot(2));
+        assertFalse(jm.addRobot(0));
+        assertFalse(jm.addRobot(-1));
+        assertTrue(jm.hasRobot(1));
+        assertFalse(jm.hasRobot(3));
+        assertFalse(jm.hasRobot(-1));
+        assertTrue(jm.assignJobs(1, 6));
+        assertFalse(jm.assignJobs(3, 10));
+        assertEquals(1, jm.getRobotId(6));
+        assertEquals(0, jm.getRobotId(7));
+        assertEquals(0, jm.getRobotId(11));
+        assertTrue(jm.moveJobs(1, 2, 3));
+        assertEquals(2, jm.getRobotId(3));
+        assertEquals(3, jm.getHighestPriorityJob(2, 10));
+        assertEquals(3, jm.jobCount(2));
+        assertTrue(jm.moveJobs(2, 1));
+        assertEquals(6, jm.jobCount(1));
+        assertTrue(jm.removeRobot(1));
+        assertFalse(jm.removeRobot(1));
+        assertTrue(jm.getRobot(1).isNull());
+    }
+
+    @Test
+    public void test_intIdOverloadsManyRobots() {
+        // enough robots, with ids above the dense range of Robot.of, to grow the id table and shift entries back on
+        // removal
+        JobManager jm = new JobManager(1000, JobManager.CheckLevel.INCREMENTAL);
+        Random random = new Random(3);
+        Set<Integer> ids = new HashSet<>();
+        for (int op = 0; op < 3000; op++) {
+            int id = (1 << 20) + random.nextInt(300);
+            int other = (1 << 20) + random.nextInt(300);
+            switch (random.nextInt(4)) {
+                case 0:
+                    assertEquals(ids.add(id), jm.addRobot(new Robot(id)));
+                    break;
+                case 1:
+                    assertEquals(ids.remove(id), jm.removeRobot(id));
+                    break;
+                case 2:
+                    assertEquals(ids.contains(id), jm.assignJobs(id, 1 + random.nextInt(1000)));
+                    break;
+                default:
+                    assertEquals(ids.contains(id) && ids.contains(other), jm.moveJobs(id, other));
+            }
+            assertEquals(ids.contains(other), jm.hasRobot(other));
+        }
+        for (int id = 1 << 20; id < (1 << 20) + 300; id++) {
+            assertEquals(ids.contains(id), jm.hasRobot(id));
+            assertEquals(jm.jobCount(new Robot(id)), jm.jobCount(id));
+        }
+        jm.setCheckLevel(JobManager.CheckLevel.FULL);
+        assertDoesNotThrow(jm::checkRep);
+    }
+
+    @Test
+    public void test_diff() {
+        JobManager jm1 = new JobManager(20);
+        jm1.addRobot(new Robot(1));
+        jm1.addRobot(new Robot(2));
+        jm1.assignJobs(new Robot(1), 10);
+        JobManager jm2 = new JobManager(20);
+        jm2.addRobot(new Robot(1));
+        jm2.addRobot(new Robot(2));
+        jm2.addRobot(new Robot(3));
+        jm2.assignJobs(new Robot(1), 10);
+        assertTrue(jm1.diff(jm2).isEmpty());
+        jm2.moveJobs(new Robot(1), new Robot(2), 4);
+        jm2.completeJob(8);
+        jm2.assignJobs(new Robot(3), 15);
+        jm2.removeRobot(new Robot(1));
+        List<JobChange> changes = jm1.diff(jm2);
+        assertEquals(List.of(new JobChange(1, 4, new Robot(1), new Robot(2)),
+                new JobChange(5, 10, new Robot(1), Robot.NULL),
+                new JobChange(11, 15, Robot.NULL, new Robot(3))), changes);
+        assertEquals("JobChange{1..4: 1 -> 2}", changes.get(0).toString());
+        assertEquals(4, changes.get(0).size());
+        assertEquals(List.of(new JobChange(1, 4, new Robot(2), new Robot(1)),
+                new JobChange(5, 10, Robot.NULL, new Robot(1)),
+                new JobChange(11, 15, new Robot(3), Robot.NULL)), jm2.diff(jm1));
+        assertThrows(IllegalArgumentException.class, () -> jm1.diff(null));
+    }
+
+    @Test
+    public void test_changeListener() {
+        JobManager jm = new JobManager(20);
+        List<JobChange> changes = new ArrayList<>();
+        Consumer<JobChange> listener = changes::add;
+        jm.addChangeListener(listener);
+        jm.addRobot(new Robot(1));
+        jm.addRobot(new Robot(2));
+        jm.assignJobs(new Robot(1), 10);
+        assertEquals(List.of(new JobChange(1, 10, Robot.NULL, new Robot(1))), changes);
+        changes.clear();
+        jm.moveJobs(new Robot(1), new Robot(2), 3);
+        jm.removeRobot(new Robot(1));
+        jm.addJobs(5);
+        assertEquals(List.of(new JobChange(1, 3, new Robot(1), new Robot(2)),
+                new JobChange(4, 10, new Robot(1), Robot.NULL)), changes);
+        changes.clear();
+        jm.completeJob(2);
+        jm.completeJob(12);
+        assertEquals(List.of(new JobChange(2, 2, new Robot(2), Robot.NULL)), changes);
+        assertTrue(jm.removeChangeListener(listener));
+        assertFalse(jm.removeChangeListener(listener));
+        jm.moveJobs(new Robot(2), new Robot(1));
+        assertEquals(1, changes.size());
+        assertThrows(IllegalArgumentException.class, () -> jm.addChangeListener(null));
+    }
+
+    @Test
+    public void test_changeListenerBatch() {
+        JobManager jm = new JobManager(20);
+        jm.addRobot(new Robot(1));
+        List<JobChange> changes = new ArrayList<>();
+        jm.addChangeListener(changes::add);
+        assertThrows(IllegalStateException.class, () -> jm.batch(batch -> {
+            batch.assignJobs(new Robot(1), 5);
+            throw new IllegalStateException();
+        }));
+        assertTrue(changes.isEmpty());
+        jm.batch(batch -> {
+            batch.assignJobs(new Robot(1), 5);
+            assertTrue(changes.isEmpty());
+        });
+        assertEquals(List.of(new JobChange(1, 5, Robot.NULL, new Robot(1))), changes);
+    }
+
+    @Test
+    public void test_changeListenerMirror() {
+        Random random = new Random(37);
+        JobManager jm = new JobManager(200, JobManager.CheckLevel.INCREMENTAL);
+        JobManager old = new JobManager(200, JobManager.CheckLevel.INCREMENTAL);
+        int[] mirror = new int[400];
+        jm.addChangeListener(change -> {
+            for (int job = change.lo; job <= change.hi; job++) {
+                assertEquals(change.oldRobot.id, mirror[job]);
+                mirror[job] = change.newRobot.id;
+            }
+        });
+        for (int step = 0; step < 2000; step++) {
+            Robot robot = Robot.of(1 + random.nextInt(5));
+            Robot other = Robot.of(1 + random.nextInt(5));
+            int jobId = random.nextInt(jm.n + 1);
+            switch (random.nextInt(10)) {
+                case 0: jm.addRobot(robot); break;
+                case 1: jm.removeRobot(robot); break;
+                case 2: jm.assignJobs(robot, jobId); break;
+                case 3: jm.moveJobs(robot, other, jobId); break;
+                case 4: jm.moveJobs(robot, other); break;
+                case 5: jm.completeJob(jobId); break;
+                case 6: jm.pollBatch(robot, 3, new int[3]); break;
+                case 7: jm.assignTopK(robot, 4); break;
+                case 8: jm.rebalance(JobManager.Strategy.LEAST_LOADED); break;
+                default: jm.addJobs(jm.n < 390 ? 1 : 0);
+            }
+            for (int job = 1; job <= jm.n; job++) {
+                assertEquals(jm.getRobot(job).id, mirror[job]);
+            }
+            if (step % 100 == 0) {
+                int[] robots = new int[jm.n + 1];
+                for (int job = 1; job <= old.n; job++) {
+                    robots[job] = old.getRobot(job).id;
+                }
+                for (JobChange change : old.diff(jm)) {
+                    for (int job = change.lo; job <= change.hi; job++) {
+                        assertEquals(robots[job], change.oldRobot.id);
+                        robots[job] = change.newRobot.id;
+                    }
+                }
+                for (int job = 1; job <= jm.n; job++) {
+                    assertEquals(jm.getRobot(job).id, robots[job]);
+                }
+                old = new JobManager(jm.n, JobManager.CheckLevel.INCREMENTAL);
+                old.addRobot(Robot.of(1));
+                old.assignJobs(Robot.of(1), jm.n / 2);
+            }
+        }
+    }
+
+    @Test
+    public void test_removeRobots() {
+        JobManager jm = new JobManager(30);
+        JobManager expected = new JobManager(30);
+        for (JobManager jobs : List.of(jm, expected)) {
+            for (int id = 1; id <= 4; id++) {
+                jobs.addRobot(new Robot(id));
+            }
+            jobs.rebalance(JobManager.Strategy.ROUND_ROBIN);
+            jobs.moveJobs(new Robot(4), new Robot(3), 12);
+        }
+        List<JobChange> changes = new ArrayList<>();
+        jm.addChangeListener(changes::add);
+        assertEquals(2, jm.removeRobots(Arrays.asList(new Robot(1), null, Robot.NULL, new Robot(3), new Robot(1),
+                new Robot(9))));
+        expected.removeRobot(new Robot(1));
+        expected.removeRobot(new Robot(3));
+        assertEquals(expected, jm);
+        assertEquals(expected.stats().toString(), jm.stats().toString());
+        assertFalse(jm.hasRobot(new Robot(3)));
+        assertTrue(jm.getRobot(3).isNull());
+        assertEquals(18, jm.unassignedCount());
+        assertEquals(18, changes.stream().mapToInt(JobChange::size).sum());
+        for (JobChange change : changes) {
+            assertTrue(change.newRobot.isNull());
+        }
+        assertEquals(0, jm.removeRobots(List.of(new Robot(1))));
+        assertEquals(2, jm.removeRobots(List.of(new Robot(2), new Robot(4))));
+        assertEquals(30, jm.unassignedCount());
+        assertTrue(jm.addRobot(new Robot(1)));
+        assertTrue(jm.assignJobs(new Robot(1), 30));
+        assertEquals(30, jm.jobCount(new Robot(1)));
+        assertThrows(IllegalArgumentException.class, () -> jm.removeRobots(null));
+    }
+
 }
@@ -0,0 +1,212 @@
+package jobmanager;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JobSetTests {
+
+    @Test
+    public void test_addRemove() {
+        JobSet set = new JobSet();
+        assertTrue(set.add(3));
+        assertFalse(set.add(3));
+        assertTrue(set.add(200));
+        assertEquals(2, set.size());
+        assertTrue(set.contains(200));
+        assertFalse(set.contains(199));
+        assertTrue(set.remove(3));
+        assertFalse(set.remove(3));
+        assertEquals(1, set.size());
+    }
+
+    @Test
+    public void test_addNegative() {
+        assertThrows(IndexOutOfBoundsException.class, () -> new JobSet().add(-1));
+    }
+
+    @Test
+    public void test_range() {
+        JobSet set = new JobSet(1, 130);
+        assertEquals(130, set.size());
+        assertFalse(set.contains(0));
+        assertTrue(set.contains(64));
+        assertEquals(130, set.last());
+        assertEquals(70, set.removeRange(0, 70));
+        assertEquals(71, set.nextSetBit(0));
+        assertEquals(60, set.size());
+        assertEquals(10, set.addRange(61, 80));
+        assertEquals(61, set.nextSetBit(0));
+    }
+
+    @Test
+    public void test_nextClearBit() {
+        JobSet set = new JobSet(5, 127);
+        assertEquals(0, set.nextClearBit(0));
+        assertEquals(128, set.nextClearBit(5));
+        set.remove(100);
+        assertEquals(100, set.nextClearBit(64));
+        assertEquals(-1, set.nextSetBit(128));
+    }
+
+    @Test
+    public void test_nextClearBitLimit() {
+        JobSet set = new JobSet(1, 1000);
+        assertEquals(11, set.nextClearBit(3, 10));
+        assertEquals(1001, set.nextClearBit(3, 5000));
+        set.remove(7);
+        assertEquals(7, set.nextClearBit(3, 10));
+        assertEquals(3, set.nextClearBit(5, 2));
+    }
+
+    @Test
+    public void test_equals() {
+        JobSet set1 = new JobSet(1, 3);
+        JobSet set2 = new JobSet();
+        set2.add(1000);
+        set2.addRange(1, 3);
+        set2.remove(1000);
+        assertEquals(set1, set2);
+        assertEquals(set1.hashCode(), set2.hashCode());
+        set2.remove(2);
+        assertNotEquals(set1, set2);
+    }
+
+    @Test
+    public void test_implicitRange() {
+        JobSet set = new JobSet(1, Integer.MAX_VALUE - 1);
+        assertEquals(Integer.MAX_VALUE - 1, set.size());
+        assertEquals(Integer.MAX_VALUE - 1, set.last());
+        assertTrue(set.contains(1_000_000_000));
+        assertFalse(set.contains(Integer.MAX_VALUE));
+        assertEquals(1, set.nextSetBit(0));
+        assertEquals(Integer.MAX_VALUE, set.nextClearBit(1));
+        assertEquals(501, set.nextClearBit(70, 500));
+        assertEquals(3, set.removeRange(Integer.MAX_VALUE - 3, Integer.MAX_VALUE));
+        assertEquals(Integer.MAX_VALUE - 4, set.last());
+        assertEquals(100, set.removeRange(1, 100));
+        assertEquals(101, set.nextSetBit(0));
+        assertFalse(set.add(5000));
+        assertTrue(set.remove(5000));
+        assertEquals(5000, set.nextClearBit(101));
+        assertEquals(Integer.MAX_VALUE - 105, set.size());
+    }
+
+    @Test
+    public void test_implicitRangeGrow() {
+        JobSet set = new JobSet(1, 100);
+        assertEquals(900, set.addRange(101, 1000));
+        assertEquals(1000, set.size());
+        assertEquals(1, set.addRange(2000, 2000));
+        assertFalse(set.contains(1500));
+        assertEquals(2000, set.last());
+        assertEquals(1001, set.nextClearBit(1));
+        set.clear();
+        assertEquals(-1, set.nextSetBit(0));
+        assertEquals(-1, set.last());
+    }
+
+    @Test
+    public void test_implicitRangeEquals() {
+        JobSet lazy = new JobSet(1, 10_000);
+        JobSet eager = new JobSet();
+        for (int id = 10_000; id >= 1; id--) {
+            eager.add(id);
+        }
+        assertEquals(lazy, eager);
+        assertEquals(eager, lazy);
+        assertEquals(lazy.hashCode(), eager.hashCode());
+        JobSet copy = new JobSet();
+        copy.addAll(lazy);
+        assertEquals(lazy, copy);
+        lazy.remove(9_999);
+        assertNotEquals(lazy, eager);
+        eager.remove(9_999);
+        assertEquals(lazy, eager);
+        assertEquals(lazy.hashCode(), eager.hashCode());
+    }
+
+    @Test
+    public void test_randomAgainstBitSet() {
+        Random random = new Random(7);
+        for (int round = 0; round < 50; round++) {
+            int n = 1 + random.nextInt(2000);
+            int low = 1 + random.nextInt(n);
+            JobSet set = new JobSet(low, n);
+            BitSet expected = new BitSet();
+            expected.set(low, n + 1);
+            for (int op = 0; op < 200; op++) {
+                int lo = random.nextInt(n + 200);
+                int hi = lo + random.nextInt(300);
+                switch (random.nextInt(5)) {
+                    case 0:
+                        assertEquals(expected.get(lo, hi + 1).cardinality(), set.removeRange(lo, hi));
+                        expected.clear(lo, hi + 1);
+                        break;
+                    case 1:
+                        assertEquals(hi - lo + 1 - expected.get(lo, hi + 1).cardinality(), set.addRange(lo, hi));
+                        expected.set(lo, hi + 1);
+                        break;
+                    case 2:
+                        assertEquals(!expected.get(lo), set.add(lo));
+                        expected.set(lo);
+                        break;
+                    case 3:
+                        set.trimToSize();
+                        break;
+                    default:
+                        assertEquals(expected.get(lo), set.remove(lo));
+                        expected.clear(lo);
+                }
+                assertEquals(expected.cardinality(), set.size());
+                assertEquals(expected.length() - 1, set.last());
+                assertEquals(expected.nextSetBit(lo), set.nextSetBit(lo));
+                assertEquals(Math.min(expected.nextClearBit(lo), hi + 1), set.nextClearBit(lo, hi));
+                assertEquals(expected.get(hi), set.contains(hi));
+                assertEquals(expected.previousSetBit(hi), set.prevSetBit(hi));
+                assertEquals(Math.max(expected.previousClearBit(hi), lo - 1), set.prevClearBit(hi, lo));
+                assertEquals(expected.get(lo, hi + 1).cardinality(), set.countRange(lo, hi));
+            }
+        }
+    }
+
+    @Test
+    public void test_reverseScans() {
+        JobSet set = new JobSet(1, 1_000);
+        assertEquals(1_000, set.prevSetBit(Integer.MAX_VALUE));
+        assertEquals(500, set.prevSetBit(500));
+        assertEquals(5_000, set.prevClearBit(5_000, 0));
+        assertEquals(0, set.prevClearBit(1_000, 0));
+        assertEquals(899, set.prevClearBit(1_000, 900));
+        set.removeRange(200, 1_000);
+        assertEquals(199, set.last());
+        assertEquals(199, set.prevSetBit(5_000));
+        set.add(700);
+        assertEquals(700, set.last());
+        assertEquals(-1, set.prevSetBit(0));
+        assertEquals(-1, set.prevSetBit(-5));
+        assertEquals(200, set.countRange(0, 1_000));
+        assertEquals(0, set.countRange(10, 9));
+    }
+
+    @Test
+    public void test_trimToSize() {
+        JobSet set = new JobSet(1, 10_000);
+        set.removeRange(1, 5_000);
+        set.trimToSize();
+        assertEquals(5_000, set.size());
+        assertEquals(5_001, set.nextSetBit(0));
+        assertFalse(set.contains(64));
+        assertEquals(new JobSet(5_001, 10_000), set);
+        assertEquals(new JobSet(5_001, 10_000).hashCode(), set.hashCode());
+        assertTrue(set.add(3));
+        assertEquals(3, set.nextSetBit(0));
+        set.clear();
+        set.trimToSize();
+        assertEquals(-1, set.last());
+        assertEquals(0, set.nextClearBit(0));
+    }
+}
@@ -0,0 +1,80 @@
+package jobmanager;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoadIndexTests {
+
+    @Test
+    public void test_minMax() {
+        LoadIndex index = new LoadIndex();
+        assertEquals(0, index.minSlot());
+        assertEquals(0, index.maxSlot());
+        index.set(3, 5);
+        index.set(1, 7);
+        index.set(2, 5);
+        assertEquals(2, index.minSlot());
+        assertEquals(1, index.maxSlot());
+        assertEquals(17, index.totalLoad());
+        index.set(1, 0);
+        assertEquals(1, index.minSlot());
+        assertEquals(2, index.maxSlot());
+        assertEquals(10, index.totalLoad());
+    }
+
+    @Test
+    public void test_remove() {
+        LoadIndex index = new LoadIndex();
+        index.set(1, 4);
+        index.set(20, 9);
+        assertTrue(index.remove(20));
+        assertFalse(index.remove(20));
+        assertFalse(index.contains(20));
+        assertEquals(0, index.load(20));
+        assertEquals(1, index.maxSlot());
+        assertEquals(1, index.size());
+        index.clear();
+        assertEquals(0, index.size());
+        assertEquals(0, index.maxSlot());
+        assertThrows(IllegalArgumentException.class, () -> index.set(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> index.set(1, -1));
+    }
+
+    @Test
+    public void test_randomAgainstArray() {
+        Random random = new Random(5);
+        LoadIndex index = new LoadIndex();
+        int[] expected = new int[100];
+        boolean[] present = new boolean[100];
+        for (int op = 0; op < 5000; op++) {
+            int slot = 1 + random.nextInt(expected.length - 1);
+            if (random.nextInt(4) == 0) {
+                assertEquals(present[slot], index.remove(slot));
+                present[slot] = false;
+            }
+            else {
+                expected[slot] = random.nextInt(50);
+                present[slot] = true;
+                index.set(slot, expected[slot]);
+            }
+            int min = 0;
+            int max = 0;
+            int size = 0;
+            long total = 0;
+            for (int s = 1; s < expected.length; s++) {
+                if (!present[s]) { continue; }
+                size++;
+                total += expected[s];
+                if (min == 0 || expected[s] < expected[min]) { min = s; }
+                if (max == 0 || expected[s] > expected[max]) { max = s; }
+            }
+            assertEquals(min, index.minSlot());
+            assertEquals(max, index.maxSlot());
+            assertEquals(size, index.size());
+            assertEquals(total, index.totalLoad());
+        }
+    }
+}
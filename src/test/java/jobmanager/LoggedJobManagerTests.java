@@ -0,0 +1,169 @@
+package jobmanager;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoggedJobManagerTests {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void test_contract() throws IOException {
+        try (LoggedJobManager jm = LoggedJobManager.create(this.dir.resolve("jobs.log"), 4, 8)) {
+            assertTrue(jm.addRobot(new Robot(1)));
+            assertFalse(jm.addRobot(new Robot(1)));
+            assertTrue(jm.hasRobot(new Robot(1)));
+            assertTrue(jm.assignJobs(new Robot(1), 2));
+            assertTrue(jm.isAssigned(2));
+            assertEquals(new Robot(1), jm.getRobot(1));
+            assertEquals(2, jm.getHighestPriorityJob(new Robot(1), 4));
+            assertEquals(2, jm.pollHighestPriorityJob(new Robot(1), 4));
+            assertTrue(jm.isCompleted(2));
+            assertEquals(1, jm.jobCount(new Robot(1)));
+            assertEquals(1, jm.stats().assignedJobs);
+            jm.checkRep();
+        }
+    }
+
+    @Test
+    public void test_onlyChangesAreLogged() throws IOException {
+        try (LoggedJobManager jm = LoggedJobManager.create(this.dir.resolve("jobs.log"), 4, 8)) {
+            assertFalse(jm.removeRobot(new Robot(1)));
+            assertFalse(jm.assignJobs(new Robot(1), 2));
+            assertEquals(4, jm.addJobs(0));
+            assertEquals(0, jm.pollBatch(new Robot(1), 2, new int[2]));
+            assertEquals(0, jm.pendingCount());
+            jm.addRobot(new Robot(1));
+            assertEquals(1, jm.pendingCount());
+            jm.commit();
+            assertEquals(0, jm.pendingCount());
+        }
+    }
+
+    @Test
+    public void test_recover() throws IOException {
+        Path path = this.dir.resolve("jobs.log");
+        LoggedJobManager jm = LoggedJobManager.create(path, 100, 4);
+        jm.addRobot(new Robot(1));
+        jm.addRobot(new Robot(2));
+        jm.addRobot(new Robot(3));
+        jm.assignJobs(new Robot(1), 30);
+        jm.assignTopK(new Robot(2), 20);
+        jm.moveJobs(new Robot(1), new Robot(3), 10);
+        jm.completeJobs(new Robot(3), 5);
+        jm.pollBatch(new Robot(2), 3, new int[3]);
+        jm.addJobs(10);
+        Map<Robot, Integer> capacities = new HashMap<>();
+        capacities.put(new Robot(1), 1);
+        capacities.put(new Robot(3), 2);
+        assertEquals(60, jm.rebalance(JobManager.Strategy.weightedCapacity(capacities)));
+        jm.removeRobot(new Robot(2));
+        jm.moveJobs(new Robot(3), new Robot(1));
+        jm.completeJob(50);
+        jm.close();
+        try (LoggedJobManager recovered = LoggedJobManager.recover(path, 4)) {
+            assertEquals(jm, recovered);
+            assertEquals(jm.hashCode(), recovered.hashCode());
+            recovered.addRobot(new Robot(4));
+            recovered.rebalance(JobManager.Strategy.LEAST_LOADED);
+            recovered.commit();
+            assertEquals(recovered.stats().toString(), LoggedJobManager.recover(path, 4).stats().toString());
+        }
+    }
+
+    @Test
+    public void test_uncommittedAreLost() throws IOException {
+        Path path = this.dir.resolve("jobs.log");
+        LoggedJobManager jm = LoggedJobManager.create(path, 10, 2);
+        jm.addRobot(new Robot(1));
+        jm.assignJobs(new Robot(1), 5);
+        jm.addRobot(new Robot(2));
+        // the process dies here: the third record was never committed
+        JobManager jobs = JobManagerLog.replay(path, JobManager.CheckLevel.FULL);
+        assertTrue(jobs.hasRobot(new Robot(1)));
+        assertFalse(jobs.hasRobot(new Robot(2)));
+        assertEquals(3 * JobManagerLog.RECORD_BYTES, Files.size(path));
+        jm.close();
+    }
+
+    @Test
+    public void test_closed() throws IOException {
+        LoggedJobManager jm = LoggedJobManager.create(this.dir.resolve("jobs.log"), 10, 2);
+        jm.addRobot(new Robot(1));
+        jm.close();
+        assertTrue(jm.hasRobot(new Robot(1)));
+        assertThrows(IllegalStateException.class, () -> jm.addRobot(new Robot(2)));
+        assertThrows(IllegalStateException.class, () -> jm.completeJob(1));
+        assertFalse(jm.hasRobot(new Robot(2)));
+        assertFalse(jm.isCompleted(1));
+    }
+
+    @Test
+    public void test_removeRobots() throws IOException {
+        Path path = this.dir.resolve("jobs.log");
+        try (LoggedJobManager jm = LoggedJobManager.create(path, 20, 1)) {
+            jm.addRobot(new Robot(1));
+            jm.addRobot(new Robot(2));
+            jm.addRobot(new Robot(3));
+            jm.assignJobs(new Robot(1), 5);
+            jm.assignTopK(new Robot(2), 5);
+            assertEquals(0, jm.removeRobots(List.of(new Robot(4))));
+            long size = Files.size(path);
+            assertEquals(2, jm.removeRobots(List.of(new Robot(1), new Robot(2), new Robot(1), new Robot(4))));
+            assertEquals(size + 3 * JobManagerLog.RECORD_BYTES, Files.size(path));
+            assertThrows(IllegalArgumentException.class, () -> jm.removeRobots(null));
+        }
+        JobManager jobs = JobManagerLog.replay(path, JobManager.CheckLevel.FULL);
+        assertFalse(jobs.hasRobot(new Robot(1)));
+        assertFalse(jobs.hasRobot(new Robot(2)));
+        assertTrue(jobs.hasRobot(new Robot(3)));
+        assertEquals(20, jobs.unassignedCount());
+    }
+
+    @Test
+    public void test_removeRobotsCutShort() throws IOException {
+        Path path = this.dir.resolve("jobs.log");
+        try (JobManagerLog log = JobManagerLog.create(path, 10, 1)) {
+            log.append(JobManagerLog.ADD_ROBOT, 1, 0, 0);
+            log.append(JobManagerLog.ADD_ROBOT, 2, 0, 0);
+            // the robots of a removal whose closing record was lost in a crash
+            log.append(JobManagerLog.ROBOT, 1, 0, 0);
+        }
+        try (LoggedJobManager jm = LoggedJobManager.recover(path, 1)) {
+            assertEquals(3 * JobManagerLog.RECORD_BYTES, Files.size(path));
+            assertTrue(jm.hasRobot(new Robot(1)));
+            assertEquals(1, jm.removeRobots(List.of(new Robot(2))));
+        }
+        JobManager jobs = JobManagerLog.replay(path, JobManager.CheckLevel.FULL);
+        assertTrue(jobs.hasRobot(new Robot(1)));
+        assertFalse(jobs.hasRobot(new Robot(2)));
+    }
+
+    @Test
+    public void test_onlyChangesAreLoggedAhead() throws IOException {
+        try (LoggedJobManager jm = LoggedJobManager.create(this.dir.resolve("jobs.log"), 4, 8)) {
+            jm.addRobot(new Robot(1));
+            assertEquals(0, jm.rebalance(JobManager.Strategy.weightedCapacity(new HashMap<>())));
+            assertEquals(0, jm.completeJobs(new Robot(1), 4));
+            assertFalse(jm.completeJob(5));
+            assertEquals(0, jm.pollHighestPriorityJob(new Robot(1), 4));
+            assertThrows(IllegalArgumentException.class, () -> jm.addJobs(Integer.MAX_VALUE));
+            assertThrows(IllegalArgumentException.class, () -> jm.assignTopK(new Robot(1), -1));
+            assertEquals(1, jm.pendingCount());
+            assertEquals(2, jm.assignTopK(new Robot(1), 2));
+            assertTrue(jm.completeJob(4));
+            assertFalse(jm.completeJob(4));
+            assertEquals(3, jm.pendingCount());
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package jobmanager;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PersistentIntMapTests {
+
+    @Test
+    public void test_putGetRemove() {
+        PersistentIntMap<String> map = PersistentIntMap.<String>empty().put(1, "a").put(33, "b").put(1025, "c");
+        assertEquals(3, map.size());
+        assertEquals("a", map.get(1));
+        assertEquals("b", map.get(33));
+        assertEquals("c", map.get(1025));
+        assertNull(map.get(2));
+        PersistentIntMap<String> removed = map.remove(33);
+        assertEquals(2, removed.size());
+        assertNull(removed.get(33));
+        assertEquals("b", map.get(33));
+        assertSame(removed, removed.remove(33));
+        assertArrayEquals(new int[] {1, 33, 1025}, map.keys());
+        assertEquals(0, map.remove(1).remove(33).remove(1025).size());
+    }
+
+    @Test
+    public void test_invalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> PersistentIntMap.empty().put(-1, "a"));
+        assertThrows(IllegalArgumentException.class, () -> PersistentIntMap.empty().put(1, null));
+    }
+
+    @Test
+    public void test_shapeDependsOnlyOnKeys() {
+        PersistentIntMap<Integer> up = PersistentIntMap.empty();
+        PersistentIntMap<Integer> down = PersistentIntMap.empty();
+        for (int i = 0; i < 100; i++) {
+            up = up.put(i * 32, i);
+            down = down.put((99 - i) * 32, 99 - i);
+        }
+        assertTrue(up.equalEntries(down, Integer::equals));
+        for (int i = 0; i < 99; i++) {
+            up = up.remove(i * 32);
+        }
+        PersistentIntMap<Integer> single = PersistentIntMap.<Integer>empty().put(99 * 32, 99);
+        assertTrue(up.equalEntries(single, Integer::equals));
+        assertFalse(up.equalEntries(single.put(99 * 32, 98), Integer::equals));
+    }
+
+    @Test
+    public void test_randomAgainstHashMap() {
+        Random random = new Random(29);
+        Map<Integer, Integer> expected = new HashMap<>();
+        PersistentIntMap<Integer> map = PersistentIntMap.empty();
+        for (int step = 0; step < 20000; step++) {
+            int key = random.nextInt(4) == 0 ? random.nextInt(Integer.MAX_VALUE) : random.nextInt(2000);
+            if (random.nextBoolean()) {
+                map = map.put(key, step);
+                expected.put(key, step);
+            }
+            else {
+                map = map.remove(key);
+                expected.remove(key);
+            }
+            assertEquals(expected.size(), map.size());
+            assertEquals(expected.get(key), map.get(key));
+        }
+        Map<Integer, Integer> seen = new HashMap<>();
+        map.forEach(seen::put);
+        assertEquals(expected, seen);
+        PersistentIntMap<Integer> rebuilt = PersistentIntMap.empty();
+        for (Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+            rebuilt = rebuilt.put(entry.getKey(), entry.getValue());
+        }
+        assertTrue(map.equalEntries(rebuilt, Integer::equals));
+    }
+}
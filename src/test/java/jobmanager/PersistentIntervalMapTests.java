@@ -0,0 +1,129 @@
+package jobmanager;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PersistentIntervalMapTests {
+
+    @Test
+    public void test_setGet() {
+        PersistentIntervalMap map = PersistentIntervalMap.EMPTY.set(1, 10, 2);
+        assertEquals(0, PersistentIntervalMap.EMPTY.get(5));
+        assertEquals(2, map.get(1));
+        assertEquals(2, map.get(10));
+        assertEquals(0, map.get(11));
+        assertEquals(10, map.ownedCount());
+        assertEquals("{1..10=2}", map.toString());
+        assertEquals("{}", PersistentIntervalMap.EMPTY.toString());
+    }
+
+    @Test
+    public void test_splitAndMerge() {
+        PersistentIntervalMap map = PersistentIntervalMap.EMPTY.set(1, 10, 2).set(4, 6, 3);
+        assertEquals("{1..3=2, 4..6=3, 7..10=2}", map.toString());
+        assertEquals("{1..3=2, 4=3, 6=3, 7..10=2}", map.set(5, 5, 0).toString());
+        assertEquals("{1..10=2}", map.set(4, 6, 2).toString());
+        assertEquals(3, map.intervalCount());
+        assertEquals(7, map.intervalLo(2));
+        assertEquals(6, map.intervalHi(1));
+        assertEquals(3, map.intervalOwner(1));
+    }
+
+    @Test
+    public void test_immutable() {
+        PersistentIntervalMap map = PersistentIntervalMap.EMPTY.set(1, 10, 2);
+        PersistentIntervalMap changed = map.set(3, 4, 0);
+        assertEquals("{1..10=2}", map.toString());
+        assertEquals("{1..2=2, 5..10=2}", changed.toString());
+        assertNotEquals(map, changed);
+        assertEquals(map, changed.set(3, 4, 2));
+        assertEquals(map.hashCode(), changed.set(3, 4, 2).hashCode());
+    }
+
+    @Test
+    public void test_sliceFloorLast() {
+        PersistentIntervalMap map = PersistentIntervalMap.EMPTY.set(2, 5, 1).set(9, 12, 1).set(20, 20, 3);
+        assertEquals("{4..5=1, 9..10=1}", map.slice(4, 10).toString());
+        assertEquals("{}", map.slice(6, 8).toString());
+        assertEquals(-1, map.floor(1));
+        assertEquals(5, map.floor(7));
+        assertEquals(11, map.floor(11));
+        assertEquals(20, map.floor(Integer.MAX_VALUE));
+        assertEquals(20, map.last());
+        assertEquals(-1, PersistentIntervalMap.EMPTY.last());
+    }
+
+    @Test
+    public void test_randomAgainstArray() {
+        Random random = new Random(23);
+        int size = 200;
+        int[] owners = new int[size + 1];
+        PersistentIntervalMap map = PersistentIntervalMap.EMPTY;
+        for (int step = 0; step < 3000; step++) {
+            int lo = 1 + random.nextInt(size);
+            int hi = Math.min(size, lo + random.nextInt(20));
+            int owner = random.nextInt(4);
+            PersistentIntervalMap before = map;
+            String printed = before.toString();
+            map = map.set(lo, hi, owner);
+            for (int id = lo; id <= hi; id++) {
+                owners[id] = owner;
+            }
+            map.checkRep();
+            assertEquals(printed, before.toString());
+            long owned = 0;
+            for (int id = 1; id <= size; id++) {
+                assertEquals(owners[id], map.get(id));
+                owned += owners[id] > 0 ? 1 : 0;
+            }
+            assertEquals(owned, map.ownedCount());
+            int a = 1 + random.nextInt(size);
+            int b = Math.min(size, a + random.nextInt(50));
+            PersistentIntervalMap slice = map.slice(a, b);
+            slice.checkRep();
+            for (int id = 1; id <= size; id++) {
+                assertEquals(id >= a && id <= b ? owners[id] : 0, slice.get(id));
+            }
+            int floor = -1;
+            for (int id = 1; id <= b; id++) {
+                floor = owners[id] > 0 ? id : floor;
+            }
+            assertEquals(floor, map.floor(b));
+        }
+        PersistentIntervalMap rebuilt = PersistentIntervalMap.EMPTY;
+        for (int id = size; id >= 1; id--) {
+            rebuilt = rebuilt.set(id, id, owners[id]);
+        }
+        assertEquals(map, rebuilt);
+        assertEquals(map.hashCode(), rebuilt.hashCode());
+        assertEquals(map.toString(), rebuilt.toString());
+    }
+
+    @Test
+    public void test_equalsSharedAndRebuilt() {
+        Random random = new Random(31);
+        PersistentIntervalMap map = PersistentIntervalMap.EMPTY;
+        for (int step = 0; step < 500; step++) {
+            int lo = 1 + random.nextInt(1000);
+            map = map.set(lo, lo + random.nextInt(3), 1 + random.nextInt(3));
+        }
+        for (int step = 0; step < 200; step++) {
+            int lo = 1 + random.nextInt(1000);
+            int hi = lo + random.nextInt(3);
+            // a fork that shares all but one path with map, and the same fork rebuilt without sharing anything
+            PersistentIntervalMap fork = map.set(lo, hi, 1 + random.nextInt(3));
+            PersistentIntervalMap rebuilt = PersistentIntervalMap.EMPTY;
+            for (int i = fork.intervalCount() - 1; i >= 0; i--) {
+                rebuilt = rebuilt.set(fork.intervalLo(i), fork.intervalHi(i), fork.intervalOwner(i));
+            }
+            assertEquals(fork, rebuilt);
+            assertEquals(rebuilt, fork);
+            assertEquals(map.toString().equals(fork.toString()), map.equals(fork));
+            assertEquals(map.toString().equals(fork.toString()), fork.equals(map));
+            map = fork;
+        }
+    }
+}
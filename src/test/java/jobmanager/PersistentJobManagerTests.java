@@ -0,0 +1,128 @@
+package jobmanager;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PersistentJobManagerTests {
+
+    @Test
+    public void test_newJobManager() {
+        PersistentJobManager jobs = new PersistentJobManager(10);
+        assertFalse(jobs.isAssigned(3));
+        assertFalse(jobs.isCompleted(3));
+        assertTrue(jobs.getRobot(3).isNull());
+        assertEquals(PersistentJobManager.of(new JobManager(10)), jobs);
+        assertEquals(new JobManager(10).hashCode(), jobs.hashCode());
+        assertThrows(IllegalArgumentException.class, () -> new PersistentJobManager(0));
+    }
+
+    @Test
+    public void test_operations() {
+        PersistentJobManager jobs = new PersistentJobManager(20);
+        assertTrue(jobs.addRobot(new Robot(7)));
+        assertFalse(jobs.addRobot(new Robot(7)));
+        assertFalse(jobs.addRobot(Robot.NULL));
+        assertTrue(jobs.addRobot(new Robot(2)));
+        assertFalse(jobs.assignJobs(new Robot(3), 10));
+        assertTrue(jobs.assignJobs(new Robot(7), 10));
+        assertTrue(jobs.moveJobs(new Robot(7), new Robot(2), 4));
+        assertTrue(jobs.completeJob(6));
+        assertFalse(jobs.completeJob(6));
+        assertTrue(jobs.isCompleted(6));
+        assertEquals(4, jobs.jobCount(new Robot(2)));
+        assertEquals(5, jobs.jobCount(new Robot(7)));
+        assertEquals(2, jobs.getRobot(3).id);
+        assertEquals(10, jobs.getHighestPriorityJob(new Robot(7), 17));
+        assertEquals(5, jobs.getHighestPriorityJob(new Robot(7), 6));
+        assertEquals(0, jobs.getHighestPriorityJob(new Robot(2), 0));
+        assertTrue(jobs.removeRobot(new Robot(2)));
+        assertFalse(jobs.isAssigned(3));
+        assertEquals(25, jobs.addJobs(5));
+        jobs.checkRep();
+    }
+
+    @Test
+    public void test_forkIsIsolated() {
+        PersistentJobManager jobs = new PersistentJobManager(100);
+        jobs.addRobot(new Robot(1));
+        jobs.addRobot(new Robot(2));
+        jobs.assignJobs(new Robot(1), 50);
+        PersistentJobManager fork = jobs.fork();
+        assertEquals(jobs, fork);
+        fork.moveJobs(new Robot(1), new Robot(2), 30);
+        fork.completeJob(40);
+        fork.addRobot(new Robot(3));
+        assertNotEquals(jobs, fork);
+        assertEquals(50, jobs.jobCount(new Robot(1)));
+        assertEquals(0, jobs.jobCount(new Robot(2)));
+        assertFalse(jobs.hasRobot(new Robot(3)));
+        assertFalse(jobs.isCompleted(40));
+        assertEquals(19, fork.jobCount(new Robot(1)));
+        assertEquals(30, fork.jobCount(new Robot(2)));
+        jobs.checkRep();
+        fork.checkRep();
+        fork.moveJobs(new Robot(2), new Robot(1));
+        fork.removeRobot(new Robot(3));
+        jobs.completeJob(40);
+        assertEquals(jobs, fork);
+        assertEquals(jobs.hashCode(), fork.hashCode());
+    }
+
+    @Test
+    public void test_randomAgainstJobManager() {
+        Random random = new Random(31);
+        JobManager expected = new JobManager(300);
+        PersistentJobManager jobs = new PersistentJobManager(300);
+        PersistentJobManager[] forks = new PersistentJobManager[8];
+        PersistentJobManager[] copies = new PersistentJobManager[forks.length];
+        for (int step = 0; step < 3000; step++) {
+            Robot robot = Robot.of(1 + random.nextInt(6));
+            Robot other = Robot.of(1 + random.nextInt(6));
+            int jobId = random.nextInt(expected.n + 2);
+            switch (random.nextInt(8)) {
+                case 0:
+                    assertEquals(expected.addRobot(robot), jobs.addRobot(robot));
+                    break;
+                case 1:
+                    assertEquals(expected.removeRobot(robot), jobs.removeRobot(robot));
+                    break;
+                case 2:
+                case 3:
+                    assertEquals(expected.assignJobs(robot, jobId), jobs.assignJobs(robot, jobId));
+                    break;
+                case 4:
+                    assertEquals(expected.moveJobs(robot, other, jobId), jobs.moveJobs(robot, other, jobId));
+                    break;
+                case 5:
+                    assertEquals(expected.moveJobs(robot, other), jobs.moveJobs(robot, other));
+                    break;
+                case 6:
+                    assertEquals(expected.completeJob(jobId), jobs.completeJob(jobId));
+                    break;
+                default:
+                    int k = random.nextInt(3);
+                    assertEquals(expected.addJobs(k), jobs.addJobs(k));
+                    break;
+            }
+            jobs.checkRep();
+            assertEquals(PersistentJobManager.of(expected), jobs);
+            assertEquals(expected.hashCode(), jobs.hashCode());
+            assertEquals(expected.isAssigned(jobId), jobs.isAssigned(jobId));
+            assertEquals(expected.isCompleted(jobId), jobs.isCompleted(jobId));
+            assertEquals(expected.getRobot(jobId).id, jobs.getRobot(jobId).id);
+            assertEquals(expected.jobCount(robot), jobs.jobCount(robot));
+            assertEquals(expected.getHighestPriorityJob(robot, jobId), jobs.getHighestPriorityJob(robot, jobId));
+            if (step % 400 == 0) {
+                forks[step / 400] = jobs.fork();
+                copies[step / 400] = PersistentJobManager.of(expected);
+            }
+        }
+        for (int i = 0; i < forks.length; i++) {
+            forks[i].checkRep();
+            assertEquals(copies[i], forks[i]);
+        }
+    }
+}
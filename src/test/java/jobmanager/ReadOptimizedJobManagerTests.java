@@ -0,0 +1,228 @@
+package jobmanager;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReadOptimizedJobManagerTests {
+
+    @Test
+    public void test_contract() {
+        ReadOptimizedJobManager jm = new ReadOptimizedJobManager(4);
+        assertTrue(jm.addRobot(new Robot(1)));
+        assertTrue(jm.hasRobot(new Robot(1)));
+        assertFalse(jm.hasRobot(new Robot(0)));
+        assertTrue(jm.assignJobs(new Robot(1), 2));
+        assertTrue(jm.isAssigned(2));
+        assertFalse(jm.isAssigned(3));
+        assertEquals(new Robot(1), jm.getRobot(1));
+        assertTrue(jm.getRobot(3).isNull());
+        assertEquals(2, jm.getHighestPriorityJob(new Robot(1), 4));
+        assertTrue(jm.addRobot(new Robot(2)));
+        assertTrue(jm.moveJobs(new Robot(1), new Robot(2)));
+        assertEquals(new Robot(2), jm.getRobot(2));
+        assertTrue(jm.removeRobot(new Robot(2)));
+        assertFalse(jm.isAssigned(1));
+        assertEquals(4, jm.hashCode());
+        jm.checkRep();
+    }
+
+    @Test
+    public void test_addJobs() {
+        ReadOptimizedJobManager jm = new ReadOptimizedJobManager(2);
+        jm.addRobot(new Robot(1));
+        assertEquals(4, jm.addJobs(2));
+        assertTrue(jm.assignJobs(new Robot(1), 4));
+        assertEquals(new Robot(1), jm.getRobot(4));
+        assertDoesNotThrow(jm::checkRep);
+    }
+
+    @Test
+    public void test_poll() {
+        ReadOptimizedJobManager jm = new ReadOptimizedJobManager(5);
+        jm.addRobot(new Robot(1));
+        jm.assignJobs(new Robot(1), 5);
+        assertEquals(3, jm.pollHighestPriorityJob(new Robot(1), 3));
+        int[] into = new int[2];
+        assertEquals(2, jm.pollBatch(new Robot(1), 2, into));
+        assertArrayEquals(new int[] {5, 4}, into);
+        assertFalse(jm.isAssigned(5));
+        assertTrue(jm.isAssigned(2));
+    }
+
+    @Test
+    public void test_topK() {
+        ReadOptimizedJobManager jm = new ReadOptimizedJobManager(10);
+        jm.addRobot(new Robot(1));
+        assertEquals(3, jm.assignTopK(new Robot(1), 3));
+        assertEquals(7, jm.peekHighestUnassigned());
+        assertEquals(7, jm.countUnassigned(1, 10));
+        assertTrue(jm.isAssigned(8));
+    }
+
+    @Test
+    public void test_stats() {
+        ReadOptimizedJobManager jm = new ReadOptimizedJobManager(10);
+        jm.addRobot(new Robot(1));
+        jm.assignJobs(new Robot(1), 4);
+        assertEquals(4, jm.jobCount(new Robot(1)));
+        LoadStats stats = jm.stats();
+        assertEquals(4, stats.assignedJobs);
+        assertEquals(6, stats.unassignedJobs);
+        assertEquals(new Robot(1), stats.mostLoaded);
+    }
+
+    @Test
+    public void test_readersSeeConsistentAssignments() throws Exception {
+        // every job always belongs to exactly one of robots 1 and 2 while writers shuffle jobs between them and
+        // robot 3 keeps joining, taking jobs from robot 1 and leaving
+        int n = 5_000;
+        Robot robot1 = new Robot(1);
+        Robot robot2 = new Robot(2);
+        Robot robot3 = new Robot(3);
+        ReadOptimizedJobManager jm = new ReadOptimizedJobManager(n, JobManager.CheckLevel.OFF);
+        jm.addRobot(robot1);
+        jm.addRobot(robot2);
+        jm.assignJobs(robot1, n);
+        AtomicBoolean done = new AtomicBoolean();
+        ExecutorService pool = Executors.newFixedThreadPool(6);
+        try {
+            List<Future<?>> readers = new ArrayList<>();
+            for (int t = 0; t < 3; t++) {
+                int seed = t;
+                readers.add(pool.submit(() -> {
+                    Random random = new Random(seed);
+                    while (!done.get()) {
+                        int job = 1 + random.nextInt(n);
+                        assertTrue(jm.isAssigned(job));
+                        Robot owner = jm.getRobot(job);
+                        assertTrue(owner.equals(robot1) || owner.equals(robot2) || owner.equals(robot3));
+                        assertTrue(jm.hasRobot(robot1));
+                        assertTrue(jm.getHighestPriorityJob(robot1, n) >= 0);
+                    }
+                }));
+            }
+            readers.add(pool.submit(() -> checkPlacements(jm, n, done)));
+            Future<?> writer = pool.submit(() -> {
+                Random random = new Random(99);
+                for (int i = 0; i < 20_000; i++) {
+                    int jobId = 1 + random.nextInt(n);
+                    switch (random.nextInt(3)) {
+                        case 0:
+                            jm.moveJobs(robot1, robot2, jobId);
+                            break;
+                        case 1:
+                            jm.moveJobs(robot2, robot1);
+                            break;
+                        default:
+                            jm.addRobot(robot3);
+                            jm.moveJobs(robot1, robot3, jobId);
+                            jm.moveJobs(robot3, robot2);
+                            jm.removeRobot(robot3);
+                    }
+                }
+            });
+            writer.get();
+            done.set(true);
+            for (Future<?> reader : readers) {
+                reader.get();
+            }
+        }
+        finally {
+            done.set(true);
+            pool.shutdown();
+        }
+        jm.checkRep();
+    }
+
+    @Test
+    public void test_readersSeeEveryJobInExactlyOnePlace() throws Exception {
+        // writers keep releasing jobs to the pool and taking them back while readers check every job at once
+        int n = 2_000;
+        Robot robot1 = new Robot(1);
+        Robot robot2 = new Robot(2);
+        ReadOptimizedJobManager jm = new ReadOptimizedJobManager(n, JobManager.CheckLevel.OFF);
+        jm.addRobot(robot1);
+        jm.addRobot(robot2);
+        AtomicBoolean done = new AtomicBoolean();
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        try {
+            List<Future<?>> readers = new ArrayList<>();
+            for (int t = 0; t < 2; t++) {
+                readers.add(pool.submit(() -> checkPlacements(jm, n, done)));
+            }
+            Future<?> writer = pool.submit(() -> {
+                Random random = new Random(7);
+                for (int i = 0; i < 20_000; i++) {
+                    int jobId = 1 + random.nextInt(n);
+                    switch (random.nextInt(4)) {
+                        case 0:
+                            jm.assignJobs(robot1, jobId);
+                            break;
+                        case 1:
+                            jm.moveJobs(robot1, robot2, jobId);
+                            break;
+                        case 2:
+                            jm.removeRobot(robot2);
+                            jm.addRobot(robot2);
+                            break;
+                        default:
+                            jm.moveJobs(robot2, robot1);
+                    }
+                }
+            });
+            writer.get();
+            done.set(true);
+            for (Future<?> reader : readers) {
+                reader.get();
+            }
+        }
+        finally {
+            done.set(true);
+            pool.shutdown();
+        }
+        jm.checkRep();
+    }
+
+    /**
+     * Checks, until done is set, that every job in [1,...,n] is either unassigned or assigned to exactly one robot
+     * according to both the job sets and the job owner index, with all values read under a single validated stamp
+     */
+    private static void checkPlacements(ReadOptimizedJobManager jm, int n, AtomicBoolean done) {
+        int validated = 0;
+        while (!done.get() || validated == 0) {
+            String violation = jm.readOptimistically((jobs, robots) -> {
+                for (int job = 1; job <= n; job++) {
+                    boolean unassigned = jobs.unassignedJobs.contains(job);
+                    int holder = 0;
+                    int holders = 0;
+                    for (int id : robots.keys()) {
+                        if (robots.get(id).contains(job)) {
+                            holder = id;
+                            holders++;
+                        }
+                    }
+                    Robot owner = jobs.ownerOf(job);
+                    boolean held = holders == 1 && owner != null && holder == owner.id;
+                    if (unassigned ? holders != 0 || owner != null : !held) {
+                        return "job " + job + ": unassigned=" + unassigned + ", holders=" + holders + ", owner="
+                                + owner;
+                    }
+                }
+                return "";
+            });
+            if (violation != null) {
+                assertEquals("", violation);
+                validated++;
+            }
+        }
+    }
+}
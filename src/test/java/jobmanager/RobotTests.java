@@ -84,4 +84,24 @@ public class RobotTests {
         Robot r = new Robot(id);
         assertEquals(id, r.hashCode());
     }
+
+    @Test
+    public void test_of() {
+        assertSame(Robot.of(7), Robot.of(7));
+        assertEquals(new Robot(7), Robot.of(7));
+        assertEquals(7, Robot.of(7).id);
+        assertSame(Robot.of(1 << 20), Robot.of(1 << 20));
+        assertEquals(new Robot(1 << 20), Robot.of(1 << 20));
+        assertThrows(IllegalArgumentException.class, () -> Robot.of(-1));
+    }
+
+    @Test
+    public void test_ofNull() {
+        assertSame(Robot.NULL, Robot.of(0));
+        assertTrue(Robot.of(0).isNull());
+        assertNotEquals(Robot.NULL, Robot.NULL);
+        assertNotEquals(Robot.NULL, new Robot(0));
+        assertNotEquals(new Robot(0), Robot.of(0));
+    }
+
 }
@@ -0,0 +1,153 @@
+package jobmanager;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RunIntSortedSetTests {
+
+    @Test
+    public void test_empty() {
+        IntSortedSet set = new RunIntSortedSet();
+        assertTrue(set.isEmpty());
+        assertEquals(-1, set.floor(10));
+        assertThrows(NoSuchElementException.class, set::first);
+        assertThrows(NoSuchElementException.class, set::last);
+    }
+
+    @Test
+    public void test_addRangeMergesRuns() {
+        IntSortedSet set = new RunIntSortedSet();
+        assertEquals(3, set.addRange(1, 3));
+        assertEquals(3, set.addRange(7, 9));
+        assertEquals(2, set.runCount());
+        assertEquals(3, set.addRange(4, 6));
+        assertEquals(1, set.runCount());
+        assertEquals(9, set.size());
+        assertEquals(1, set.first());
+        assertEquals(9, set.last());
+        assertEquals(0, set.addRange(2, 8));
+    }
+
+    @Test
+    public void test_removeRangeSplitsRuns() {
+        IntSortedSet set = new RunIntSortedSet();
+        set.addRange(1, 10);
+        assertEquals(3, set.removeRange(4, 6));
+        assertEquals(2, set.runCount());
+        assertEquals(3, set.floor(5));
+        assertEquals(7, set.floor(7));
+        assertFalse(set.contains(5));
+        assertEquals(7, set.size());
+        assertEquals(5, set.removeRange(0, 8));
+        assertEquals(9, set.first());
+    }
+
+    @Test
+    public void test_addAll() {
+        IntSortedSet set1 = new RunIntSortedSet();
+        set1.addRange(1, 3);
+        set1.addRange(10, 12);
+        IntSortedSet set2 = new RunIntSortedSet();
+        set2.addRange(4, 5);
+        set2.addRange(11, 20);
+        assertEquals(10, set1.addAll(set2));
+        assertEquals(2, set1.runCount());
+        assertEquals("[1..5, 10..20]", set1.toString());
+        assertEquals(16, set1.size());
+    }
+
+    @Test
+    public void test_equals() {
+        IntSortedSet set1 = new RunIntSortedSet();
+        set1.addRange(1, 3);
+        IntSortedSet set2 = new RunIntSortedSet();
+        set2.add(3);
+        set2.add(1);
+        set2.add(2);
+        assertEquals(set1, set2);
+        assertEquals(set1.hashCode(), set2.hashCode());
+        assertEquals(set1, set1.copy());
+    }
+
+    @Test
+    public void test_matchesTreeSet() {
+        Random random = new Random(221);
+        IntSortedSet set = new RunIntSortedSet();
+        TreeSet<Integer> expected = new TreeSet<>();
+        for (int i = 0; i < 2000; i++) {
+            int lo = random.nextInt(200);
+            int hi = lo + random.nextInt(10);
+            if (random.nextBoolean()) {
+                int added = set.addRange(lo, hi);
+                int before = expected.size();
+                for (int job = lo; job <= hi; job++) { expected.add(job); }
+                assertEquals(expected.size() - before, added);
+            }
+            else {
+                int removed = set.removeRange(lo, hi);
+                int before = expected.size();
+                expected.subSet(lo, true, hi, true).clear();
+                assertEquals(before - expected.size(), removed);
+            }
+            assertEquals(expected.size(), set.size());
+            int probe = random.nextInt(220);
+            Integer floor = expected.floor(probe);
+            assertEquals(floor == null ? -1 : floor, set.floor(probe));
+            assertEquals(expected.contains(probe), set.contains(probe));
+            RunIntSortedSet rebuilt = new RunIntSortedSet();
+            for (int job : expected) { rebuilt.add(job); }
+            assertEquals(rebuilt.fingerprint(), set.fingerprint());
+        }
+    }
+
+    @Test
+    public void test_fingerprint() {
+        RunIntSortedSet set1 = new RunIntSortedSet();
+        set1.addRange(1, 10);
+        RunIntSortedSet set2 = new RunIntSortedSet();
+        set2.addRange(6, 10);
+        set2.addAll(new RunIntSortedSet(set1));
+        assertEquals(set1.fingerprint(), set2.fingerprint());
+        assertEquals(set1.fingerprint(), set1.copy().fingerprint());
+        set2.remove(5);
+        assertNotEquals(set1.fingerprint(), set2.fingerprint());
+        set2.clear();
+        assertEquals(new RunIntSortedSet().fingerprint(), set2.fingerprint());
+        // same size and sum, different sum of squares
+        RunIntSortedSet set3 = new RunIntSortedSet();
+        set3.add(1);
+        set3.add(4);
+        RunIntSortedSet set4 = new RunIntSortedSet();
+        set4.add(2);
+        set4.add(3);
+        assertNotEquals(set3.fingerprint(), set4.fingerprint());
+        RunIntSortedSet large = new RunIntSortedSet();
+        large.addRange(0, Integer.MAX_VALUE);
+        large.remove(Integer.MAX_VALUE - 1);
+        RunIntSortedSet rebuilt = new RunIntSortedSet();
+        rebuilt.add(Integer.MAX_VALUE);
+        rebuilt.addRange(0, Integer.MAX_VALUE - 2);
+        assertEquals(rebuilt.fingerprint(), large.fingerprint());
+    }
+
+    @Test
+    public void test_trimToSize() {
+        RunIntSortedSet set = new RunIntSortedSet();
+        for (int id = 0; id < 100; id += 2) {
+            set.add(id);
+        }
+        set.removeRange(10, 100);
+        set.trimToSize();
+        assertEquals(5, set.runCount());
+        assertEquals(10, set.bounds.length);
+        assertEquals("[0, 2, 4, 6, 8]", set.toString());
+        assertTrue(set.add(9));
+        assertEquals(9, set.last());
+    }
+
+}